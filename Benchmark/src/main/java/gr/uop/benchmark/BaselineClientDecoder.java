@@ -0,0 +1,141 @@
+package gr.uop.benchmark;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Scanner;
+
+/**
+ * BaselineClientDecoder reproduces the message handling the clients used before the Protocol module: lines are read with
+ * {@code Scanner.nextLine()}, split with {@code indexOf}/{@code substring} into a command and a shared
+ * {@code data} field, and dispatched through a {@code HashMap<String, Runnable>} as in
+ * {@code CommandLineClient} and {@code GameplayScreen}. The TILES and BOARD handlers parse the tiles
+ * the way {@code GameplayScreen} does, with {@code replace}, {@code split} and {@code parseInt}.
+ *
+ * <p>
+ * The client classes cannot be benchmarked directly (their handlers print to the console or touch JavaFX
+ * nodes), so this class keeps their decoding work and drops the output.
+ * </p>
+ */
+final class BaselineClientDecoder {
+
+    private Map<String, Runnable> gameCommands = new HashMap<>();
+    private String data; // Shared payload field, as in the clients
+
+    // Decoded state, read by the benchmarks so the work cannot be optimized away
+    private int stockSize;
+    private int opponentTiles;
+    private int[] pips = new int[56];
+    private int pipCount;
+    private String lastTile;
+    private int handled;
+
+    /**
+     * Registers the gameplay handlers, using the same commands as the clients.
+     */
+    BaselineClientDecoder() {
+        gameCommands.put("TURN", this::handleSignal);
+        gameCommands.put("TILES", () -> handleTiles(data));
+        gameCommands.put("BOARD", () -> handleTiles(data));
+        gameCommands.put("STOCK_SIZE", () -> stockSize = Integer.parseInt(data));
+        gameCommands.put("OPPONENT_TILE_SIZE", () -> opponentTiles = Integer.parseInt(data));
+        gameCommands.put("WAIT_OPPONENT_MOVE", this::handleSignal);
+        gameCommands.put("NO_AVAILABLE_MOVES", this::handleSignal);
+        gameCommands.put("DRAW", () -> lastTile = data);
+        gameCommands.put("OPPONENT_DRAW", this::handleSignal);
+        gameCommands.put("PLAYED", () -> lastTile = data);
+        gameCommands.put("OPP_PLAYED", () -> lastTile = data);
+        gameCommands.put("PASS", this::handleSignal);
+        gameCommands.put("OPP_PASS", this::handleSignal);
+        gameCommands.put("INDEX", this::handleSignal);
+        gameCommands.put("INVALID_MOVE", this::handleSignal);
+        gameCommands.put("INVALID_INPUT", this::handleSignal);
+        gameCommands.put("GAME_OVER", () -> lastTile = data);
+        gameCommands.put("SCORE", () -> stockSize = Integer.parseInt(data));
+    }
+
+    /**
+     * Reads every line of the stream and dispatches it, like the clients' game loops.
+     *
+     * @param in The bytes received from the server.
+     * @return The number of messages handled.
+     */
+    int decodeAll(InputStream in) {
+        Scanner fromServer = new Scanner(in);
+        int count = 0;
+        while (fromServer.hasNextLine()) {
+            dispatch(split(fromServer.nextLine()));
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Splits a line into its command, storing the payload in the shared data field.
+     *
+     * @param serverMessage A line received from the server.
+     * @return The command of the line.
+     */
+    String split(String serverMessage) {
+        if (serverMessage.contains(" ")) {
+            data = serverMessage.substring(serverMessage.indexOf(" ") + 1);
+            serverMessage = serverMessage.substring(0, serverMessage.indexOf(" "));
+        }
+        return serverMessage;
+    }
+
+    /**
+     * Looks up and runs the handler of a command, using the payload in the shared data field.
+     *
+     * @param command The command of the message.
+     */
+    void dispatch(String command) {
+        Runnable handler = gameCommands.get(command);
+        if (handler != null) {
+            handler.run();
+        }
+    }
+
+    /**
+     * Sets the shared data field, as the split step would, before a dispatch.
+     *
+     * @param data The payload of the next message.
+     */
+    void setData(String data) {
+        this.data = data;
+    }
+
+    /**
+     * Returns a value that depends on everything decoded so far.
+     *
+     * @return A checksum of the decoded state.
+     */
+    int checksum() {
+        return handled + stockSize + opponentTiles + pipCount + (lastTile == null ? 0 : lastTile.length());
+    }
+
+    /**
+     * Handles the messages without data.
+     */
+    private void handleSignal() {
+        handled++;
+    }
+
+    /**
+     * Parses a list of tiles the way GameplayScreen does.
+     *
+     * @param data The payload of a TILES or BOARD message.
+     */
+    private void handleTiles(String data) {
+        pipCount = 0;
+        String tiles = data.replace("[", "").replace("]", "").trim();
+        if (tiles.isEmpty()) {
+            return;
+        }
+        for (String pair : tiles.split(", ")) {
+            String[] numbers = pair.trim().split(":");
+            pips[pipCount++] = Integer.parseInt(numbers[0]);
+            pips[pipCount++] = Integer.parseInt(numbers[1]);
+        }
+    }
+}
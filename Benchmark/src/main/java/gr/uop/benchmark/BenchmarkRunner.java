@@ -0,0 +1,28 @@
+package gr.uop.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * BenchmarkRunner runs the benchmarks with the GC profiler enabled, so every result also reports
+ * the bytes allocated per operation ({@code gc.alloc.rate.norm}) next to the time per operation.
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Runs the benchmarks whose names match the given pattern, or all of them.
+     *
+     * @param args An optional regular expression selecting the benchmarks to run.
+     * @throws RunnerException If JMH fails to run the benchmarks.
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : "gr\\.uop\\.benchmark\\..*")
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
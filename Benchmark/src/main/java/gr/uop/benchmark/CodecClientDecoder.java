@@ -0,0 +1,108 @@
+package gr.uop.benchmark;
+
+import gr.uop.protocol.LineReader;
+import gr.uop.protocol.Message;
+import gr.uop.protocol.MessageDispatcher;
+import gr.uop.protocol.Opcode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * CodecClientDecoder does the same decoding work as {@link BaselineClientDecoder}, but through the
+ * Protocol module: lines are read into a reused {@link Message} by a {@link LineReader}, dispatched by
+ * opcode through a {@link MessageDispatcher}, and the tiles are parsed straight from the payload bytes.
+ */
+final class CodecClientDecoder {
+
+    private MessageDispatcher gameCommands = new MessageDispatcher();
+    private Message message = new Message(); // Reused for every line
+
+    // Decoded state, read by the benchmarks so the work cannot be optimized away
+    private int stockSize;
+    private int opponentTiles;
+    private int[] pips = new int[56];
+    private int pipCount;
+    private int lastTile;
+    private int handled;
+
+    /**
+     * Registers the gameplay handlers, using the same opcodes as the clients.
+     */
+    CodecClientDecoder() {
+        gameCommands.on(Opcode.TURN, this::handleSignal);
+        gameCommands.on(Opcode.TILES, this::handleTiles);
+        gameCommands.on(Opcode.BOARD, this::handleTiles);
+        gameCommands.on(Opcode.STOCK_SIZE, m -> stockSize = m.payloadAsInt());
+        gameCommands.on(Opcode.OPPONENT_TILE_SIZE, m -> opponentTiles = m.payloadAsInt());
+        gameCommands.on(Opcode.WAIT_OPPONENT_MOVE, this::handleSignal);
+        gameCommands.on(Opcode.NO_AVAILABLE_MOVES, this::handleSignal);
+        gameCommands.on(Opcode.DRAW, this::handleTile);
+        gameCommands.on(Opcode.OPPONENT_DRAW, this::handleSignal);
+        gameCommands.on(Opcode.PLAYED, this::handleTile);
+        gameCommands.on(Opcode.OPP_PLAYED, this::handleTile);
+        gameCommands.on(Opcode.PASS, this::handleSignal);
+        gameCommands.on(Opcode.OPP_PASS, this::handleSignal);
+        gameCommands.on(Opcode.INDEX, this::handleSignal);
+        gameCommands.on(Opcode.INVALID_MOVE, this::handleSignal);
+        gameCommands.on(Opcode.INVALID_INPUT, this::handleSignal);
+        gameCommands.on(Opcode.GAME_OVER, this::handleSignal);
+        gameCommands.on(Opcode.SCORE, m -> stockSize = m.payloadAsInt());
+    }
+
+    /**
+     * Reads every message of the stream and dispatches it, like the clients' game loops.
+     *
+     * @param in The bytes received from the server.
+     * @return The number of messages handled.
+     */
+    int decodeAll(InputStream in) {
+        LineReader fromServer = new LineReader(in);
+        int count = 0;
+        try {
+            while (fromServer.readMessage(message)) {
+                gameCommands.dispatch(message);
+                count++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return count;
+    }
+
+    /**
+     * Returns a value that depends on everything decoded so far.
+     *
+     * @return A checksum of the decoded state.
+     */
+    int checksum() {
+        return handled + stockSize + opponentTiles + pipCount + lastTile;
+    }
+
+    /**
+     * Handles the messages without data.
+     */
+    private void handleSignal() {
+        handled++;
+    }
+
+    /**
+     * Parses a single tile from the payload of a DRAW or PLAYED message.
+     *
+     * @param message The received message.
+     */
+    private void handleTile(Message message) {
+        message.payloadAsTiles(pips);
+        lastTile = pips[0] * 7 + pips[1];
+    }
+
+    /**
+     * Parses a list of tiles from the payload of a TILES or BOARD message.
+     *
+     * @param message The received message.
+     */
+    private void handleTiles(Message message) {
+        pipCount = 2 * message.payloadAsTiles(pips);
+    }
+}
@@ -0,0 +1,65 @@
+package gr.uop.benchmark;
+
+import gr.uop.GameEngine.GameEngine;
+import gr.uop.GameEngine.Tile;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * GameDriver plays games on a GameEngine the same way DominoServer does, choosing the tiles at random,
+ * so the benchmarks exercise the engine with realistic sequences of moves.
+ */
+final class GameDriver {
+
+    private GameDriver() {
+    }
+
+    /**
+     * Plays one turn for the current player: a random playable tile if there is one,
+     * otherwise draws from the stock until a drawn tile fits (and plays it) or passes when the stock is empty.
+     *
+     * @param engine The engine to play on.
+     * @param random The source of the random choices.
+     * @return The number of engine calls made during the turn.
+     */
+    static int playTurn(GameEngine engine, Random random) {
+        if (!engine.canPlay()) {
+            int calls = 1;
+            while (engine.drawTile()) {
+                calls++;
+                List<Tile> tiles = engine.getCurrentPlayer().getTiles();
+                if (engine.playTile(tiles.get(tiles.size() - 1))) {
+                    return calls + 1;
+                }
+            }
+            engine.passTurn();
+            return calls + 1;
+        }
+
+        List<Tile> tiles = engine.getCurrentPlayer().getTiles();
+        int start = random.nextInt(tiles.size());
+        for (int i = 0; i < tiles.size(); i++) {
+            if (engine.playTile(tiles.get((start + i) % tiles.size()))) {
+                return 2;
+            }
+        }
+        throw new IllegalStateException("canPlay() reported a move but no tile fits");
+    }
+
+    /**
+     * Plays the game on the engine until it is over, which settles the winner.
+     *
+     * @param engine An engine with freshly dealt tiles.
+     * @param random The source of the random choices.
+     * @return The number of turns played.
+     */
+    static int playGame(GameEngine engine, Random random) {
+        int turns = 0;
+        while (!engine.isGameOver()) {
+            playTurn(engine, random);
+            turns++;
+        }
+        return turns;
+    }
+}
@@ -0,0 +1,145 @@
+package gr.uop.benchmark;
+
+import gr.uop.GameEngine.GameEngine;
+import gr.uop.GameEngine.RulesMode;
+import gr.uop.GameEngine.Tile;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the GameEngine hot paths: the move checks, playing and drawing tiles,
+ * the game over check, a whole random game, and creating or resetting an engine.
+ *
+ * <p>
+ * The benchmarks that change the game state start the next round on the same engine when the
+ * game cannot go on, so that cost is amortized over the moves of a game and included in the results.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameEngineBenchmark {
+
+    @Param({"STRAIGHT", "ALL_FIVES"})
+    public RulesMode rulesMode;
+
+    private GameEngine engine; // Mid-game engine used by the read-only benchmarks
+    private GameEngine playEngine; // Engine changed by the benchmarks that play or draw
+    private GameEngine resetEngine; // Engine reused by the reset benchmark
+    private Random random;
+
+    /**
+     * Creates the engines and plays a few turns so the read-only benchmarks see a board with tiles on it.
+     */
+    @Setup
+    public void setUp() {
+        random = new Random(42);
+        engine = new GameEngine("Player 1", "Player 2", rulesMode);
+        for (int turn = 0; turn < 6 && !engine.isGameOver(); turn++) {
+            GameDriver.playTurn(engine, random);
+        }
+        playEngine = new GameEngine("Player 1", "Player 2", rulesMode);
+        resetEngine = new GameEngine("Player 1", "Player 2", rulesMode);
+    }
+
+    /**
+     * Checks whether the current player of a mid-game engine has a valid move.
+     *
+     * @return The result of the check, consumed by JMH.
+     */
+    @Benchmark
+    public boolean canPlay() {
+        return engine.canPlay();
+    }
+
+    /**
+     * Checks whether a mid-game engine is over, which scans both hands.
+     *
+     * @return The result of the check, consumed by JMH.
+     */
+    @Benchmark
+    public boolean isGameOver() {
+        return engine.isGameOver();
+    }
+
+    /**
+     * Plays one tile that fits, starting the next round when the current player cannot play.
+     *
+     * @return Whether the tile was played, consumed by JMH.
+     */
+    @Benchmark
+    public boolean playTile() {
+        if (!playEngine.canPlay()) {
+            playEngine.newRound();
+        }
+        List<Tile> tiles = playEngine.getCurrentPlayer().getTiles();
+        for (int i = 0; i < tiles.size(); i++) {
+            if (playEngine.playTile(tiles.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Draws one tile from the stock, starting the next round when the stock is empty.
+     *
+     * @return Whether a tile was drawn, consumed by JMH.
+     */
+    @Benchmark
+    public boolean drawTile() {
+        if (playEngine.getStockSize() == 0) {
+            playEngine.newRound();
+        }
+        return playEngine.drawTile();
+    }
+
+    /**
+     * Plays a whole game with random moves on a reused engine, including the final scoring.
+     *
+     * @return The number of turns played, consumed by JMH.
+     */
+    @Benchmark
+    public int fullRandomGame() {
+        playEngine.newRound();
+        return GameDriver.playGame(playEngine, random);
+    }
+
+    /**
+     * Creates a new engine, which builds the tiles, shuffles them and deals the hands.
+     *
+     * @return The new engine, consumed by JMH.
+     */
+    @Benchmark
+    public GameEngine createEngine() {
+        return new GameEngine("Player 1", "Player 2", rulesMode);
+    }
+
+    /**
+     * Resets a reused engine for a new game, which reshuffles and redeals in place.
+     *
+     * @return The reset engine, consumed by JMH.
+     */
+    @Benchmark
+    public GameEngine resetEngine() {
+        resetEngine.reset("Player 1", "Player 2");
+        return resetEngine;
+    }
+}
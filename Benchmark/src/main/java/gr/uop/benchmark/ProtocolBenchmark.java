@@ -0,0 +1,186 @@
+package gr.uop.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import gr.uop.protocol.LineWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the wire path over realistic turn sequences. The baseline benchmarks measure the original
+ * path: the server encoding by string concatenation, the line framing through an auto-flushing
+ * {@code PrintWriter}, and the client side parsing and {@code HashMap} dispatch. The {@code codec}
+ * benchmarks measure the same work through the Protocol module's {@code LineWriter}, {@code LineReader}
+ * and {@code MessageDispatcher}.
+ *
+ * <p>
+ * Each invocation handles {@value #MESSAGES} messages, so the scores are in ns/message and, with the
+ * GC profiler, {@code gc.alloc.rate.norm} is in bytes allocated/message.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProtocolBenchmark {
+
+    static final int MESSAGES = 1024;
+
+    private ProtocolTranscript.Message[] messages;
+    private String[] lines; // Encoded messages
+    private String[] commands; // Commands of the encoded messages
+    private String[] payloads; // Payloads of the encoded messages, null when there is none
+    private byte[] wire; // All the messages framed as the server sends them
+
+    private PrintWriter toClient;
+    private BaselineClientDecoder decoder;
+    private LineWriter codecToClient;
+    private CodecClientDecoder codecDecoder;
+
+    /**
+     * Records the transcript and prepares its encoded, split and framed forms.
+     */
+    @Setup
+    public void setUp() {
+        List<ProtocolTranscript.Message> transcript = ProtocolTranscript.record(MESSAGES, 42);
+        messages = transcript.toArray(new ProtocolTranscript.Message[0]);
+
+        lines = new String[MESSAGES];
+        commands = new String[MESSAGES];
+        payloads = new String[MESSAGES];
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintWriter framer = new PrintWriter(bytes, true);
+        for (int i = 0; i < MESSAGES; i++) {
+            lines[i] = messages[i].encode();
+            commands[i] = messages[i].command();
+            payloads[i] = messages[i].payload() == null ? null : String.valueOf(messages[i].payload());
+            framer.println(lines[i]);
+        }
+        wire = bytes.toByteArray();
+
+        toClient = new PrintWriter(OutputStream.nullOutputStream(), true);
+        decoder = new BaselineClientDecoder();
+        codecToClient = new LineWriter(OutputStream.nullOutputStream());
+        codecDecoder = new CodecClientDecoder();
+    }
+
+    /**
+     * Encodes messages the way DominoServer does, e.g. {@code "TILES " + currentPlayer.getTiles()}.
+     *
+     * @param blackhole Consumes the encoded lines.
+     */
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void encode(Blackhole blackhole) {
+        for (ProtocolTranscript.Message message : messages) {
+            blackhole.consume(message.encode());
+        }
+    }
+
+    /**
+     * Frames encoded lines through an auto-flushing PrintWriter, as the server writes to each socket.
+     */
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void frame() {
+        for (String line : lines) {
+            toClient.println(line);
+        }
+    }
+
+    /**
+     * Encodes and frames messages, the whole server side of the wire path.
+     */
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void encodeAndFrame() {
+        for (ProtocolTranscript.Message message : messages) {
+            toClient.println(message.encode());
+        }
+    }
+
+    /**
+     * Reads lines with a Scanner and splits them into command and payload, as the clients do.
+     *
+     * @param blackhole Consumes the commands.
+     */
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void parse(Blackhole blackhole) {
+        Scanner fromServer = new Scanner(new ByteArrayInputStream(wire));
+        while (fromServer.hasNextLine()) {
+            blackhole.consume(decoder.split(fromServer.nextLine()));
+        }
+    }
+
+    /**
+     * Dispatches already split messages through the HashMap of handlers, including the tile parsing.
+     *
+     * @return A checksum of the decoded state, consumed by JMH.
+     */
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public int dispatch() {
+        for (int i = 0; i < MESSAGES; i++) {
+            decoder.setData(payloads[i]);
+            decoder.dispatch(commands[i]);
+        }
+        return decoder.checksum();
+    }
+
+    /**
+     * Parses and dispatches framed messages, the whole client side of the wire path.
+     *
+     * @return A checksum of the decoded state, consumed by JMH.
+     */
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public int parseAndDispatch() {
+        decoder.decodeAll(new ByteArrayInputStream(wire));
+        return decoder.checksum();
+    }
+
+    /**
+     * Encodes and frames messages with the buffered LineWriter, flushing once at the end instead of after
+     * every line.
+     */
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void codecEncodeAndFrame() {
+        for (ProtocolTranscript.Message message : messages) {
+            message.write(codecToClient);
+        }
+        codecToClient.flush();
+    }
+
+    /**
+     * Parses and dispatches framed messages with the LineReader and the opcode indexed dispatcher.
+     *
+     * @return A checksum of the decoded state, consumed by JMH.
+     */
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public int codecParseAndDispatch() {
+        codecDecoder.decodeAll(new ByteArrayInputStream(wire));
+        return codecDecoder.checksum();
+    }
+}
@@ -0,0 +1,175 @@
+package gr.uop.benchmark;
+
+import gr.uop.GameEngine.GameEngine;
+import gr.uop.GameEngine.GameEventListener;
+import gr.uop.GameEngine.Player;
+import gr.uop.GameEngine.Tile;
+
+import gr.uop.protocol.LineWriter;
+import gr.uop.protocol.Opcode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * ProtocolTranscript records the messages DominoServer sends to both players while random games are played,
+ * so the protocol benchmarks work on realistic turn sequences instead of made-up messages.
+ * Each message keeps the payload object the server would concatenate (a hand, the line of play, a tile,
+ * a number or a name), copied at the time it was sent.
+ */
+final class ProtocolTranscript {
+
+    /**
+     * A message sent by the server: its command and the payload appended after a space, if any.
+     *
+     * @param command The command of the message.
+     * @param payload The payload object, or null for messages without data.
+     */
+    record Message(String command, Object payload) {
+
+        /**
+         * Encodes the message the way DominoServer does, by string concatenation.
+         *
+         * @return The line sent to the client, without the line terminator.
+         */
+        String encode() {
+            return payload == null ? command : command + " " + payload;
+        }
+
+        /**
+         * Writes the message with the Protocol codec, the way DominoServer sends it now.
+         *
+         * @param writer The writer the message is framed into.
+         */
+        void write(LineWriter writer) {
+            Opcode opcode = Opcode.valueOf(command);
+            if (payload == null) {
+                writer.send(opcode);
+            } else if (payload instanceof Integer value) {
+                writer.send(opcode, value);
+            } else if (payload instanceof Tile tile) {
+                writer.begin(opcode).tile(tile.getUpperValue(), tile.getBottomValue()).end();
+            } else if (payload instanceof List<?> tiles) {
+                writer.begin(opcode).beginTiles();
+                for (Object element : tiles) {
+                    Tile tile = (Tile) element;
+                    writer.tile(tile.getUpperValue(), tile.getBottomValue());
+                }
+                writer.endTiles().end();
+            } else {
+                writer.send(opcode, payload.toString());
+            }
+        }
+    }
+
+    private ProtocolTranscript() {
+    }
+
+    /**
+     * Plays random games until the given number of server messages has been recorded.
+     *
+     * @param messageCount The number of messages to record.
+     * @param seed The seed of the random moves.
+     * @return The recorded messages, in the order the server sends them.
+     */
+    static List<Message> record(int messageCount, long seed) {
+        Random random = new Random(seed);
+        List<Message> messages = new ArrayList<>(messageCount + 64);
+        while (messages.size() < messageCount) {
+            recordGame(messages, random);
+        }
+        return new ArrayList<>(messages.subList(0, messageCount));
+    }
+
+    /**
+     * Plays one random game, recording the messages the same way DominoServer's game loop sends them.
+     *
+     * @param messages The list the messages are added to.
+     * @param random The source of the random moves.
+     */
+    private static void recordGame(List<Message> messages, Random random) {
+        GameEventListener recorder = new GameEventListener() {
+            @Override
+            public void onDrew(Player player, Tile tile) {
+                messages.add(new Message("DRAW", copy(tile)));
+                messages.add(new Message("OPPONENT_DRAW", null));
+            }
+
+            @Override
+            public void onPlayedLeft(Player player, Tile tile) {
+                onPlayedRight(player, tile);
+            }
+
+            @Override
+            public void onPlayedRight(Player player, Tile tile) {
+                messages.add(new Message("PLAYED", copy(tile)));
+                messages.add(new Message("OPP_PLAYED", copy(tile)));
+            }
+
+            @Override
+            public void onPassed(Player player) {
+                messages.add(new Message("PASS", null));
+                messages.add(new Message("OPP_PASS", null));
+            }
+
+            @Override
+            public void onGameOver(Player winner, Player loser) {
+                messages.add(new Message("GAME_OVER", winner.getName()));
+                messages.add(new Message("SCORE", winner.getScore()));
+                messages.add(new Message("GAME_OVER", winner.getName()));
+                messages.add(new Message("SCORE", loser.getScore()));
+            }
+        };
+
+        GameEngine engine = new GameEngine("Player 1", "Player 2");
+        engine.addListener(recorder);
+        while (!engine.isGameOver()) {
+            Player current = engine.getCurrentPlayer();
+            Player opponent = engine.getOpponent();
+
+            messages.add(new Message("OPPONENT_TILE_SIZE", opponent.getTiles().size()));
+            messages.add(new Message("TURN", null));
+            messages.add(new Message("STOCK_SIZE", engine.getStockSize()));
+            messages.add(new Message("TILES", copy(current.getTiles())));
+            messages.add(new Message("BOARD", copy(engine.getLineOfPlay())));
+
+            messages.add(new Message("OPPONENT_TILE_SIZE", current.getTiles().size()));
+            messages.add(new Message("STOCK_SIZE", engine.getStockSize()));
+            messages.add(new Message("TILES", copy(opponent.getTiles())));
+            messages.add(new Message("BOARD", copy(engine.getLineOfPlay())));
+            messages.add(new Message("WAIT_OPPONENT_MOVE", null));
+
+            if (engine.canPlay()) {
+                messages.add(new Message("INDEX", null));
+            } else {
+                messages.add(new Message("NO_AVAILABLE_MOVES", null));
+            }
+            GameDriver.playTurn(engine, random);
+        }
+    }
+
+    /**
+     * Copies a tile, since the engine may invert the original later on.
+     *
+     * @param tile Any tile.
+     * @return A tile with the same values.
+     */
+    private static Tile copy(Tile tile) {
+        return new Tile(tile.getUpperValue(), tile.getBottomValue());
+    }
+
+    /**
+     * Copies a collection of tiles into a list, which prints the same way as the engine's hands and line of play.
+     *
+     * @param tiles Any collection of tiles.
+     * @return A list with copies of the tiles.
+     */
+    private static List<Tile> copy(Iterable<Tile> tiles) {
+        List<Tile> copy = new ArrayList<>();
+        for (Tile tile : tiles) {
+            copy.add(copy(tile));
+        }
+        return copy;
+    }
+}
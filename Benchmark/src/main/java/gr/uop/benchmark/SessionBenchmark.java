@@ -0,0 +1,60 @@
+package gr.uop.benchmark;
+
+import gr.uop.GameSession;
+import gr.uop.InMemoryTransport;
+import gr.uop.GameEngine.GameEngine;
+import gr.uop.GameEngine.RulesMode;
+import gr.uop.bot.BotPlayer;
+import gr.uop.bot.GreedyBotProvider;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of a whole bot-vs-bot game run through the server's GameSession over the in-memory transport,
+ * the flow of a networked game without sockets or encoding.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SessionBenchmark {
+
+    private InMemoryTransport transport;
+    private GameEngine engine;
+    private long seed;
+
+    /**
+     * Seats two greedy bots on an in-memory transport and deals the engine they play on.
+     */
+    @Setup
+    public void setUp() {
+        BotPlayer bot = new GreedyBotProvider().create();
+        transport = new InMemoryTransport(new InMemoryTransport.BotEndpoint(bot), new InMemoryTransport.BotEndpoint(bot));
+        GameSession session = transport.getSession();
+        engine = new GameEngine("Bot 1", "Bot 2", RulesMode.STRAIGHT, seed, session);
+    }
+
+    /**
+     * Deals a new game and plays it to the end through the session.
+     *
+     * @return The number of moves chosen, consumed by JMH.
+     */
+    @Benchmark
+    public int playGame() {
+        engine.reset("Bot 1", "Bot 2", ++seed);
+        return transport.play(engine);
+    }
+}
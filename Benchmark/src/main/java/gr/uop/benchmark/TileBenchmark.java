@@ -0,0 +1,69 @@
+package gr.uop.benchmark;
+
+import gr.uop.GameEngine.Tile;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of {@link Tile#fits(int)} and {@link Tile#fits(Tile)} over every pair of tiles of the set.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TileBenchmark {
+
+    private Tile[] tiles;
+    private int next; // Walks through the tiles, so the branch predictor cannot learn a single answer
+
+    /**
+     * Creates the 28 tiles of the set.
+     */
+    @Setup
+    public void setUp() {
+        tiles = new Tile[28];
+        int count = 0;
+        for (int i = 0; i <= 6; i++) {
+            for (int j = 0; j <= i; j++) {
+                tiles[count++] = new Tile(i, j);
+            }
+        }
+    }
+
+    /**
+     * Checks a tile against a single pip value.
+     *
+     * @return The result of the check, consumed by JMH.
+     */
+    @Benchmark
+    public boolean fitsValue() {
+        int i = next;
+        next = (next + 1) % tiles.length; // Wrapped here, so the index never overflows into negative values
+        return tiles[i].fits(i % 7);
+    }
+
+    /**
+     * Checks a tile against another tile.
+     *
+     * @return The result of the check, consumed by JMH.
+     */
+    @Benchmark
+    public boolean fitsTile() {
+        int i = next;
+        next = (next + 1) % tiles.length;
+        return tiles[i].fits(tiles[(i * 11 + 5) % tiles.length]);
+    }
+}
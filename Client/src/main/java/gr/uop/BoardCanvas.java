@@ -0,0 +1,205 @@
+package gr.uop;
+
+import gr.uop.TileImageCache.Highlight;
+import gr.uop.TileImageCache.Orientation;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+
+import java.util.Arrays;
+
+/**
+ * BoardCanvas draws the line of play on a single {@link Canvas} instead of keeping one node per tile.
+ *
+ * <p>
+ * The line is laid out as a snake: tiles fill a row from left to right, the next row from right to left,
+ * and so on, with as many tiles per row as fit the width of the view. The position of a tile follows
+ * from its index alone, so only the rows and columns inside the viewport are visited when drawing and the
+ * cost of a frame depends on the size of the view, not on the number of tiles on the board.
+ * </p>
+ *
+ * <p>
+ * Dragging pans the board, the scroll wheel zooms around the cursor and a double click resets the view.
+ * Must only be used on the JavaFX Application Thread.
+ * </p>
+ */
+final class BoardCanvas extends Region {
+
+    private static final double TILE_WIDTH = 62; // Room for a rendered tile image at scale 1.0
+    private static final double TILE_HEIGHT = 70;
+    private static final double GAP = 6;
+    private static final double ROW_GAP = 20;
+    private static final double MIN_ZOOM = 0.25;
+    private static final double MAX_ZOOM = 4.0;
+
+    private final Canvas canvas = new Canvas();
+    private final TileImageCache tileImages;
+
+    private int[] pips = new int[56]; // Values of the tiles on the line of play, two per tile, left to right
+    private int tileCount;
+    private int tilesPerRow = 1;
+
+    // View transform: screen = world * zoom + offset
+    private double zoom = 1.0;
+    private double offsetX;
+    private double offsetY;
+    private double dragX;
+    private double dragY;
+
+    /**
+     * Constructs an empty board drawing the tiles from the given cache.
+     *
+     * @param tileImages The cache providing the tile images.
+     */
+    BoardCanvas(TileImageCache tileImages) {
+        this.tileImages = tileImages;
+        getChildren().add(canvas);
+        setPrefSize(1200, 2 * TILE_HEIGHT + ROW_GAP + 2 * GAP);
+        setMinSize(0, 0);
+
+        addEventHandler(MouseEvent.MOUSE_PRESSED, this::startDrag);
+        addEventHandler(MouseEvent.MOUSE_DRAGGED, this::drag);
+        addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
+            if (event.getButton() == MouseButton.PRIMARY && event.getClickCount() == 2) {
+                resetView();
+            }
+        });
+        addEventHandler(ScrollEvent.SCROLL, this::zoom);
+    }
+
+    /**
+     * Replaces the tiles on the board.
+     *
+     * @param tilePips The values of the tiles, two per tile, left to right.
+     * @param count The number of tiles.
+     */
+    void setTiles(int[] tilePips, int count) {
+        if (pips.length < 2 * count) {
+            pips = Arrays.copyOf(pips, Math.max(2 * count, 2 * pips.length));
+        }
+        System.arraycopy(tilePips, 0, pips, 0, 2 * count);
+        tileCount = count;
+        redraw();
+    }
+
+    /**
+     * Returns the number of tiles on the board.
+     *
+     * @return The tile count.
+     */
+    int getTileCount() {
+        return tileCount;
+    }
+
+    /**
+     * Resets the zoom and the panning.
+     */
+    void resetView() {
+        zoom = 1.0;
+        offsetX = 0;
+        offsetY = 0;
+        redraw();
+    }
+
+    /**
+     * Sizes the canvas to the region and redraws it, re-wrapping the rows to the new width.
+     */
+    @Override
+    protected void layoutChildren() {
+        double width = getWidth();
+        double height = getHeight();
+        if (canvas.getWidth() != width || canvas.getHeight() != height) {
+            canvas.setWidth(width);
+            canvas.setHeight(height);
+        }
+        tilesPerRow = Math.max(1, (int) ((width - GAP) / (TILE_WIDTH + GAP)));
+        redraw();
+    }
+
+    /**
+     * Draws the tiles inside the viewport.
+     */
+    private void redraw() {
+        GraphicsContext graphics = canvas.getGraphicsContext2D();
+        graphics.setTransform(1, 0, 0, 1, 0, 0);
+        graphics.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        if (tileCount == 0) {
+            return;
+        }
+
+        // Visible world rectangle
+        double left = -offsetX / zoom;
+        double top = -offsetY / zoom;
+        double right = left + canvas.getWidth() / zoom;
+        double bottom = top + canvas.getHeight() / zoom;
+
+        double columnPitch = TILE_WIDTH + GAP;
+        double rowPitch = TILE_HEIGHT + ROW_GAP;
+        int rows = (tileCount + tilesPerRow - 1) / tilesPerRow;
+        int firstRow = Math.max(0, (int) Math.floor((top - GAP) / rowPitch));
+        int lastRow = Math.min(rows - 1, (int) Math.floor((bottom - GAP) / rowPitch));
+        int firstColumn = Math.max(0, (int) Math.floor((left - GAP) / columnPitch));
+        int lastColumn = Math.min(tilesPerRow - 1, (int) Math.floor((right - GAP) / columnPitch));
+
+        graphics.setTransform(zoom, 0, 0, zoom, offsetX, offsetY);
+        for (int row = firstRow; row <= lastRow; row++) {
+            boolean reversed = (row & 1) == 1; // Odd rows run from right to left
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int index = row * tilesPerRow + (reversed ? tilesPerRow - 1 - column : column);
+                if (index >= tileCount) {
+                    continue;
+                }
+                int leftPips = pips[2 * index];
+                int rightPips = pips[2 * index + 1];
+                // On a reversed row the tile is read right to left, so it is drawn flipped to keep the ends touching
+                Image image = reversed
+                        ? tileImages.get(rightPips, leftPips, Orientation.HORIZONTAL, Highlight.NONE, 1.0)
+                        : tileImages.get(leftPips, rightPips, Orientation.HORIZONTAL, Highlight.NONE, 1.0);
+                graphics.drawImage(image, GAP + column * columnPitch, GAP + row * rowPitch);
+            }
+        }
+    }
+
+    /**
+     * Remembers where a drag started.
+     *
+     * @param event The mouse press.
+     */
+    private void startDrag(MouseEvent event) {
+        dragX = event.getX();
+        dragY = event.getY();
+    }
+
+    /**
+     * Pans the board with the mouse.
+     *
+     * @param event The mouse drag.
+     */
+    private void drag(MouseEvent event) {
+        offsetX += event.getX() - dragX;
+        offsetY += event.getY() - dragY;
+        dragX = event.getX();
+        dragY = event.getY();
+        redraw();
+    }
+
+    /**
+     * Zooms the board around the cursor, keeping the point under it in place.
+     *
+     * @param event The scroll event.
+     */
+    private void zoom(ScrollEvent event) {
+        double factor = Math.pow(1.0015, event.getDeltaY());
+        double newZoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom * factor));
+        offsetX = event.getX() - (event.getX() - offsetX) * newZoom / zoom;
+        offsetY = event.getY() - (event.getY() - offsetY) * newZoom / zoom;
+        zoom = newZoom;
+        redraw();
+        event.consume();
+    }
+}
@@ -1,10 +1,13 @@
 package gr.uop;
 
+import gr.uop.protocol.LineReader;
+import gr.uop.protocol.LineWriter;
+import gr.uop.protocol.Message;
+import gr.uop.protocol.MessageDispatcher;
+import gr.uop.protocol.Opcode;
+
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.net.Socket;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Scanner;
 
 /**
@@ -15,8 +18,8 @@ public class CommandLineClient {
 
     private static final int PORT = 7777; // The port used for communication with the server
     private Socket socket;
-    private PrintWriter toServer;
-    private Scanner fromServer;
+    private LineWriter toServer;
+    private LineReader fromServer;
     private Scanner userInput;
 
     // Variables to store information received from the server
@@ -31,11 +34,9 @@ public class CommandLineClient {
     private String stockSize;
     private String opponentTiles;
 
-    private String data; // Holds temporary data received from the server
-
-    // HashMaps to store command mappings for initialization and game phases
-    private Map<String, Runnable> initCommands = new HashMap<>();
-    private Map<String, Runnable> gameCommands = new HashMap<>();
+    // Dispatchers mapping the server opcodes to their handlers for the initialization and game phases
+    private MessageDispatcher initCommands = new MessageDispatcher();
+    private MessageDispatcher gameCommands = new MessageDispatcher();
 
     /**
      * The main method to start the Client application.
@@ -60,8 +61,8 @@ public class CommandLineClient {
             socket = new Socket(serverAddress, PORT);
             System.out.println("Connected to the server at " + serverAddress);
 
-            toServer = new PrintWriter(socket.getOutputStream(), true);
-            fromServer = new Scanner(socket.getInputStream());
+            toServer = new LineWriter(socket.getOutputStream(), true);
+            fromServer = new LineReader(socket.getInputStream());
 
             // Initialize command maps and begin game loop
             initializeCommandMaps();
@@ -80,53 +81,47 @@ public class CommandLineClient {
      */
     private void initializeCommandMaps() {
         // Initialization commands
-        initCommands.put("WAIT_CONNECT", this::handleWaitConnect);
-        initCommands.put("CONNECTED", this::handlePlayerConnected);
-        initCommands.put("WAIT_PLAYER1_NAME", this::handlePlayer1Name);
-        initCommands.put("WAIT_PLAYER2_NAME", this::handlePlayer2Name);
-        initCommands.put("NAME_REQUEST", this::handleNameRequest);
-        initCommands.put("END_INIT", () -> handleEndInit(data));
+        initCommands.on(Opcode.WAIT_CONNECT, this::handleWaitConnect);
+        initCommands.on(Opcode.CONNECTED, this::handlePlayerConnected);
+        initCommands.on(Opcode.WAIT_PLAYER1_NAME, this::handlePlayer1Name);
+        initCommands.on(Opcode.WAIT_PLAYER2_NAME, this::handlePlayer2Name);
+        initCommands.on(Opcode.NAME_REQUEST, this::handleNameRequest);
+        initCommands.on(Opcode.END_INIT, message -> handleEndInit(message.payloadAsString()));
+        initCommands.on(Opcode.SERVER_BUSY, message -> handleServerBusy(message.payloadAsInt()));
 
         // Gameplay commands
-        gameCommands.put("TURN", this::handleTurn);
-        gameCommands.put("TILES", () -> handleTiles(data));
-        gameCommands.put("BOARD", () -> handleLineOfPlay(data));
-        gameCommands.put("STOCK_SIZE", () -> handleStock(data));
-        gameCommands.put("OPPONENT_TILE_SIZE", () -> handleTileSize(data));
-        gameCommands.put("WAIT_OPPONENT_MOVE", this::handleWaitForMove);
-        gameCommands.put("NO_AVAILABLE_MOVES", this::handleNoAvailableMoves);
-        gameCommands.put("DRAW", () -> handleDraw(data));
-        gameCommands.put("OPPONENT_DRAW", this::handleOppDraw);
-        gameCommands.put("PLAYED", () -> handlePlayed(data));
-        gameCommands.put("OPP_PLAYED", () -> handleOppPlayed(data));
-        gameCommands.put("PASS", this::handlePass);
-        gameCommands.put("OPP_PASS", this::handleOppPass);
-        gameCommands.put("INDEX", this::handleIndex);
-        gameCommands.put("INVALID_MOVE", this::handleInvalidMove);
-        gameCommands.put("INVALID_INPUT", this::handleInvalidInput);
-        gameCommands.put("GAME_OVER", () -> handleGameOver(data));
-        gameCommands.put("SCORE", () -> handleScore(data));
+        gameCommands.on(Opcode.TURN, this::handleTurn);
+        gameCommands.on(Opcode.TILES, message -> handleTiles(message.payloadAsString()));
+        gameCommands.on(Opcode.BOARD, message -> handleLineOfPlay(message.payloadAsString()));
+        gameCommands.on(Opcode.STOCK_SIZE, message -> handleStock(message.payloadAsString()));
+        gameCommands.on(Opcode.OPPONENT_TILE_SIZE, message -> handleTileSize(message.payloadAsString()));
+        gameCommands.on(Opcode.WAIT_OPPONENT_MOVE, this::handleWaitForMove);
+        gameCommands.on(Opcode.NO_AVAILABLE_MOVES, this::handleNoAvailableMoves);
+        gameCommands.on(Opcode.DRAW, message -> handleDraw(message.payloadAsString()));
+        gameCommands.on(Opcode.OPPONENT_DRAW, this::handleOppDraw);
+        gameCommands.on(Opcode.PLAYED, message -> handlePlayed(message.payloadAsString()));
+        gameCommands.on(Opcode.OPP_PLAYED, message -> handleOppPlayed(message.payloadAsString()));
+        gameCommands.on(Opcode.PASS, this::handlePass);
+        gameCommands.on(Opcode.OPP_PASS, this::handleOppPass);
+        gameCommands.on(Opcode.INDEX, this::handleIndex);
+        gameCommands.on(Opcode.INVALID_MOVE, this::handleInvalidMove);
+        gameCommands.on(Opcode.INVALID_INPUT, this::handleInvalidInput);
+        gameCommands.on(Opcode.GAME_OVER, message -> handleGameOver(message.payloadAsString()));
+        gameCommands.on(Opcode.SCORE, message -> handleScore(message.payloadAsString()));
     }
 
     /**
      * Handles the initialization phase of the game, processing initial server messages.
+     *
+     * @throws IOException If the connection fails or the server sends an invalid line.
      */
-    private void handleInitialization() {
-        while (fromServer.hasNextLine()) {
-            String serverMessage = fromServer.nextLine();
-
-            if(serverMessage.contains(" ")) {
-                data = serverMessage.substring(serverMessage.indexOf(" ") + 1);
-                serverMessage = serverMessage.substring(0, serverMessage.indexOf(" "));
-            }
-
+    private void handleInitialization() throws IOException {
+        Message message = new Message(); // Reused for every line
+        while (fromServer.readMessage(message)) {
             // Look up and execute the initialization command
-            Runnable command = initCommands.get(serverMessage);
-            if (command != null) {
-                command.run();
-            }
+            initCommands.dispatch(message);
 
-            if (serverMessage.equals("END_INIT")) {
+            if (message.opcode() == Opcode.END_INIT) {
                 break;
             }
         }
@@ -134,23 +129,16 @@ public class CommandLineClient {
 
     /**
      * Handles the main game loop, processing gameplay commands from the server.
+     *
+     * @throws IOException If the connection fails or the server sends an invalid line.
      */
-    private void handleGameLoop() {
-        while (fromServer.hasNextLine()) {
-            String serverMessage = fromServer.nextLine();
-
-            if(serverMessage.contains(" ")) {
-                data = serverMessage.substring(serverMessage.indexOf(" ") + 1);
-                serverMessage = serverMessage.substring(0, serverMessage.indexOf(" "));
-            }
-
+    private void handleGameLoop() throws IOException {
+        Message message = new Message(); // Reused for every line
+        while (fromServer.readMessage(message)) {
             // Look up and execute the gameplay command
-            Runnable command = gameCommands.get(serverMessage);
-            if (command != null) {
-                command.run();
-            }
+            gameCommands.dispatch(message);
 
-            if (serverMessage.equals("SCORE")) {
+            if (message.opcode() == Opcode.SCORE) {
                 break;
             }
         }
@@ -174,17 +162,17 @@ public class CommandLineClient {
     // ------------------------------------ INIT HANDLES -------------------------------------------
     /**
      * Handles the "WAIT_CONNECT" message from the server during initialization.
-     * Notifies the player that they are waiting for Player 2 to connect.
+     * Notifies the player that they are waiting for the matchmaker to find an opponent.
      */
     private void handleWaitConnect() {
-        System.out.println("Waiting for Player 2 to connect...");
+        System.out.println("Waiting for an opponent...");
     }
 
     /**
-     * Handles the "CONNECTED" message from the server, indicating that Player 2 has connected.
+     * Handles the "CONNECTED" message from the server, indicating that an opponent was found.
      */
     private void handlePlayerConnected() {
-        System.out.println("Player 2 connected.");
+        System.out.println("Opponent found.");
     }
 
     /**
@@ -201,13 +189,22 @@ public class CommandLineClient {
         System.out.println("Waiting for Player 2 to enter their name...");
     }
 
+    /**
+     * Handles the "SERVER_BUSY" message: the server refused the player, and closes the connection.
+     *
+     * @param retryAfterMillis The time the server asks the player to wait before trying again.
+     */
+    private void handleServerBusy(int retryAfterMillis) {
+        System.out.println("The server is busy. Please try again in " + Math.max(1, (retryAfterMillis + 999) / 1000) + " second(s).");
+    }
+
     /**
      * Handles the request for the player to enter their name and sends it to the server.
      */
     private void handleNameRequest() {
         System.out.println("Please enter your name: ");
         this.playerName = userInput.nextLine();
-        toServer.println(playerName);
+        toServer.writeLine(playerName);
     }
 
     /**
@@ -342,7 +339,7 @@ public class CommandLineClient {
     private void handleIndex() {
         System.out.println("Enter the index of the tile you want to play: ");
         this.index = userInput.nextLine();
-        toServer.println(this.index);
+        toServer.writeLine(this.index);
     }
 
     /**
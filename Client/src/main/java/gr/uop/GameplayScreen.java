@@ -1,34 +1,43 @@
 package gr.uop;
 
-import javafx.animation.Animation;
 import javafx.animation.FadeTransition;
 import javafx.animation.FillTransition;
 import javafx.animation.PauseTransition;
-import javafx.animation.ScaleTransition;
 import javafx.application.Platform;
+import javafx.collections.ObservableList;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Label;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
-import javafx.scene.paint.Color;
-import javafx.scene.shape.Circle;
-import javafx.scene.shape.Line;
-import javafx.scene.shape.Rectangle;
 import javafx.stage.Stage;
-import java.io.PrintWriter;
 import java.net.Socket;
 import javafx.util.Duration;
 
+import gr.uop.GameEngine.GameEngine;
+import gr.uop.GameEngine.Tile;
+import gr.uop.protocol.LineReader;
+import gr.uop.protocol.LineWriter;
+import gr.uop.protocol.Message;
+import gr.uop.protocol.MessageDispatcher;
+import gr.uop.protocol.Opcode;
+import gr.uop.TileImageCache.Highlight;
+import gr.uop.TileImageCache.Orientation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Deque;
 import java.util.List;
-import java.util.Map;
-import java.util.Scanner;
 
 /**
  * The {@code GameplayScreen} class represents the main gameplay UI for the Domino game client.
@@ -44,14 +53,13 @@ public class GameplayScreen {
 
     // 1. Network communication
     private Socket socket;
-    private PrintWriter toServer;
-    private Scanner fromServer;
+    private LineWriter toServer;
+    private LineReader fromServer;
 
     // 2. Game state information from the server
     private String playerName;
     private String opponentName;
     private String winner;
-    private String tiles;
     private String lineOfPlay;
     private String tile;
     private String score;
@@ -60,21 +68,37 @@ public class GameplayScreen {
     private int currentPlayerTiles;
     private int opponentTiles;
 
-    private String data; // Any data received from the server
-
     // 3. Game logic-related fields
     private boolean yourTurn;
     private boolean stock = false;
     private int invalidMoveSum = 0;
 
-    // HashMaps for command handling
-    private Map<String, Runnable> gameCommands = new HashMap<>();
+    // Client-side prediction: the last snapshots sent by the server, and the move shown before the server confirms it
+    private int[] handPips = new int[56]; // Values of the tiles in the hand, two per tile
+    private int handCount;
+    private int[] boardPips = new int[56]; // Values of the tiles on the line of play, two per tile
+    private int boardCount;
+    private Tile predictedTile; // The tile shown as played while waiting for the server, null if none
+    private int predictionHits;
+    private int predictionMisses;
+
+    // Dispatcher mapping the server opcodes to their handlers
+    private MessageDispatcher gameCommands = new MessageDispatcher();
+
+    // Reads the server messages on a virtual thread and hands them to the handlers on the JavaFX thread
+    private ServerEventPipeline serverEvents;
+    private PerformanceHud performanceHud; // Network and rendering statistics, toggled with F3
 
     // 4. JavaFX layout and UI elements
     private Stage primaryStage; // Primary stage for the game
     private Runnable onGameShutdown; // Callback for game shutdown event
     private BorderPane gameLayout;
     private HBox JavaFXlineOfPlay;
+    private List<TileView> lineOfPlayPlates = new ArrayList<>(); // Tiles shown on the line of play, left to right
+    private BoardCanvas boardCanvas; // Canvas board used instead of JavaFXlineOfPlay, null unless enabled
+    private TileImageCache tileImages = new TileImageCache(); // Pre-rendered tile images, shared by all the tiles on screen
+    private static final double TILE_SCALE = 1.0;
+    private HighlightClock highlightClock; // Pulses the playable tiles from one shared timeline
 
     // General Labels
     private Label turnMessageLabel;
@@ -86,7 +110,7 @@ public class GameplayScreen {
     private HBox player1Info;
     private HBox player1HBoxRectangles;
     private VBox player1Fix;
-    private List<StackPane> player1Plates; // Player 1's tiles on UI
+    private List<TileView> player1Plates; // Player 1's tiles on UI
 
     // Player 2 (Opponent) UI elements
     private HBox player2Info;
@@ -105,7 +129,7 @@ public class GameplayScreen {
      * @param fromServer     The input stream to receive data from the server.
      * @param onGameShutdown A callback to be executed when the game is over and needs to shut down.
      */
-    public GameplayScreen(Stage primaryStage, Socket socket, String playerName, String opponentName, PrintWriter toServer, Scanner fromServer, Runnable onGameShutdown) {
+    public GameplayScreen(Stage primaryStage, Socket socket, String playerName, String opponentName, LineWriter toServer, LineReader fromServer, Runnable onGameShutdown) {
         this.primaryStage = primaryStage;
         this.socket = socket;
         this.playerName = playerName;
@@ -120,32 +144,43 @@ public class GameplayScreen {
      */
     public void start() {
         initializeCommandMaps();
+        tileImages.prerender(Orientation.HORIZONTAL, TILE_SCALE);
+
+        // The hand, the board and the stock size are full snapshots, so within a burst only the last one is shown
+        this.serverEvents = new ServerEventPipeline(fromServer, ServerEventPipeline.DEFAULT_CAPACITY, event -> processServerMessage(event.message()), Opcode.SCORE)
+                .coalesce(Opcode.TILES, Opcode.BOARD, Opcode.STOCK_SIZE);
+        this.performanceHud = new PerformanceHud(serverEvents, toServer);
+        this.serverEvents.onReaderThread(Opcode.PONG, performanceHud::onPong); // Timed on arrival, not when the JavaFX thread gets to it
+
         setupUI();
-        new Thread(this::handleGameLoop).start();
+
+        this.serverEvents.trackPaint(primaryStage.getScene());
+        this.serverEvents.start();
+        this.performanceHud.start();
     }
 
     /**
      * Initializes the mapping of server commands to their corresponding handler methods.
      */
     private void initializeCommandMaps() {
-        gameCommands.put("TURN", this::handleTurn);
-        gameCommands.put("TILES", () -> handleTiles(data));
-        gameCommands.put("BOARD", () -> handleLineOfPlay(data));
-        gameCommands.put("STOCK_SIZE", () -> handleStock(data));
-        gameCommands.put("OPPONENT_TILE_SIZE", () -> handleTileSize(data));
-        gameCommands.put("WAIT_OPPONENT_MOVE", this::handleWaitForMove);
-        gameCommands.put("NO_AVAILABLE_MOVES", this::handleNoAvailableMoves);
-        gameCommands.put("DRAW", () -> handleDraw(data));
-        gameCommands.put("OPPONENT_DRAW", this::handleOppDraw);
-        gameCommands.put("PLAYED", () -> handlePlayed(data));
-        gameCommands.put("OPP_PLAYED", () -> handleOppPlayed(data));
-        gameCommands.put("PASS", this::handlePass);
-        gameCommands.put("OPP_PASS", this::handleOppPass);
-        gameCommands.put("INDEX", () -> handleIndex(index));
-        gameCommands.put("INVALID_MOVE", this::handleInvalidMove);
-        gameCommands.put("INVALID_INPUT", this::handleInvalidInput);
-        gameCommands.put("GAME_OVER", () -> handleGameOver(data));
-        gameCommands.put("SCORE", () -> handleScore(data));
+        gameCommands.on(Opcode.TURN, this::handleTurn);
+        gameCommands.on(Opcode.TILES, this::handleTiles);
+        gameCommands.on(Opcode.BOARD, this::handleLineOfPlay);
+        gameCommands.on(Opcode.STOCK_SIZE, message -> handleStock(message.payloadAsString()));
+        gameCommands.on(Opcode.OPPONENT_TILE_SIZE, message -> handleTileSize(message.payloadAsString()));
+        gameCommands.on(Opcode.WAIT_OPPONENT_MOVE, this::handleWaitForMove);
+        gameCommands.on(Opcode.NO_AVAILABLE_MOVES, this::handleNoAvailableMoves);
+        gameCommands.on(Opcode.DRAW, message -> handleDraw(message.payloadAsString()));
+        gameCommands.on(Opcode.OPPONENT_DRAW, this::handleOppDraw);
+        gameCommands.on(Opcode.PLAYED, message -> handlePlayed(message.payloadAsString()));
+        gameCommands.on(Opcode.OPP_PLAYED, message -> handleOppPlayed(message.payloadAsString()));
+        gameCommands.on(Opcode.PASS, this::handlePass);
+        gameCommands.on(Opcode.OPP_PASS, this::handleOppPass);
+        gameCommands.on(Opcode.INDEX, () -> handleIndex(index));
+        gameCommands.on(Opcode.INVALID_MOVE, this::handleInvalidMove);
+        gameCommands.on(Opcode.INVALID_INPUT, this::handleInvalidInput);
+        gameCommands.on(Opcode.GAME_OVER, message -> handleGameOver(message.payloadAsString()));
+        gameCommands.on(Opcode.SCORE, message -> handleScore(message.payloadAsString()));
     }
 
     /**
@@ -154,12 +189,25 @@ public class GameplayScreen {
     private void setupUI() {
         startGameScreen();
 
-        Scene gameScene = new Scene(gameLayout, 1200, 650);
+        // The performance overlay floats above the game
+        Scene gameScene = new Scene(new StackPane(gameLayout, performanceHud.getView()), 1200, 650);
+        performanceHud.trackFrames(gameScene);
+        gameScene.addEventFilter(KeyEvent.KEY_PRESSED, event -> {
+            if (event.getCode() == KeyCode.F3) {
+                performanceHud.toggle();
+            } else if (event.getCode() == KeyCode.F4) {
+                dumpTrace();
+            }
+        });
 
         // Switch the scene on the same primary stage
         primaryStage.setScene(gameScene);
         primaryStage.setTitle("Domino Game - Playing");
         primaryStage.show();
+
+        // Stop animating while the window is in the background
+        highlightClock.setWindowFocused(primaryStage.isFocused());
+        primaryStage.focusedProperty().addListener((observable, wasFocused, focused) -> highlightClock.setWindowFocused(focused));
     }
 
     /**
@@ -207,7 +255,14 @@ public class GameplayScreen {
 
         VBox lineOfPlayContainer = new VBox();
         lineOfPlayContainer.setAlignment(Pos.CENTER);
-        lineOfPlayContainer.getChildren().addAll(turnMessageLabel, JavaFXlineOfPlay);
+        if ("canvas".equals(System.getProperty("domino.board"))) {
+            // Run with -Ddomino.board=canvas to draw the line of play on a scrollable, zoomable canvas
+            this.boardCanvas = new BoardCanvas(tileImages);
+            VBox.setVgrow(boardCanvas, Priority.ALWAYS);
+            lineOfPlayContainer.getChildren().addAll(turnMessageLabel, boardCanvas);
+        } else {
+            lineOfPlayContainer.getChildren().addAll(turnMessageLabel, JavaFXlineOfPlay);
+        }
         this.gameLayout.setCenter(lineOfPlayContainer);
 
         this.player1Info.getChildren().add(this.player1Fix);
@@ -222,41 +277,33 @@ public class GameplayScreen {
         this.yourTurn = false;
         this.player1Plates = new ArrayList<>();
 
+        // Run with -Ddomino.lowpower=true to lower the frame rate of the highlight
+        double highlightFps = Boolean.getBoolean("domino.lowpower") ? HighlightClock.LOW_POWER_FPS : HighlightClock.DEFAULT_FPS;
+        this.highlightClock = new HighlightClock(this.player1Plates, highlightFps);
+
         // this.player1Fix.getChildren()
         // this.gameLayout.setRight(stockLabel);
     }
 
     /**
-     * Handles the main game loop by processing messages from the server.
+     * Returns the pipeline delivering the server messages, which reports the queue depth and the
+     * latency from socket read to paint.
+     *
+     * @return The server event pipeline.
      */
-    private void handleGameLoop() {
-        while (fromServer.hasNextLine()) {
-            String serverMessage = fromServer.nextLine();
-
-            if(serverMessage.contains(" ")) {
-                this.data = serverMessage.substring(serverMessage.indexOf(" ") + 1);
-                serverMessage = serverMessage.substring(0, serverMessage.indexOf(" "));
-            }
-
-            processServerMessage(serverMessage);
-
-            if (serverMessage.equals("SCORE")) {
-                break;
-            }
-        }
+    ServerEventPipeline getServerEvents() {
+        return serverEvents;
     }
 
     /**
      * Processes a server message by looking up and executing the corresponding command handler.
+     * Runs on the JavaFX Application Thread.
      *
-     * @param serverMessage The command received from the server.
+     * @param serverMessage The message received from the server.
      */
-    private void processServerMessage(String serverMessage) {
-        // Look up the command in the gameCommands map
-        Runnable command = gameCommands.get(serverMessage);
-        if (command != null) {
-            command.run();
-        }
+    private void processServerMessage(Message serverMessage) {
+        // Look up and execute the handler of the opcode
+        gameCommands.dispatch(serverMessage);
     }
 
     // ------------------------------------------ GAMEPLAY HANDLES ---------------------------------------
@@ -268,9 +315,7 @@ public class GameplayScreen {
         this.yourTurn = true;
         // gameLayout.setStyle("-fx-background-color: lightgreen;");
 
-        Platform.runLater(() -> {
-            this.turnMessageLabel.setText("It's your turn!");
-        });
+        this.turnMessageLabel.setText("It's your turn!");
 
         System.out.println("It's your turn [" + playerName + "]!");
     }
@@ -282,10 +327,8 @@ public class GameplayScreen {
      */
     private void handleStock(String data) {
         this.stockSize = data;
-        Platform.runLater(() -> {
-            int size = Integer.parseInt(stockSize);
-            stockLabel.setText("Stock: " + size);
-        });
+        int size = Integer.parseInt(stockSize);
+        stockLabel.setText("Stock: " + size);
     }
 
     /**
@@ -300,113 +343,189 @@ public class GameplayScreen {
     /**
      * Handles the "TILES" command by updating the player's tiles.
      *
-     * @param data The data containing the player's tiles.
+     * @param message The message containing the player's tiles.
      */
-    private void handleTiles(String data) {
-        this.tiles = data;
-        Platform.runLater(() -> {
-            this.player1HBoxRectangles.getChildren().clear();
-            this.player2HBoxRectangles.getChildren().clear();
-        });
+    private void handleTiles(Message message) {
+        int tileCount = message.payloadAsTiles(this.handPips);
+        this.handCount = tileCount;
+        int opponentTileCount = this.opponentTiles;
+        boolean playable = this.yourTurn;
 
-        HBox player1HBoxRectangles2 = new HBox(8);
-        HBox player2HBoxRectangles2 = new HBox(8);
+        player1Label.setText(playerName + " (Tiles: " + tileCount + ")");
+        updateHand(this.handPips, tileCount, playable);
 
-        this.tiles = this.tiles.replace("[", "").replace("]", "").trim();
-        String[] pairs2 = this.tiles.split(", ");
+        this.gameLayout.setTop(player1Info);
 
-        Platform.runLater(() -> {
-            player1Label.setText(playerName + " (Tiles: " + pairs2.length + ")");
-        });
+        this.primaryStage.setMinHeight(Math.max(this.primaryStage.getMinHeight(), calculatePlayerHeight(player1HBoxRectangles)));
+        this.primaryStage.setMinWidth(Math.max(this.primaryStage.getMinWidth(), calculatePlayerWidth(player1HBoxRectangles)));
 
-        for (int i = 0; i < pairs2.length; i++) {
-            String tile = pairs2[i].trim();
-            String[] numbers = tile.split(":");
+        this.player2Label.setText(opponentName + " (Tiles: " + opponentTileCount + ")");
+        updateOpponentHand(opponentTileCount);
 
-            HBox plate_hBox = new HBox(20);
-            StackPane plate = createDominoPlate(Integer.parseInt(numbers[0]), Integer.parseInt(numbers[1]), "PLAYER1", "" + i + "");
+        this.gameLayout.setBottom(player2Info);
 
-            this.player1Plates.add(plate);
+        this.primaryStage.setMinHeight(Math.max(this.primaryStage.getMinHeight(), calculatePlayerHeight(player2HBoxRectangles)));
+        this.primaryStage.setMinWidth(Math.max(this.primaryStage.getMinWidth(), calculatePlayerWidth(player2HBoxRectangles)));
+    }
 
-            Platform.runLater(() -> {
-                plate_hBox.getChildren().add(plate);
-                player1HBoxRectangles2.getChildren().add(plate_hBox);
-                this.player1HBoxRectangles = player1HBoxRectangles2;
-            });
+    /**
+     * Handles the "BOARD" command by updating the line of play.
+     *
+     * @param message The message containing the line of play.
+     */
+    private void handleLineOfPlay(Message message) {
+        int tileCount = message.payloadAsTiles(this.boardPips);
+        this.boardCount = tileCount;
+        if (tileCount > 0) {
+            this.lineOfPlay = message.payloadAsString();
+            showLineOfPlay(this.boardPips, tileCount);
+
+            System.out.println("Current Board: " + this.lineOfPlay);
         }
-        
-        Platform.runLater(() -> {
-            if (player1Fix.getChildren().size() == 4)
-                player1Fix.getChildren().set(2, player1HBoxRectangles);
+    }
 
-            this.gameLayout.setTop(player1Info);
+    /**
+     * Shows the given line of play, on the canvas if it is enabled and on the row of plates otherwise.
+     *
+     * @param pips The values of the tiles on the line of play, two per tile.
+     * @param tileCount The number of tiles on the line of play.
+     */
+    private void showLineOfPlay(int[] pips, int tileCount) {
+        if (boardCanvas != null) {
+            boardCanvas.setTiles(pips, tileCount); // The canvas wraps the line, so the window does not need to grow
+        } else {
+            updateLineOfPlay(pips, tileCount);
 
-            this.primaryStage.setMinHeight(Math.max(this.primaryStage.getMinHeight(), calculatePlayerHeight(player1HBoxRectangles)));
-            this.primaryStage.setMinWidth(Math.max(this.primaryStage.getMinWidth(), calculatePlayerWidth(player1HBoxRectangles)));
-        });
-    
-        Platform.runLater(() -> {
-            this.player2Label.setText(opponentName + " (Tiles: " + this.opponentTiles + ")");
-        });
-        
-        for (int i = 1; i <= this.opponentTiles; i++) {
-            HBox plate_hBox = new HBox(20);
-            StackPane plate = createDominoPlate(0, 0, "PLAYER2", "" + -1 + "");
-    
-            Platform.runLater(() -> {
-                plate_hBox.getChildren().add(plate);
-                player2HBoxRectangles2.getChildren().add(plate_hBox);
-                this.player2HBoxRectangles = player2HBoxRectangles2;
-            });
+            if (tileCount > 0) {
+                double lineOfPlayWidth = calculateLineOfPlayWidth();
+                this.primaryStage.setMinWidth(lineOfPlayWidth);
+            }
         }
-        
-        Platform.runLater(() -> {
-            if (player2Fix.getChildren().size() == 2)
-                player2Fix.getChildren().set(1, player2HBoxRectangles);
+    }
 
-            this.gameLayout.setBottom(player2Info);
+    /**
+     * Brings the displayed hand up to date with the hand sent by the server, reusing the plates of the tiles
+     * still in the hand. The server keeps the hand in order, removing played tiles and appending drawn ones,
+     * so the plates of removed tiles are dropped and only the new tiles get plates.
+     *
+     * @param pips The values of the tiles in the hand, two per tile.
+     * @param tileCount The number of tiles in the hand.
+     * @param playable Whether it is the player's turn.
+     */
+    private void updateHand(int[] pips, int tileCount, boolean playable) {
+        ObservableList<Node> hand = this.player1HBoxRectangles.getChildren();
+
+        int i = 0;
+        for (; i < tileCount; i++) {
+            int shown = indexOfPlate(pips[2 * i], pips[2 * i + 1], i);
+            if (shown < 0) {
+                break; // A new tile: everything from here on is new
+            }
+            if (shown > i) { // Tiles i to shown - 1 left the hand
+                this.player1Plates.subList(i, shown).clear();
+                hand.remove(i, shown);
+            }
+        }
+        if (i < this.player1Plates.size()) {
+            this.player1Plates.subList(i, this.player1Plates.size()).clear();
+            hand.remove(i, hand.size());
+        }
+        for (; i < tileCount; i++) {
+            TileView plate = createDominoPlate(pips[2 * i], pips[2 * i + 1], "PLAYER1", "" + i + "", playable);
+            this.player1Plates.add(plate);
+            hand.add(plate);
+        }
 
-            this.primaryStage.setMinHeight(Math.max(this.primaryStage.getMinHeight(), calculatePlayerHeight(player2HBoxRectangles)));
-            this.primaryStage.setMinWidth(Math.max(this.primaryStage.getMinWidth(), calculatePlayerWidth(player2HBoxRectangles)));
-        });
+        // The server expects the position of the tile in the current hand
+        for (i = 0; i < tileCount; i++) {
+            TileView plate = this.player1Plates.get(i);
+            plate.setUserData("" + i + "");
+            setPlayable(plate, playable);
+        }
+        highlightClock.setActive(playable);
+    }
 
+    /**
+     * Finds the plate showing the given tile in the displayed hand.
+     *
+     * @param left The left value of the tile.
+     * @param right The right value of the tile.
+     * @param from The position to start searching from.
+     * @return The position of the plate, or -1 if the tile is not displayed after the position.
+     */
+    private int indexOfPlate(int left, int right, int from) {
+        for (int i = from; i < this.player1Plates.size(); i++) {
+            if (this.player1Plates.get(i).shows(left, right)) {
+                return i;
+            }
+        }
+        return -1;
+    }
 
-        updatePlateColors();
+    /**
+     * Brings the displayed opponent hand up to date, adding or removing face down plates at the end.
+     *
+     * @param tileCount The number of tiles in the opponent's hand.
+     */
+    private void updateOpponentHand(int tileCount) {
+        ObservableList<Node> backs = this.player2HBoxRectangles.getChildren();
+        if (backs.size() > tileCount) {
+            backs.remove(tileCount, backs.size());
+        }
+        while (backs.size() < tileCount) {
+            backs.add(createDominoPlate(0, 0, "PLAYER2", "" + -1 + "", false));
+        }
     }
 
     /**
-     * Handles the "BOARD" command by updating the line of play.
+     * Brings the displayed line of play up to date with the line sent by the server. Tiles are only ever added
+     * at one of the two ends, so when the new line is the displayed one plus a tile at either end only that
+     * tile gets a plate. Anything else (such as a new game) rebuilds the line.
      *
-     * @param data The data containing the line of play.
+     * @param pips The values of the tiles on the line of play, two per tile.
+     * @param tileCount The number of tiles on the line of play.
      */
-    private void handleLineOfPlay(String data) {
-        this.lineOfPlay = data;
-        if (!this.lineOfPlay.equals("[]")) {
-            Platform.runLater(() -> {
-                this.JavaFXlineOfPlay.getChildren().clear();
-            });
+    private void updateLineOfPlay(int[] pips, int tileCount) {
+        int shown = this.lineOfPlayPlates.size();
 
-            this.lineOfPlay = this.lineOfPlay.replace("[", "").replace("]", "").trim();
+        if (tileCount == shown && lineOfPlayShows(pips, 0)) {
+            return;
+        }
+        if (tileCount == shown + 1 && lineOfPlayShows(pips, 1)) {
+            TileView plate = createDominoPlateForLineOfPlay(pips[0], pips[1]);
+            this.lineOfPlayPlates.add(0, plate);
+            this.JavaFXlineOfPlay.getChildren().add(0, plate);
+            return;
+        }
+        if (tileCount == shown + 1 && lineOfPlayShows(pips, 0)) {
+            TileView plate = createDominoPlateForLineOfPlay(pips[2 * shown], pips[2 * shown + 1]);
+            this.lineOfPlayPlates.add(plate);
+            this.JavaFXlineOfPlay.getChildren().add(plate);
+            return;
+        }
 
-            String[] pairs = this.lineOfPlay.split(", ");
+        this.lineOfPlayPlates.clear();
+        for (int i = 0; i < tileCount; i++) {
+            this.lineOfPlayPlates.add(createDominoPlateForLineOfPlay(pips[2 * i], pips[2 * i + 1]));
+        }
+        this.JavaFXlineOfPlay.getChildren().setAll(this.lineOfPlayPlates);
+    }
 
-            for (String pair : pairs) {
-                String[] values = pair.split(":");
-                
-                StackPane plate = createDominoPlateForLineOfPlay(Integer.parseInt(values[0]), Integer.parseInt(values[1]));
-                
-                Platform.runLater(() -> {
-                    this.JavaFXlineOfPlay.getChildren().add(plate);
-                });
+    /**
+     * Checks whether the displayed line of play matches the given tiles, starting at a tile offset.
+     *
+     * @param pips The values of the tiles, two per tile.
+     * @param offset The tile matched against the leftmost displayed plate.
+     * @return true if every displayed plate shows the corresponding tile.
+     */
+    private boolean lineOfPlayShows(int[] pips, int offset) {
+        for (int i = 0; i < this.lineOfPlayPlates.size(); i++) {
+            int tile = offset + i;
+            if (!this.lineOfPlayPlates.get(i).shows(pips[2 * tile], pips[2 * tile + 1])) {
+                return false;
             }
-
-            Platform.runLater(() -> {
-                double lineOfPlayWidth = calculateLineOfPlayWidth();
-                this.primaryStage.setMinWidth(lineOfPlayWidth);
-            });
-
-            System.out.println("Current Board: " + this.lineOfPlay);
         }
+        return true;
     }
 
     /**
@@ -416,9 +535,7 @@ public class GameplayScreen {
         // gameLayout.setStyle("-fx-background-color: red;");
         updatePlateColors();
 
-        Platform.runLater(() -> {
-            this.turnMessageLabel.setText("Waiting for [" + this.opponentName + "] to make a move.");
-        });
+        this.turnMessageLabel.setText("Waiting for [" + this.opponentName + "] to make a move.");
 
         System.out.println("Waiting for [" + this.opponentName + "] to make a move.");
     }
@@ -428,11 +545,9 @@ public class GameplayScreen {
      */    
     private void handleNoAvailableMoves() {
         stock = true;
-        Platform.runLater(() -> {
-            this.infoLabel.setText("No available moves. Drawing from stock...");
+        this.infoLabel.setText("No available moves. Drawing from stock...");
 
-            // this.playPauseTransition();
-        });
+        // this.playPauseTransition();
 
         System.out.println("No available moves. Drawing from stock...");
     }
@@ -465,12 +580,20 @@ public class GameplayScreen {
         this.yourTurn = false;
         this.invalidMoveSum = 0;
 
+        if (predictedTile != null) {
+            // The next hand and board snapshots correct the screen if the server placed the tile differently
+            if (predictedTile.toString().equals(data)) {
+                predictionHits++;
+            } else {
+                predictionMisses++;
+            }
+            predictedTile = null;
+        }
+
         if (!stock) {
-            Platform.runLater(() -> {
-                this.infoLabel.setText("You played: " + tile);
-                
-                // this.playPauseTransition();
-            });
+            this.infoLabel.setText("You played: " + tile);
+            
+            // this.playPauseTransition();
         } else stock = false;
 
         System.out.println("You played: " + tile);
@@ -486,9 +609,7 @@ public class GameplayScreen {
         this.yourTurn = true;
 
         if (!stock) {
-            Platform.runLater(() -> {
-                this.infoLabel.setText("[" + this.opponentName + "] (opponent) played: " + this.tile);
-            });
+            this.infoLabel.setText("[" + this.opponentName + "] (opponent) played: " + this.tile);
         } else stock = false;
 
         System.out.println(opponentName + " played: " + tile);
@@ -498,11 +619,9 @@ public class GameplayScreen {
      * Handles the "PASS" command indicating the player passed their turn.
      */
     private void handlePass() {
-        Platform.runLater(() -> {
-            this.infoLabel.setText("No valid tiles to play and no more tiles in the stock. Passing turn.");
+        this.infoLabel.setText("No valid tiles to play and no more tiles in the stock. Passing turn.");
 
-            // this.playPauseTransition();
-        });
+        // this.playPauseTransition();
 
         System.out.println("No valid tiles to play and no more tiles in the stock. Passing turn.");
     }
@@ -511,11 +630,9 @@ public class GameplayScreen {
      * Handles the "OPP_PASS" command indicating the opponent passed their turn.
      */
     private void handleOppPass() {
-        Platform.runLater(() -> {
-            this.infoLabel.setText("[" + this.opponentName + "] (opponent) has no valid tiles to play and the stock is empty. Passed the turn.");
+        this.infoLabel.setText("[" + this.opponentName + "] (opponent) has no valid tiles to play and the stock is empty. Passed the turn.");
 
-            // this.playPauseTransition();
-        });
+        // this.playPauseTransition();
 
         System.out.println(opponentName + " has no valid tiles to play and the stock is empty.");
         System.out.println(opponentName + " passed the turn.");
@@ -536,9 +653,17 @@ public class GameplayScreen {
      * Handles the "INVALID_MOVE" command indicating the player made an invalid move.
      */
     private void handleInvalidMove() {
-        Platform.runLater(() -> {
-            this.infoLabel.setText("Invalid move. Choose a different tile. (" + (++invalidMoveSum) + ")");
-        });
+        if (predictedTile != null) {
+            // The server rejected the predicted move: show the last hand and board it sent and give the turn back
+            predictedTile = null;
+            predictionMisses++;
+            this.yourTurn = true;
+            player1Label.setText(playerName + " (Tiles: " + handCount + ")");
+            updateHand(this.handPips, this.handCount, true);
+            showLineOfPlay(this.boardPips, this.boardCount);
+        }
+
+        this.infoLabel.setText("Invalid move. Choose a different tile. (" + (++invalidMoveSum) + ")");
 
         System.out.println("Invalid move. Choose a different tile.");
     }
@@ -587,6 +712,7 @@ public class GameplayScreen {
      * @param score  The score message to display.
      */
     private void showWinnerDialog(String winner, String score) {
+        // Shown after the current batch of events, since the dialog waits in a nested event loop
         Platform.runLater(() -> {
             Alert alert = new Alert(Alert.AlertType.INFORMATION);
             alert.setTitle("Game Over");
@@ -595,10 +721,23 @@ public class GameplayScreen {
             alert.showAndWait();
 
             System.out.println("You scored: " + score + " points!");
+            performanceHud.stop();
             onGameShutdown.run();
         });
     }
 
+    /**
+     * Writes the timing trace of the session to a file, for bug reports, and tells the player where it is.
+     */
+    private void dumpTrace() {
+        try {
+            Path file = performanceHud.dumpTrace();
+            this.infoLabel.setText("Timing trace saved to " + file.toAbsolutePath());
+        } catch (IOException e) {
+            this.infoLabel.setText("Could not save the timing trace: " + e.getMessage());
+        }
+    }
+
     /**
      * Calculates the minimum height required for displaying the player's tiles.
      *
@@ -633,136 +772,138 @@ public class GameplayScreen {
     }
 
     /**
-     * Creates a domino tile plate as a StackPane for the player or line of play.
+     * Creates a domino tile plate as an image view of a pre-rendered tile, for the player or line of play.
+     * Must be called on the JavaFX Application Thread.
      *
      * @param leftNumber  The left number on the tile.
      * @param rightNumber The right number on the tile.
      * @param type        The type indicating "PLAYER1", "PLAYER2", or line of play.
      * @param index       The index of the tile.
-     * @return A StackPane representing the domino tile.
-     */
-    private StackPane createDominoPlate(int leftNumber, int rightNumber, String type, String index) {
-        StackPane stackPanePlate = createRectangle(leftNumber, rightNumber, index);
-
-        if (type.equals("PLAYER1") && yourTurn) {
-            stackPanePlate.addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
-                String plateIndex = (String) stackPanePlate.getUserData();
-                toServer.println(plateIndex);
+     * @param playable    Whether it is the player's turn, so their tiles can be clicked.
+     * @return A TileView representing the domino tile.
+     */
+    private TileView createDominoPlate(int leftNumber, int rightNumber, String type, String index, boolean playable) {
+        Highlight highlight = Highlight.NONE;
+        if (type.equals("PLAYER1")) highlight = playable ? Highlight.PLAYABLE : Highlight.WAITING;
+        if (type.equals("PLAYER2")) highlight = Highlight.BACK;
+
+        TileView plate = new TileView(tileImages, leftNumber, rightNumber, Orientation.HORIZONTAL, highlight, TILE_SCALE);
+        plate.setUserData(index);
+
+        if (type.equals("PLAYER1")) {
+            // The plate stays in the hand across turns, so a click only counts while it is playable
+            plate.addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
+                if (this.yourTurn && plate.getHighlight() == Highlight.PLAYABLE) {
+                    playPlate(plate);
+                }
             });
-
-            ScaleTransition scaleTransition = new ScaleTransition(Duration.millis(300), stackPanePlate);
-            scaleTransition.setFromX(1.0);
-            scaleTransition.setFromY(1.0);
-            scaleTransition.setToX(1.05);
-            scaleTransition.setToY(1.05);
-            scaleTransition.setCycleCount(Animation.INDEFINITE);
-            scaleTransition.setAutoReverse(true);
-            scaleTransition.play();
         }
 
-        if (type.equals("PLAYER2")) stackPanePlate.setDisable(true);
+        if (type.equals("PLAYER2")) plate.setDisable(true);
 
-        return stackPanePlate;
+        return plate;
     }
 
     /**
-     * Creates a domino tile plate as a StackPane for the line of play.
+     * Plays one of the player's tiles. The move is first checked against a copy of the board with the placement
+     * rule of the engine, so an invalid move is reported at once without a round trip to the server. A valid move
+     * is sent to the server and shown immediately: the tile leaves the hand and joins the line of play
+     * where the server will place it. The server's answer confirms the prediction or rolls it back.
      *
-     * @param leftNumber  The left number on the tile.
-     * @param rightNumber The right number on the tile.
-     * @return A StackPane representing the domino tile.
+     * @param plate The clicked plate of the player's hand.
      */
-    private StackPane createDominoPlateForLineOfPlay(int leftNumber, int rightNumber) {
-        return createRectangle(leftNumber, rightNumber, " ");
-    }
-
-    /**
-     * Creates a rectangle representing a domino tile.
-     *
-     * @param leftNumber The left number on the tile.
-     * @param rightNumber The right number on the tile.
-     * @param index The index of the tile.
-     * @return A StackPane containing the domino tile.
-     */
-    private StackPane createRectangle(int leftNumber, int rightNumber, String index) {
-        Rectangle rectangle = new Rectangle(60, 70, Color.BLACK);
-        rectangle.setArcWidth(20);
-        rectangle.setArcHeight(20);
-        // rectangle.setStroke(Color.BLACK);
-
-        VBox leftPane = createCirclePane(leftNumber);
-        VBox rightPane = createCirclePane(rightNumber);
+    private void playPlate(TileView plate) {
+        int plateIndex = Integer.parseInt((String) plate.getUserData());
 
-        HBox circles_hBox = new HBox();
-        circles_hBox.setAlignment(Pos.CENTER);
-
-        
-        if (!index.equals("-1")) {
-            Line line = new Line(100, 0, 100, 50);
-            line.setStroke(Color.WHITE);
+        Deque<Tile> board = new ArrayDeque<>(this.boardCount + 1);
+        for (int i = 0; i < this.boardCount; i++) {
+            board.add(new Tile(this.boardPips[2 * i], this.boardPips[2 * i + 1]));
+        }
 
-            Platform.runLater(() -> {
-                circles_hBox.getChildren().addAll(leftPane, line, rightPane);
-            });
-        } else {
-            Platform.runLater(() -> {
-                circles_hBox.getChildren().addAll(leftPane, rightPane);
-            });
+        Tile chosenTile = new Tile(plate.getLeft(), plate.getRight());
+        int end = GameEngine.placement(board, chosenTile);
+        if (end < 0) {
+            this.infoLabel.setText("Invalid move. Choose a different tile. (" + (++invalidMoveSum) + ")");
+            return;
         }
+        GameEngine.place(board, chosenTile, end);
 
-        StackPane stackPanePlate = new StackPane();
-        Platform.runLater(() -> {
-            stackPanePlate.getChildren().addAll(rectangle, circles_hBox);
-        });
+        toServer.writeLine(plateIndex);
 
-        if (index != " ") stackPanePlate.setUserData(index);
+        // Show the move before the server confirms it
+        this.predictedTile = chosenTile;
+        this.yourTurn = false;
+        this.player1Plates.remove(plateIndex);
+        this.player1HBoxRectangles.getChildren().remove(plateIndex);
+        for (int i = 0; i < this.player1Plates.size(); i++) {
+            TileView handPlate = this.player1Plates.get(i);
+            handPlate.setUserData("" + i + "");
+            setPlayable(handPlate, false);
+        }
+        highlightClock.setActive(false);
+        player1Label.setText(playerName + " (Tiles: " + this.player1Plates.size() + ")");
+
+        int[] predictedBoard = new int[2 * board.size()];
+        int tileCount = 0;
+        for (Tile boardTile : board) {
+            predictedBoard[2 * tileCount] = boardTile.getUpperValue();
+            predictedBoard[2 * tileCount + 1] = boardTile.getBottomValue();
+            tileCount++;
+        }
+        showLineOfPlay(predictedBoard, tileCount);
 
-        return stackPanePlate;
+        this.infoLabel.setText("You played: " + chosenTile);
     }
 
     /**
-     * Creates a VBox containing circles representing the pips on a domino tile side.
+     * Returns the number of moves shown before the server's answer that the server confirmed as shown.
      *
-     * @param number The number of pips to display.
-     * @return A VBox containing the pips.
+     * @return The number of correct predictions.
      */
-    private VBox createCirclePane(int number) {
-        VBox pane = new VBox();
-        pane.setPrefWidth(30);
-        pane.setAlignment(Pos.CENTER);
-
-        double circleRadius = 3.8;
-        double availableWidth = 27;
-        double spaceBetweenCircles = 0;
-
-        if (number > 1) {
-            spaceBetweenCircles = (availableWidth - (circleRadius * number)) / (number);
-        }
+    int getPredictionHits() {
+        return predictionHits;
+    }
 
-        for (int i = 0; i < number; i++) {
-            Circle circle = new Circle(circleRadius, Color.WHITE);
-            
-            if (i > 0) {
-                pane.setSpacing(spaceBetweenCircles);
-            }
+    /**
+     * Returns the number of moves shown before the server's answer that the server rejected or placed differently.
+     *
+     * @return The number of wrong predictions.
+     */
+    int getPredictionMisses() {
+        return predictionMisses;
+    }
 
-            // Platform.runLater(() -> {
-                pane.getChildren().add(circle);
-            // });
-        }
+    /**
+     * Creates a domino tile plate for the line of play.
+     *
+     * @param leftNumber  The left number on the tile.
+     * @param rightNumber The right number on the tile.
+     * @return A TileView representing the domino tile.
+     */
+    private TileView createDominoPlateForLineOfPlay(int leftNumber, int rightNumber) {
+        return new TileView(tileImages, leftNumber, rightNumber, Orientation.HORIZONTAL, Highlight.NONE, TILE_SCALE);
+    }
 
-        return pane;
+    /**
+     * Marks one of the player's plates as playable (green) or waiting (red).
+     * The pulse of the playable plates is driven by the highlight clock.
+     *
+     * @param plate A plate of the player's hand.
+     * @param playable Whether it is the player's turn.
+     */
+    private void setPlayable(TileView plate, boolean playable) {
+        plate.setHighlight(playable ? Highlight.PLAYABLE : Highlight.WAITING);
     }
 
     /**
-     * Updates the colors of the player's tiles based on whether it's their turn.
+     * Updates the colors of the player's tiles based on whether it's their turn,
+     * by swapping the images of the tiles.
      */
     private void updatePlateColors() {
-        for (StackPane plate : this.player1Plates) {
-            Platform.runLater(() -> {
-                Rectangle rectangle = (Rectangle) plate.getChildren().get(0);
-                rectangle.setFill(this.yourTurn ? Color.LIGHTGREEN : Color.RED);
-            });
+        boolean playable = this.yourTurn;
+        for (TileView plate : this.player1Plates) {
+            setPlayable(plate, playable);
         }
+        highlightClock.setActive(playable);
     }
 }
@@ -0,0 +1,111 @@
+package gr.uop;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.scene.Node;
+import javafx.util.Duration;
+
+import java.util.List;
+
+/**
+ * HighlightClock drives the pulse of the playable tiles from one shared timeline, instead of one
+ * infinite animation per tile. The timeline ticks at a capped frame rate and only runs while the
+ * highlight is active (it is the player's turn) and the window has the focus; otherwise it is stopped,
+ * so no animation keeps the JavaFX pulse running while the player waits.
+ *
+ * <p>
+ * Must only be used on the JavaFX Application Thread.
+ * </p>
+ */
+final class HighlightClock {
+
+    public static final double DEFAULT_FPS = 60;
+    public static final double LOW_POWER_FPS = 12;
+
+    private static final double PERIOD_SECONDS = 0.6; // A full grow and shrink, like the old 300ms auto-reversed transition
+    private static final double AMPLITUDE = 0.05; // The tiles grow up to 105%
+
+    private final List<? extends Node> targets;
+    private final Timeline timeline;
+    private long startNanos;
+    private boolean active;
+    private boolean windowFocused = true;
+
+    /**
+     * Constructs a clock animating the nodes of the given list.
+     *
+     * @param targets The nodes to pulse. The list is read on every tick, so it may change between ticks.
+     * @param fps The maximum number of updates per second.
+     */
+    HighlightClock(List<? extends Node> targets, double fps) {
+        this.targets = targets;
+        this.timeline = new Timeline(new KeyFrame(Duration.millis(1000 / fps), event -> tick()));
+        this.timeline.setCycleCount(Animation.INDEFINITE);
+    }
+
+    /**
+     * Turns the highlight on or off, e.g. when the turn changes.
+     *
+     * @param active true while the highlighted tiles can be played.
+     */
+    void setActive(boolean active) {
+        this.active = active;
+        updateRunning();
+    }
+
+    /**
+     * Tells the clock whether the window has the focus. The pulse pauses while it does not.
+     *
+     * @param windowFocused true if the window is focused.
+     */
+    void setWindowFocused(boolean windowFocused) {
+        this.windowFocused = windowFocused;
+        updateRunning();
+    }
+
+    /**
+     * Checks whether the timeline is currently running.
+     *
+     * @return true if the clock is ticking.
+     */
+    boolean isRunning() {
+        return timeline.getStatus() == Animation.Status.RUNNING;
+    }
+
+    /**
+     * Starts or stops the timeline to match the active and focus state.
+     */
+    private void updateRunning() {
+        boolean run = active && windowFocused;
+        if (run && !isRunning()) {
+            startNanos = System.nanoTime();
+            timeline.play();
+        } else if (!run && isRunning()) {
+            timeline.stop();
+            applyScale(1.0);
+        }
+    }
+
+    /**
+     * Sets the scale of every target for the current time.
+     */
+    private void tick() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        double phase = 2 * Math.PI * seconds / PERIOD_SECONDS;
+        applyScale(1.0 + AMPLITUDE * 0.5 * (1 - Math.cos(phase)));
+    }
+
+    /**
+     * Sets the scale of every target.
+     *
+     * @param scale The scale to apply.
+     */
+    private void applyScale(double scale) {
+        for (int i = 0; i < targets.size(); i++) {
+            Node node = targets.get(i);
+            node.setScaleX(scale);
+            node.setScaleY(scale);
+        }
+    }
+}
@@ -10,13 +10,14 @@ import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
+import gr.uop.protocol.LineReader;
+import gr.uop.protocol.LineWriter;
+import gr.uop.protocol.MessageDispatcher;
+import gr.uop.protocol.Opcode;
+
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.net.Socket;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Optional;
-import java.util.Scanner;
 import java.util.function.Consumer;
 
 /**
@@ -29,19 +30,18 @@ public class InitializationScreen {
     private static final int PORT = 7777;
 
     private Socket socket;
-    private PrintWriter toServer;
-    private Scanner fromServer;
+    private LineWriter toServer;
+    private LineReader fromServer;
     private String serverAddress;
 
     private String playerName;
     private String opponentName;
-    private String data;
 
     private Stage primaryStage;
     private Button startButton;
     private Label statusLabel;
 
-    private Map<String, Runnable> initCommands = new HashMap<>();
+    private MessageDispatcher initCommands = new MessageDispatcher();
 
     private Consumer<InitializationResult> onInitializationComplete; // Used to pass data to JavaFXClient.java
 
@@ -64,12 +64,13 @@ public class InitializationScreen {
      * These commands are received from the server.
      */
     private void initializeCommandMaps() {
-        initCommands.put("WAIT_CONNECT", this::handleWaitConnect);
-        initCommands.put("CONNECTED", this::handlePlayerConnected);
-        initCommands.put("WAIT_PLAYER1_NAME", this::handlePlayer1Name);
-        initCommands.put("WAIT_PLAYER2_NAME", this::handlePlayer2Name);
-        initCommands.put("NAME_REQUEST", this::handleNameRequest);
-        initCommands.put("END_INIT", () -> handleEndInit(data));
+        initCommands.on(Opcode.WAIT_CONNECT, this::handleWaitConnect);
+        initCommands.on(Opcode.CONNECTED, this::handlePlayerConnected);
+        initCommands.on(Opcode.WAIT_PLAYER1_NAME, this::handlePlayer1Name);
+        initCommands.on(Opcode.WAIT_PLAYER2_NAME, this::handlePlayer2Name);
+        initCommands.on(Opcode.NAME_REQUEST, this::handleNameRequest);
+        initCommands.on(Opcode.END_INIT, message -> handleEndInit(message.payloadAsString()));
+        initCommands.on(Opcode.SERVER_BUSY, message -> handleServerBusy(message.payloadAsInt()));
     }
 
     /**
@@ -117,8 +118,8 @@ public class InitializationScreen {
         }
         startButton.setDisable(true);
 
-        // Start the client connection in a separate thread
-        new Thread(this::startClient).start();
+        // Connect on a virtual thread, which then goes on to read the server messages
+        Thread.ofVirtual().name("server-connect").start(this::startClient);
     }
 
     /**
@@ -127,52 +128,38 @@ public class InitializationScreen {
     private void startClient() {
         try {
             socket = new Socket(serverAddress, PORT);
-            toServer = new PrintWriter(socket.getOutputStream(), true);
-            fromServer = new Scanner(socket.getInputStream());
+            toServer = new LineWriter(socket.getOutputStream(), true);
+            fromServer = new LineReader(socket.getInputStream());
 
             // Confirm connection
             Platform.runLater(() -> updateStatus("Connected to server. Waiting for Player 2..."));
 
-            handleServerMessages();
-
         } catch (IOException e) {
             Platform.runLater(() -> showErrorMessage("Could not connect to the server. Please try again."));
+            return;
         }
+
+        handleServerMessages();
     }
 
     /**
      * Handles incoming messages from the server and processes them accordingly.
+     * The messages are read until END_INIT, so that the gameplay screen takes over the connection afterwards.
      */
     private void handleServerMessages() {
-        while (fromServer.hasNextLine()) {
-            String serverMessage = fromServer.nextLine();
-
-            if (serverMessage.contains(" ")) {
-                data = serverMessage.substring(serverMessage.indexOf(" ") + 1);
-                serverMessage = serverMessage.substring(0, serverMessage.indexOf(" "));
-            }
-
-            final String finalServerMessage = serverMessage;
-
-            Platform.runLater(() -> processServerMessage(finalServerMessage));
-
-            if (serverMessage.equals("END_INIT")) {
-                break;
-            }
-        }
+        new ServerEventPipeline(fromServer, ServerEventPipeline.DEFAULT_CAPACITY, this::processServerMessage, Opcode.END_INIT)
+                .onError(e -> showErrorMessage("Lost the connection to the server."))
+                .start();
     }
 
     /**
-     * Processes a command received from the server.
+     * Processes a command received from the server, on the JavaFX Application Thread.
      *
-     * @param serverMessage The command sent by the server.
+     * @param serverEvent The message sent by the server.
      */
-    private void processServerMessage(String serverMessage) {
-        // Look up the command in the initCommands map
-        Runnable command = initCommands.get(serverMessage);
-        if (command != null) {
-            command.run();  // Execute the corresponding command
-        }
+    private void processServerMessage(ServerEvent serverEvent) {
+        // Look up and execute the handler of the opcode
+        initCommands.dispatch(serverEvent.message());
     }
 
     /**
@@ -203,14 +190,14 @@ public class InitializationScreen {
      * Handle the "WAIT_CONNECT" command received from the server.
      */
     private void handleWaitConnect() {
-        updateStatus("Waiting for Player 2 to connect...");
+        updateStatus("Waiting for an opponent...");
     }
 
     /**
      * Handle the "CONNECTED" command received from the server.
      */
     private void handlePlayerConnected() {
-        updateStatus("Player 2 connected.");
+        updateStatus("Opponent found.");
     }
 
     /**
@@ -227,6 +214,16 @@ public class InitializationScreen {
         updateStatus("Waiting for Player 2 to enter their name...");
     }
 
+    /**
+     * Handle the "SERVER_BUSY" command: the server refused the player, and closes the connection.
+     *
+     * @param retryAfterMillis The time the server asks the player to wait before trying again.
+     */
+    private void handleServerBusy(int retryAfterMillis) {
+        updateStatus("The server is busy.");
+        showErrorMessage("The server is busy. Please try again in " + Math.max(1, (retryAfterMillis + 999) / 1000) + " second(s).");
+    }
+
     /**
      * Handle the "NAME_REQUEST" command received from the server, prompting the player
      * to enter their name and sending it to the server.
@@ -244,7 +241,7 @@ public class InitializationScreen {
             showErrorMessage("Invalid name. Please try again.");
             return;
         }
-        toServer.println(playerName);
+        toServer.writeLine(playerName);
     }
 
     /**
@@ -272,8 +269,8 @@ public class InitializationScreen {
         public final String playerName;
         public final String opponentName;
         public final Socket socket;
-        public final PrintWriter toServer;
-        public final Scanner fromServer;
+        public final LineWriter toServer;
+        public final LineReader fromServer;
 
         /**
          * Constructor for InitializationResult.
@@ -284,7 +281,7 @@ public class InitializationScreen {
          * @param toServer     The output stream to the server.
          * @param fromServer   The input stream from the server.
          */
-        public InitializationResult(String playerName, String opponentName, Socket socket, PrintWriter toServer, Scanner fromServer) {
+        public InitializationResult(String playerName, String opponentName, Socket socket, LineWriter toServer, LineReader fromServer) {
             this.playerName = playerName;
             this.opponentName = opponentName;
             this.socket = socket;
@@ -4,10 +4,11 @@ import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.stage.Stage;
 
+import gr.uop.protocol.LineReader;
+import gr.uop.protocol.LineWriter;
+
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.net.Socket;
-import java.util.Scanner;
 
 /**
  * JavaFXClient is the main entry point for the JavaFX-based domino game client.
@@ -18,8 +19,8 @@ public class JavaFXClient extends Application {
 
     private Stage primaryStage;
     private Socket socket;
-    private PrintWriter toServer;
-    private Scanner fromServer;
+    private LineWriter toServer;
+    private LineReader fromServer;
     private String playerName;
     private String opponentName;
 
@@ -90,6 +91,10 @@ public class JavaFXClient extends Application {
      * @param args Command-line arguments.
      */
     public static void main(String[] args) {
+        // In low-power mode, also cap the JavaFX pulse rate unless it was set explicitly
+        if (Boolean.getBoolean("domino.lowpower") && System.getProperty("javafx.animation.framerate") == null) {
+            System.setProperty("javafx.animation.framerate", "30");
+        }
         launch(args);
     }
 }
\ No newline at end of file
@@ -0,0 +1,265 @@
+package gr.uop;
+
+import gr.uop.protocol.LineWriter;
+import gr.uop.protocol.Message;
+import gr.uop.protocol.Opcode;
+
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.layout.StackPane;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * PerformanceHud is an overlay showing where the time of the client goes, to tell apart network, server
+ * and rendering lag. Once a second it samples:
+ * <ul>
+ * <li>the round-trip time to the server, measured with PING/PONG,</li>
+ * <li>the messages and bytes received per second,</li>
+ * <li>the frames per second and the time the JavaFX thread spent on each pulse (CSS and layout),</li>
+ * <li>the pending JavaFX work: the events waiting in the pipeline and the delay of a task posted with
+ * {@code Platform.runLater},</li>
+ * <li>the latency from socket read to paint reported by the pipeline.</li>
+ * </ul>
+ *
+ * <p>
+ * The samples of the session are kept, whether the overlay is shown or not, and can be written to a CSV file
+ * for bug reports. The samples are taken by a sleeping virtual thread and the frame statistics come from the
+ * pulse listeners of the scene, so the overlay runs no animation and causes no extra frames: when nothing
+ * changes on screen, it reports 0 frames per second.
+ * Must only be used on the JavaFX Application Thread, except {@link #onPong}.
+ * </p>
+ */
+final class PerformanceHud {
+
+    private static final int MAX_SAMPLES = 3600; // One hour of samples
+    private static final int PINGS_IN_FLIGHT = 16; // Send times remembered, a PONG older than that is ignored
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    /**
+     * Sample is the state of the client during one second.
+     */
+    private record Sample(long timeMillis, double rttMillis, double messagesPerSecond, double bytesPerSecond,
+            int framesPerSecond, double averagePulseMillis, double maxPulseMillis, int queueDepth,
+            double runLaterDelayMillis, double paintLatencyMillis) {
+    }
+
+    private final ServerEventPipeline serverEvents;
+    private final LineWriter toServer;
+    private final Label view = new Label();
+    private Thread sampler;
+    private final ArrayDeque<Sample> samples = new ArrayDeque<>();
+
+    // Round-trip time
+    private final AtomicLongArray pingSentNanos = new AtomicLongArray(PINGS_IN_FLIGHT); // Read by the reader thread
+    private int pingSequence;
+    private volatile long rttNanos = -1; // Written by the reader thread
+
+    // Counters of the current second
+    private long lastSampleNanos;
+    private long lastEventCount;
+    private long lastBytesRead;
+    private int frames;
+    private long pulseStartNanos;
+    private long pulseNanosTotal;
+    private long pulseNanosMax;
+    private long runLaterDelayNanos;
+
+    /**
+     * Constructs a hidden overlay for the given connection.
+     *
+     * @param serverEvents The pipeline delivering the server messages, which provides the message statistics.
+     * @param toServer The writer to the server, used to send the pings.
+     */
+    PerformanceHud(ServerEventPipeline serverEvents, LineWriter toServer) {
+        this.serverEvents = serverEvents;
+        this.toServer = toServer;
+
+        view.setStyle("-fx-background-color: rgba(0, 0, 0, 0.7); -fx-text-fill: white; -fx-font-family: monospace; -fx-font-size: 12px;");
+        view.setPadding(new Insets(6));
+        view.setMouseTransparent(true);
+        view.setVisible(false);
+        StackPane.setAlignment(view, Pos.TOP_LEFT);
+        StackPane.setMargin(view, new Insets(8));
+    }
+
+    /**
+     * Returns the overlay, to be placed above the game in a stack pane.
+     *
+     * @return The overlay node.
+     */
+    Label getView() {
+        return view;
+    }
+
+    /**
+     * Times the pulses of the given scene.
+     *
+     * @param scene The scene of the game.
+     */
+    void trackFrames(Scene scene) {
+        scene.addPreLayoutPulseListener(() -> pulseStartNanos = System.nanoTime());
+        scene.addPostLayoutPulseListener(() -> {
+            long pulseNanos = System.nanoTime() - pulseStartNanos;
+            frames++;
+            pulseNanosTotal += pulseNanos;
+            pulseNanosMax = Math.max(pulseNanosMax, pulseNanos);
+        });
+    }
+
+    /**
+     * Starts sampling, once a second.
+     */
+    void start() {
+        lastSampleNanos = System.nanoTime();
+        sampler = Thread.ofVirtual().name("hud-sampler").start(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(1000);
+                    long posted = System.nanoTime();
+                    Platform.runLater(() -> sample(posted));
+                }
+            } catch (InterruptedException e) {
+                // Stopped
+            }
+        });
+    }
+
+    /**
+     * Stops sampling, when the game is over.
+     */
+    void stop() {
+        if (sampler != null) {
+            sampler.interrupt();
+        }
+    }
+
+    /**
+     * Shows or hides the overlay.
+     */
+    void toggle() {
+        view.setVisible(!view.isVisible());
+    }
+
+    /**
+     * Handles a PONG from the server. Runs on the reader thread, as soon as the message is read.
+     *
+     * @param message The PONG message, carrying the sequence number of the ping.
+     */
+    void onPong(Message message) {
+        long now = System.nanoTime();
+        int sequence = message.payloadAsInt();
+        long sentNanos = pingSentNanos.get(sequence & (PINGS_IN_FLIGHT - 1));
+        if (sentNanos != 0) {
+            rttNanos = now - sentNanos;
+        }
+    }
+
+    /**
+     * Writes the samples of the session to a CSV file in the working directory.
+     *
+     * @return The path of the file.
+     * @throws IOException If the file cannot be written.
+     */
+    Path dumpTrace() throws IOException {
+        Path file = Path.of("domino-trace-" + LocalDateTime.now().format(FILE_TIME) + ".csv");
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            out.write("# events=" + serverEvents.getEventCount() + " coalesced=" + serverEvents.getCoalescedCount()
+                    + " drains=" + serverEvents.getDrainCount() + " maxPaintLatencyMs=" + millis(serverEvents.getMaxLatencyNanos()));
+            out.newLine();
+            out.write("timeMillis,rttMs,messagesPerSecond,bytesPerSecond,fps,avgPulseMs,maxPulseMs,queueDepth,runLaterDelayMs,paintLatencyMs");
+            out.newLine();
+            for (Sample sample : samples) {
+                out.write(sample.timeMillis() + "," + sample.rttMillis() + "," + sample.messagesPerSecond() + ","
+                        + sample.bytesPerSecond() + "," + sample.framesPerSecond() + "," + sample.averagePulseMillis() + ","
+                        + sample.maxPulseMillis() + "," + sample.queueDepth() + "," + sample.runLaterDelayMillis() + ","
+                        + sample.paintLatencyMillis());
+                out.newLine();
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Takes the sample of the last second and sends the next ping.
+     *
+     * @param postedNanos The time the sampling task was posted; it waited behind the JavaFX work queued before it.
+     */
+    private void sample(long postedNanos) {
+        long now = System.nanoTime();
+        runLaterDelayNanos = now - postedNanos;
+        double seconds = (now - lastSampleNanos) / 1e9;
+        lastSampleNanos = now;
+
+        long eventCount = serverEvents.getEventCount();
+        long bytesRead = serverEvents.getBytesRead();
+        long rtt = rttNanos;
+        Sample sample = new Sample(System.currentTimeMillis(),
+                rtt < 0 ? -1 : millis(rtt),
+                (eventCount - lastEventCount) / seconds,
+                (bytesRead - lastBytesRead) / seconds,
+                frames,
+                frames == 0 ? 0 : millis(pulseNanosTotal / frames),
+                millis(pulseNanosMax),
+                serverEvents.getQueueDepth(),
+                millis(runLaterDelayNanos),
+                millis(serverEvents.getLastLatencyNanos()));
+        lastEventCount = eventCount;
+        lastBytesRead = bytesRead;
+        frames = 0;
+        pulseNanosTotal = 0;
+        pulseNanosMax = 0;
+
+        if (samples.size() == MAX_SAMPLES) {
+            samples.removeFirst();
+        }
+        samples.addLast(sample);
+        if (view.isVisible()) {
+            view.setText(format(sample));
+        }
+
+        // The server echoes the sequence number
+        int sequence = pingSequence++ & Integer.MAX_VALUE;
+        pingSentNanos.set(sequence & (PINGS_IN_FLIGHT - 1), System.nanoTime());
+        toServer.send(Opcode.PING, sequence);
+    }
+
+    /**
+     * Formats a sample for the overlay.
+     *
+     * @param sample The sample to show.
+     * @return The text of the overlay.
+     */
+    private static String format(Sample sample) {
+        return String.format("RTT        %s%n"
+                + "Messages   %.0f/s  %.1f KB/s%n"
+                + "FPS        %d  pulse %.2f ms (max %.2f)%n"
+                + "FX queue   %d events  runLater %.2f ms%n"
+                + "Paint lag  %.1f ms",
+                sample.rttMillis() < 0 ? "-" : String.format("%.1f ms", sample.rttMillis()),
+                sample.messagesPerSecond(), sample.bytesPerSecond() / 1024,
+                sample.framesPerSecond(), sample.averagePulseMillis(), sample.maxPulseMillis(),
+                sample.queueDepth(), sample.runLaterDelayMillis(),
+                sample.paintLatencyMillis());
+    }
+
+    /**
+     * Converts nanoseconds to milliseconds.
+     *
+     * @param nanos The duration in nanoseconds.
+     * @return The duration in milliseconds.
+     */
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
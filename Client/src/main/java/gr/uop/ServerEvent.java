@@ -0,0 +1,35 @@
+package gr.uop;
+
+import gr.uop.protocol.Message;
+import gr.uop.protocol.Opcode;
+
+/**
+ * ServerEvent is a message received from the server, decoded by the reader thread and handed to the
+ * JavaFX Application Thread. The message is detached from the reader's buffer when the event is created
+ * and never changed afterwards, so the event can be handled at any later time without racing the reader.
+ *
+ * @param message The received message, owning its payload.
+ * @param receivedNanos The {@code System.nanoTime()} at which the message was read from the socket.
+ */
+record ServerEvent(Message message, long receivedNanos) {
+
+    /**
+     * Decodes the message currently held by the reader into an event.
+     *
+     * @param message The reader's message, which is copied.
+     * @param receivedNanos The time the message was read.
+     * @return The event.
+     */
+    static ServerEvent of(Message message, long receivedNanos) {
+        return new ServerEvent(message.detach(), receivedNanos);
+    }
+
+    /**
+     * Returns the opcode of the message.
+     *
+     * @return The opcode, or null if the line did not start with a known opcode.
+     */
+    Opcode opcode() {
+        return message.opcode();
+    }
+}
@@ -0,0 +1,279 @@
+package gr.uop;
+
+import gr.uop.protocol.LineReader;
+import gr.uop.protocol.Message;
+import gr.uop.protocol.MessageDispatcher;
+import gr.uop.protocol.MessageHandler;
+import gr.uop.protocol.Opcode;
+
+import javafx.application.Platform;
+import javafx.scene.Scene;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * ServerEventPipeline moves the messages of the server from a reader thread to the JavaFX Application Thread.
+ *
+ * <p>
+ * A virtual thread reads the messages, decodes each one into an immutable {@link ServerEvent} and puts it in
+ * a bounded queue; when the queue is full the reader waits, so a UI that falls behind slows down the reading
+ * instead of piling up tasks. The JavaFX thread drains everything queued in one task and hands the events to
+ * the handler in the order they were received. Within a drained burst, events whose opcode was registered
+ * with {@link #coalesce} are skipped when a later event of the same opcode follows, since it replaces them.
+ * </p>
+ *
+ * <p>
+ * With {@link #trackPaint}, the pipeline measures the latency from reading a message off the socket to the
+ * first frame laid out after it was handled.
+ * </p>
+ */
+final class ServerEventPipeline {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final LineReader fromServer;
+    private final BlockingQueue<ServerEvent> queue;
+    private final Consumer<ServerEvent> handler;
+    private final Opcode lastOpcode;
+    private final boolean[] coalescable = new boolean[Opcode.count()];
+    private final MessageDispatcher readerCommands = new MessageDispatcher(); // Handled on the reader thread, never queued
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final ArrayDeque<ServerEvent> burst = new ArrayDeque<>(); // Drained events not handled yet, JavaFX thread only
+    private final int[] burstCountByOpcode = new int[Opcode.count()]; // Number of events of each opcode in the burst
+    private Consumer<IOException> onError = e -> System.err.println("Connection to the server lost: " + e.getMessage());
+
+    // Statistics, written on the JavaFX thread
+    private volatile long eventCount;
+    private volatile long coalescedCount;
+    private volatile long drainCount;
+    private long oldestUnpaintedNanos; // Receive time of the oldest event handled since the last frame, 0 if none
+    private volatile long lastLatencyNanos;
+    private volatile long maxLatencyNanos;
+    private volatile long averageLatencyNanos; // Exponentially weighted
+
+    /**
+     * Constructs a pipeline reading from the given reader.
+     *
+     * @param fromServer The reader of the server connection.
+     * @param capacity The maximum number of events waiting for the JavaFX thread.
+     * @param handler Handles the events, on the JavaFX Application Thread.
+     * @param lastOpcode The opcode after which the reader stops (e.g. the end of the initialization), or null to read until the end of the stream.
+     */
+    ServerEventPipeline(LineReader fromServer, int capacity, Consumer<ServerEvent> handler, Opcode lastOpcode) {
+        this.fromServer = fromServer;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.handler = handler;
+        this.lastOpcode = lastOpcode;
+    }
+
+    /**
+     * Lets later events of the given opcodes replace earlier ones of the same burst.
+     * Only opcodes that carry a full snapshot of some state (such as the hand or the board) should be coalesced.
+     *
+     * @param opcodes The opcodes to coalesce.
+     * @return This pipeline.
+     */
+    ServerEventPipeline coalesce(Opcode... opcodes) {
+        for (Opcode opcode : opcodes) {
+            coalescable[opcode.ordinal()] = true;
+        }
+        return this;
+    }
+
+    /**
+     * Handles the messages of the given opcode on the reader thread, as soon as they are read, instead of
+     * queueing them for the JavaFX thread. Meant for the messages that time the connection, such as PONG.
+     *
+     * @param opcode The opcode to handle.
+     * @param handler The handler, which must be thread-safe and must not touch the scene graph.
+     * @return This pipeline.
+     */
+    ServerEventPipeline onReaderThread(Opcode opcode, MessageHandler handler) {
+        readerCommands.on(opcode, handler);
+        return this;
+    }
+
+    /**
+     * Sets what to do when reading fails. It runs on the JavaFX thread, after the events read before the failure.
+     *
+     * @param onError The error handler.
+     * @return This pipeline.
+     */
+    ServerEventPipeline onError(Consumer<IOException> onError) {
+        this.onError = onError;
+        return this;
+    }
+
+    /**
+     * Measures the latency to paint on the frames of the given scene.
+     *
+     * @param scene The scene the events are shown on.
+     */
+    void trackPaint(Scene scene) {
+        scene.addPostLayoutPulseListener(this::framePainted);
+    }
+
+    /**
+     * Starts reading on a new virtual thread.
+     *
+     * @return The reader thread.
+     */
+    Thread start() {
+        return Thread.ofVirtual().name("server-reader").start(this::readLoop);
+    }
+
+    /**
+     * Reads messages until the last opcode, the end of the stream or an error.
+     */
+    private void readLoop() {
+        Message message = new Message(); // Reused for every line, detached into each event
+        try {
+            while (fromServer.readMessage(message)) {
+                if (readerCommands.dispatch(message)) {
+                    continue;
+                }
+                queue.put(ServerEvent.of(message, System.nanoTime()));
+                if (drainScheduled.compareAndSet(false, true)) {
+                    Platform.runLater(this::drain);
+                }
+                if (lastOpcode != null && message.opcode() == lastOpcode) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            Platform.runLater(() -> onError.accept(e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Handles every queued event on the JavaFX thread, skipping the coalesced ones.
+     * A handler that waits in a nested event loop (such as a dialog) may cause a nested drain; both take the
+     * events from the same burst, so they are still handled once each and in order.
+     */
+    private void drain() {
+        drainScheduled.set(false); // Cleared first, so an event queued during the drain schedules another one
+        drainCount++;
+
+        ServerEvent event;
+        while ((event = queue.poll()) != null) {
+            burst.add(event);
+            Opcode opcode = event.opcode();
+            if (opcode != null) {
+                burstCountByOpcode[opcode.ordinal()]++;
+            }
+        }
+
+        while ((event = burst.poll()) != null) {
+            if (oldestUnpaintedNanos == 0) {
+                oldestUnpaintedNanos = event.receivedNanos();
+            }
+            eventCount++;
+
+            Opcode opcode = event.opcode();
+            if (opcode != null) {
+                int later = --burstCountByOpcode[opcode.ordinal()];
+                if (later > 0 && coalescable[opcode.ordinal()]) {
+                    coalescedCount++; // A later event of the burst replaces this one
+                    continue;
+                }
+            }
+            handler.accept(event);
+        }
+    }
+
+    /**
+     * Records the latency of the events handled before this frame.
+     */
+    private void framePainted() {
+        if (oldestUnpaintedNanos == 0) {
+            return;
+        }
+        long latency = System.nanoTime() - oldestUnpaintedNanos;
+        oldestUnpaintedNanos = 0;
+
+        lastLatencyNanos = latency;
+        if (latency > maxLatencyNanos) {
+            maxLatencyNanos = latency;
+        }
+        averageLatencyNanos = averageLatencyNanos == 0 ? latency : averageLatencyNanos + (latency - averageLatencyNanos) / 8;
+    }
+
+    /**
+     * Returns the number of events waiting for the JavaFX thread.
+     *
+     * @return The queue depth.
+     */
+    int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the number of bytes read from the server so far.
+     *
+     * @return The byte count.
+     */
+    long getBytesRead() {
+        return fromServer.getBytesRead();
+    }
+
+    /**
+     * Returns the number of events received so far, including the coalesced ones.
+     *
+     * @return The event count.
+     */
+    long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Returns the number of events skipped because a later event replaced them.
+     *
+     * @return The coalesced event count.
+     */
+    long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    /**
+     * Returns the number of JavaFX tasks that handled events.
+     *
+     * @return The drain count.
+     */
+    long getDrainCount() {
+        return drainCount;
+    }
+
+    /**
+     * Returns the latency from socket read to paint of the last frame that showed new events.
+     *
+     * @return The latency in nanoseconds, 0 if nothing has been painted yet.
+     */
+    long getLastLatencyNanos() {
+        return lastLatencyNanos;
+    }
+
+    /**
+     * Returns the largest latency from socket read to paint seen so far.
+     *
+     * @return The latency in nanoseconds.
+     */
+    long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+
+    /**
+     * Returns the moving average of the latency from socket read to paint.
+     *
+     * @return The latency in nanoseconds.
+     */
+    long getAverageLatencyNanos() {
+        return averageLatencyNanos;
+    }
+}
@@ -0,0 +1,194 @@
+package gr.uop;
+
+import javafx.geometry.Pos;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.image.Image;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Circle;
+import javafx.scene.shape.Line;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.transform.Rotate;
+import javafx.scene.transform.Transform;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * TileImageCache renders each domino tile once into an {@link Image} and hands out the cached image
+ * afterwards, so the gameplay screen can draw tiles as single {@code ImageView} nodes instead of
+ * building a rectangle, a divider and up to 12 circles for every tile on every update.
+ *
+ * <p>
+ * Images are keyed by the pips on the left and right side (so 6:5 and 5:6 are the two horizontal
+ * orientations of the same tile), the orientation, the highlight and the scale. Rendering uses
+ * {@code Node.snapshot}, so the cache must only be used on the JavaFX Application Thread.
+ * </p>
+ */
+final class TileImageCache {
+
+    /**
+     * The direction a tile is drawn in.
+     */
+    enum Orientation {
+        HORIZONTAL,
+        VERTICAL // Rotated a quarter turn clockwise, the left side on top
+    }
+
+    /**
+     * The highlight a tile is drawn with, which sets the color of its face.
+     */
+    enum Highlight {
+        NONE(Color.BLACK), // Tiles on the line of play
+        PLAYABLE(Color.LIGHTGREEN), // Player's tiles during their turn
+        WAITING(Color.RED), // Player's tiles during the opponent's turn
+        BACK(Color.BLACK); // Opponent's tiles, drawn face down
+
+        private final Color fill;
+
+        Highlight(Color fill) {
+            this.fill = fill;
+        }
+    }
+
+    private static final int PIPS = 7;
+    private static final int IMAGES_PER_SCALE = Highlight.values().length * Orientation.values().length * PIPS * PIPS;
+
+    private final Map<Integer, Image[]> imagesByScale = new HashMap<>(); // Keyed by the scale in percent
+    private int lastScale = -1; // Most recently used scale, to skip the map lookup while it does not change
+    private Image[] lastImages;
+    private int renderedCount;
+
+    /**
+     * Returns the image of a tile, rendering and caching it on first use.
+     *
+     * @param left The pips on the left side of the tile (the upper side when vertical).
+     * @param right The pips on the right side of the tile (the bottom side when vertical).
+     * @param orientation The direction the tile is drawn in.
+     * @param highlight The highlight the tile is drawn with. Face down tiles ignore the pips.
+     * @param scale The scale of the image, 1.0 being the regular 60x70 tile.
+     * @return The cached image of the tile.
+     */
+    Image get(int left, int right, Orientation orientation, Highlight highlight, double scale) {
+        if (highlight == Highlight.BACK) {
+            left = 0;
+            right = 0;
+        }
+
+        Image[] images = imagesFor(scale);
+        int key = ((highlight.ordinal() * Orientation.values().length + orientation.ordinal()) * PIPS + left) * PIPS + right;
+        Image image = images[key];
+        if (image == null) {
+            image = render(left, right, orientation, highlight, scale);
+            images[key] = image;
+            renderedCount++;
+        }
+        return image;
+    }
+
+    /**
+     * Renders every tile in the given orientation, with all highlights, at the given scale, so that no
+     * snapshot is taken while the game is being played.
+     *
+     * @param orientation The orientation to render.
+     * @param scale The scale to render.
+     */
+    void prerender(Orientation orientation, double scale) {
+        for (Highlight highlight : Highlight.values()) {
+            for (int left = 0; left < PIPS; left++) {
+                for (int right = 0; right < PIPS; right++) {
+                    get(left, right, orientation, highlight, scale);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of images rendered so far.
+     *
+     * @return The number of cached images.
+     */
+    int size() {
+        return renderedCount;
+    }
+
+    /**
+     * Returns the image slots of a scale, creating them the first time the scale is used.
+     *
+     * @param scale The scale of the images.
+     * @return The images of the scale, indexed by highlight, orientation and pips.
+     */
+    private Image[] imagesFor(double scale) {
+        int percent = (int) Math.round(scale * 100);
+        if (percent != lastScale) {
+            lastImages = imagesByScale.computeIfAbsent(percent, p -> new Image[IMAGES_PER_SCALE]);
+            lastScale = percent;
+        }
+        return lastImages;
+    }
+
+    /**
+     * Builds the nodes of a tile and takes a snapshot of them.
+     *
+     * @param left The pips on the left side of the tile.
+     * @param right The pips on the right side of the tile.
+     * @param orientation The direction the tile is drawn in.
+     * @param highlight The highlight the tile is drawn with.
+     * @param scale The scale of the image.
+     * @return The rendered image.
+     */
+    private static Image render(int left, int right, Orientation orientation, Highlight highlight, double scale) {
+        Rectangle rectangle = new Rectangle(60, 70, highlight.fill);
+        rectangle.setArcWidth(20);
+        rectangle.setArcHeight(20);
+
+        HBox circles_hBox = new HBox();
+        circles_hBox.setAlignment(Pos.CENTER);
+        if (highlight == Highlight.BACK) {
+            circles_hBox.getChildren().addAll(createCirclePane(left), createCirclePane(right));
+        } else {
+            Line line = new Line(100, 0, 100, 50);
+            line.setStroke(Color.WHITE);
+            circles_hBox.getChildren().addAll(createCirclePane(left), line, createCirclePane(right));
+        }
+
+        StackPane plate = new StackPane(rectangle, circles_hBox);
+
+        SnapshotParameters parameters = new SnapshotParameters();
+        parameters.setFill(Color.TRANSPARENT);
+        Transform transform = Transform.scale(scale, scale);
+        if (orientation == Orientation.VERTICAL) {
+            transform = transform.createConcatenation(new Rotate(90));
+        }
+        parameters.setTransform(transform);
+
+        return plate.snapshot(parameters, null);
+    }
+
+    /**
+     * Creates a VBox containing circles representing the pips on a domino tile side.
+     *
+     * @param number The number of pips to display.
+     * @return A VBox containing the pips.
+     */
+    private static VBox createCirclePane(int number) {
+        VBox pane = new VBox();
+        pane.setPrefWidth(30);
+        pane.setAlignment(Pos.CENTER);
+
+        double circleRadius = 3.8;
+        double availableWidth = 27;
+
+        if (number > 1) {
+            pane.setSpacing((availableWidth - (circleRadius * number)) / (number));
+        }
+
+        for (int i = 0; i < number; i++) {
+            pane.getChildren().add(new Circle(circleRadius, Color.WHITE));
+        }
+
+        return pane;
+    }
+}
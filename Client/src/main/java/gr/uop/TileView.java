@@ -0,0 +1,91 @@
+package gr.uop;
+
+import gr.uop.TileImageCache.Highlight;
+import gr.uop.TileImageCache.Orientation;
+
+import javafx.scene.image.ImageView;
+
+/**
+ * TileView draws a domino tile as a single {@code ImageView} showing an image from a {@link TileImageCache}.
+ * Changing the highlight only swaps the image, so a view can be kept on screen across turns instead of
+ * being rebuilt.
+ */
+final class TileView extends ImageView {
+
+    private final TileImageCache cache;
+    private final int left;
+    private final int right;
+    private final Orientation orientation;
+    private final double scale;
+    private Highlight highlight;
+
+    /**
+     * Constructs a view of a tile. Must be called on the JavaFX Application Thread.
+     *
+     * @param cache The cache providing the images.
+     * @param left The pips on the left side of the tile.
+     * @param right The pips on the right side of the tile.
+     * @param orientation The direction the tile is drawn in.
+     * @param highlight The initial highlight of the tile.
+     * @param scale The scale of the tile.
+     */
+    TileView(TileImageCache cache, int left, int right, Orientation orientation, Highlight highlight, double scale) {
+        super(cache.get(left, right, orientation, highlight, scale));
+        this.cache = cache;
+        this.left = left;
+        this.right = right;
+        this.orientation = orientation;
+        this.scale = scale;
+        this.highlight = highlight;
+    }
+
+    /**
+     * Changes the highlight of the tile by swapping its image.
+     *
+     * @param highlight The new highlight.
+     */
+    void setHighlight(Highlight highlight) {
+        if (highlight != this.highlight) {
+            this.highlight = highlight;
+            setImage(cache.get(left, right, orientation, highlight, scale));
+        }
+    }
+
+    /**
+     * Checks whether the view shows the given tile.
+     *
+     * @param left The pips on the left side.
+     * @param right The pips on the right side.
+     * @return true if the view shows the same pips in the same orientation.
+     */
+    boolean shows(int left, int right) {
+        return this.left == left && this.right == right;
+    }
+
+    /**
+     * Returns the pips on the left side of the tile.
+     *
+     * @return The left value.
+     */
+    int getLeft() {
+        return left;
+    }
+
+    /**
+     * Returns the pips on the right side of the tile.
+     *
+     * @return The right value.
+     */
+    int getRight() {
+        return right;
+    }
+
+    /**
+     * Returns the current highlight of the tile.
+     *
+     * @return The highlight.
+     */
+    Highlight getHighlight() {
+        return highlight;
+    }
+}
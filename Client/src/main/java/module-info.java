@@ -1,5 +1,7 @@
 module gr.uop {
     requires javafx.controls;
+    requires gr.uop.protocol;
+    requires gr.uop.engine;
     requires transitive javafx.graphics;
     exports gr.uop;
 }
\ No newline at end of file
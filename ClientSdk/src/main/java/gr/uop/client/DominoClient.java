@@ -0,0 +1,367 @@
+package gr.uop.client;
+
+import gr.uop.protocol.LineReader;
+import gr.uop.protocol.LineWriter;
+import gr.uop.protocol.Message;
+import gr.uop.protocol.MessageDispatcher;
+import gr.uop.protocol.Opcode;
+import gr.uop.protocol.ProtocolException;
+import gr.uop.protocol.SharedMemoryTransport;
+import gr.uop.protocol.Transport;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * DominoClient plays one game on a Domino server over one connection, or over one channel of a
+ * {@link MultiplexedClient}, without any user interface. It is meant for bots, load generators and integration tests.
+ *
+ * <p>
+ * {@link #connect} returns at once: connecting, joining with the player's name and reading the server
+ * messages happen on a virtual thread, which keeps a {@link GameState} up to date and reports the game to
+ * a {@link GameListener}. Moves are submitted with {@link #play(int)}. Each client costs one virtual thread
+ * and a few small buffers, so thousands of them can run in one JVM.
+ * </p>
+ *
+ * <p>
+ * A client on the same host as the server can {@link #connectLocal} through its Unix domain socket instead,
+ * and then switch to a {@link SharedMemoryTransport} for the lowest latency.
+ * </p>
+ */
+public final class DominoClient implements Closeable {
+
+    public static final int DEFAULT_PORT = 7777;
+
+    private final String host;
+    private final int port;
+    private final Path localSocket; // Null for TCP
+    private final SharedMemoryTransport.WaitStrategy sharedMemory; // Null to stay on the local socket
+    private final GameListener listener;
+    private final MultiplexedClient multiplexer; // Null when the client has a connection of its own
+    private final int channel;
+    private final GameState state;
+    private final MessageDispatcher commands = new MessageDispatcher();
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private final int[] playedTile = new int[2];
+    private final ReentrantLock sending = new ReentrantLock(); // Not a monitor, which would pin a virtual thread blocked on the socket
+
+    private volatile Transport transport;
+    private volatile LineWriter toServer;
+    private volatile boolean closed;
+    private String winner;
+    private boolean gameOver;
+    private ServerBusyException refusal; // Set when the server refused the game
+
+    /**
+     * Constructs a client that has not connected yet.
+     *
+     * @param host The address of the server, or null for the local socket.
+     * @param port The port of the server.
+     * @param localSocket The local socket of the server, or null for TCP.
+     * @param sharedMemory How to wait on shared memory, or null to stay on the socket.
+     * @param playerName The name to join the game with.
+     * @param listener The listener of the game events.
+     */
+    private DominoClient(String host, int port, Path localSocket, SharedMemoryTransport.WaitStrategy sharedMemory,
+            String playerName, GameListener listener) {
+        this.host = host;
+        this.port = port;
+        this.localSocket = localSocket;
+        this.sharedMemory = sharedMemory;
+        this.listener = listener;
+        this.multiplexer = null;
+        this.channel = -1;
+        this.state = new GameState(playerName);
+        initializeCommandMaps();
+    }
+
+    /**
+     * Constructs a client playing over a channel of a multiplexed connection.
+     *
+     * @param multiplexer The multiplexed connection.
+     * @param channel The id of the channel.
+     * @param toServer The writer of the channel.
+     * @param playerName The name to join the game with.
+     * @param listener The listener of the game events.
+     */
+    DominoClient(MultiplexedClient multiplexer, int channel, LineWriter toServer, String playerName, GameListener listener) {
+        this.host = null;
+        this.port = -1;
+        this.localSocket = null;
+        this.sharedMemory = null;
+        this.listener = listener;
+        this.multiplexer = multiplexer;
+        this.channel = channel;
+        this.toServer = toServer;
+        this.state = new GameState(playerName);
+        initializeCommandMaps();
+    }
+
+    /**
+     * Connects to a server and joins a game with the given name, in the background.
+     *
+     * @param host The address of the server.
+     * @param port The port of the server.
+     * @param playerName The name to join the game with.
+     * @param listener The listener of the game events.
+     * @return The client, which is connecting.
+     */
+    public static DominoClient connect(String host, int port, String playerName, GameListener listener) {
+        DominoClient client = new DominoClient(host, port, null, null, playerName, listener);
+        Thread.ofVirtual().name("domino-client-" + playerName).start(client::run);
+        return client;
+    }
+
+    /**
+     * Connects to a server of the same host through its Unix domain socket and joins a game with the given
+     * name, in the background. With a wait strategy, the client creates a shared memory file and the game
+     * runs over it; the socket only tells each side when the other is gone. A spinning client reads on a
+     * platform thread of its own, so it keeps a core busy for the whole game.
+     *
+     * @param localSocket The path of the local socket of the server.
+     * @param playerName The name to join the game with.
+     * @param listener The listener of the game events.
+     * @param sharedMemory How to wait on shared memory, or null to play over the socket.
+     * @return The client, which is connecting.
+     */
+    public static DominoClient connectLocal(Path localSocket, String playerName, GameListener listener,
+            SharedMemoryTransport.WaitStrategy sharedMemory) {
+        DominoClient client = new DominoClient(null, -1, localSocket, sharedMemory, playerName, listener);
+        Thread.Builder builder = sharedMemory == SharedMemoryTransport.WaitStrategy.SPIN
+                ? Thread.ofPlatform().daemon() : Thread.ofVirtual();
+        builder.name("domino-client-" + playerName).start(client::run);
+        return client;
+    }
+
+    /**
+     * Submits a move: the position in the hand of the tile to play. Can be called from any thread,
+     * normally in answer to {@link GameListener#onMoveRequested}.
+     *
+     * @param index The position of the tile in the hand.
+     * @throws IllegalStateException If the client is not connected.
+     */
+    public void play(int index) {
+        LineWriter writer = toServer;
+        if (writer == null) {
+            throw new IllegalStateException("Not connected");
+        }
+        sending.lock();
+        try {
+            writer.writeLine(index);
+        } finally {
+            sending.unlock();
+        }
+    }
+
+    /**
+     * Returns the state of the game. It is updated by the reader thread, so it should only be read from the
+     * listener callbacks or after the game is over.
+     *
+     * @return The game state.
+     */
+    public GameState getState() {
+        return state;
+    }
+
+    /**
+     * Returns a future completed when the connection is closed: normally after the game is over,
+     * or exceptionally with the error that closed it, a {@link ServerBusyException} if the server refused the game.
+     *
+     * @return The future.
+     */
+    public CompletableFuture<Void> done() {
+        return done;
+    }
+
+    /**
+     * Closes the connection, or asks the server to close the channel. The disconnection is reported
+     * once the reader sees it.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (multiplexer != null) {
+            multiplexer.closeChannel(channel);
+            return;
+        }
+        Transport current = transport;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+    }
+
+    /**
+     * Initializes the mapping of server commands to their handlers.
+     */
+    private void initializeCommandMaps() {
+        commands.on(Opcode.NAME_REQUEST, this::handleNameRequest);
+        commands.on(Opcode.END_INIT, this::handleEndInit);
+        commands.on(Opcode.TURN, () -> state.setYourTurn(true));
+        commands.on(Opcode.TILES, message -> state.setHandCount(message.payloadAsTiles(state.handBuffer())));
+        commands.on(Opcode.BOARD, message -> state.setBoardCount(message.payloadAsTiles(state.boardBuffer())));
+        commands.on(Opcode.STOCK_SIZE, message -> state.setStockSize(message.payloadAsInt()));
+        commands.on(Opcode.OPPONENT_TILE_SIZE, message -> state.setOpponentTileCount(message.payloadAsInt()));
+        commands.on(Opcode.INDEX, () -> listener.onMoveRequested(this, state));
+        commands.on(Opcode.INVALID_MOVE, () -> listener.onMoveRejected(this, state));
+        commands.on(Opcode.INVALID_INPUT, () -> listener.onMoveRejected(this, state));
+        commands.on(Opcode.PLAYED, message -> handlePlayed(message, false));
+        commands.on(Opcode.OPP_PLAYED, message -> handlePlayed(message, true));
+        commands.on(Opcode.GAME_OVER, message -> this.winner = message.payloadAsString());
+        commands.on(Opcode.SCORE, message -> {
+            gameOver = true;
+            listener.onGameOver(this, state, winner, message.payloadAsInt());
+        });
+        commands.on(Opcode.SERVER_BUSY, message -> refusal = new ServerBusyException(message.payloadAsInt()));
+        commands.on(Opcode.CLOSE, () -> finish(refusal != null ? refusal
+                : gameOver || closed ? null : new EOFException("Channel closed by the server")));
+    }
+
+    /**
+     * Handles a message of the channel of this client, on the reader thread of the multiplexed connection.
+     *
+     * @param message The message, without its channel prefix.
+     */
+    void dispatch(Message message) {
+        commands.dispatch(message);
+    }
+
+    /**
+     * Reports the end of the connection or channel to the listener and completes {@link #done()}.
+     *
+     * @param cause The error that closed it, or null if it closed normally.
+     */
+    void finish(IOException cause) {
+        listener.onDisconnected(this, cause);
+        if (cause == null) {
+            done.complete(null);
+        } else {
+            done.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Connects, joins and reads the server messages until the game is over or the connection closes.
+     */
+    private void run() {
+        IOException cause = null;
+        try (Transport connection = open()) {
+            this.transport = connection;
+            if (closed) {
+                return; // Closed while connecting
+            }
+            this.toServer = new LineWriter(connection.getOutputStream(), true);
+            LineReader fromServer = new LineReader(connection.getInputStream());
+
+            Message message = new Message(); // Reused for every line
+            while (fromServer.readMessage(message)) {
+                commands.dispatch(message);
+                if (message.opcode() == Opcode.SCORE) {
+                    break;
+                }
+            }
+            if (refusal != null) {
+                throw refusal;
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                cause = e;
+            }
+        } finally {
+            finish(cause);
+        }
+    }
+
+    /**
+     * Opens the connection to the server: a TCP socket, the local socket, or a shared memory file announced
+     * on the local socket.
+     *
+     * @return The connection, on which the server is about to ask for the name.
+     * @throws IOException If the connection fails.
+     */
+    private Transport open() throws IOException {
+        if (localSocket == null) {
+            return Transport.of(new Socket(host, port));
+        }
+        Transport socket = Transport.of(SocketChannel.open(UnixDomainSocketAddress.of(localSocket)));
+        if (sharedMemory == null) {
+            return socket;
+        }
+        try {
+            LineReader fromSocket = new LineReader(socket.getInputStream());
+            Message message = new Message();
+            if (fromSocket.readMessage(message) && message.opcode() == Opcode.SERVER_BUSY) {
+                throw new ServerBusyException(message.payloadAsInt());
+            } else if (message.opcode() != Opcode.NAME_REQUEST) {
+                throw new ProtocolException("Expected " + Opcode.NAME_REQUEST + ", got " + message);
+            }
+            Path file = Files.createTempFile("domino-", ".shm");
+            Files.delete(file); // Only a new file is mapped, the name is all that is needed
+            SharedMemoryTransport rings = SharedMemoryTransport.create(file, SharedMemoryTransport.DEFAULT_CAPACITY, sharedMemory);
+            new LineWriter(socket.getOutputStream(), true).send(Opcode.SHARED_MEMORY, file.toString());
+            return rings.watch(socket, fromSocket);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Asks the server to open the channel of this client for a game, under the same lock as the other lines
+     * of the client.
+     */
+    void openChannel() {
+        sending.lock();
+        try {
+            toServer.begin(Opcode.OPEN).appendString(state.getPlayerName()).end();
+        } finally {
+            sending.unlock();
+        }
+    }
+
+    /**
+     * Answers the name request of the server. The writer is locked like in {@link #play}, since the
+     * application may be sending a move from another thread.
+     */
+    private void handleNameRequest() {
+        sending.lock();
+        try {
+            toServer.writeLine(state.getPlayerName());
+        } finally {
+            sending.unlock();
+        }
+    }
+
+    /**
+     * Handles the end of the initialization, which carries the opponent's name.
+     *
+     * @param message The END_INIT message.
+     */
+    private void handleEndInit(Message message) {
+        state.setOpponentName(message.payloadAsString());
+        listener.onGameStarted(this, state);
+    }
+
+    /**
+     * Handles a played tile.
+     *
+     * @param message The PLAYED or OPP_PLAYED message, holding the tile.
+     * @param byOpponent true if the opponent played the tile.
+     */
+    private void handlePlayed(Message message, boolean byOpponent) {
+        message.payloadAsTiles(playedTile);
+        state.setYourTurn(byOpponent);
+        listener.onPlayed(this, state, playedTile[0], playedTile[1], byOpponent);
+    }
+}
@@ -0,0 +1,76 @@
+package gr.uop.client;
+
+import java.io.IOException;
+
+/**
+ * GameListener receives the events of a {@link DominoClient}. Every method has an empty default,
+ * so a listener only overrides the events it needs.
+ *
+ * <p>
+ * The callbacks run on the reader thread of the client, one at a time and in the order the server sent
+ * the messages. They should return quickly: the client reads nothing while a callback runs.
+ * </p>
+ */
+public interface GameListener {
+
+    /**
+     * Called when both players have joined and the game starts.
+     *
+     * @param client The client.
+     * @param state The state of the game.
+     */
+    default void onGameStarted(DominoClient client, GameState state) {
+    }
+
+    /**
+     * Called when the server waits for the player's move. The listener answers with
+     * {@link DominoClient#play(int)}, from this callback or later from any thread.
+     *
+     * @param client The client.
+     * @param state The state of the game, with the current hand and line of play.
+     */
+    default void onMoveRequested(DominoClient client, GameState state) {
+    }
+
+    /**
+     * Called when the server rejected the last move, either because the tile does not fit or because
+     * the index was not valid. The server waits for another move.
+     *
+     * @param client The client.
+     * @param state The state of the game.
+     */
+    default void onMoveRejected(DominoClient client, GameState state) {
+    }
+
+    /**
+     * Called when a tile was played, by the player or by the opponent.
+     *
+     * @param client The client.
+     * @param state The state of the game.
+     * @param upperValue The upper value of the tile, as placed on the line of play.
+     * @param bottomValue The bottom value of the tile, as placed on the line of play.
+     * @param byOpponent true if the opponent played the tile.
+     */
+    default void onPlayed(DominoClient client, GameState state, int upperValue, int bottomValue, boolean byOpponent) {
+    }
+
+    /**
+     * Called when the game is over.
+     *
+     * @param client The client.
+     * @param state The final state of the game.
+     * @param winner The name of the winner.
+     * @param score The score of the player.
+     */
+    default void onGameOver(DominoClient client, GameState state, String winner, int score) {
+    }
+
+    /**
+     * Called once when the connection is closed, after every other event.
+     *
+     * @param client The client.
+     * @param cause The error that closed the connection, or null if it closed normally.
+     */
+    default void onDisconnected(DominoClient client, IOException cause) {
+    }
+}
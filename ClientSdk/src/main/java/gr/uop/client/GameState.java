@@ -0,0 +1,279 @@
+package gr.uop.client;
+
+import java.util.Arrays;
+
+/**
+ * GameState holds what a client knows about its game: its hand, the line of play, the size of the stock
+ * and the number of tiles of the opponent, as last sent by the server.
+ *
+ * <p>
+ * The state belongs to the reader thread of its {@link DominoClient} and is updated in place, so it must
+ * only be read from the listener callbacks. Use {@link #copy()} to keep a snapshot.
+ * </p>
+ */
+public final class GameState {
+
+    private final String playerName;
+    private String opponentName;
+    private int[] handPips = new int[56]; // Values of the tiles in the hand, two per tile
+    private int handCount;
+    private int[] boardPips = new int[56]; // Values of the tiles on the line of play, two per tile, left to right
+    private int boardCount;
+    private int stockSize;
+    private int opponentTileCount;
+    private boolean yourTurn;
+
+    /**
+     * Constructs the empty state of a player.
+     *
+     * @param playerName The name of the player.
+     */
+    GameState(String playerName) {
+        this.playerName = playerName;
+    }
+
+    /**
+     * Returns a copy of this state that is not updated any more.
+     *
+     * @return The snapshot.
+     */
+    public GameState copy() {
+        GameState copy = new GameState(playerName);
+        copy.opponentName = opponentName;
+        copy.handPips = Arrays.copyOf(handPips, handPips.length);
+        copy.handCount = handCount;
+        copy.boardPips = Arrays.copyOf(boardPips, boardPips.length);
+        copy.boardCount = boardCount;
+        copy.stockSize = stockSize;
+        copy.opponentTileCount = opponentTileCount;
+        copy.yourTurn = yourTurn;
+        return copy;
+    }
+
+    /**
+     * Checks whether the tile at the given position of the hand can be played on the line of play,
+     * following the rules of the straight-line game.
+     *
+     * @param index The position of the tile in the hand.
+     * @return true if the tile matches an open end, or the line of play is empty.
+     */
+    public boolean fits(int index) {
+        if (boardCount == 0) {
+            return true;
+        }
+        int left = getLeftEnd();
+        int right = getRightEnd();
+        int upper = handPips[2 * index];
+        int bottom = handPips[2 * index + 1];
+        return upper == left || bottom == left || upper == right || bottom == right;
+    }
+
+    /**
+     * Returns the position of the first tile of the hand that can be played.
+     *
+     * @return The position of the tile, or -1 if no tile fits.
+     */
+    public int firstPlayable() {
+        for (int i = 0; i < handCount; i++) {
+            if (fits(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the name of the player.
+     *
+     * @return The player's name.
+     */
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    /**
+     * Returns the name of the opponent.
+     *
+     * @return The opponent's name, or null before the game starts.
+     */
+    public String getOpponentName() {
+        return opponentName;
+    }
+
+    /**
+     * Returns the number of tiles in the hand.
+     *
+     * @return The tile count.
+     */
+    public int getHandCount() {
+        return handCount;
+    }
+
+    /**
+     * Returns the upper value of a tile of the hand.
+     *
+     * @param index The position of the tile in the hand.
+     * @return The upper value.
+     */
+    public int getHandUpper(int index) {
+        return handPips[2 * index];
+    }
+
+    /**
+     * Returns the bottom value of a tile of the hand.
+     *
+     * @param index The position of the tile in the hand.
+     * @return The bottom value.
+     */
+    public int getHandBottom(int index) {
+        return handPips[2 * index + 1];
+    }
+
+    /**
+     * Returns the number of tiles on the line of play.
+     *
+     * @return The tile count.
+     */
+    public int getBoardCount() {
+        return boardCount;
+    }
+
+    /**
+     * Returns the upper value of a tile on the line of play.
+     *
+     * @param index The position of the tile, from the left.
+     * @return The upper value.
+     */
+    public int getBoardUpper(int index) {
+        return boardPips[2 * index];
+    }
+
+    /**
+     * Returns the bottom value of a tile on the line of play.
+     *
+     * @param index The position of the tile, from the left.
+     * @return The bottom value.
+     */
+    public int getBoardBottom(int index) {
+        return boardPips[2 * index + 1];
+    }
+
+    /**
+     * Returns the open value at the left end of the line of play.
+     *
+     * @return The value, or -1 if the line is empty.
+     */
+    public int getLeftEnd() {
+        return boardCount == 0 ? -1 : boardPips[0];
+    }
+
+    /**
+     * Returns the open value at the right end of the line of play.
+     *
+     * @return The value, or -1 if the line is empty.
+     */
+    public int getRightEnd() {
+        return boardCount == 0 ? -1 : boardPips[2 * boardCount - 1];
+    }
+
+    /**
+     * Returns the number of tiles left in the stock.
+     *
+     * @return The stock size.
+     */
+    public int getStockSize() {
+        return stockSize;
+    }
+
+    /**
+     * Returns the number of tiles in the opponent's hand.
+     *
+     * @return The tile count.
+     */
+    public int getOpponentTileCount() {
+        return opponentTileCount;
+    }
+
+    /**
+     * Checks whether it is the player's turn.
+     *
+     * @return true from the TURN message until the player's tile is played.
+     */
+    public boolean isYourTurn() {
+        return yourTurn;
+    }
+
+    // Updates from the reader thread
+
+    /**
+     * Sets the name of the opponent.
+     *
+     * @param opponentName The opponent's name.
+     */
+    void setOpponentName(String opponentName) {
+        this.opponentName = opponentName;
+    }
+
+    /**
+     * Returns the array the hand is parsed into.
+     *
+     * @return The values of the tiles in the hand, two per tile.
+     */
+    int[] handBuffer() {
+        return handPips;
+    }
+
+    /**
+     * Sets the number of tiles parsed into the hand buffer.
+     *
+     * @param handCount The tile count.
+     */
+    void setHandCount(int handCount) {
+        this.handCount = handCount;
+    }
+
+    /**
+     * Returns the array the line of play is parsed into.
+     *
+     * @return The values of the tiles on the line of play, two per tile.
+     */
+    int[] boardBuffer() {
+        return boardPips;
+    }
+
+    /**
+     * Sets the number of tiles parsed into the board buffer.
+     *
+     * @param boardCount The tile count.
+     */
+    void setBoardCount(int boardCount) {
+        this.boardCount = boardCount;
+    }
+
+    /**
+     * Sets the number of tiles left in the stock.
+     *
+     * @param stockSize The stock size.
+     */
+    void setStockSize(int stockSize) {
+        this.stockSize = stockSize;
+    }
+
+    /**
+     * Sets the number of tiles in the opponent's hand.
+     *
+     * @param opponentTileCount The tile count.
+     */
+    void setOpponentTileCount(int opponentTileCount) {
+        this.opponentTileCount = opponentTileCount;
+    }
+
+    /**
+     * Sets whether it is the player's turn.
+     *
+     * @param yourTurn true if it is the player's turn.
+     */
+    void setYourTurn(boolean yourTurn) {
+        this.yourTurn = yourTurn;
+    }
+}
@@ -0,0 +1,218 @@
+package gr.uop.client;
+
+import gr.uop.protocol.LineReader;
+import gr.uop.protocol.LineWriter;
+import gr.uop.protocol.Message;
+import gr.uop.protocol.Opcode;
+import gr.uop.protocol.ProtocolException;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * MultiplexedClient plays many games on a Domino server over one connection, each game on a channel of its
+ * own (see {@link Opcode#MULTIPLEX}). It is meant for tournament bots and automated tests that play many
+ * games at once: the connections and handshakes then scale with the users, not the games.
+ *
+ * <p>
+ * Each game is a {@link DominoClient} returned by {@link #open}, used like a client with its own connection.
+ * One virtual thread reads the connection and runs the listeners of every game, so the listeners must
+ * return quickly.
+ * </p>
+ *
+ * <p>
+ * The writers share the socket stream under a {@link ReentrantLock} rather than a monitor, so a stalled
+ * connection only parks the virtual threads writing to it instead of pinning a carrier thread each.
+ * </p>
+ */
+public final class MultiplexedClient implements Closeable {
+
+    private final Socket socket;
+    private final LineReader fromServer;
+    private final OutputStream toServer; // Shared by the writers of the channels, which write whole lines
+    private final LineWriter control; // Guarded by controlLock
+    private final ReentrantLock controlLock = new ReentrantLock();
+    private final Map<Integer, DominoClient> clients = new ConcurrentHashMap<>();
+    private final AtomicInteger nextChannel = new AtomicInteger();
+
+    /**
+     * Wraps a connection that switched to multiplexing, and starts reading from it.
+     *
+     * @param socket The socket.
+     * @param fromServer The reader of the socket, which already read the answer to the switch.
+     * @throws IOException If the stream of the socket cannot be opened.
+     */
+    private MultiplexedClient(Socket socket, LineReader fromServer) throws IOException {
+        this.socket = socket;
+        this.fromServer = fromServer;
+        this.toServer = new LockedOutputStream(socket.getOutputStream());
+        this.control = new LineWriter(toServer, true);
+        Thread.ofVirtual().name("domino-multiplexer").start(this::run);
+    }
+
+    /**
+     * Connects to a server and switches the connection to multiplexing. Blocks until the server agreed.
+     *
+     * @param host The address of the server.
+     * @param port The port of the server.
+     * @return The client, ready to open games.
+     * @throws IOException If the connection fails or the server does not support multiplexing;
+     *         a {@link ServerBusyException} if the server refused the connection.
+     */
+    public static MultiplexedClient connect(String host, int port) throws IOException {
+        Socket socket = new Socket(host, port);
+        try {
+            LineReader fromServer = new LineReader(socket.getInputStream());
+            LineWriter handshake = new LineWriter(socket.getOutputStream(), true);
+            Message message = new Message();
+            if (fromServer.readMessage(message) && message.opcode() == Opcode.SERVER_BUSY) {
+                throw new ServerBusyException(message.payloadAsInt());
+            } else if (message.opcode() != Opcode.NAME_REQUEST) {
+                throw new ProtocolException("Expected " + Opcode.NAME_REQUEST + ", got " + message);
+            }
+            handshake.send(Opcode.MULTIPLEX);
+            if (!fromServer.readMessage(message) || message.opcode() != Opcode.MULTIPLEX) {
+                throw new ProtocolException("The server does not support multiplexing: " + message);
+            }
+            return new MultiplexedClient(socket, fromServer);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Joins a new game on a channel of this connection.
+     *
+     * @param playerName The name to join the game with.
+     * @param listener The listener of the game events, run on the reader thread of the connection.
+     * @return The client of the game.
+     */
+    public DominoClient open(String playerName, GameListener listener) {
+        int channel = nextChannel.getAndIncrement() & Integer.MAX_VALUE; // Ids are not reused before they wrap
+        LineWriter writer = new LineWriter(toServer, true, channel);
+        DominoClient client = new DominoClient(this, channel, writer, playerName, listener);
+        clients.put(channel, client);
+        client.openChannel();
+        return client;
+    }
+
+    /**
+     * Returns the number of games in progress on this connection.
+     *
+     * @return The channel count.
+     */
+    public int getOpenChannelCount() {
+        return clients.size();
+    }
+
+    /**
+     * Closes the connection; every game still open reports a disconnection.
+     */
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    /**
+     * Asks the server to close a channel, which it confirms with {@link Opcode#CLOSE}.
+     *
+     * @param channel The id of the channel.
+     */
+    void closeChannel(int channel) {
+        controlLock.lock();
+        try {
+            control.writeLine(channel + " " + Opcode.CLOSE.name());
+        } finally {
+            controlLock.unlock();
+        }
+    }
+
+    /**
+     * Reads the messages of the server and hands each to the game of its channel until the connection closes.
+     */
+    private void run() {
+        IOException cause = null;
+        try {
+            Message message = new Message(); // Reused for every line
+            while (fromServer.readChannelMessage(message)) {
+                DominoClient client = message.channel() < 0 ? null : clients.get(message.channel());
+                if (client == null) {
+                    continue; // A line of the connection, such as PONG
+                }
+                if (message.opcode() == Opcode.CLOSE) {
+                    clients.remove(message.channel());
+                }
+                client.dispatch(message);
+            }
+            cause = clients.isEmpty() ? null : new EOFException("Connection closed by the server");
+        } catch (IOException e) {
+            cause = e;
+        } finally {
+            close();
+            for (DominoClient client : clients.values()) {
+                client.finish(cause);
+            }
+            clients.clear();
+        }
+    }
+
+    /**
+     * LockedOutputStream lets the writers of the channels share the socket stream.
+     */
+    private static class LockedOutputStream extends FilterOutputStream {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * Constructs a stream writing to the given stream.
+         *
+         * @param out The socket stream.
+         */
+        LockedOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            lock.lock();
+            try {
+                out.write(b);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            lock.lock();
+            try {
+                out.write(b, off, len);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            lock.lock();
+            try {
+                out.flush();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package gr.uop.client;
+
+import gr.uop.protocol.Opcode;
+
+import java.io.IOException;
+
+/**
+ * ServerBusyException reports that the server refused the connection or the game with
+ * {@link Opcode#SERVER_BUSY}, and when the client may try again.
+ */
+public class ServerBusyException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterMillis;
+
+    /**
+     * Constructs a ServerBusyException.
+     *
+     * @param retryAfterMillis The milliseconds the server asked the client to wait before retrying.
+     */
+    public ServerBusyException(long retryAfterMillis) {
+        super("Server busy, retry after " + retryAfterMillis + " ms");
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Returns how long the client should wait before retrying.
+     *
+     * @return The delay in milliseconds.
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,4 @@
+module gr.uop.client {
+    requires transitive gr.uop.protocol;
+    exports gr.uop.client;
+}
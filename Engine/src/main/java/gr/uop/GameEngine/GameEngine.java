@@ -0,0 +1,729 @@
+package gr.uop.GameEngine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * GameEngine class is responsible for managing the game state, 
+ * including players, tiles, and the logic of gameplay.
+ *
+ * <p>
+ * An engine can be reused for any number of games: {@link #reset(String, String)} starts a new game
+ * and {@link #newRound()} starts the next round of a match. Both reshuffle and redeal the same tiles
+ * in place, so a reused engine does not allocate anything per game.
+ * </p>
+ */
+public class GameEngine {
+
+    private Player player1;
+    private Player player2;
+    private Player currentPlayer;
+    private Player winner; // Settled once, by the move that ends the game
+
+    private Tile[] dominoSet; // All the tiles of the game, created once and reused by every game
+    private List<Tile> stock; // Shuffled, tiles are drawn from the end of the list
+    private Deque<Tile> lineOfPlay; // The sequence of tiles currently played in the game
+    private Random random;
+
+    private RulesMode rulesMode;
+    private SpinnerBoard spinnerBoard; // Only used by the spinner variants, null in the straight-line game
+
+    private static final GameEventListener[] NO_LISTENERS = new GameEventListener[0];
+
+    private GameEventListener[] listeners; // An array, so publishing an event does not allocate an iterator
+    
+    /**
+     * Constructor to initialize the GameEngine with two players for the straight-line game.
+     * It creates the stock, shuffles the tiles, and assigns 7 tiles to each player.
+     * 
+     * @param player1Name Name of the first player
+     * @param player2Name Name of the second player
+     */
+    public GameEngine(String player1Name, String player2Name) {
+        this(player1Name, player2Name, RulesMode.STRAIGHT);
+    }
+
+    /**
+     * Constructor to initialize the GameEngine with two players and the given rules.
+     * It creates the stock, shuffles the tiles, and assigns 7 tiles to each player.
+     * 
+     * @param player1Name Name of the first player
+     * @param player2Name Name of the second player
+     * @param rulesMode The rule set of the game
+     */
+    public GameEngine(String player1Name, String player2Name, RulesMode rulesMode) {
+        this(player1Name, player2Name, rulesMode, NO_LISTENERS);
+    }
+
+    /**
+     * Constructor to initialize the GameEngine with two players, the given rules and a set of event listeners.
+     * The listeners are registered before the tiles are dealt, so they also receive the dealt event.
+     * 
+     * @param player1Name Name of the first player
+     * @param player2Name Name of the second player
+     * @param rulesMode The rule set of the game
+     * @param listeners The listeners to notify of the game events
+     */
+    public GameEngine(String player1Name, String player2Name, RulesMode rulesMode, GameEventListener... listeners) {
+        this(player1Name, player2Name, rulesMode, new Random(), listeners);
+    }
+
+    /**
+     * Constructor to initialize the GameEngine with a seeded shuffle. The same seed deals the same tiles
+     * and chooses the same first player, so a game can be replayed from its seed and its moves.
+     * 
+     * @param player1Name Name of the first player
+     * @param player2Name Name of the second player
+     * @param rulesMode The rule set of the game
+     * @param seed The seed of the shuffle
+     * @param listeners The listeners to notify of the game events
+     */
+    public GameEngine(String player1Name, String player2Name, RulesMode rulesMode, long seed, GameEventListener... listeners) {
+        this(player1Name, player2Name, rulesMode, new Random(seed), listeners);
+    }
+
+    /**
+     * Creates the tiles and the board and deals the first game.
+     * 
+     * @param player1Name Name of the first player
+     * @param player2Name Name of the second player
+     * @param rulesMode The rule set of the game
+     * @param random The source of the shuffles
+     * @param listeners The listeners to notify of the game events
+     */
+    private GameEngine(String player1Name, String player2Name, RulesMode rulesMode, Random random, GameEventListener[] listeners) {
+        this.rulesMode = rulesMode;
+        this.listeners = listeners.clone();
+        this.random = random;
+
+        dominoSet = createDominoSet();
+        stock = new ArrayList<>(dominoSet.length);
+
+        player1 = new Player(player1Name, new ArrayList<>());
+        player2 = new Player(player2Name, new ArrayList<>());
+
+        if (rulesMode == RulesMode.ALL_FIVES) {
+            spinnerBoard = new SpinnerBoard();
+            lineOfPlay = spinnerBoard.getLineOfPlay();
+        } else {
+            lineOfPlay = new ArrayDeque<>(dominoSet.length);
+        }
+
+        deal();
+    }
+
+    /**
+     * Starts a new game with new players on this engine.
+     * The scores are reset to zero and the tiles are reshuffled and redealt in place.
+     * The registered listeners are kept and receive the dealt event.
+     * 
+     * @param player1Name Name of the first player
+     * @param player2Name Name of the second player
+     */
+    public void reset(String player1Name, String player2Name) {
+        player1.reset(player1Name);
+        player2.reset(player2Name);
+        deal();
+    }
+
+    /**
+     * Starts a new game with new players on this engine, shuffled with the given seed.
+     * 
+     * @param player1Name Name of the first player
+     * @param player2Name Name of the second player
+     * @param seed The seed of the shuffle, which makes the deal reproducible
+     */
+    public void reset(String player1Name, String player2Name, long seed) {
+        random.setSeed(seed);
+        reset(player1Name, player2Name);
+    }
+
+    /**
+     * Starts the next round of a match between the same players.
+     * The scores are kept, so a match to N points can be played by calling this method
+     * until one of the players reaches N. The tiles are reshuffled and redealt in place.
+     */
+    public void newRound() {
+        deal();
+    }
+
+    /**
+     * Clears the board and the hands, shuffles all the tiles back into the stock,
+     * assigns 7 tiles to each player and chooses the first player at random.
+     */
+    private void deal() {
+        winner = null;
+        player1.clearTiles();
+        player2.clearTiles();
+        if (spinnerBoard != null) {
+            spinnerBoard.clear();
+        } else {
+            lineOfPlay.clear();
+        }
+
+        stock.clear();
+        for (Tile tile : dominoSet) {
+            if (tile.getUpperValue() < tile.getBottomValue()) {
+                tile.invert(); // Played tiles may have been turned, so every deal starts from the same orientation
+            }
+            stock.add(tile);
+        }
+        Collections.shuffle(stock, random);
+
+        for (int i = 0; i < 7; i++) {
+            player1.addTile(stock.remove(stock.size() - 1));
+            player2.addTile(stock.remove(stock.size() - 1));
+        }
+
+        currentPlayer = random.nextBoolean() ? player1 : player2;
+
+        for (GameEventListener listener : listeners) {
+            listener.onDealt(player1, player2, currentPlayer);
+        }
+    }
+
+    /**
+     * Registers a listener to be notified of the game events from now on.
+     * 
+     * @param listener The listener to add.
+     */
+    public void addListener(GameEventListener listener) {
+        GameEventListener[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+        newListeners[listeners.length] = listener;
+        listeners = newListeners;
+    }
+
+    /**
+     * Unregisters all the listeners of the engine.
+     */
+    public void removeAllListeners() {
+        listeners = NO_LISTENERS;
+    }
+
+    /**
+     * Unregisters a previously added listener.
+     * 
+     * @param listener The listener to remove.
+     */
+    public void removeListener(GameEventListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                GameEventListener[] newListeners = new GameEventListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, newListeners, 0, i);
+                System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                listeners = newListeners;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Creates the domino set (all tile combinations) and returns it.
+     * 
+     * @return An array of all the domino tiles.
+     */
+    private Tile[] createDominoSet() {
+        Tile[] tiles = new Tile[28];
+        int count = 0;
+        for (int i = 0; i <= 6; i++) {
+            for (int j = 0; j <= i; j++) {
+                tiles[count++] = new Tile(i, j);
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Allows the current player to play a tile.
+     * It checks whether the tile can be placed on either side of the line of play.
+     * If the tile is valid, it is placed and the player removes it from their hand.
+     * 
+     * @param tile The tile to be played.
+     * @return true if the tile was successfully played, false otherwise.
+     */
+    public boolean playTile(Tile tile) {
+        if (spinnerBoard != null) {
+            return playTileOnSpinnerBoard(tile, spinnerBoard.place(tile));
+        }
+        return playTileOnLine(tile, placement(lineOfPlay, tile));
+    }
+
+    /**
+     * Allows the current player to play a tile on the end of their choice. In All Fives the points scored depend
+     * on the end, so a player whose tile fits several ends chooses the one to score on. The straight-line game
+     * has the LEFT and RIGHT ends only. The first tile of the game opens the board whatever the end.
+     * 
+     * @param tile The tile to be played.
+     * @param end One of {@link SpinnerBoard#LEFT}, {@link SpinnerBoard#RIGHT}, {@link SpinnerBoard#UP} or {@link SpinnerBoard#DOWN}.
+     * @return true if the tile was successfully played, false if it does not fit that end.
+     */
+    public boolean playTile(Tile tile, int end) {
+        if (spinnerBoard != null) {
+            return playTileOnSpinnerBoard(tile, spinnerBoard.place(tile, end));
+        }
+        return fitsEnd(tile, end) && playTileOnLine(tile, end);
+    }
+
+    /**
+     * Checks whether a tile can be played on the given end of the board.
+     * 
+     * @param tile The tile to check.
+     * @param end One of {@link SpinnerBoard#LEFT}, {@link SpinnerBoard#RIGHT}, {@link SpinnerBoard#UP} or {@link SpinnerBoard#DOWN}.
+     * @return true if the board is empty or the tile matches that open end, false otherwise.
+     */
+    public boolean fitsEnd(Tile tile, int end) {
+        if (lineOfPlay.isEmpty()) {
+            return true;
+        } else if (spinnerBoard != null) {
+            return end >= SpinnerBoard.LEFT && end <= SpinnerBoard.DOWN && spinnerBoard.fits(tile, end);
+        } else if (end == SpinnerBoard.LEFT) {
+            return tile.fits(lineOfPlay.getFirst().getUpperValue());
+        } else if (end == SpinnerBoard.RIGHT) {
+            return tile.fits(lineOfPlay.getLast().getBottomValue());
+        }
+        return false;
+    }
+
+    /**
+     * Returns the end of a straight line of play that {@link #playTile(Tile)} puts a tile on: the left end
+     * if the tile fits it, else the right one. It changes nothing, so a client can check and predict a move
+     * with the same rule as the server.
+     * 
+     * @param line The line of play, left to right.
+     * @param tile The tile to check.
+     * @return {@link SpinnerBoard#LEFT} or {@link SpinnerBoard#RIGHT}, RIGHT for the first tile of the game,
+     *         or -1 if the tile fits neither end.
+     */
+    public static int placement(Deque<Tile> line, Tile tile) {
+        if (line.isEmpty()) {
+            return SpinnerBoard.RIGHT; // The first tile is added at the end of the line
+        } else if (tile.fits(line.getFirst().getUpperValue())) {
+            return SpinnerBoard.LEFT;
+        } else if (tile.fits(line.getLast().getBottomValue())) {
+            return SpinnerBoard.RIGHT;
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a tile to an end of a straight line of play that it fits, turning it so that its matching side
+     * touches the line.
+     * 
+     * @param line The line of play, left to right.
+     * @param tile The tile, which fits the end.
+     * @param end {@link SpinnerBoard#LEFT} or {@link SpinnerBoard#RIGHT}, ignored for the first tile of the game.
+     */
+    public static void place(Deque<Tile> line, Tile tile, int end) {
+        if (line.isEmpty()) {
+            line.add(tile);
+        } else if (end == SpinnerBoard.LEFT) {
+            if (tile.getBottomValue() != line.getFirst().getUpperValue()) {
+                tile.invert();
+            }
+            line.addFirst(tile);
+        } else {
+            if (tile.getUpperValue() != line.getLast().getBottomValue()) {
+                tile.invert();
+            }
+            line.addLast(tile);
+        }
+    }
+
+    /**
+     * Plays a tile on an end of the straight line that it is known to fit, turning it so that its matching
+     * side touches the line.
+     * 
+     * @param tile The tile to be played.
+     * @param end LEFT or RIGHT, or -1 if the tile fits no end.
+     * @return true if the tile was played, false if it fits no end.
+     */
+    private boolean playTileOnLine(Tile tile, int end) {
+        if (end < 0) {
+            return false; //Doesn't fit
+        }
+        Player player = currentPlayer;
+        if (lineOfPlay.isEmpty()) { //Empty line of play
+            end = SpinnerBoard.RIGHT;
+        }
+        place(lineOfPlay, tile, end);
+        currentPlayer.removeTile(tile);
+        switchPlayer();
+
+        for (GameEventListener listener : listeners) {
+            if (end == SpinnerBoard.LEFT) {
+                listener.onPlayedLeft(player, tile);
+            } else {
+                listener.onPlayedRight(player, tile);
+            }
+        }
+        checkGameOver();
+        return true;
+    }
+
+    /**
+     * Completes a play on the spinner board of the All Fives game, once the board has placed the tile.
+     * After the tile is placed, the player scores the sum of the open ends if it is a multiple of five.
+     * 
+     * @param tile The tile that was placed.
+     * @param end The end the board placed the tile on, or -1 if it did not fit.
+     * @return true if the tile was successfully played, false otherwise.
+     */
+    private boolean playTileOnSpinnerBoard(Tile tile, int end) {
+        if (end < 0) {
+            return false; //Doesn't fit
+        }
+
+        Player player = currentPlayer;
+        int endSum = spinnerBoard.getEndSum();
+        if (endSum > 0 && endSum % 5 == 0) {
+            currentPlayer.updateScore(endSum);
+        }
+        currentPlayer.removeTile(tile);
+        switchPlayer();
+
+        for (GameEventListener listener : listeners) {
+            switch (end) {
+                case SpinnerBoard.LEFT -> listener.onPlayedLeft(player, tile);
+                case SpinnerBoard.RIGHT -> listener.onPlayedRight(player, tile);
+                case SpinnerBoard.UP -> listener.onPlayedUp(player, tile);
+                default -> listener.onPlayedDown(player, tile);
+            }
+        }
+        checkGameOver();
+        return true;
+    }
+
+    /**
+     * Allows the current player to draw a tile from the stock when they have no valid moves.
+     * Drawing the last tile ends the game if neither player can play any more.
+     * 
+     * @return true if a tile was drawn, false if the stock is empty.
+     */
+    public boolean drawTile() {
+        boolean drawn = draw();
+        checkGameOver();
+        return drawn;
+    }
+
+    /**
+     * Draws a tile from the stock into the hand of the current player, without checking whether the game is over.
+     * 
+     * @return true if a tile was drawn, false if the stock is empty.
+     */
+    private boolean draw() {
+        if (stock.isEmpty()) {
+            return false;
+        }
+    
+        Tile drawnTile = stock.remove(stock.size() - 1);
+        currentPlayer.addTile(drawnTile);
+        for (GameEventListener listener : listeners) {
+            listener.onDrew(currentPlayer, drawnTile);
+        }
+        return true;
+    }
+
+    /**
+     * Plays the turn of a current player who has no valid move: draws from the stock until a drawn tile fits
+     * and plays it. If the stock runs out first, the player passes.
+     * 
+     * @return true if a drawn tile was played, false if the player passed.
+     */
+    public boolean drawUntilPlayable() {
+        while (draw()) { // Unchecked, so a blocked game ends on the pass below and the pass is reported first
+
+            List<Tile> tiles = currentPlayer.getTiles();
+            if (playTile(tiles.get(tiles.size() - 1))) { // The drawn tile is the last one of the hand
+                return true;
+            }
+        }
+        passTurn();
+        return false;
+    }
+
+    /**
+     * Checks whether the current player has a valid move to play on the board.
+     * 
+     * @return true if the player has a valid move, false otherwise.
+     */
+    public boolean canPlay() {
+        return playerCanPlay(currentPlayer);
+    }
+
+    /**
+     * Checks if the game is over. The game ends when a player has no tiles or 
+     * when both players have no valid moves and the stock is empty.
+     * 
+     * @return true if the game is over, false otherwise.
+     */
+    public boolean isGameOver() {
+        return player1.getTiles().isEmpty() || player2.getTiles().isEmpty() || 
+            (stock.isEmpty() && !playerCanPlay(player1) && !playerCanPlay(player2));
+    }
+
+    /**
+     * Checks whether the specified player has a valid move to play on the board.
+     * 
+     * @param player The player to check.
+     * @return true if the player has a valid move, false otherwise.
+     */
+    public boolean playerCanPlay(Player player) {
+        if (lineOfPlay.isEmpty()) {
+            return true;
+        }
+        List<Tile> tiles = player.getTiles();
+        for (int i = 0; i < tiles.size(); i++) { // Indexed loop, so no iterator is allocated on every check
+            if (fitsOpenEnd(tiles.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a tile matches an open end of a non-empty board.
+     * The spinner board answers from its index of open ends instead of looking at the played tiles.
+     * 
+     * @param tile The tile to check.
+     * @return true if the tile fits an open end, false otherwise.
+     */
+    private boolean fitsOpenEnd(Tile tile) {
+        if (spinnerBoard != null) {
+            return spinnerBoard.fits(tile);
+        }
+        return tile.fits(lineOfPlay.getFirst().getUpperValue()) || tile.fits(lineOfPlay.getLast().getBottomValue());
+    }
+
+    /**
+     * Calculates and updates the final score of the winner.
+     * The score is based on the remaining tiles in the opponent's hand.
+     * 
+     * @param winner The player who won the game.
+     * @param opponent The opponent of the winning player.
+     */
+    private void calculateFinalScore(Player winner, Player opponent) {
+        int opponentHandSum = calculateHandSum(opponent);
+        winner.updateScore(opponentHandSum);
+    }
+
+    /**
+     * Calculates the sum of all tile values in a player's hand.
+     * 
+     * @param player The player whose hand is being calculated.
+     * @return The total sum of the tile values.
+     */
+    private int calculateHandSum(Player player) {
+        List<Tile> tiles = player.getTiles();
+        int sum = 0;
+        for (int i = 0; i < tiles.size(); i++) {
+            sum += tiles.get(i).getUpperValue() + tiles.get(i).getBottomValue();
+        }
+        return sum;
+    }
+
+    /**
+     * Switches the current player, alternating between player1 and player2.
+     */
+    private void switchPlayer() {
+        currentPlayer = (currentPlayer == player1) ? player2 : player1;
+    }
+
+    /**
+     * Handles the pass action when the current player cannot make a move.
+     */
+    public void passTurn() {
+        Player player = currentPlayer;
+        switchPlayer(); // switchPlayer() remains private
+        for (GameEventListener listener : listeners) {
+            listener.onPassed(player);
+        }
+        checkGameOver();
+    }
+
+    /**
+     * Settles the winner and notifies the listeners once, when the move just made has ended the game.
+     */
+    private void checkGameOver() {
+        if (winner != null || !isGameOver()) {
+            return;
+        }
+        winner = settleWinner();
+        Player loser = getOpponent(winner);
+        for (GameEventListener listener : listeners) {
+            listener.onGameOver(winner, loser);
+        }
+    }
+
+    // Getter Methods
+
+    /**
+     * Returns the winner of the game, settled when the game ended.
+     * The winner is the player who empties their hand first or has the fewest points 
+     * when no valid moves can be made. Draws are handed as wins to player 2.
+     * 
+     * @return The winning player, or null if the game is not over.
+     */
+    public Player getWinner() { //Returns the winning player
+        return winner;
+    }
+
+    /**
+     * Determines the winner of the game and updates the final scores.
+     * 
+     * @return The winning player.
+     */
+    private Player settleWinner() {
+        if (player1.getTiles().isEmpty()) {
+            calculateFinalScore(player1, player2);
+            return player1;
+        } else if (player2.getTiles().isEmpty()) {
+            calculateFinalScore(player2, player1);
+            return player2;
+        } else {
+            int player1Sum = calculateHandSum(player1);
+            int player2Sum = calculateHandSum(player2);
+
+            player1.updateScore(player2Sum);
+            player2.updateScore(player1Sum);
+
+            if (player1Sum < player2Sum) {
+                return player1;
+            } else {
+                return player2;
+            }
+        }
+    }
+
+    /**
+     * Returns the current player who is about to make a move.
+     * 
+     * @return The current player.
+     */
+    public Player getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    /**
+     * Returns the opponent of the current player.
+     * @return the opponent of the current player.
+     */
+    public Player getOpponent() {
+        return (currentPlayer == player1) ? player2 : player1;
+    }
+
+    /**
+     * Returns the opponent of the given player (used, for example, to determine the player who did not win).
+     * @param player Any Player object.
+     * @return The opponent of the given player.
+     */
+    public Player getOpponent(Player player) {
+        return (player == player1) ? player2 : player1;
+    }
+
+    /**
+     * Returns the current line of play, i.e., the tiles played on the board.
+     * 
+     * @return A deque containing the tiles in the line of play.
+     */
+    public Deque<Tile> getLineOfPlay() {
+        return lineOfPlay;
+    }
+
+    /**
+     * Returns the open ends of the current board, which are used to validate tile placements.
+     * The straight-line game has two open ends. The spinner board reports its four ends
+     * in LEFT, RIGHT, UP, DOWN order, with -1 for the ends that are not open.
+     * 
+     * @return An array containing the open ends of the board.
+     */
+    public int[] getOpenEnds() {
+        if (spinnerBoard != null) {
+            return spinnerBoard.getOpenEnds();
+        }
+        int[] openEnds = new int[2]; // Array is extremely efficient since the straight line only has 2 open ends
+        if (!lineOfPlay.isEmpty()) {
+            openEnds[0] = lineOfPlay.getFirst().getUpperValue();
+            openEnds[1] = lineOfPlay.getLast().getBottomValue();
+        }
+        return openEnds;
+    }
+
+    /**
+     * Returns the rule set the game is played with.
+     * 
+     * @return The rules mode of the game.
+     */
+    public RulesMode getRulesMode() {
+        return rulesMode;
+    }
+
+    /**
+     * Returns the spinner board of the All Fives game.
+     * 
+     * @return The spinner board, or null in the straight-line game.
+     */
+    public SpinnerBoard getSpinnerBoard() {
+        return spinnerBoard;
+    }
+
+    /**
+     * Returns Player 1 in the game.
+     * 
+     * @return Player 1 object.
+     */
+    public Player getPlayer1() {
+        return player1;
+    }
+
+    /**
+     * Returns Player 2 in the game.
+     * 
+     * @return Player 2 object.
+     */
+    public Player getPlayer2() {
+        return player2;
+    }
+
+    /**
+     * Returns the number of tiles remaining in the stock.
+     * 
+     * @return The size of the stock.
+     */
+    public int getStockSize() {
+        return stock.size();
+    }
+
+    /**
+     * Returns the tile count of a given player.
+     * @param player Any player object.
+     * @return The tile count.
+     */
+    public int getPlayerTileCount(Player player) {
+        return player.getTiles().size();
+    }
+
+    // toString Method
+
+    /**
+     * Returns a string representation of the current state of the game engine,
+     * including the stock, line of play, players, and current player.
+     * 
+     * @return A string representing the game engine state.
+     */
+    @Override
+    public String toString() {
+        return "GameEngine{" +
+                "stock=" + stock +
+                ", rulesMode=" + rulesMode +
+                ", lineOfPlay=" + (spinnerBoard != null ? spinnerBoard : lineOfPlay) +
+                ", player1=" + player1 +
+                ", player2=" + player2 +
+                ", currentPlayer=" + currentPlayer +
+                '}';
+    }
+}
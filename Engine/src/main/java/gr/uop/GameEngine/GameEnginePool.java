@@ -0,0 +1,104 @@
+package gr.uop.GameEngine;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * GameEnginePool keeps finished GameEngine instances so that a server running many tables
+ * can start the next game on an existing engine instead of allocating a new one.
+ * A pooled engine is reset in place: its tiles, players, stock and board are all reused.
+ *
+ * <p>
+ * The pool is thread-safe. Engines themselves are not, each one must be used by one table at a time.
+ * </p>
+ */
+public class GameEnginePool {
+
+    private RulesMode rulesMode;
+    private int maxIdle; // The most engines kept around between games
+    private Deque<GameEngine> idleEngines;
+
+    /**
+     * Constructs a pool of engines for the given rules.
+     *
+     * @param rulesMode The rule set of the pooled engines.
+     * @param maxIdle The maximum number of idle engines kept in the pool.
+     */
+    public GameEnginePool(RulesMode rulesMode, int maxIdle) {
+        this.rulesMode = rulesMode;
+        this.maxIdle = maxIdle;
+        this.idleEngines = new ArrayDeque<>(maxIdle);
+    }
+
+    /**
+     * Returns an engine ready to play a new game between the given players.
+     * An idle engine is reset and reused if there is one, otherwise a new engine is created.
+     * The listener is registered before the tiles are dealt, so it receives the dealt event.
+     *
+     * @param player1Name Name of the first player.
+     * @param player2Name Name of the second player.
+     * @param listener The listener to notify of the game events.
+     * @return An engine with freshly dealt tiles.
+     */
+    public GameEngine acquire(String player1Name, String player2Name, GameEventListener listener) {
+        GameEngine engine;
+        synchronized (this) {
+            engine = idleEngines.pollFirst();
+        }
+
+        if (engine == null) {
+            return new GameEngine(player1Name, player2Name, rulesMode, listener);
+        }
+        engine.addListener(listener);
+        engine.reset(player1Name, player2Name);
+        return engine;
+    }
+
+    /**
+     * Returns an engine ready to play a new game between the given players, dealt with a seeded shuffle
+     * so that the game can be replayed from its seed and its moves.
+     *
+     * @param player1Name Name of the first player.
+     * @param player2Name Name of the second player.
+     * @param seed The seed of the shuffle.
+     * @param listener The listener to notify of the game events.
+     * @return An engine with freshly dealt tiles.
+     */
+    public GameEngine acquire(String player1Name, String player2Name, long seed, GameEventListener listener) {
+        GameEngine engine;
+        synchronized (this) {
+            engine = idleEngines.pollFirst();
+        }
+
+        if (engine == null) {
+            return new GameEngine(player1Name, player2Name, rulesMode, seed, listener);
+        }
+        engine.addListener(listener);
+        engine.reset(player1Name, player2Name, seed);
+        return engine;
+    }
+
+    /**
+     * Returns an engine to the pool once its game is over.
+     * Its listeners are removed, so the finished game no longer receives any events.
+     *
+     * @param engine An engine obtained from this pool.
+     */
+    public void release(GameEngine engine) {
+        engine.removeAllListeners();
+        synchronized (this) {
+            if (idleEngines.size() < maxIdle) {
+                idleEngines.addFirst(engine); // Most recently used first, it is the most likely to still be in cache
+            }
+        }
+    }
+
+    /**
+     * Returns the number of idle engines currently held by the pool.
+     *
+     * @return The number of idle engines.
+     */
+    public synchronized int getIdleCount() {
+        return idleEngines.size();
+    }
+}
@@ -0,0 +1,88 @@
+package gr.uop.GameEngine;
+
+/**
+ * GameEventListener receives the events published by the GameEngine as the game progresses.
+ * Events are delivered synchronously, on the thread that called the engine, right after the
+ * game state has been updated. Every method has an empty default implementation, so listeners
+ * only override the events they are interested in.
+ *
+ * <p>
+ * The engine does not create event objects: each event is a plain method call carrying the
+ * player and tile involved, so publishing an event allocates nothing.
+ * </p>
+ */
+public interface GameEventListener {
+
+    /**
+     * Called when the tiles have been dealt and the first player has been chosen.
+     *
+     * @param player1 Player 1 of the game.
+     * @param player2 Player 2 of the game.
+     * @param firstPlayer The player who plays first.
+     */
+    default void onDealt(Player player1, Player player2, Player firstPlayer) {
+    }
+
+    /**
+     * Called when a player draws a tile from the stock.
+     *
+     * @param player The player who drew the tile.
+     * @param tile The tile that was drawn.
+     */
+    default void onDrew(Player player, Tile tile) {
+    }
+
+    /**
+     * Called when a player plays a tile on the left end of the line of play.
+     *
+     * @param player The player who played the tile.
+     * @param tile The tile that was played, oriented as it lies on the board.
+     */
+    default void onPlayedLeft(Player player, Tile tile) {
+    }
+
+    /**
+     * Called when a player plays a tile on the right end of the line of play.
+     * The first tile of the game is reported as played on the right.
+     *
+     * @param player The player who played the tile.
+     * @param tile The tile that was played, oriented as it lies on the board.
+     */
+    default void onPlayedRight(Player player, Tile tile) {
+    }
+
+    /**
+     * Called when a player plays a tile on the upper arm of the spinner (spinner variants only).
+     *
+     * @param player The player who played the tile.
+     * @param tile The tile that was played, oriented as it lies on the board.
+     */
+    default void onPlayedUp(Player player, Tile tile) {
+    }
+
+    /**
+     * Called when a player plays a tile on the lower arm of the spinner (spinner variants only).
+     *
+     * @param player The player who played the tile.
+     * @param tile The tile that was played, oriented as it lies on the board.
+     */
+    default void onPlayedDown(Player player, Tile tile) {
+    }
+
+    /**
+     * Called when a player passes the turn.
+     *
+     * @param player The player who passed.
+     */
+    default void onPassed(Player player) {
+    }
+
+    /**
+     * Called when the game is over and the final scores have been calculated.
+     *
+     * @param winner The player who won the game.
+     * @param loser The player who lost the game.
+     */
+    default void onGameOver(Player winner, Player loser) {
+    }
+}
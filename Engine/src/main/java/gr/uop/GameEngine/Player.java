@@ -62,6 +62,24 @@ public class Player {
         tiles.remove(tile);
     }
 
+    /**
+     * Removes all the tiles from the player's hand, keeping the score (used between the rounds of a match).
+     */
+    void clearTiles() {
+        tiles.clear();
+    }
+
+    /**
+     * Reuses the player for a new game: sets the name, empties the hand and resets the score to zero.
+     *
+     * @param name the name of the player
+     */
+    void reset(String name) {
+        this.name = name;
+        this.tiles.clear();
+        this.score = 0;
+    }
+
     /**
      * Returns the player's current score.
      *
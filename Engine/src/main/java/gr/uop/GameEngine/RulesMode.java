@@ -0,0 +1,18 @@
+package gr.uop.GameEngine;
+
+/**
+ * RulesMode lists the rule sets the GameEngine can play with.
+ */
+public enum RulesMode {
+
+    /**
+     * The classic straight-line game: tiles are played on the two ends of a single line of play.
+     */
+    STRAIGHT,
+
+    /**
+     * The All Fives spinner game: the first double played becomes the spinner and opens up to four ends.
+     * After every play the player scores the sum of the open ends when it is a multiple of five.
+     */
+    ALL_FIVES
+}
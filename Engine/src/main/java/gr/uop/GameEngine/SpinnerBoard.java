@@ -0,0 +1,367 @@
+package gr.uop.GameEngine;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * SpinnerBoard represents the board of the spinner variants (such as All Fives).
+ * The first double played becomes the spinner. Once both of its sides are covered,
+ * tiles can also be played above and below it, so the board has up to four open ends.
+ *
+ * <p>
+ * Instead of searching the played tiles for the open ends, the board keeps an index of the
+ * open ends by pip value and the running sum of the ends. Checking whether a tile fits any
+ * open end and summing the ends (used for All Fives scoring) are both constant time.
+ * </p>
+ */
+public class SpinnerBoard {
+
+    public static final int LEFT = 0;
+    public static final int RIGHT = 1;
+    public static final int UP = 2;
+    public static final int DOWN = 3;
+
+    private static final int CLOSED = -1; // Pip value stored for an end that is not open
+
+    private Deque<Tile> lineOfPlay; // The horizontal line of play, running through the spinner
+    private Deque<Tile> upArm; // Tiles played above the spinner, starting next to it
+    private Deque<Tile> downArm; // Tiles played below the spinner, starting next to it
+    private Tile spinner;
+    private boolean spinnerLeftCovered;
+    private boolean spinnerRightCovered;
+
+    private int[] endPips = new int[4]; // Pip value shown on each end, or CLOSED
+    private int[] endPoints = new int[4]; // Points each end counts for in the end sum
+    private int[] openEndsByPip = new int[7]; // Number of open ends showing each pip value
+    private int openPipMask; // Bit p is set when at least one open end shows pip value p
+    private int endSum;
+
+    /**
+     * Constructs an empty spinner board.
+     */
+    public SpinnerBoard() {
+        lineOfPlay = new ArrayDeque<>();
+        upArm = new ArrayDeque<>();
+        downArm = new ArrayDeque<>();
+        reset();
+    }
+
+    /**
+     * Removes every tile from the board, leaving it ready for a new game.
+     */
+    public void clear() {
+        reset();
+    }
+
+    /**
+     * Empties the board. Private, so the constructor can call it before a subclass is initialized.
+     */
+    private void reset() {
+        lineOfPlay.clear();
+        upArm.clear();
+        downArm.clear();
+        spinner = null;
+        spinnerLeftCovered = false;
+        spinnerRightCovered = false;
+
+        for (int end = LEFT; end <= DOWN; end++) {
+            endPips[end] = CLOSED;
+            endPoints[end] = 0;
+        }
+        for (int pip = 0; pip < openEndsByPip.length; pip++) {
+            openEndsByPip[pip] = 0;
+        }
+        openPipMask = 0;
+        endSum = 0;
+    }
+
+    /**
+     * Checks whether the tile can be played on any open end of the board.
+     *
+     * @param tile The tile to check.
+     * @return true if the board is empty or the tile matches at least one open end, false otherwise.
+     */
+    public boolean fits(Tile tile) {
+        if (lineOfPlay.isEmpty()) {
+            return true;
+        }
+        return (openPipMask & ((1 << tile.getUpperValue()) | (1 << tile.getBottomValue()))) != 0;
+    }
+
+    /**
+     * Checks whether the tile can be played on the given end of the board.
+     *
+     * @param tile The tile to check.
+     * @param end One of LEFT, RIGHT, UP or DOWN.
+     * @return true if the end is open and the tile matches it, false otherwise.
+     */
+    public boolean fits(Tile tile, int end) {
+        return endPips[end] != CLOSED && tile.fits(endPips[end]);
+    }
+
+    /**
+     * Places the tile on the first open end it fits, trying LEFT, RIGHT, UP and DOWN in that order.
+     * The tile is inverted when needed so that its matching side touches the board.
+     *
+     * @param tile The tile to be placed.
+     * @return The end the tile was placed on, or -1 if it does not fit any open end.
+     */
+    public int place(Tile tile) {
+        if (lineOfPlay.isEmpty()) {
+            placeFirst(tile);
+            return RIGHT; // Like the straight-line game, the first tile is added at the end of the line
+        }
+        for (int end = LEFT; end <= DOWN; end++) {
+            if (fits(tile, end)) {
+                attach(tile, end);
+                return end;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Places the tile on the given end, so a player can choose which end to score on when the tile fits several.
+     * The first tile of the game opens the board whatever the end.
+     *
+     * @param tile The tile to be placed.
+     * @param end One of LEFT, RIGHT, UP or DOWN.
+     * @return The end the tile was placed on, or -1 if the end is closed or the tile does not match it.
+     */
+    public int place(Tile tile, int end) {
+        if (lineOfPlay.isEmpty()) {
+            placeFirst(tile);
+            return RIGHT;
+        }
+        if (end < LEFT || end > DOWN || !fits(tile, end)) {
+            return -1;
+        }
+        attach(tile, end);
+        return end;
+    }
+
+    /**
+     * Places the first tile of the game. A double becomes the spinner.
+     *
+     * @param tile The first tile.
+     */
+    private void placeFirst(Tile tile) {
+        lineOfPlay.add(tile);
+        if (isDouble(tile)) {
+            spinner = tile;
+        }
+        // Each side counts once, so a lone double counts its pips once per side
+        setEnd(LEFT, tile.getUpperValue(), tile.getUpperValue());
+        setEnd(RIGHT, tile.getBottomValue(), tile.getBottomValue());
+    }
+
+    /**
+     * Places the tile on the given open end, which it is known to fit.
+     *
+     * @param tile The tile to be placed.
+     * @param end One of LEFT, RIGHT, UP or DOWN.
+     */
+    private void attach(Tile tile, int end) {
+        int pip = endPips[end];
+        boolean loneSpinner = lineOfPlay.size() == 1 && spinner != null;
+
+        switch (end) {
+            case LEFT:
+                if (tile.getBottomValue() != pip) {
+                    tile.invert();
+                }
+                if (lineOfPlay.getFirst() == spinner) {
+                    spinnerLeftCovered = true;
+                }
+                lineOfPlay.addFirst(tile);
+                if (spinner == null && isDouble(tile)) {
+                    spinner = tile;
+                    spinnerRightCovered = true;
+                }
+                setEnd(LEFT, tile.getUpperValue(), endPoints(tile, tile.getUpperValue()));
+                if (loneSpinner) { // The other side of the spinner now counts as a double end
+                    setEnd(RIGHT, spinner.getBottomValue(), 2 * spinner.getBottomValue());
+                }
+                break;
+            case RIGHT:
+                if (tile.getUpperValue() != pip) {
+                    tile.invert();
+                }
+                if (lineOfPlay.getLast() == spinner) {
+                    spinnerRightCovered = true;
+                }
+                lineOfPlay.addLast(tile);
+                if (spinner == null && isDouble(tile)) {
+                    spinner = tile;
+                    spinnerLeftCovered = true;
+                }
+                setEnd(RIGHT, tile.getBottomValue(), endPoints(tile, tile.getBottomValue()));
+                if (loneSpinner) {
+                    setEnd(LEFT, spinner.getUpperValue(), 2 * spinner.getUpperValue());
+                }
+                break;
+            default: // UP and DOWN arms grow away from the spinner
+                if (tile.getUpperValue() != pip) {
+                    tile.invert();
+                }
+                (end == UP ? upArm : downArm).addLast(tile);
+                setEnd(end, tile.getBottomValue(), endPoints(tile, tile.getBottomValue()));
+                break;
+        }
+
+        openSpinnerArms();
+    }
+
+    /**
+     * Opens the UP and DOWN ends once both horizontal sides of the spinner are covered.
+     * An empty arm can be played on but does not count towards the end sum.
+     */
+    private void openSpinnerArms() {
+        if (spinner == null || !spinnerLeftCovered || !spinnerRightCovered) {
+            return;
+        }
+        if (upArm.isEmpty() && endPips[UP] == CLOSED) {
+            setEnd(UP, spinner.getUpperValue(), 0);
+        }
+        if (downArm.isEmpty() && endPips[DOWN] == CLOSED) {
+            setEnd(DOWN, spinner.getUpperValue(), 0);
+        }
+    }
+
+    /**
+     * Replaces the value of an end and keeps the pip index and the end sum up to date.
+     *
+     * @param end One of LEFT, RIGHT, UP or DOWN.
+     * @param pip The new pip value of the end.
+     * @param points The points the end counts for.
+     */
+    private void setEnd(int end, int pip, int points) {
+        int oldPip = endPips[end];
+        if (oldPip != CLOSED && --openEndsByPip[oldPip] == 0) {
+            openPipMask &= ~(1 << oldPip);
+        }
+        endSum -= endPoints[end];
+
+        endPips[end] = pip;
+        endPoints[end] = points;
+        openEndsByPip[pip]++;
+        openPipMask |= 1 << pip;
+        endSum += points;
+    }
+
+    /**
+     * Returns the points an end tile counts for: a double laid at an end counts both halves.
+     *
+     * @param tile The tile at the end.
+     * @param pip The pip value showing on the end.
+     * @return The points of the end.
+     */
+    private int endPoints(Tile tile, int pip) {
+        return isDouble(tile) ? 2 * pip : pip;
+    }
+
+    /**
+     * Checks whether the tile is a double.
+     *
+     * @param tile Any tile.
+     * @return true if both sides of the tile have the same value.
+     */
+    private static boolean isDouble(Tile tile) {
+        return tile.getUpperValue().intValue() == tile.getBottomValue().intValue();
+    }
+
+    // Getter Methods
+
+    /**
+     * Returns the sum of the pips on the open ends, as used by All Fives scoring.
+     *
+     * @return The sum of the open ends.
+     */
+    public int getEndSum() {
+        return endSum;
+    }
+
+    /**
+     * Returns how many open ends currently show the given pip value.
+     *
+     * @param pip A pip value between 0 and 6.
+     * @return The number of open ends showing the value.
+     */
+    public int getOpenEndCount(int pip) {
+        return openEndsByPip[pip];
+    }
+
+    /**
+     * Returns a bit mask of the pip values showing on the open ends (bit p for pip value p).
+     *
+     * @return The open end mask.
+     */
+    public int getOpenPipMask() {
+        return openPipMask;
+    }
+
+    /**
+     * Returns the pip values of the four ends, in LEFT, RIGHT, UP, DOWN order.
+     * Ends that are not open are reported as -1.
+     *
+     * @return An array containing the four ends of the board.
+     */
+    public int[] getOpenEnds() {
+        return endPips.clone();
+    }
+
+    /**
+     * Returns the horizontal line of play, which runs through the spinner.
+     *
+     * @return A deque containing the tiles of the horizontal line.
+     */
+    public Deque<Tile> getLineOfPlay() {
+        return lineOfPlay;
+    }
+
+    /**
+     * Returns the tiles played above the spinner, starting next to it.
+     *
+     * @return A deque containing the tiles of the upper arm.
+     */
+    public Deque<Tile> getUpArm() {
+        return upArm;
+    }
+
+    /**
+     * Returns the tiles played below the spinner, starting next to it.
+     *
+     * @return A deque containing the tiles of the lower arm.
+     */
+    public Deque<Tile> getDownArm() {
+        return downArm;
+    }
+
+    /**
+     * Returns the spinner of the board.
+     *
+     * @return The spinner tile, or null if no double has been played yet.
+     */
+    public Tile getSpinner() {
+        return spinner;
+    }
+
+    // toString Method
+
+    /**
+     * Returns a string representation of the board, including the line of play,
+     * the spinner arms and the end sum.
+     *
+     * @return A string representing the board.
+     */
+    @Override
+    public String toString() {
+        return "SpinnerBoard{" +
+                "lineOfPlay=" + lineOfPlay +
+                ", spinner=" + spinner +
+                ", upArm=" + upArm +
+                ", downArm=" + downArm +
+                ", endSum=" + endSum +
+                '}';
+    }
+}
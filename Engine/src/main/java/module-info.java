@@ -0,0 +1,3 @@
+module gr.uop.engine {
+    exports gr.uop.GameEngine;
+}
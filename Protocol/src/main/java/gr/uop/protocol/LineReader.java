@@ -0,0 +1,217 @@
+package gr.uop.protocol;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * LineReader reads the protocol lines from an input stream into its own byte buffer and decodes them
+ * in place, replacing {@code Scanner.nextLine()}. Lines may end with {@code \n} or {@code \r\n}.
+ *
+ * <p>
+ * Every line must fit in the maximum line length given to the constructor. A longer line is rejected
+ * with a {@link ProtocolException} instead of being buffered, so a peer cannot make the reader grow
+ * without bounds (for example, by answering the name prompt with a huge line).
+ * </p>
+ */
+public class LineReader implements Closeable {
+
+    public static final int DEFAULT_MAX_LINE_LENGTH = 4096; // Longer than any server message, including a full hand
+
+    private InputStream in;
+    private int maxLineLength;
+    private byte[] buffer;
+    private int start; // Index of the first byte not returned yet
+    private int end; // Index after the last byte read from the stream
+    private int lineStart; // Index of the first byte of the line found by nextLine()
+    private volatile long bytesRead; // Written by the reading thread only
+
+    /**
+     * Constructs a reader with the default maximum line length.
+     *
+     * @param in The stream to read from.
+     */
+    public LineReader(InputStream in) {
+        this(in, DEFAULT_MAX_LINE_LENGTH);
+    }
+
+    /**
+     * Constructs a reader that rejects lines longer than the given length.
+     *
+     * @param in The stream to read from.
+     * @param maxLineLength The maximum length of a line in bytes, without its terminator.
+     */
+    public LineReader(InputStream in, int maxLineLength) {
+        this.in = in;
+        this.maxLineLength = maxLineLength;
+        this.buffer = new byte[Math.max(maxLineLength + 2, 8192)]; // Room for a full line and its \r\n
+    }
+
+    /**
+     * Reads the next message and decodes it into the given message object, replacing its previous content.
+     * A line that does not start with a known opcode is returned with a null opcode and the whole line as payload.
+     *
+     * @param message The message to fill.
+     * @return true if a message was read, false at the end of the stream.
+     * @throws IOException If reading fails or the line is too long.
+     */
+    public boolean readMessage(Message message) throws IOException {
+        int length = nextLine();
+        if (length < 0) {
+            return false;
+        }
+        decode(message, lineStart, lineStart + length);
+        return true;
+    }
+
+    /**
+     * Reads the next message of a multiplexed connection. A line starting with a channel id and a space has
+     * the id stored in {@link Message#channel()} and the rest decoded as the message; any other line is decoded
+     * as a message of the connection, with channel -1.
+     *
+     * @param message The message to fill.
+     * @return true if a message was read, false at the end of the stream.
+     * @throws IOException If reading fails, the line is too long or its channel id does not fit an int.
+     */
+    public boolean readChannelMessage(Message message) throws IOException {
+        int length = nextLine();
+        if (length < 0) {
+            return false;
+        }
+        int lineEnd = lineStart + length;
+        int i = lineStart;
+        long channel = 0;
+        while (i < lineEnd && buffer[i] >= '0' && buffer[i] <= '9') {
+            channel = 10 * channel + (buffer[i++] - '0');
+            if (channel > Integer.MAX_VALUE) {
+                throw new ProtocolException("Channel id out of range");
+            }
+        }
+        if (i == lineStart || i == lineEnd || buffer[i] != ' ') {
+            decode(message, lineStart, lineEnd); // A line of the connection
+        } else {
+            decode(message, i + 1, lineEnd);
+            message.setChannel((int) channel);
+        }
+        return true;
+    }
+
+    /**
+     * Decodes a line of the buffer into a message.
+     *
+     * @param message The message to fill.
+     * @param from The index of the first byte of the line.
+     * @param lineEnd The index after the last byte of the line.
+     */
+    private void decode(Message message, int from, int lineEnd) {
+        int space = from;
+        while (space < lineEnd && buffer[space] != ' ') {
+            space++;
+        }
+
+        Opcode opcode = Opcode.decode(buffer, from, space - from);
+        if (opcode == null) {
+            message.set(null, buffer, from, lineEnd - from);
+        } else if (space == lineEnd) {
+            message.set(opcode, buffer, 0, -1);
+        } else {
+            message.set(opcode, buffer, space + 1, lineEnd - space - 1);
+        }
+    }
+
+    /**
+     * Reads the next line as a String, for the plain lines sent by the clients.
+     *
+     * @return The line without its terminator, or null at the end of the stream.
+     * @throws IOException If reading fails or the line is too long.
+     */
+    public String readLine() throws IOException {
+        int length = nextLine();
+        if (length < 0) {
+            return null;
+        }
+        return new String(buffer, lineStart, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks whether a complete line is already buffered, so the next read returns without blocking.
+     * Readers use it to tell the end of a burst of messages.
+     *
+     * @return true if the buffer holds a whole line that has not been returned yet.
+     */
+    public boolean hasBufferedLine() {
+        for (int i = start; i < end; i++) {
+            if (buffer[i] == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of bytes read from the stream so far, for statistics. Can be called from any thread.
+     *
+     * @return The byte count.
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Finds the next line in the buffer, reading from the stream until a line terminator arrives.
+     * On return, the line starts at {@link #lineStart}.
+     *
+     * @return The length of the line without its terminator, or -1 at the end of the stream.
+     * @throws IOException If reading fails or the line is too long.
+     */
+    private int nextLine() throws IOException {
+        int scanFrom = start;
+        while (true) {
+            for (int i = scanFrom; i < end; i++) {
+                if (buffer[i] == '\n') {
+                    int lineEnd = (i > start && buffer[i - 1] == '\r') ? i - 1 : i;
+                    lineStart = start;
+                    start = i + 1;
+                    if (lineEnd - lineStart > maxLineLength) {
+                        throw new ProtocolException("Line longer than " + maxLineLength + " bytes");
+                    }
+                    return lineEnd - lineStart;
+                }
+            }
+            if (end - start > maxLineLength + 1) {
+                throw new ProtocolException("Line longer than " + maxLineLength + " bytes");
+            }
+
+            // Move the partial line to the front of the buffer and read more
+            if (start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                start = 0;
+            }
+            scanFrom = end;
+
+            int count = in.read(buffer, end, buffer.length - end);
+            if (count < 0) {
+                if (end > start) { // Last line without a terminator
+                    lineStart = start;
+                    start = end;
+                    return end - lineStart;
+                }
+                return -1;
+            }
+            end += count;
+            bytesRead += count;
+        }
+    }
+
+    /**
+     * Closes the underlying stream.
+     *
+     * @throws IOException If closing fails.
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
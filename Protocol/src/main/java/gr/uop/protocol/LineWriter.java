@@ -0,0 +1,377 @@
+package gr.uop.protocol;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * LineWriter encodes protocol lines straight into its own byte buffer, replacing {@code PrintWriter}
+ * and the string concatenation of the messages. Numbers and tiles are written as ASCII digits without
+ * creating intermediate Strings.
+ *
+ * <p>
+ * Lines are terminated with {@code \n}. Unless the writer was created with auto-flush, the buffered
+ * lines are only sent on {@link #flush()}, so several messages can leave in one write.
+ * Like {@code PrintWriter}, the writer never throws: a failure is recorded and reported by {@link #checkError()}.
+ * Only complete lines are written to the stream, so several writers can share one stream whose writes
+ * are synchronized without their lines being mixed up.
+ * </p>
+ *
+ * <p>
+ * A message is written either in one call ({@code send}) or as a sequence:
+ * {@code begin(Opcode.TILES).beginTiles().tile(6, 5).tile(3, 3).endTiles().end()}.
+ * </p>
+ */
+public class LineWriter implements Closeable, Flushable {
+
+    private OutputStream out;
+    private boolean autoFlush;
+    private int channel = -1; // Channel id written before every line, -1 for none
+    private byte[] buffer = new byte[8192];
+    private int count;
+    private int lineEnd; // Index after the last complete line in the buffer
+    private boolean payloadStarted; // Whether the current message already has its separating space
+    private int listSize = -1; // Tiles written in the current list, -1 when no list is open
+    private boolean error;
+
+    /**
+     * Constructs a writer that sends the buffered lines on {@link #flush()}.
+     *
+     * @param out The stream to write to.
+     */
+    public LineWriter(OutputStream out) {
+        this(out, false);
+    }
+
+    /**
+     * Constructs a writer.
+     *
+     * @param out The stream to write to.
+     * @param autoFlush If true, every line is sent as soon as it is complete.
+     */
+    public LineWriter(OutputStream out, boolean autoFlush) {
+        this.out = out;
+        this.autoFlush = autoFlush;
+    }
+
+    /**
+     * Constructs a writer for one channel of a multiplexed connection: every line starts with the id of the
+     * channel and a space.
+     *
+     * @param out The stream to write to.
+     * @param autoFlush If true, every line is sent as soon as it is complete.
+     * @param channel The id of the channel.
+     */
+    public LineWriter(OutputStream out, boolean autoFlush, int channel) {
+        this(out, autoFlush);
+        if (channel < 0) {
+            throw new IllegalArgumentException("Negative channel id: " + channel);
+        }
+        this.channel = channel;
+    }
+
+    /**
+     * Writes a message without payload.
+     *
+     * @param opcode The opcode of the message.
+     */
+    public void send(Opcode opcode) {
+        begin(opcode).end();
+    }
+
+    /**
+     * Writes a message with a number as its payload.
+     *
+     * @param opcode The opcode of the message.
+     * @param value The payload.
+     */
+    public void send(Opcode opcode, int value) {
+        begin(opcode).appendInt(value).end();
+    }
+
+    /**
+     * Writes a message with a text payload.
+     *
+     * @param opcode The opcode of the message.
+     * @param value The payload.
+     */
+    public void send(Opcode opcode, String value) {
+        begin(opcode).appendString(value).end();
+    }
+
+    /**
+     * Writes a plain line without opcode, as the clients send their name or the index of a tile.
+     *
+     * @param line The line to write.
+     */
+    public void writeLine(String line) {
+        startLine();
+        payloadStarted = true;
+        appendString(line).end();
+    }
+
+    /**
+     * Writes a plain line holding a number.
+     *
+     * @param value The number to write.
+     */
+    public void writeLine(int value) {
+        startLine();
+        payloadStarted = true;
+        appendInt(value).end();
+    }
+
+    /**
+     * Starts a message with the given opcode.
+     *
+     * @param opcode The opcode of the message.
+     * @return This writer, to append the payload.
+     */
+    public LineWriter begin(Opcode opcode) {
+        startLine();
+        byte[] name = opcode.bytes();
+        ensureCapacity(name.length);
+        System.arraycopy(name, 0, buffer, count, name.length);
+        count += name.length;
+        payloadStarted = false;
+        listSize = -1;
+        return this;
+    }
+
+    /**
+     * Appends a number to the payload of the current message.
+     *
+     * @param value The number to append.
+     * @return This writer.
+     */
+    public LineWriter appendInt(int value) {
+        startPayload();
+        ensureCapacity(11);
+        if (value < 0) {
+            buffer[count++] = '-';
+            if (value == Integer.MIN_VALUE) {
+                return appendString("2147483648");
+            }
+            value = -value;
+        }
+        int digits = 1;
+        for (int rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = count + digits - 1; i >= count; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        count += digits;
+        return this;
+    }
+
+    /**
+     * Appends text to the payload of the current message, encoded as UTF-8.
+     *
+     * @param value The text to append.
+     * @return This writer.
+     */
+    public LineWriter appendString(String value) {
+        startPayload();
+        int length = value.length();
+        ensureCapacity(length);
+        int i = 0;
+        for (; i < length; i++) { // ASCII fast path
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                break;
+            }
+            buffer[count++] = (byte) c;
+        }
+        if (i < length) {
+            byte[] rest = value.substring(i).getBytes(StandardCharsets.UTF_8);
+            ensureCapacity(rest.length);
+            System.arraycopy(rest, 0, buffer, count, rest.length);
+            count += rest.length;
+        }
+        return this;
+    }
+
+    /**
+     * Opens a list of tiles in the payload of the current message.
+     *
+     * @return This writer.
+     */
+    public LineWriter beginTiles() {
+        startPayload();
+        ensureCapacity(1);
+        buffer[count++] = '[';
+        listSize = 0;
+        return this;
+    }
+
+    /**
+     * Appends a tile, formatted as {@code [upper:bottom]}. Inside a list, tiles are separated by {@code ", "}.
+     *
+     * @param upperValue The upper value of the tile.
+     * @param bottomValue The bottom value of the tile.
+     * @return This writer.
+     */
+    public LineWriter tile(int upperValue, int bottomValue) {
+        startPayload();
+        if (listSize > 0) {
+            ensureCapacity(2);
+            buffer[count++] = ',';
+            buffer[count++] = ' ';
+        }
+        ensureCapacity(1);
+        buffer[count++] = '[';
+        appendInt(upperValue);
+        ensureCapacity(1);
+        buffer[count++] = ':';
+        appendInt(bottomValue);
+        ensureCapacity(1);
+        buffer[count++] = ']';
+        if (listSize >= 0) {
+            listSize++;
+        }
+        return this;
+    }
+
+    /**
+     * Closes the list of tiles opened by {@link #beginTiles()}.
+     *
+     * @return This writer.
+     */
+    public LineWriter endTiles() {
+        ensureCapacity(1);
+        buffer[count++] = ']';
+        listSize = -1;
+        return this;
+    }
+
+    /**
+     * Terminates the current line, and sends it if the writer auto-flushes.
+     */
+    public void end() {
+        ensureCapacity(1);
+        buffer[count++] = '\n';
+        lineEnd = count;
+        payloadStarted = false;
+        listSize = -1;
+        if (autoFlush) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends all the buffered lines.
+     */
+    @Override
+    public void flush() {
+        try {
+            writeBuffer();
+            out.flush();
+        } catch (IOException e) {
+            error = true;
+        }
+    }
+
+    /**
+     * Sends the buffered lines and closes the underlying stream.
+     */
+    @Override
+    public void close() {
+        flush();
+        try {
+            out.close();
+        } catch (IOException e) {
+            error = true;
+        }
+    }
+
+    /**
+     * Checks whether writing to the stream has failed, like {@code PrintWriter.checkError()}.
+     * The buffered lines are flushed first.
+     *
+     * @return true if a write has failed, false otherwise.
+     */
+    public boolean checkError() {
+        flush();
+        return error;
+    }
+
+    /**
+     * Writes the channel prefix of a new line, if the writer has a channel.
+     */
+    private void startLine() {
+        if (channel >= 0) {
+            payloadStarted = true; // No space before the id
+            appendInt(channel);
+            ensureCapacity(1);
+            buffer[count++] = ' ';
+        }
+    }
+
+    /**
+     * Writes the separating space before the first value of the payload.
+     */
+    private void startPayload() {
+        if (!payloadStarted) {
+            ensureCapacity(1);
+            buffer[count++] = ' ';
+            payloadStarted = true;
+        }
+    }
+
+    /**
+     * Makes room for the given number of bytes, writing out the complete lines or growing the buffer
+     * for very long lines. The start of the current line is kept in the buffer.
+     *
+     * @param length The number of bytes about to be appended.
+     */
+    private void ensureCapacity(int length) {
+        if (count + length <= buffer.length) {
+            return;
+        }
+        try {
+            writeLines();
+        } catch (IOException e) {
+            error = true;
+            count -= lineEnd; // Drop the complete lines, the stream is broken anyway
+            System.arraycopy(buffer, lineEnd, buffer, 0, count);
+            lineEnd = 0;
+        }
+        if (count + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(count + length, 2 * buffer.length));
+        }
+    }
+
+    /**
+     * Writes the complete lines to the stream and moves the current, unfinished line to the front of the buffer.
+     *
+     * @throws IOException If writing fails.
+     */
+    private void writeLines() throws IOException {
+        if (lineEnd > 0) {
+            int length = lineEnd;
+            out.write(buffer, 0, length);
+            count -= length;
+            System.arraycopy(buffer, length, buffer, 0, count);
+            lineEnd = 0;
+        }
+    }
+
+    /**
+     * Writes the buffered bytes to the stream.
+     *
+     * @throws IOException If writing fails.
+     */
+    private void writeBuffer() throws IOException {
+        if (count > 0) {
+            int length = count;
+            count = 0;
+            lineEnd = 0;
+            out.write(buffer, 0, length);
+        }
+    }
+}
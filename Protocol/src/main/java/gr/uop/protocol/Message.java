@@ -0,0 +1,211 @@
+package gr.uop.protocol;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Message is a decoded server message: its opcode and its payload.
+ *
+ * <p>
+ * A LineReader fills the same Message for every line it reads, and the payload stays in the
+ * reader's buffer, so reading a message allocates nothing. The payload is only decoded when a handler
+ * asks for it, straight from the bytes for numbers and tiles. A message that must outlive the next read
+ * (for example, to be handled later on another thread) has to be {@link #detach() detached}.
+ * </p>
+ */
+public class Message {
+
+    private Opcode opcode;
+    private byte[] buffer; // Holds the payload, shared with the reader unless the message is detached
+    private int payloadOffset;
+    private int payloadLength = -1; // -1 when the message has no payload
+    private String payload; // Payload decoded as a String, created on first use
+    private int channel = -1; // Channel of a multiplexed line, -1 for a line of the connection
+
+    /**
+     * Constructs an empty message, to be filled by a LineReader.
+     */
+    public Message() {
+    }
+
+    /**
+     * Creates a detached message with the given opcode and payload.
+     *
+     * @param opcode The opcode of the message.
+     * @param payload The payload of the message, or null if it has none.
+     * @return The new message.
+     */
+    public static Message of(Opcode opcode, String payload) {
+        Message message = new Message();
+        if (payload == null) {
+            message.set(opcode, null, 0, -1);
+        } else {
+            byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+            message.set(opcode, bytes, 0, bytes.length);
+            message.payload = payload;
+        }
+        return message;
+    }
+
+    /**
+     * Fills the message with a newly read line.
+     *
+     * @param opcode The decoded opcode, or null if the line did not start with a known opcode.
+     * @param buffer The buffer holding the payload.
+     * @param payloadOffset The index of the first byte of the payload.
+     * @param payloadLength The length of the payload, or -1 if the message has none.
+     */
+    void set(Opcode opcode, byte[] buffer, int payloadOffset, int payloadLength) {
+        this.opcode = opcode;
+        this.buffer = buffer;
+        this.payloadOffset = payloadOffset;
+        this.payloadLength = payloadLength;
+        this.payload = null;
+        this.channel = -1;
+    }
+
+    /**
+     * Sets the channel of the message, read from the prefix of a multiplexed line.
+     *
+     * @param channel The id of the channel.
+     */
+    void setChannel(int channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Returns a copy of the message that owns its payload, so it stays valid after the reader moves on.
+     *
+     * @return The detached copy.
+     */
+    public Message detach() {
+        Message copy = new Message();
+        if (payloadLength < 0) {
+            copy.set(opcode, null, 0, -1);
+        } else {
+            byte[] bytes = new byte[payloadLength];
+            System.arraycopy(buffer, payloadOffset, bytes, 0, payloadLength);
+            copy.set(opcode, bytes, 0, payloadLength);
+            copy.payload = payload;
+        }
+        copy.channel = channel;
+        return copy;
+    }
+
+    /**
+     * Returns the channel of the message, on a multiplexed connection.
+     *
+     * @return The id of the channel, or -1 if the line had no channel prefix.
+     */
+    public int channel() {
+        return channel;
+    }
+
+    /**
+     * Returns the opcode of the message.
+     *
+     * @return The opcode, or null if the line did not start with a known opcode.
+     */
+    public Opcode opcode() {
+        return opcode;
+    }
+
+    /**
+     * Checks whether the message has a payload.
+     *
+     * @return true if the opcode was followed by a payload, false otherwise.
+     */
+    public boolean hasPayload() {
+        return payloadLength >= 0;
+    }
+
+    /**
+     * Returns the payload as a String. The String is created once and cached.
+     *
+     * @return The payload, or null if the message has none.
+     */
+    public String payloadAsString() {
+        if (payload == null && payloadLength >= 0) {
+            payload = new String(buffer, payloadOffset, payloadLength, StandardCharsets.UTF_8);
+        }
+        return payload;
+    }
+
+    /**
+     * Parses the payload as a decimal integer, directly from its bytes.
+     *
+     * @return The value of the payload.
+     * @throws NumberFormatException If the payload is missing or is not an integer.
+     */
+    public int payloadAsInt() {
+        return parseInt(buffer, payloadOffset, payloadLength);
+    }
+
+    /**
+     * Parses the payload as a list of tiles, such as {@code [[6:5], [3:3]]} or a single tile {@code [6:5]},
+     * directly from its bytes. The values are stored in pairs: the upper and the bottom value of each tile.
+     *
+     * Parsing stops once the array is full, so a malformed or oversized payload from the peer cannot overrun it
+     * and kill the reader thread; the tiles that did not fit are dropped.
+     *
+     * @param pips The array receiving the values; it must hold two values per tile (56 for a whole set).
+     * @return The number of tiles read from the payload, at most half the length of the array.
+     */
+    public int payloadAsTiles(int[] pips) {
+        int count = 0;
+        int end = payloadOffset + Math.max(payloadLength, 0);
+        for (int i = payloadOffset; i < end && count < pips.length; i++) {
+            byte b = buffer[i];
+            if (b >= '0' && b <= '9') {
+                int value = 0;
+                while (i < end && buffer[i] >= '0' && buffer[i] <= '9') {
+                    value = value * 10 + (buffer[i] - '0');
+                    i++;
+                }
+                pips[count++] = value;
+            }
+        }
+        return count / 2;
+    }
+
+    /**
+     * Parses a decimal integer from a range of ASCII bytes.
+     *
+     * @param buffer The bytes to parse.
+     * @param offset The index of the first byte.
+     * @param length The number of bytes, or -1 if there are none.
+     * @return The parsed value.
+     * @throws NumberFormatException If the bytes are not an integer.
+     */
+    static int parseInt(byte[] buffer, int offset, int length) {
+        if (length <= 0) {
+            throw new NumberFormatException("Missing number");
+        }
+        int i = offset;
+        int end = offset + length;
+        boolean negative = buffer[i] == '-';
+        if (negative && ++i == end) {
+            throw new NumberFormatException("Missing digits");
+        }
+
+        int value = 0;
+        for (; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9 || value > (Integer.MAX_VALUE - digit) / 10) {
+                throw new NumberFormatException("Not a number: " + new String(buffer, offset, length, StandardCharsets.UTF_8));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Returns the message as it is sent on the wire, without the line terminator.
+     *
+     * @return The text of the message.
+     */
+    @Override
+    public String toString() {
+        String name = opcode == null ? "?" : opcode.name();
+        return hasPayload() ? name + " " + payloadAsString() : name;
+    }
+}
@@ -0,0 +1,60 @@
+package gr.uop.protocol;
+
+/**
+ * MessageDispatcher runs the handler registered for the opcode of each message.
+ * Handlers are stored in an array indexed by the opcode, so dispatching is a single array lookup
+ * instead of hashing the command string.
+ */
+public class MessageDispatcher {
+
+    private MessageHandler[] handlers = new MessageHandler[Opcode.count()];
+
+    /**
+     * Constructs a dispatcher with no handlers; messages of an opcode without a handler are not dispatched.
+     */
+    public MessageDispatcher() {
+    }
+
+    /**
+     * Registers the handler of an opcode, replacing any previous one.
+     *
+     * @param opcode The opcode to handle.
+     * @param handler The handler of the messages with this opcode.
+     * @return This dispatcher, so registrations can be chained.
+     */
+    public MessageDispatcher on(Opcode opcode, MessageHandler handler) {
+        handlers[opcode.ordinal()] = handler;
+        return this;
+    }
+
+    /**
+     * Registers the handler of an opcode whose messages carry no payload.
+     *
+     * @param opcode The opcode to handle.
+     * @param handler The action to run for the messages with this opcode.
+     * @return This dispatcher, so registrations can be chained.
+     */
+    public MessageDispatcher on(Opcode opcode, Runnable handler) {
+        return on(opcode, message -> handler.run());
+    }
+
+    /**
+     * Runs the handler of the message's opcode. Messages with an unknown opcode
+     * or without a registered handler are ignored.
+     *
+     * @param message The message to dispatch.
+     * @return true if a handler was run, false otherwise.
+     */
+    public boolean dispatch(Message message) {
+        Opcode opcode = message.opcode();
+        if (opcode == null) {
+            return false;
+        }
+        MessageHandler handler = handlers[opcode.ordinal()];
+        if (handler == null) {
+            return false;
+        }
+        handler.handle(message);
+        return true;
+    }
+}
@@ -0,0 +1,16 @@
+package gr.uop.protocol;
+
+/**
+ * MessageHandler handles one kind of message received from the server.
+ */
+@FunctionalInterface
+public interface MessageHandler {
+
+    /**
+     * Handles a message. The message is only valid during the call, since the reader reuses it
+     * for the next line; handlers that keep it for later must {@link Message#detach() detach} it first.
+     *
+     * @param message The received message.
+     */
+    void handle(Message message);
+}
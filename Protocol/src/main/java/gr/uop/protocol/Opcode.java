@@ -0,0 +1,153 @@
+package gr.uop.protocol;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Opcode lists the messages the server sends to the clients. Every message is one line made of
+ * the opcode, optionally followed by a space and its payload.
+ *
+ * <p>
+ * The clients answer with plain lines (their name, or the index of the tile they play),
+ * so those have no opcode. The only messages a client sends with an opcode are {@link #PING},
+ * which measures the round-trip time, and the multiplexing messages.
+ * </p>
+ *
+ * <p>
+ * A client that answers {@link #NAME_REQUEST} with {@link #MULTIPLEX} carries many games on its connection.
+ * Every line of a game is then prefixed with the id of its channel and a space, in both directions
+ * ({@code 7 TURN}, {@code 7 3}); the lines without a prefix (PING and PONG) belong to the connection.
+ * The client opens a channel with {@code <id> OPEN <name>} and the server ends it with {@code <id> CLOSE},
+ * after its game or when the client sent {@code <id> CLOSE}; only then may the client reuse the id.
+ * </p>
+ *
+ * <p>
+ * A client on the same host, connected to the local socket of the server, may answer {@link #NAME_REQUEST}
+ * with {@code SHARED_MEMORY <file>}: the server maps the {@code SharedMemoryTransport} file created by the
+ * client, and the session starts over on it with a new {@link #NAME_REQUEST}.
+ * </p>
+ */
+public enum Opcode {
+
+    // Initialization
+    WAIT_CONNECT, // Logged in, waiting for the matchmaker to find an opponent
+    CONNECTED, // Opponent found
+    WAIT_PLAYER1_NAME,
+    WAIT_PLAYER2_NAME,
+    NAME_REQUEST,
+    END_INIT,
+
+    // Gameplay
+    TURN,
+    TILES,
+    BOARD,
+    STOCK_SIZE,
+    OPPONENT_TILE_SIZE,
+    WAIT_OPPONENT_MOVE,
+    NO_AVAILABLE_MOVES,
+    DRAW,
+    OPPONENT_DRAW,
+    PLAYED,
+    OPP_PLAYED,
+    PASS,
+    OPP_PASS,
+    INDEX,
+    INVALID_MOVE,
+    INVALID_INPUT,
+    GAME_OVER,
+    SCORE,
+
+    // Diagnostics, at any time: a client sends PING with a number and the server echoes the number in PONG
+    PING,
+    PONG,
+
+    // Multiplexing: MULTIPLEX switches the connection to channels (and is echoed by the server), OPEN and CLOSE a channel
+    MULTIPLEX,
+    OPEN,
+    CLOSE,
+
+    // Local transport: a client switches to the shared memory file it names
+    SHARED_MEMORY,
+
+    // Admission: the server refuses a connection or a channel, then closes it; the payload is the delay in ms before retrying
+    SERVER_BUSY;
+
+    private static final Opcode[] VALUES = values();
+    private static final Opcode[][] BY_LENGTH; // Opcodes grouped by the length of their name, for decoding
+
+    static {
+        int maxLength = 0;
+        for (Opcode opcode : VALUES) {
+            maxLength = Math.max(maxLength, opcode.bytes.length);
+        }
+
+        BY_LENGTH = new Opcode[maxLength + 1][];
+        for (int length = 0; length <= maxLength; length++) {
+            int count = 0;
+            for (Opcode opcode : VALUES) {
+                if (opcode.bytes.length == length) {
+                    count++;
+                }
+            }
+            BY_LENGTH[length] = new Opcode[count];
+            count = 0;
+            for (Opcode opcode : VALUES) {
+                if (opcode.bytes.length == length) {
+                    BY_LENGTH[length][count++] = opcode;
+                }
+            }
+        }
+    }
+
+    private final byte[] bytes; // The name of the opcode as sent on the wire
+
+    /**
+     * Constructs an opcode, encoding its name once for the writers and the decoder.
+     */
+    Opcode() {
+        this.bytes = name().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Returns the name of the opcode as sent on the wire.
+     * The array is shared and must not be modified.
+     *
+     * @return The ASCII bytes of the opcode.
+     */
+    byte[] bytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the number of opcodes, which is the size of a table indexed by {@link #ordinal()}.
+     *
+     * @return The number of opcodes.
+     */
+    public static int count() {
+        return VALUES.length;
+    }
+
+    /**
+     * Decodes the opcode whose name is stored in the given bytes, without creating a String.
+     *
+     * @param buffer The bytes holding the name.
+     * @param offset The index of the first byte of the name.
+     * @param length The length of the name.
+     * @return The matching opcode, or null if the name is not an opcode.
+     */
+    public static Opcode decode(byte[] buffer, int offset, int length) {
+        if (length >= BY_LENGTH.length) {
+            return null;
+        }
+        for (Opcode opcode : BY_LENGTH[length]) {
+            byte[] name = opcode.bytes;
+            int i = 0;
+            while (i < length && name[i] == buffer[offset + i]) {
+                i++;
+            }
+            if (i == length) {
+                return opcode;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,21 @@
+package gr.uop.protocol;
+
+import java.io.IOException;
+
+/**
+ * ProtocolException is thrown when the other side sends data that breaks the protocol,
+ * such as a line longer than the allowed maximum.
+ */
+public class ProtocolException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a ProtocolException with the given detail message.
+     *
+     * @param message The detail message.
+     */
+    public ProtocolException(String message) {
+        super(message);
+    }
+}
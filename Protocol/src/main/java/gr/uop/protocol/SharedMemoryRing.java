@@ -0,0 +1,152 @@
+package gr.uop.protocol;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * SharedMemoryRing is a single-producer, single-consumer ring of bytes in a region of a memory-mapped file,
+ * shared by two processes. One process writes, the other reads.
+ *
+ * <p>
+ * The producer owns the tail and the consumer the head; each is a byte count that only grows, kept on a
+ * cache line of its own so the two sides never write the same line. A side publishes its counter with a
+ * release store after copying the bytes, and reads the other side's counter with an acquire load before
+ * touching them, so the bytes are visible once the counter is. Each side also keeps its own copy of the
+ * other's counter and only reloads it when the ring looks full or empty.
+ * </p>
+ *
+ * <p>
+ * Region layout: the tail at 0, the head at 64, the closed flags of the producer and the consumer at 128
+ * and 136, then the data from {@link #HEADER_BYTES}.
+ * </p>
+ */
+final class SharedMemoryRing {
+
+    static final int HEADER_BYTES = 192;
+    private static final int TAIL = 0;
+    private static final int HEAD = 64;
+    private static final int PRODUCER_CLOSED = 128;
+    private static final int CONSUMER_CLOSED = 136;
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer region;
+    private final int capacity;
+    private final int mask;
+    private final SharedMemoryTransport.WaitStrategy waitStrategy;
+    private long position; // Tail for the producer, head for the consumer
+    private long otherPosition; // Last value read of the other side's counter
+    private volatile boolean closed; // Closed by this process
+
+    /**
+     * Wraps a region of a mapped file holding a ring.
+     *
+     * @param region The region, header included, starting at a 64-byte aligned address.
+     * @param capacity The number of data bytes, a power of two.
+     * @param producer true if this process writes to the ring, false if it reads from it.
+     * @param waitStrategy How to wait when the ring is full or empty.
+     */
+    SharedMemoryRing(ByteBuffer region, int capacity, boolean producer, SharedMemoryTransport.WaitStrategy waitStrategy) {
+        this.region = region;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.waitStrategy = waitStrategy;
+        this.position = (long) LONGS.getAcquire(region, producer ? TAIL : HEAD);
+        this.otherPosition = (long) LONGS.getAcquire(region, producer ? HEAD : TAIL);
+    }
+
+    /**
+     * Copies bytes into the ring, waiting for room as long as needed.
+     *
+     * @param bytes The bytes to write.
+     * @param offset The index of the first byte.
+     * @param length The number of bytes.
+     * @throws IOException If either side closed the ring.
+     */
+    void write(byte[] bytes, int offset, int length) throws IOException {
+        int idle = 0;
+        while (length > 0) {
+            long free = capacity - (position - otherPosition);
+            if (free == 0) {
+                otherPosition = (long) LONGS.getAcquire(region, HEAD);
+                free = capacity - (position - otherPosition);
+            }
+            if (free == 0) {
+                if (closed || (long) LONGS.getAcquire(region, CONSUMER_CLOSED) != 0) {
+                    throw new EOFException("Shared memory ring closed");
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedIOException("Interrupted while waiting for the shared memory ring");
+                }
+                idle = waitStrategy.idle(idle);
+                continue;
+            }
+            idle = 0;
+            int index = (int) position & mask;
+            int count = (int) Math.min(Math.min(free, length), capacity - index); // Up to the end of the data, then wrap
+            region.put(HEADER_BYTES + index, bytes, offset, count);
+            position += count;
+            offset += count;
+            length -= count;
+            LONGS.setRelease(region, TAIL, position);
+        }
+    }
+
+    /**
+     * Copies the available bytes out of the ring, waiting for at least one.
+     *
+     * @param bytes The array to read into.
+     * @param offset The index of the first byte to fill.
+     * @param length The largest number of bytes to read.
+     * @return The number of bytes read, or -1 once the producer closed the ring and it is empty.
+     * @throws IOException If this side closed the ring, or the thread was interrupted.
+     */
+    int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        int idle = 0;
+        while (otherPosition == position) {
+            otherPosition = (long) LONGS.getAcquire(region, TAIL);
+            if (otherPosition != position) {
+                break;
+            }
+            if (closed) {
+                throw new EOFException("Shared memory ring closed");
+            }
+            if ((long) LONGS.getAcquire(region, PRODUCER_CLOSED) != 0) {
+                otherPosition = (long) LONGS.getAcquire(region, TAIL); // Bytes written just before closing
+                if (otherPosition == position) {
+                    return -1;
+                }
+                break;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedIOException("Interrupted while waiting for the shared memory ring");
+            }
+            idle = waitStrategy.idle(idle);
+        }
+        long available = otherPosition - position;
+        int index = (int) position & mask;
+        int count = (int) Math.min(Math.min(available, length), capacity - index);
+        region.get(HEADER_BYTES + index, bytes, offset, count);
+        position += count;
+        LONGS.setRelease(region, HEAD, position);
+        return count;
+    }
+
+    /**
+     * Closes this side of the ring: the other process sees it on its next wait, and a thread of this process
+     * waiting on the ring stops.
+     *
+     * @param producer true if this process is the producer.
+     */
+    void close(boolean producer) {
+        closed = true;
+        LONGS.setRelease(region, producer ? PRODUCER_CLOSED : CONSUMER_CLOSED, 1L);
+    }
+}
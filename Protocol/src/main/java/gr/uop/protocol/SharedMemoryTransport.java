@@ -0,0 +1,282 @@
+package gr.uop.protocol;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * SharedMemoryTransport connects two processes of the same host through a memory-mapped file holding two
+ * {@link SharedMemoryRing}s, one per direction, so a message costs two memory copies and no system call.
+ * The client creates the file and sends its path to the server over a local socket (see
+ * {@link Opcode#SHARED_MEMORY}); both then map it and speak the usual protocol over the rings.
+ *
+ * <p>
+ * The file starts with a 64-byte header (magic, version, ring capacity), followed by the ring from the client
+ * to the server, then the ring from the server to the client. Neither side can tell that the other process
+ * died, so the local socket the file was announced on stays open and the transport is closed when it closes.
+ * </p>
+ */
+public final class SharedMemoryTransport implements Transport {
+
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+    private static final int MAGIC = 0x44534D52; // "DSMR"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_BYTES = 64;
+    private static final int MAX_CAPACITY = 1 << 24;
+
+    /**
+     * WaitStrategy is how a thread waits for a ring that is empty (or full).
+     */
+    public enum WaitStrategy {
+
+        /**
+         * Spins on the ring, yielding now and then: the lowest latency, at the cost of a busy core per
+         * waiting thread. For dedicated platform threads only. On a single processor, where spinning would
+         * only delay the other process, it yields every time.
+         */
+        SPIN {
+            @Override
+            int idle(int count) {
+                if (!MULTIPROCESSOR || (count & 1023) == 1023) {
+                    Thread.yield();
+                } else {
+                    Thread.onSpinWait();
+                }
+                return count + 1;
+            }
+        },
+
+        /**
+         * Spins for a few microseconds (on a multiprocessor), yields for a few more, then parks for longer and
+         * longer, up to a millisecond: a round trip in progress stays fast and an idle connection costs next
+         * to nothing. Parking also frees the carrier of a virtual thread.
+         */
+        PARK {
+            @Override
+            int idle(int count) {
+                if (count < SPINS) {
+                    Thread.onSpinWait();
+                } else if (count < SPINS + YIELDS) {
+                    Thread.yield();
+                } else {
+                    int steps = Math.min(count - SPINS - YIELDS, 10);
+                    LockSupport.parkNanos(Math.min(MAX_PARK_NANOS, MIN_PARK_NANOS << steps));
+                }
+                return count + 1;
+            }
+        };
+
+        private static final boolean MULTIPROCESSOR = Runtime.getRuntime().availableProcessors() > 1;
+        private static final int SPINS = MULTIPROCESSOR ? 20_000 : 0; // About 20 to 100 microseconds
+        private static final int YIELDS = 200;
+        private static final long MIN_PARK_NANOS = 1_000;
+        private static final long MAX_PARK_NANOS = 1_000_000;
+
+        /**
+         * Waits once between two checks of the ring.
+         *
+         * @param count The number of waits since the ring was last found ready.
+         * @return The count to pass to the next wait.
+         */
+        abstract int idle(int count);
+    }
+
+    private final Path file;
+    private final SharedMemoryRing input;
+    private final SharedMemoryRing output;
+    private final InputStream in;
+    private final OutputStream out;
+
+    /**
+     * Maps the rings of a file.
+     *
+     * @param file The file.
+     * @param mapped The mapping of the whole file.
+     * @param capacity The capacity of each ring.
+     * @param server true on the server side, false on the client side.
+     * @param waitStrategy How to wait for the rings.
+     */
+    private SharedMemoryTransport(Path file, MappedByteBuffer mapped, int capacity, boolean server, WaitStrategy waitStrategy) {
+        this.file = file;
+        int ringBytes = SharedMemoryRing.HEADER_BYTES + capacity;
+        ByteBuffer toServer = mapped.slice(FILE_HEADER_BYTES, ringBytes);
+        ByteBuffer toClient = mapped.slice(FILE_HEADER_BYTES + ringBytes, ringBytes);
+        this.input = new SharedMemoryRing(server ? toServer : toClient, capacity, false, waitStrategy);
+        this.output = new SharedMemoryRing(server ? toClient : toServer, capacity, true, waitStrategy);
+        this.in = new InputStream() {
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return input.read(b, off, len);
+            }
+
+            @Override
+            public void close() {
+                input.close(false);
+            }
+        };
+        this.out = new OutputStream() {
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                output.write(b, off, len);
+            }
+
+            @Override
+            public void close() {
+                output.close(true);
+            }
+        };
+    }
+
+    /**
+     * Creates the file of a new transport, on the client side.
+     *
+     * @param file The file to create; it must not exist.
+     * @param capacity The capacity of each ring in bytes, a power of two.
+     * @param waitStrategy How to wait for the rings.
+     * @return The client side of the transport.
+     * @throws IOException If the file cannot be created or mapped.
+     */
+    public static SharedMemoryTransport create(Path file, int capacity, WaitStrategy waitStrategy) throws IOException {
+        if (Integer.bitCount(capacity) != 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("The capacity must be a power of two up to " + MAX_CAPACITY + ": " + capacity);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(capacity)); // Zero-filled: empty rings
+            mapped.putInt(4, VERSION).putInt(8, capacity);
+            mapped.putInt(0, MAGIC); // Last, so a file with the magic is complete
+            return new SharedMemoryTransport(file, mapped, capacity, false, waitStrategy);
+        }
+    }
+
+    /**
+     * Maps the file of a transport created by a client, on the server side.
+     *
+     * @param file The file.
+     * @param waitStrategy How to wait for the rings.
+     * @return The server side of the transport.
+     * @throws IOException If the file cannot be mapped or is not a transport file.
+     */
+    public static SharedMemoryTransport open(Path file, WaitStrategy waitStrategy) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < FILE_HEADER_BYTES) {
+                throw new ProtocolException("Not a shared memory transport: " + file);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, FILE_HEADER_BYTES);
+            int capacity = header.getInt(8);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || Integer.bitCount(capacity) != 1
+                    || capacity > MAX_CAPACITY || channel.size() != fileSize(capacity)) {
+                throw new ProtocolException("Not a shared memory transport: " + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(capacity));
+            return new SharedMemoryTransport(file, mapped, capacity, true, waitStrategy);
+        }
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return in;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return out;
+    }
+
+    /**
+     * Ties this transport to the local socket its file was announced on, the only way to notice that the
+     * other process died: a virtual thread reads the socket until it closes, then closes this transport.
+     *
+     * @param socket The local socket.
+     * @param fromSocket The reader of the socket; nothing more is expected on it.
+     * @return A transport over the rings whose close also closes the socket.
+     */
+    public Transport watch(Transport socket, LineReader fromSocket) {
+        Transport watched = new Transport() {
+
+            @Override
+            public InputStream getInputStream() {
+                return in;
+            }
+
+            @Override
+            public OutputStream getOutputStream() {
+                return out;
+            }
+
+            @Override
+            public void close() throws IOException {
+                SharedMemoryTransport.this.close();
+                try {
+                    unlink(); // In case the other side never mapped it
+                } finally {
+                    socket.close();
+                }
+            }
+        };
+        Thread.ofVirtual().name("shm-watcher").start(() -> {
+            try {
+                while (fromSocket.readLine() != null) {
+                    // Ignored: the protocol runs on the rings
+                }
+            } catch (IOException e) {
+                // Closed either way
+            } finally {
+                try {
+                    watched.close();
+                } catch (IOException e) {
+                    // Nothing left to release
+                }
+            }
+        });
+        return watched;
+    }
+
+    /**
+     * Deletes the file once both sides mapped it; the mappings stay valid, and a crash leaves nothing behind.
+     *
+     * @throws IOException If the file cannot be deleted.
+     */
+    public void unlink() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Closes both directions. The other side reads the end of the stream after the bytes already written,
+     * and a thread of this process waiting on a ring stops. The mapping is released by the garbage collector.
+     */
+    @Override
+    public void close() {
+        output.close(true);
+        input.close(false);
+    }
+
+    /**
+     * Returns the size of the file of a transport.
+     *
+     * @param capacity The capacity of each ring.
+     * @return The size in bytes.
+     */
+    private static long fileSize(int capacity) {
+        return FILE_HEADER_BYTES + 2L * (SharedMemoryRing.HEADER_BYTES + capacity);
+    }
+}
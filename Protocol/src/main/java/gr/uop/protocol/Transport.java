@@ -0,0 +1,87 @@
+package gr.uop.protocol;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Transport is the pair of byte streams a client and the server talk over: a TCP socket, a Unix domain
+ * socket, or a {@link SharedMemoryTransport} between processes of the same host. The protocol lines are the
+ * same on all of them. The input is read by one thread and the output written by another at the same time.
+ */
+public interface Transport extends Closeable {
+
+    /**
+     * Returns the stream of the bytes received.
+     *
+     * @return The input stream.
+     * @throws IOException If the stream cannot be opened.
+     */
+    InputStream getInputStream() throws IOException;
+
+    /**
+     * Returns the stream of the bytes sent. Its writes are not synchronized.
+     *
+     * @return The output stream.
+     * @throws IOException If the stream cannot be opened.
+     */
+    OutputStream getOutputStream() throws IOException;
+
+    /**
+     * Returns a transport over a connected TCP socket.
+     *
+     * @param socket The socket.
+     * @return The transport, which closes the socket.
+     */
+    static Transport of(Socket socket) {
+        return new Transport() {
+
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return socket.getInputStream();
+            }
+
+            @Override
+            public OutputStream getOutputStream() throws IOException {
+                return socket.getOutputStream();
+            }
+
+            @Override
+            public void close() throws IOException {
+                socket.close();
+            }
+        };
+    }
+
+    /**
+     * Returns a transport over a connected, blocking socket channel, such as a Unix domain socket.
+     *
+     * @param channel The channel.
+     * @return The transport, which closes the channel.
+     */
+    static Transport of(SocketChannel channel) {
+        InputStream in = Channels.newInputStream(channel);
+        OutputStream out = Channels.newOutputStream(channel);
+        return new Transport() {
+
+            @Override
+            public InputStream getInputStream() {
+                return in;
+            }
+
+            @Override
+            public OutputStream getOutputStream() {
+                return out;
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+}
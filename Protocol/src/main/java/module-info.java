@@ -0,0 +1,3 @@
+module gr.uop.protocol {
+    exports gr.uop.protocol;
+}
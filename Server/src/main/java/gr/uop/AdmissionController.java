@@ -0,0 +1,388 @@
+package gr.uop;
+
+import gr.uop.protocol.Opcode;
+import gr.uop.protocol.Transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AdmissionController keeps a traffic spike from degrading the games in progress. Every refusal is answered
+ * at once with {@link Opcode#SERVER_BUSY} and the number of milliseconds after which the client may retry.
+ *
+ * <p>
+ * Three limits apply to a new connection: the connections open at once, the arrivals waiting to be admitted
+ * (the logins in progress and the players waiting for a session), and the rate of connections from each
+ * source address, a token bucket per address. A logged-in player then waits, for a bounded time, until
+ * fewer players than the session limit are in a session.
+ * </p>
+ *
+ * <p>
+ * The session limit adapts to the turn latency of the tables, the time from reading a move to flushing
+ * what it caused, by additive increase and multiplicative decrease. Every adjustment interval, if more
+ * than one turn in a hundred took longer than the target, the limit shrinks by a fifth; new arrivals then
+ * wait while the games in progress finish, and none of them is cut. Otherwise, if the limit held players
+ * back, it grows by a few sessions.
+ * </p>
+ */
+final class AdmissionController implements Closeable {
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 10_000;
+    public static final int DEFAULT_MAX_WAITING = 256;
+    public static final int DEFAULT_MAX_SESSIONS = 4096;
+    public static final double DEFAULT_CONNECTIONS_PER_SECOND = 20; // From one source address, with bursts of twice as many
+    public static final Duration DEFAULT_TURN_TARGET = Duration.ofMillis(50);
+    public static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(1);
+    static final long ADMITTED = 0; // Returned instead of a retry delay
+    private static final int MIN_SESSIONS = 16; // The limit never shrinks below this
+    private static final int ADDITIVE_INCREASE = 8; // Sessions added per interval while the limit holds players back
+    private static final double MULTIPLICATIVE_DECREASE = 0.8;
+    private static final double SLOW_TURN_FRACTION = 0.01; // Share of turns allowed over the target
+    private static final Duration ADJUST_INTERVAL = Duration.ofSeconds(1);
+
+    private final int maxConnections;
+    private final int maxWaiting;
+    private final int maxSessions;
+    private final double connectionsPerSecond;
+    private final long turnTargetNanos;
+    private final long retryAfterMillis;
+    private final Map<InetAddress, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final LongAdder turns = new LongAdder();
+    private final LongAdder slowTurns = new LongAdder();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition sessionFreed = lock.newCondition();
+    private final Thread adjustThread;
+
+    // Guarded by lock
+    private int connections;
+    private int waiting;
+    private int sessions;
+    private int sessionLimit;
+    private boolean heldBack; // Whether an arrival waited for a session since the last adjustment
+
+    /**
+     * Constructs a controller and starts its adjustment thread. The session limit starts at its maximum.
+     *
+     * @param maxConnections The largest number of connections open at once.
+     * @param maxWaiting The largest number of arrivals waiting to be admitted.
+     * @param maxSessions The largest number of players in a session; the adaptive limit stays below it.
+     * @param connectionsPerSecond The rate of connections accepted from one source address.
+     * @param turnTarget The turn latency that the tables should stay under.
+     * @param retryAfter The delay suggested to a client refused for lack of room; it is spread up to twice as long.
+     */
+    AdmissionController(int maxConnections, int maxWaiting, int maxSessions, double connectionsPerSecond,
+            Duration turnTarget, Duration retryAfter) {
+        this.maxConnections = maxConnections;
+        this.maxWaiting = maxWaiting;
+        this.maxSessions = Math.max(MIN_SESSIONS, maxSessions);
+        this.connectionsPerSecond = connectionsPerSecond;
+        this.turnTargetNanos = turnTarget.toNanos();
+        this.retryAfterMillis = Math.max(1, retryAfter.toMillis());
+        this.sessionLimit = this.maxSessions;
+        this.adjustThread = Thread.ofPlatform().name("admission").daemon().start(this::adjustLoop);
+    }
+
+    /**
+     * Decides whether to accept a new connection. If it is accepted, it holds a connection and a place among
+     * the waiting arrivals, until {@link #awaitSession} or {@link #leaveWaiting} gives the place back.
+     *
+     * @param source The address the connection comes from, or null for the local socket, which has no rate limit.
+     * @return {@link #ADMITTED}, or the milliseconds after which the client may retry.
+     */
+    long tryConnect(InetAddress source) {
+        if (source != null) {
+            TokenBucket bucket = buckets.computeIfAbsent(source, address -> new TokenBucket(connectionsPerSecond));
+            long waitNanos = bucket.tryTake(System.nanoTime());
+            if (waitNanos > 0) {
+                return Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+            }
+        }
+        lock.lock();
+        try {
+            if (connections >= maxConnections || waiting >= maxWaiting) {
+                return retryAfter();
+            }
+            connections++;
+            waiting++;
+            return ADMITTED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Decides whether an arrival on an open connection, a channel of a multiplexed connection, may wait to be
+     * admitted. If so, it holds a place among the waiting arrivals until {@link #awaitSession}.
+     *
+     * @return {@link #ADMITTED}, or the milliseconds after which the client may retry.
+     */
+    long tryWait() {
+        lock.lock();
+        try {
+            if (waiting >= maxWaiting) {
+                return retryAfter();
+            }
+            waiting++;
+            return ADMITTED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives back the place of an arrival that left, or of a connection that became a multiplexed connection,
+     * whose channels wait on their own.
+     */
+    void leaveWaiting() {
+        lock.lock();
+        try {
+            waiting--;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the player of an arrival may start a session, then gives its place back. A player admitted
+     * must call {@link #endSession} when it leaves.
+     *
+     * @param maxWait The longest time to wait.
+     * @return {@link #ADMITTED}, or the milliseconds after which the client may retry.
+     * @throws InterruptedException If the thread was interrupted while waiting.
+     */
+    long awaitSession(Duration maxWait) throws InterruptedException {
+        lock.lock();
+        try {
+            long remainingNanos = maxWait.toNanos();
+            while (sessions >= sessionLimit) {
+                heldBack = true;
+                if (remainingNanos <= 0) {
+                    return retryAfter();
+                }
+                remainingNanos = sessionFreed.awaitNanos(remainingNanos);
+            }
+            sessions++;
+            return ADMITTED;
+        } finally {
+            waiting--;
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ends the session of a player admitted by {@link #awaitSession}, letting a waiting player in.
+     */
+    void endSession() {
+        lock.lock();
+        try {
+            sessions--;
+            sessionFreed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records the latency of a turn played at a table.
+     *
+     * @param nanos The time from reading the move to flushing what it caused.
+     */
+    void recordTurn(long nanos) {
+        turns.increment();
+        if (nanos > turnTargetNanos) {
+            slowTurns.increment();
+        }
+    }
+
+    /**
+     * Returns a transport that gives its connection back to this controller when it is first closed.
+     *
+     * @param transport A transport accepted by {@link #tryConnect}.
+     * @return The tracked transport.
+     */
+    Transport track(Transport transport) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return new Transport() {
+
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return transport.getInputStream();
+            }
+
+            @Override
+            public OutputStream getOutputStream() throws IOException {
+                return transport.getOutputStream();
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    transport.close();
+                } finally {
+                    if (closed.compareAndSet(false, true)) {
+                        connectionClosed();
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Describes the current load and limits, for the server log.
+     *
+     * @return The description.
+     */
+    String describe() {
+        lock.lock();
+        try {
+            return String.format("%d connection(s), %d waiting, %d of %d session(s)", connections, waiting, sessions, sessionLimit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the adjustment thread. The limits stay as they are.
+     */
+    @Override
+    public void close() {
+        adjustThread.interrupt();
+    }
+
+    /**
+     * Gives back the connection of a transport that closed.
+     */
+    private void connectionClosed() {
+        lock.lock();
+        try {
+            connections--;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the delay suggested to a client refused for lack of room, spread so that the refused clients
+     * do not all come back at once.
+     *
+     * @return The delay in milliseconds.
+     */
+    private long retryAfter() {
+        return retryAfterMillis + ThreadLocalRandom.current().nextLong(retryAfterMillis);
+    }
+
+    /**
+     * Adjusts the session limit at every interval until the controller is closed, and forgets the token
+     * buckets of the addresses that went quiet.
+     */
+    private void adjustLoop() {
+        try {
+            while (true) {
+                Thread.sleep(ADJUST_INTERVAL);
+                adjust(turns.sumThenReset(), slowTurns.sumThenReset());
+                long now = System.nanoTime();
+                buckets.values().removeIf(bucket -> bucket.isFull(now));
+            }
+        } catch (InterruptedException e) {
+            // Closed
+        }
+    }
+
+    /**
+     * Adjusts the session limit to the turns of the last interval.
+     *
+     * @param turnCount The number of turns played.
+     * @param slowTurnCount The number of turns over the target.
+     */
+    private void adjust(long turnCount, long slowTurnCount) {
+        lock.lock();
+        try {
+            int previous = sessionLimit;
+            if (turnCount > 0 && slowTurnCount > SLOW_TURN_FRACTION * turnCount) {
+                sessionLimit = Math.max(MIN_SESSIONS, (int) (sessionLimit * MULTIPLICATIVE_DECREASE));
+            } else if (heldBack && sessionLimit < maxSessions) {
+                sessionLimit = Math.min(maxSessions, sessionLimit + ADDITIVE_INCREASE);
+                sessionFreed.signalAll();
+            }
+            heldBack = false;
+            if (sessionLimit != previous) {
+                System.out.printf("Session limit %d -> %d (%d of %d turn(s) over %d ms)%n", previous, sessionLimit,
+                        slowTurnCount, turnCount, TimeUnit.NANOSECONDS.toMillis(turnTargetNanos));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * TokenBucket limits the connections from one source address: it holds up to twice the rate per second
+     * in tokens, refilled continuously, and each connection takes one.
+     */
+    private static final class TokenBucket {
+
+        private final double tokensPerNano;
+        private final double capacity;
+        private double tokens;
+        private long refilledAt;
+
+        /**
+         * Constructs a full bucket.
+         *
+         * @param perSecond The tokens added per second.
+         */
+        TokenBucket(double perSecond) {
+            this.tokensPerNano = perSecond / 1e9;
+            this.capacity = Math.max(1, 2 * perSecond);
+            this.tokens = capacity;
+            this.refilledAt = System.nanoTime();
+        }
+
+        /**
+         * Takes a token if there is one.
+         *
+         * @param now The current time of {@link System#nanoTime()}.
+         * @return 0 if a token was taken, or the nanoseconds until the next one.
+         */
+        synchronized long tryTake(long now) {
+            refill(now);
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / tokensPerNano);
+        }
+
+        /**
+         * Checks whether the bucket is full again, so it can be forgotten.
+         *
+         * @param now The current time of {@link System#nanoTime()}.
+         * @return true if the bucket is full.
+         */
+        synchronized boolean isFull(long now) {
+            refill(now);
+            return tokens >= capacity;
+        }
+
+        /**
+         * Adds the tokens earned since the last refill.
+         *
+         * @param now The current time of {@link System#nanoTime()}.
+         */
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+        }
+    }
+}
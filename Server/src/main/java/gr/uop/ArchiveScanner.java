@@ -0,0 +1,270 @@
+package gr.uop;
+
+import gr.uop.GameEngine.GameEngine;
+import gr.uop.GameEngine.GameEventListener;
+import gr.uop.GameEngine.Player;
+import gr.uop.GameEngine.RulesMode;
+import gr.uop.GameEngine.Tile;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * ArchiveScanner computes the {@link GameStatistics} of all the games of a {@link GameArchive}: which tiles
+ * are played on each turn, how often the opener wins with each opening tile, how many games end blocked
+ * and the average winning score by the number of tiles drawn.
+ *
+ * <p>
+ * The archive only keeps the seed and the moves of a game, so each game is replayed on an engine. The
+ * segments are scanned in parallel on all the cores, one engine per segment. The moves are read in place
+ * from the mapped segment and the engine is reset for every game, so the scan allocates nothing per game.
+ * </p>
+ *
+ * <p>
+ * Sealed segments never change, so the statistics of each one are saved in the cache directory and reused
+ * by the next scans: a rerun only replays the segments sealed since, and the games not sealed yet.
+ * </p>
+ */
+final class ArchiveScanner {
+
+    private static final int CACHE_VERSION = 1; // Changed whenever GameStatistics or the replay changes
+
+    private final GameArchive archive;
+    private final Path cacheDirectory;
+    private final AtomicInteger cachedSegments = new AtomicInteger();
+    private final AtomicInteger scannedSegments = new AtomicInteger();
+
+    /**
+     * Constructs a scanner of an archive.
+     *
+     * @param archive The archive to scan.
+     * @param cacheDirectory The directory of the saved statistics of the segments, created if needed.
+     */
+    ArchiveScanner(GameArchive archive, Path cacheDirectory) {
+        this.archive = archive;
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    /**
+     * Scans the archive and prints the statistics of its games.
+     *
+     * @param args The directory of the archive (default {@code archive}) and optionally the cache directory
+     *        (default {@code scan-cache} in the archive directory).
+     */
+    public static void main(String[] args) {
+        Path archiveDirectory = Path.of(args.length > 0 ? args[0] : "archive");
+        Path cacheDirectory = args.length > 1 ? Path.of(args[1]) : archiveDirectory.resolve("scan-cache");
+
+        try (GameArchive archive = GameArchive.openReadOnly(archiveDirectory)) {
+            ArchiveScanner scanner = new ArchiveScanner(archive, cacheDirectory);
+            long start = System.nanoTime();
+            GameStatistics statistics = scanner.scan();
+            System.out.printf("Scanned %d segments (%d from the cache) in %.1f ms%n%n",
+                    archive.getSegmentCount(), scanner.getCachedSegments(), (System.nanoTime() - start) / 1e6);
+            statistics.print(System.out);
+        } catch (NoSuchFileException e) {
+            System.err.println("No archive in " + archiveDirectory);
+        } catch (IOException e) {
+            System.err.println("Error scanning the archive: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Computes the statistics of all the games of the archive.
+     *
+     * @return The statistics.
+     * @throws IOException If a segment cannot be read.
+     */
+    GameStatistics scan() throws IOException {
+        Files.createDirectories(cacheDirectory);
+        GameStatistics total;
+        try {
+            total = IntStream.range(0, archive.getSegmentCount()).parallel()
+                    .mapToObj(this::segmentStatistics)
+                    .collect(GameStatistics::new, GameStatistics::merge, GameStatistics::merge);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        Replayer pending = new Replayer();
+        archive.visitPending(pending);
+        total.merge(pending.statistics);
+        return total;
+    }
+
+    /**
+     * Returns the number of segments the last scans took from the cache.
+     *
+     * @return The segment count.
+     */
+    int getCachedSegments() {
+        return cachedSegments.get();
+    }
+
+    /**
+     * Returns the number of segments the last scans replayed.
+     *
+     * @return The segment count.
+     */
+    int getScannedSegments() {
+        return scannedSegments.get();
+    }
+
+    /**
+     * Returns the statistics of a sealed segment, from the cache or by replaying its games.
+     *
+     * @param position The position of the segment in the archive.
+     * @return The statistics of the segment.
+     * @throws UncheckedIOException If the segment cannot be read.
+     */
+    private GameStatistics segmentStatistics(int position) {
+        long firstGameId = archive.getFirstGameId(position);
+        int count = archive.getGameCount(position);
+        Path cacheFile = cacheDirectory.resolve(String.format("segment-%012d.stats", position + 1));
+
+        try {
+            GameStatistics cached = readCache(cacheFile, firstGameId, count);
+            if (cached != null) {
+                cachedSegments.incrementAndGet();
+                return cached;
+            }
+
+            Replayer replayer = new Replayer();
+            archive.visitSegment(position, replayer);
+            writeCache(cacheFile, firstGameId, count, replayer.statistics);
+            scannedSegments.incrementAndGet();
+            return replayer.statistics;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the saved statistics of a segment.
+     *
+     * @param cacheFile The file of the saved statistics.
+     * @param firstGameId The id of the first game of the segment.
+     * @param count The number of games of the segment.
+     * @return The statistics, or null if they were not saved or were saved for another segment or version.
+     */
+    private static GameStatistics readCache(Path cacheFile, long firstGameId, int count) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != CACHE_VERSION || in.readLong() != firstGameId || in.readInt() != count) {
+                return null;
+            }
+            return GameStatistics.readFrom(in);
+        } catch (IOException e) {
+            return null; // Missing or unreadable, the segment is scanned again
+        }
+    }
+
+    /**
+     * Saves the statistics of a segment. The file is written aside and then moved in place, so a scan
+     * stopped halfway never leaves a partial file behind.
+     *
+     * @param cacheFile The file of the saved statistics.
+     * @param firstGameId The id of the first game of the segment.
+     * @param count The number of games of the segment.
+     * @param statistics The statistics of the segment.
+     * @throws IOException If the file cannot be written.
+     */
+    private static void writeCache(Path cacheFile, long firstGameId, int count, GameStatistics statistics) throws IOException {
+        Path temporary = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(CACHE_VERSION);
+            out.writeLong(firstGameId);
+            out.writeInt(count);
+            statistics.writeTo(out);
+        }
+        Files.move(temporary, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Replayer replays games on one reused engine and records what happens in them. The engine notifies it
+     * of every tile played or drawn, and the game is recorded once its last move has been replayed.
+     */
+    private static class Replayer implements GameArchive.GameVisitor, GameEventListener {
+
+        private final GameStatistics statistics = new GameStatistics();
+        private final GameEngine engine = new GameEngine("Player 1", "Player 2", RulesMode.STRAIGHT, 0L, this);
+
+        // The game being replayed
+        private int turn;
+        private int draws;
+        private int openingTile;
+        private Player opener;
+
+        @Override
+        public void visit(long gameId, long seed, ByteBuffer moves, int movesStart, int movesEnd) {
+            turn = 0;
+            draws = 0;
+            opener = null;
+            engine.reset("Player 1", "Player 2", seed);
+
+            for (int i = movesStart; i < movesEnd; i++) {
+                while (!engine.isGameOver() && !engine.canPlay()) {
+                    engine.drawUntilPlayable();
+                }
+                List<Tile> hand = engine.getCurrentPlayer().getTiles();
+                int tileIndex = moves.get(i);
+                if (engine.isGameOver() || tileIndex >= hand.size() || !engine.playTile(hand.get(tileIndex))) {
+                    statistics.recordSkipped();
+                    return;
+                }
+            }
+            // The game may end with the draws and passes after the last move
+            while (!engine.isGameOver() && !engine.canPlay()) {
+                engine.drawUntilPlayable();
+            }
+            if (!engine.isGameOver() || opener == null) {
+                statistics.recordSkipped(); // Archived before it was over
+                return;
+            }
+            Player winner = engine.getWinner();
+            boolean blocked = !winner.getTiles().isEmpty();
+            statistics.recordGame(openingTile, winner == opener, blocked, draws, winner.getScore());
+        }
+
+        @Override
+        public void onDrew(Player player, Tile tile) {
+            draws++;
+        }
+
+        @Override
+        public void onPlayedLeft(Player player, Tile tile) {
+            onPlayed(player, tile);
+        }
+
+        @Override
+        public void onPlayedRight(Player player, Tile tile) {
+            onPlayed(player, tile);
+        }
+
+        /**
+         * Records a tile played on either end of the line.
+         *
+         * @param player The player who played the tile.
+         * @param tile The tile.
+         */
+        private void onPlayed(Player player, Tile tile) {
+            int kind = GameStatistics.tileKind(tile.getUpperValue(), tile.getBottomValue());
+            if (turn == 0) {
+                openingTile = kind;
+                opener = player;
+            }
+            statistics.recordPlay(turn++, kind);
+        }
+    }
+}
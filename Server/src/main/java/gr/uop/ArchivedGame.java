@@ -0,0 +1,44 @@
+package gr.uop;
+
+import gr.uop.GameEngine.GameEngine;
+
+/**
+ * ArchivedGame is a finished game read back from the {@link GameArchive}. It holds what is needed to
+ * replay the game move by move, not the game itself.
+ *
+ * @param gameId The id of the game in the archive.
+ * @param endTimeMillis The time the game ended, in milliseconds since the epoch.
+ * @param seed The seed the engine was dealt with.
+ * @param player1Name The name of Player 1.
+ * @param player2Name The name of Player 2.
+ * @param moves The moves of the game, one hand index per byte.
+ */
+record ArchivedGame(long gameId, long endTimeMillis, long seed, String player1Name, String player2Name, byte[] moves) {
+
+    /**
+     * Replays the game on a new engine.
+     *
+     * @return The engine in the state the game ended in.
+     * @throws IllegalStateException If the moves do not match the deal.
+     */
+    GameEngine replay() {
+        return JournaledGame.replay(gameId, seed, player1Name, player2Name, moves, moves.length);
+    }
+
+    /**
+     * Replays the game to its end, including the draws and passes after the last move, and settles it.
+     *
+     * @return The name of the winner.
+     * @throws IllegalStateException If the moves do not match the deal or do not lead to the end of the game.
+     */
+    String findWinner() {
+        GameEngine engine = replay();
+        while (!engine.isGameOver() && !engine.canPlay()) {
+            engine.drawUntilPlayable();
+        }
+        if (!engine.isGameOver()) {
+            throw new IllegalStateException("Game " + gameId + " was archived before its end");
+        }
+        return engine.getWinner().getName();
+    }
+}
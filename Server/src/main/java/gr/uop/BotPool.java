@@ -0,0 +1,141 @@
+package gr.uop;
+
+import gr.uop.bot.BotContext;
+import gr.uop.bot.BotPlayer;
+import gr.uop.bot.BotView;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * BotPool computes the moves of the bots, on a few low-priority platform threads of its own. The tables of
+ * human players never wait for it, and however many bots play, they share these threads: a busy pool makes
+ * the bots answer later or fall back to a simple move, it does not slow the other tables down.
+ *
+ * <p>
+ * Every move has a deadline. When it passes, the bot is told to stop through its {@link BotContext}, its
+ * thread is interrupted, and the caller gets no move. The same happens when the pool is so busy that the
+ * queue of moves is full. The CPU time of each move is measured on its thread and added to the counter of
+ * the table.
+ * </p>
+ */
+final class BotPool implements Closeable {
+
+    public static final int DEFAULT_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    private final ThreadPoolExecutor executor;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    /**
+     * Constructs a pool.
+     *
+     * @param threadCount The number of threads computing the moves.
+     * @param queueCapacity The number of moves that may wait for a thread.
+     */
+    BotPool(int threadCount, int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threadCount, threadCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "bot-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY); // Humans first
+                    return thread;
+                });
+    }
+
+    /**
+     * Asks a bot for its move and waits for it until the deadline.
+     *
+     * @param bot The bot.
+     * @param view The state of the game as the bot sees it.
+     * @param timeout The time the bot has for the move.
+     * @param cpuNanos The counter the CPU time of the move is added to.
+     * @return The index chosen by the bot, or -1 if the bot missed the deadline, failed, or the pool was full.
+     */
+    int chooseMove(BotPlayer bot, BotView view, Duration timeout, LongAdder cpuNanos) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        MoveContext context = new MoveContext(deadline);
+        Future<Integer> move;
+        try {
+            move = executor.submit(() -> {
+                long start = threadCpuNanos();
+                try {
+                    return bot.chooseMove(view, context);
+                } finally {
+                    cpuNanos.add(threadCpuNanos() - start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return -1; // Full, or closed
+        }
+
+        try {
+            return move.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } finally {
+            context.cancelled = true;
+            move.cancel(true);
+        }
+    }
+
+    /**
+     * Stops the threads of the pool; moves still running are interrupted.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the CPU time of the current thread.
+     *
+     * @return The CPU time in nanoseconds, or 0 if the JVM does not measure it.
+     */
+    private long threadCpuNanos() {
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : 0;
+    }
+
+    /**
+     * MoveContext is the deadline and cancellation of one move.
+     */
+    private static class MoveContext implements BotContext {
+
+        private final long deadlineNanos;
+        private volatile boolean cancelled; // Set by the table once it stopped waiting
+
+        /**
+         * Constructs the context of a move.
+         *
+         * @param deadlineNanos The {@code System.nanoTime()} of the deadline.
+         */
+        MoveContext(long deadlineNanos) {
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled || getRemainingNanos() <= 0;
+        }
+
+        @Override
+        public long getRemainingNanos() {
+            return deadlineNanos - System.nanoTime();
+        }
+    }
+}
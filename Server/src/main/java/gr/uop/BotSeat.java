@@ -0,0 +1,108 @@
+package gr.uop;
+
+import gr.uop.GameEngine.GameEngine;
+import gr.uop.GameEngine.Player;
+import gr.uop.GameEngine.Tile;
+import gr.uop.bot.BotPlayer;
+import gr.uop.bot.BotProvider;
+import gr.uop.bot.BotView;
+
+import gr.uop.protocol.LineWriter;
+
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * BotSeat is a bot seated at a table in place of a second human player. The table asks it for a move where
+ * it would read the line of a client, and the messages the table sends to it are discarded.
+ */
+final class BotSeat {
+
+    private final String name;
+    private final BotPlayer bot;
+    private final BotPool pool;
+    private final Duration moveTimeout;
+    private final LineWriter discarded = new LineWriter(OutputStream.nullOutputStream());
+    private final LongAdder cpuNanos = new LongAdder();
+    private int moves;
+    private int fallbacks; // Moves the bot missed, played by the seat instead
+
+    /**
+     * Seats a new bot of a provider.
+     *
+     * @param provider The provider of the bot.
+     * @param pool The pool computing the moves.
+     * @param moveTimeout The time the bot has for each move.
+     */
+    BotSeat(BotProvider provider, BotPool pool, Duration moveTimeout) {
+        this.name = provider.getName();
+        this.bot = provider.create();
+        this.pool = pool;
+        this.moveTimeout = moveTimeout;
+    }
+
+    /**
+     * Chooses the move of the bot, the current player of the engine, which has a tile that fits.
+     * If the bot misses its deadline or chooses a tile that does not fit, the first tile that fits is played.
+     *
+     * @param engine The engine of the game.
+     * @return The index of the tile in the hand.
+     */
+    int chooseMove(GameEngine engine) {
+        Player self = engine.getCurrentPlayer();
+        List<Tile> hand = self.getTiles();
+        int[] handPips = new int[2 * hand.size()];
+        for (int i = 0; i < hand.size(); i++) {
+            handPips[2 * i] = hand.get(i).getUpperValue();
+            handPips[2 * i + 1] = hand.get(i).getBottomValue();
+        }
+        Deque<Tile> board = engine.getLineOfPlay();
+        int leftEnd = board.isEmpty() ? -1 : board.getFirst().getUpperValue();
+        int rightEnd = board.isEmpty() ? -1 : board.getLast().getBottomValue();
+        BotView view = new BotView(handPips, leftEnd, rightEnd, board.size(),
+                engine.getPlayerTileCount(engine.getOpponent()), engine.getStockSize());
+
+        moves++;
+        int index = pool.chooseMove(bot, view, moveTimeout, cpuNanos);
+        if (index >= 0 && index < view.getTileCount() && view.fits(index)) {
+            return index;
+        }
+        fallbacks++;
+        for (int i = 0; i < view.getTileCount(); i++) {
+            if (view.fits(i)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the name of the bot.
+     *
+     * @return The name.
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the writer of the messages for the bot, which discards them.
+     *
+     * @return The writer.
+     */
+    LineWriter getWriter() {
+        return discarded;
+    }
+
+    /**
+     * Returns a summary of the work of the bot at its table.
+     *
+     * @return The CPU time, moves and fallbacks of the bot.
+     */
+    String describeUsage() {
+        return String.format("%s used %.2f ms of CPU for %d moves (%d fallbacks)", name, cpuNanos.sum() / 1e6, moves, fallbacks);
+    }
+}
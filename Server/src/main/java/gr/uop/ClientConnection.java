@@ -0,0 +1,200 @@
+package gr.uop;
+
+import gr.uop.protocol.LineReader;
+import gr.uop.protocol.LineWriter;
+import gr.uop.protocol.Opcode;
+import gr.uop.protocol.Transport;
+
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ClientConnection is the server side of one client connection.
+ *
+ * <p>
+ * A virtual thread reads the lines of the client as soon as they arrive. {@code PING} lines are answered
+ * at once with a {@code PONG} carrying the same number, even while the game waits for the other player,
+ * so the round-trip time seen by the client does not include the time the game thread is busy elsewhere.
+ * Every other line (a name or the index of a tile) is queued for {@link #readLine()}.
+ * </p>
+ *
+ * <p>
+ * The game thread writes with {@link #getWriter()} and the reader thread writes the answers to the pings
+ * with a writer of its own. Both only write complete lines to a stream whose writes hold a lock,
+ * so the lines of the two writers never mix. The lock is a {@link ReentrantLock}, not a monitor: a virtual
+ * thread blocked on a slow client inside a monitor would pin its carrier thread, and a few such clients
+ * would stall every table.
+ * </p>
+ */
+class ClientConnection implements PlayerConnection {
+
+    private static final int MAX_QUEUED_LINES = 16; // A client only has a line to say when asked for it
+    private static final String PING_PREFIX = Opcode.PING.name() + " ";
+    private static final String CLOSED = new String("<closed>"); // Queued when the reader stops, compared by identity
+
+    private final Transport transport;
+    private final LineReader fromClient;
+    private final LineWriter toClient;
+    private final LineWriter pongs;
+    private final BlockingQueue<String> lines = new ArrayBlockingQueue<>(MAX_QUEUED_LINES);
+    private final CompletableFuture<Void> ended = new CompletableFuture<>(); // Completed when the reader stops
+    private volatile IOException failure;
+    private volatile boolean closed; // Set when the reader stops
+
+    /**
+     * Wraps an accepted connection and starts reading from it.
+     *
+     * @param transport The connection of the client: a TCP or local socket, or shared memory.
+     * @param fromClient The reader of the connection, which already read the name of the client.
+     * @throws IOException If the streams of the connection cannot be opened.
+     */
+    ClientConnection(Transport transport, LineReader fromClient) throws IOException {
+        this.transport = transport;
+        this.fromClient = fromClient;
+        OutputStream out = new LockedOutputStream(transport.getOutputStream());
+        this.toClient = new LineWriter(out); // Buffered, flushed before every wait
+        this.pongs = new LineWriter(out, true);
+        Thread.ofVirtual().name("client-reader").start(this::readLoop);
+    }
+
+    /**
+     * Returns the writer of the game messages for this client.
+     *
+     * @return The writer, to be used by the game thread only.
+     */
+    @Override
+    public LineWriter getWriter() {
+        return toClient;
+    }
+
+    /**
+     * Waits for the next line sent by the client, other than a ping.
+     *
+     * @return The line sent by the client.
+     * @throws IOException If the client disconnected or sent a line longer than allowed.
+     */
+    @Override
+    public String readLine() throws IOException {
+        String line;
+        try {
+            line = lines.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the client", e);
+        }
+        if (line == CLOSED) {
+            lines.offer(CLOSED); // Every later read fails the same way
+            IOException cause = failure;
+            throw cause != null ? cause : new EOFException("Player disconnected");
+        }
+        return line;
+    }
+
+    /**
+     * Checks whether the client is gone: the connection was closed or the reader reached its end.
+     *
+     * @return true if no more lines will come from the client.
+     */
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes the connection, which also stops the reader thread.
+     */
+    @Override
+    public void close() {
+        try {
+            transport.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+
+    @Override
+    public void whenClosed(Runnable action) {
+        ended.thenRun(action);
+    }
+
+    /**
+     * Reads the lines of the client until the connection closes, answering the pings and queueing the rest.
+     * A client that left has its connection closed at once, without waiting for its table.
+     */
+    private void readLoop() {
+        try {
+            String line;
+            while ((line = fromClient.readLine()) != null) {
+                if (line.startsWith(PING_PREFIX)) {
+                    pongs.send(Opcode.PONG, line.substring(PING_PREFIX.length()));
+                } else {
+                    lines.put(line);
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closed = true;
+            while (!lines.offer(CLOSED)) {
+                lines.poll(); // The client is gone, its unread lines no longer matter
+            }
+            close();
+            ended.complete(null);
+        }
+    }
+
+    /**
+     * LockedOutputStream lets the game writer and the pong writer share the socket stream.
+     */
+    private static class LockedOutputStream extends FilterOutputStream {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * Constructs a stream writing to the given stream.
+         *
+         * @param out The socket stream.
+         */
+        LockedOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            lock.lock();
+            try {
+                out.write(b);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            lock.lock();
+            try {
+                out.write(b, off, len);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            lock.lock();
+            try {
+                out.flush();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package gr.uop;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
 import gr.uop.GameEngine.GameEngine;
 import gr.uop.GameEngine.Player;
+import gr.uop.GameEngine.RulesMode;
+import gr.uop.GameEngine.SpinnerBoard;
 import gr.uop.GameEngine.Tile;
 
 /**
@@ -11,12 +16,23 @@ import gr.uop.GameEngine.Tile;
  */
 public class CommandLineGame {
 
+    private static final String[] END_NAMES = {"LEFT", "RIGHT", "UP", "DOWN"}; // Indexed by the SpinnerBoard ends
+
     /**
      * Main method that starts the command-line game.
      * 
-     * @param args Command-line arguments (not used).
+     * @param args Command-line arguments. An optional first argument names the {@link RulesMode} (STRAIGHT by default).
      */
     public static void main(String[] args) {
+        RulesMode rulesMode = RulesMode.STRAIGHT;
+        if (args.length > 0) {
+            try {
+                rulesMode = RulesMode.valueOf(args[0].toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Unknown rules mode " + args[0] + "; the modes are " + Arrays.toString(RulesMode.values()) + ".");
+                return;
+            }
+        }
         Scanner scanner = new Scanner(System.in);
 
         // Get player names
@@ -27,14 +43,19 @@ public class CommandLineGame {
         String player2Name = scanner.nextLine();
 
         // Initialize the game engine with player names
-        GameEngine gameEngine = new GameEngine(player1Name, player2Name);
+        GameEngine gameEngine = new GameEngine(player1Name, player2Name, rulesMode);
 
         // Main game loop
         while (!gameEngine.isGameOver()) {
             Player currentPlayer = gameEngine.getCurrentPlayer();
             System.out.println("Current player: " + currentPlayer.getName());
             System.out.println("Your tiles: " + currentPlayer.getTiles());
-            System.out.println("Line of play: " + gameEngine.getLineOfPlay());
+            if (gameEngine.getSpinnerBoard() != null) {
+                System.out.println("Board: " + gameEngine.getSpinnerBoard());
+                System.out.println("Score: " + currentPlayer.getScore());
+            } else {
+                System.out.println("Line of play: " + gameEngine.getLineOfPlay());
+            }
 
             // Check if current player can play
             if (!gameEngine.canPlay()) {
@@ -63,8 +84,31 @@ public class CommandLineGame {
             // Get the chosen tile
             Tile chosenTile = currentPlayer.getTiles().get(index);
 
+            // A tile that fits several ends is played on the end the player chooses, which decides the points in All Fives
+            List<Integer> ends = new ArrayList<>();
+            if (!gameEngine.getLineOfPlay().isEmpty()) {
+                for (int end = SpinnerBoard.LEFT; end <= SpinnerBoard.DOWN; end++) {
+                    if (gameEngine.fitsEnd(chosenTile, end)) {
+                        ends.add(end);
+                    }
+                }
+            }
+            int chosenEnd = -1;
+            if (ends.size() > 1) {
+                List<String> names = new ArrayList<>();
+                for (int end : ends) {
+                    names.add(END_NAMES[end]);
+                }
+                System.out.println("Choose an end " + names + ": ");
+                chosenEnd = Arrays.asList(END_NAMES).indexOf(scanner.nextLine().trim().toUpperCase());
+                if (!ends.contains(chosenEnd)) {
+                    System.out.println("Invalid end. Try again.");
+                    continue;
+                }
+            }
+
             // Attempt to play the chosen tile
-            if (gameEngine.playTile(chosenTile)) {
+            if (chosenEnd >= 0 ? gameEngine.playTile(chosenTile, chosenEnd) : gameEngine.playTile(chosenTile)) {
                 System.out.println("Played tile: " + chosenTile);
             } else {
                 System.out.println("Tile does not fit. Try again.");
@@ -1,23 +1,132 @@
 package gr.uop;
 
 import gr.uop.GameEngine.GameEngine;
+import gr.uop.GameEngine.GameEnginePool;
 import gr.uop.GameEngine.Player;
-import gr.uop.GameEngine.Tile;
+import gr.uop.GameEngine.RulesMode;
+import gr.uop.bot.BotProvider;
 
+import gr.uop.protocol.LineReader;
+import gr.uop.protocol.LineWriter;
+import gr.uop.protocol.Opcode;
+import gr.uop.protocol.ProtocolException;
+import gr.uop.protocol.SharedMemoryTransport;
+import gr.uop.protocol.Transport;
+
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.Scanner;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * The DominoServer class manages a networked domino game between two players.
- * It waits for player connections, handles the game flow, and communicates game state and moves to the clients.
+ * The DominoServer class manages networked domino games between pairs of players.
+ * It accepts player connections, pairs the players by rating, handles the flow of each game at a table of its own,
+ * and communicates game state and moves to the clients. A player nobody is found for within the bot wait
+ * plays a bot hosted by the server instead.
  */
 public class DominoServer {
 
     private static final int PORT = 7777; // The port the server listens on for client connections
-    private GameEngine gameEngine;
+    private static final int MAX_INPUT_LENGTH = 256; // Longest line accepted from a client (names and tile indexes)
+    private static final String PING_PREFIX = Opcode.PING.name() + " ";
+    private static final String SHARED_MEMORY_PREFIX = Opcode.SHARED_MEMORY.name() + " ";
+    private static final String LOCAL_SOCKET = System.getProperty("domino.local.socket", "domino.sock"); // Unix domain socket for local clients, on by default in the working directory; empty for none
+    private static final SharedMemoryTransport.WaitStrategy SHARED_MEMORY_WAIT = SharedMemoryTransport.WaitStrategy.valueOf(System.getProperty("domino.shm.wait", "PARK"));
+    private static final int MAX_CHANNELS = Integer.getInteger("domino.mux.maxChannels", 1024); // Games carried by one multiplexed connection
+    private static final GameEnginePool ENGINE_POOL = new GameEnginePool(RulesMode.STRAIGHT, 64); // Engines reused by back-to-back games
+    private static final Path JOURNAL_DIRECTORY = Path.of(System.getProperty("domino.journal.dir", "journal")); // Moves of the games in progress
+    private static final Path ARCHIVE_DIRECTORY = Path.of(System.getProperty("domino.archive.dir", "archive")); // Finished games
+    private static final Path RATINGS_DIRECTORY = Path.of(System.getProperty("domino.ratings.dir", "ratings")); // Elo ratings of the players
+    private static final int LEADERBOARD_SIZE = Integer.getInteger("domino.leaderboard.size", 10); // Best players shown at start, 0 for none
+    private static final Duration JOURNAL_COMMIT_INTERVAL = Duration.ofMillis(Long.getLong("domino.journal.commitMillis", MoveJournal.DEFAULT_COMMIT_INTERVAL.toMillis()));
+    private static final String BOT_NAME = System.getProperty("domino.bot"); // Name of the bot provider, null for the first one found
+    private static final long BOT_WAIT_MILLIS = Long.getLong("domino.bot.waitMillis", 10_000); // Wait for a human opponent, negative for no bots
+    private static final Duration BOT_MOVE_TIMEOUT = Duration.ofMillis(Long.getLong("domino.bot.moveMillis", 100)); // Time a bot has for each move
+    private static final int BOT_THREADS = Integer.getInteger("domino.bot.threads", BotPool.DEFAULT_THREADS);
+    private static final int ACCEPT_BACKLOG = 128; // Connections the system holds until they are accepted
+    private static final int MAX_CONNECTIONS = Integer.getInteger("domino.admission.maxConnections", AdmissionController.DEFAULT_MAX_CONNECTIONS);
+    private static final int MAX_WAITING = Integer.getInteger("domino.admission.maxWaiting", AdmissionController.DEFAULT_MAX_WAITING); // Logins in progress and players waiting for a session
+    private static final int MAX_SESSIONS = Integer.getInteger("domino.admission.maxSessions", AdmissionController.DEFAULT_MAX_SESSIONS); // Players logged in at once, at most
+    private static final double CONNECTIONS_PER_SECOND = Double.parseDouble(System.getProperty("domino.admission.connectionsPerSecond", String.valueOf(AdmissionController.DEFAULT_CONNECTIONS_PER_SECOND))); // From one address
+    private static final Duration TURN_TARGET = Duration.ofMillis(Long.getLong("domino.admission.turnMillis", AdmissionController.DEFAULT_TURN_TARGET.toMillis())); // Turn latency the session limit adapts to
+    private static final Duration RETRY_AFTER = Duration.ofMillis(Long.getLong("domino.admission.retryMillis", AdmissionController.DEFAULT_RETRY_AFTER.toMillis()));
+    private static final Duration SESSION_WAIT = Duration.ofMillis(Long.getLong("domino.admission.waitMillis", 5_000)); // Wait for a session before being refused
+
+    private MoveJournal journal; // Shared by all the tables
+    private GameArchive archive;
+    private RatingService ratings;
+    private Matchmaker<Seat> matchmaker;
+    private BotProvider botProvider; // Null if the server hosts no bots
+    private BotPool botPool;
+    private AdmissionController admission;
+    private final List<JournaledGame> recoveredGames = new ArrayList<>(); // Interrupted games, guarded by itself
+    private final Map<String, Seat> rejoining = new HashMap<>(); // Players back for an interrupted game, guarded by recoveredGames
+    private final ReentrantLock archiving = new ReentrantLock(); // Ends, archives and rates the games one at a time, in archive order
+
+    /**
+     * Seat is a logged-in player, or a bot hosted by the server.
+     *
+     * @param connection The connection or channel of the player, null for a bot.
+     * @param name The name of the player.
+     * @param bot The bot, null for a player.
+     */
+    private record Seat(PlayerConnection connection, String name, BotSeat bot) {
+
+        /**
+         * Returns the writer of the messages for the player.
+         *
+         * @return The writer.
+         */
+        LineWriter writer() {
+            return bot != null ? bot.getWriter() : connection.getWriter();
+        }
+
+        /**
+         * Reads the move of the player, who is the current player of the engine.
+         *
+         * @param engine The engine of the game.
+         * @return The line sent by the player, or the index chosen by the bot.
+         * @throws IOException If the player left.
+         */
+        String readMove(GameEngine engine) throws IOException {
+            return bot != null ? String.valueOf(bot.chooseMove(engine)) : connection.readLine();
+        }
+
+        /**
+         * Checks whether the player left. A bot never leaves.
+         *
+         * @return true if the connection of the player is closed.
+         */
+        boolean isClosed() {
+            return bot == null && connection.isClosed();
+        }
+
+        /**
+         * Closes the connection of the player.
+         */
+        void close() {
+            if (connection != null) {
+                connection.close();
+            }
+        }
+    }
 
     /**
      * The main method to start the server.
@@ -29,133 +138,454 @@ public class DominoServer {
     }
 
     /**
-     * Starts the Domino game server, waits for player connections, and handles the game logic and communication.
+     * Starts the Domino game server: accepts the players, pairs them by rating and plays their games,
+     * each game at a table of its own, until the server is stopped.
      */
     public void startServer() {
-        try (ServerSocket serverSocket = new ServerSocket(PORT)) {
-            System.out.println("Domino Server is running on port " + PORT);
+        botProvider = findBotProvider();
+        Duration botWait = botProvider != null && BOT_WAIT_MILLIS >= 0 ? Duration.ofMillis(BOT_WAIT_MILLIS) : null;
+        try (ServerSocket serverSocket = new ServerSocket(PORT, ACCEPT_BACKLOG);
+                MoveJournal journal = MoveJournal.open(JOURNAL_DIRECTORY, MoveJournal.DEFAULT_SEGMENT_BYTES, JOURNAL_COMMIT_INTERVAL, recoveredGames);
+                GameArchive archive = GameArchive.open(ARCHIVE_DIRECTORY, GameArchive.DEFAULT_GAMES_PER_SEGMENT);
+                RatingService ratings = RatingService.open(RATINGS_DIRECTORY);
+                BotPool botPool = new BotPool(BOT_THREADS, BotPool.DEFAULT_QUEUE_CAPACITY);
+                AdmissionController admission = new AdmissionController(MAX_CONNECTIONS, MAX_WAITING, MAX_SESSIONS,
+                        CONNECTIONS_PER_SECOND, TURN_TARGET, RETRY_AFTER);
+                Matchmaker<Seat> matchmaker = new Matchmaker<>(Matchmaker.DEFAULT_TICK_INTERVAL, Matchmaker.DEFAULT_INITIAL_GAP,
+                        Matchmaker.DEFAULT_GAP_PER_SECOND, botWait, seat -> !seat.isClosed(), new Matchmaker.PairingListener<>() {
 
-            // Initialize Player 1
-            System.out.println("Waiting for Player 1 to connect...");
-            Socket player1Socket = serverSocket.accept();
-            System.out.println("Player 1 connected.");
-            Scanner fromPlayer1 = new Scanner(player1Socket.getInputStream());
-            PrintWriter toPlayer1 = new PrintWriter(player1Socket.getOutputStream(), true);
-            toPlayer1.println("WAIT_CONNECT");
-
-            // Initialize Player 2
-            System.out.println("Waiting for Player 2 to connect...");
-            Socket player2Socket = serverSocket.accept();
-            System.out.println("Player 2 connected.");
-            toPlayer1.println("CONNECTED");
-            Scanner fromPlayer2 = new Scanner(player2Socket.getInputStream());
-            PrintWriter toPlayer2 = new PrintWriter(player2Socket.getOutputStream(), true);
-            toPlayer2.println("WAIT_PLAYER1_NAME");
-
-            // Get player names from the clients
-            toPlayer1.println("NAME_REQUEST");
-            String player1Name = fromPlayer1.nextLine();
-            toPlayer1.println("WAIT_PLAYER2_NAME");
-            toPlayer2.println("NAME_REQUEST");
-            String player2Name = fromPlayer2.nextLine();
-
-            // Initialize GameEngine with player names
-            gameEngine = new GameEngine(player1Name, player2Name);
-            Player player1 = gameEngine.getPlayer1();
+                            @Override
+                            public void onPaired(Seat first, Seat second) {
+                                startTable(first, second, null);
+                            }
 
-            // Send initialization completion messages to clients
-            toPlayer1.println("END_INIT " + player2Name);
-            toPlayer2.println("END_INIT " + player1Name);
-
-            // Main game loop
-            boolean gameOver = false;
-            while (!gameOver) {
-                Player currentPlayer = gameEngine.getCurrentPlayer();
-                Player opponent = gameEngine.getOpponent();
-                Scanner fromCurrentPlayer = (currentPlayer == player1) ? fromPlayer1 : fromPlayer2;
-                PrintWriter toCurrentPlayer = (currentPlayer == player1) ? toPlayer1 : toPlayer2;
-                PrintWriter toOpponent = (currentPlayer == player1) ? toPlayer2 : toPlayer1;
-
-                // Communicate game state to the players
-                toCurrentPlayer.println("OPPONENT_TILE_SIZE " + gameEngine.getPlayerTileCount(opponent));
-                toCurrentPlayer.println("TURN");
-                toCurrentPlayer.println("STOCK_SIZE " + gameEngine.getStockSize());
-                toCurrentPlayer.println("TILES " + currentPlayer.getTiles());
-                toCurrentPlayer.println("BOARD " + gameEngine.getLineOfPlay());
-
-                toOpponent.println("OPPONENT_TILE_SIZE " + gameEngine.getPlayerTileCount(currentPlayer));
-                toOpponent.println("STOCK_SIZE " + gameEngine.getStockSize());
-                toOpponent.println("TILES " + opponent.getTiles());
-                toOpponent.println("BOARD " + gameEngine.getLineOfPlay());
-                toOpponent.println("WAIT_OPPONENT_MOVE");
-
-                boolean validMove = false;
-
-                // Handle player move or draw from stock
-                while (!validMove && !gameEngine.isGameOver()) {
-                    if (!gameEngine.canPlay()) {
-                        // Automatically draw if no moves are possible
-                        toCurrentPlayer.println("NO_AVAILABLE_MOVES");
-                        while (!validMove && gameEngine.drawTile()) {
-                            Tile drawnTile = currentPlayer.getTiles().get(currentPlayer.getTiles().size() - 1);
-                            toCurrentPlayer.println("DRAW " + drawnTile);
-                            toOpponent.println("OPPONENT_DRAW");
-
-                            validMove = gameEngine.playTile(drawnTile);
-                            if (validMove) {
-                                toCurrentPlayer.println("PLAYED " + drawnTile);
-                                toOpponent.println("OPP_PLAYED " + drawnTile);
+                            @Override
+                            public void onWaitedTooLong(Seat seat) {
+                                startTable(seat, newBotSeat(), null);
                             }
-                        }
+                        })) {
+            this.journal = journal;
+            this.archive = archive;
+            this.ratings = ratings;
+            this.botPool = botPool;
+            this.admission = admission;
+            this.matchmaker = matchmaker;
+            System.out.println("Domino Server is running on port " + PORT);
+            if (botWait != null) {
+                System.out.println("Players alone for " + BOT_WAIT_MILLIS + " ms play " + botProvider.getName() + ".");
+            }
+            archiveLastEndedGame(journal, archive);
+            int missedGames = ratings.catchUp(archive);
+            if (missedGames > 0) {
+                System.out.println("Rated " + missedGames + " archived game(s) the ratings had missed.");
+            }
+            printLeaderboard(ratings);
+            if (!recoveredGames.isEmpty()) {
+                System.out.println("Recovered " + recoveredGames.size() + " game(s) in progress from the journal.");
+            }
 
-                        if (!validMove) { // No valid moves and no tiles to draw from stock
-                            toCurrentPlayer.println("PASS");
-                            toOpponent.println("OPP_PASS");
-                            gameEngine.passTurn();
-                            break;
-                        }
+            listenLocally();
+
+            // Each player logs in on a thread of its own, so a slow client never holds up the others
+            while (true) {
+                Socket socket = serverSocket.accept();
+                accept(Transport.of(socket), socket.getInetAddress(), false);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Prints the best players of the ratings, with their rank, rating and record.
+     *
+     * @param ratings The ratings of the players.
+     */
+    private static void printLeaderboard(RatingService ratings) {
+        if (LEADERBOARD_SIZE <= 0 || ratings.getPlayerCount() == 0) {
+            return;
+        }
+        List<RatingService.Rating> top = ratings.top(LEADERBOARD_SIZE);
+        System.out.println("Top " + top.size() + " of " + ratings.getPlayerCount() + " rated players:");
+        for (RatingService.Rating rating : top) {
+            System.out.printf("%4d. %s: rating %.0f, %d win(s) in %d game(s)%n", rating.rank(), rating.name(), rating.rating(), rating.wins(), rating.games());
+        }
+    }
+
+    /**
+     * Archives the last game ended in the journal if a crash came between its end and its archiving, then lets
+     * the journal forget it. The game is archived under the id its end holds, so it is never archived twice.
+     *
+     * @param journal The journal, just opened.
+     * @param archive The archive, just opened.
+     * @throws IOException If the game cannot be archived.
+     */
+    static void archiveLastEndedGame(MoveJournal journal, GameArchive archive) throws IOException {
+        JournaledGame game = journal.getLastEndedGame();
+        if (game == null) {
+            return;
+        }
+        if (game.getArchiveId() > archive.getGameCount()) {
+            archive.append(game, System.currentTimeMillis());
+            System.out.println("Archived game " + game.getGameId() + ", which ended just before the server stopped.");
+        }
+        journal.release(game);
+    }
+
+    /**
+     * Listens for clients of the same host on the Unix domain socket named by the {@code domino.local.socket}
+     * property, if any. These clients skip the TCP stack, and may switch to shared memory when they log in.
+     * The server runs without the local socket if it cannot be bound, if another server answers on it or if the
+     * path is not a socket file; a socket file nobody answers on was left by a server that did not stop, and is replaced.
+     */
+    private void listenLocally() {
+        if (LOCAL_SOCKET.isEmpty()) {
+            return;
+        }
+        try {
+            Path path = Path.of(LOCAL_SOCKET);
+            if (Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+                if (!Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther()) {
+                    System.out.println("Local clients must use TCP, " + path.toAbsolutePath() + " is not a socket file");
+                    return; // A misconfigured property must never cost a file of the user
+                }
+                try {
+                    SocketChannel.open(UnixDomainSocketAddress.of(path)).close();
+                    System.out.println("Local clients must use TCP, another server listens on " + path.toAbsolutePath());
+                    return;
+                } catch (IOException e) {
+                    Files.delete(path); // Nobody answers: left behind by a server that did not stop cleanly
+                }
+            }
+            ServerSocketChannel localSocket = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            localSocket.bind(UnixDomainSocketAddress.of(path));
+            System.out.println("Local clients can connect to " + path.toAbsolutePath());
+            Thread.ofVirtual().name("local-accept").start(() -> {
+                try (localSocket) {
+                    while (true) {
+                        SocketChannel channel = localSocket.accept();
+                        accept(Transport.of(channel), null, true);
+                    }
+                } catch (IOException e) {
+                    System.out.println("The local socket stopped: " + e.getMessage());
+                }
+            });
+        } catch (IOException | UnsupportedOperationException e) {
+            System.out.println("Local clients must use TCP, the local socket is unavailable: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Starts the login of a new connection on a thread of its own, unless the admission controller refuses it.
+     *
+     * @param transport The connection.
+     * @param source The address it comes from, or null for the local socket.
+     * @param local true if the connection is the local socket.
+     */
+    private void accept(Transport transport, InetAddress source, boolean local) {
+        long retryAfter = admission.tryConnect(source);
+        if (retryAfter != AdmissionController.ADMITTED) {
+            refuse(transport, retryAfter);
+            return;
+        }
+        Transport tracked = admission.track(transport);
+        Thread.ofVirtual().name("login").start(() -> login(tracked, local));
+    }
+
+    /**
+     * Refuses a new connection: tells the client when to retry, then closes it. The line fits in the empty
+     * send buffer of the connection, so the accepting thread does not wait for the client.
+     *
+     * @param transport The connection.
+     * @param retryAfter The milliseconds after which the client may retry.
+     */
+    private static void refuse(Transport transport, long retryAfter) {
+        try (transport) {
+            new LineWriter(transport.getOutputStream(), true).send(Opcode.SERVER_BUSY, (int) Math.min(Integer.MAX_VALUE, retryAfter));
+        } catch (IOException e) {
+            // Gone already
+        }
+    }
+
+    /**
+     * Refuses a logged-in player, or a channel: tells the client when to retry, then closes the connection
+     * or the channel.
+     *
+     * @param connection The connection or channel of the player.
+     * @param retryAfter The milliseconds after which the client may retry.
+     */
+    private static void refuse(PlayerConnection connection, long retryAfter) {
+        LineWriter toPlayer = connection.getWriter();
+        toPlayer.send(Opcode.SERVER_BUSY, (int) Math.min(Integer.MAX_VALUE, retryAfter));
+        toPlayer.flush();
+        connection.close();
+    }
+
+    /**
+     * Finds the bot provider to seat: the one named by the {@code domino.bot} property, or else the first one
+     * found by the service loader.
+     *
+     * @return The provider, or null if there is none.
+     */
+    private static BotProvider findBotProvider() {
+        for (BotProvider provider : ServiceLoader.load(BotProvider.class)) {
+            if (BOT_NAME == null || BOT_NAME.equals(provider.getName())) {
+                return provider;
+            }
+        }
+        if (BOT_NAME != null) {
+            System.out.println("No bot named " + BOT_NAME + " was found; the players wait for human opponents.");
+        }
+        return null;
+    }
+
+    /**
+     * Seats a new bot.
+     *
+     * @return The seat of the bot.
+     */
+    private Seat newBotSeat() {
+        return new Seat(null, botProvider.getName(), new BotSeat(botProvider, botPool, BOT_MOVE_TIMEOUT));
+    }
+
+    /**
+     * Logs a player in: asks for their name, then admits them. A client that answers with
+     * {@link Opcode#MULTIPLEX} instead of a name carries many players on its connection, each of them
+     * logged in when the client opens a channel. A local client may answer with {@link Opcode#SHARED_MEMORY}
+     * instead, and logs in again over the shared memory file it names.
+     *
+     * @param transport The connection of the player.
+     * @param local true if the connection is the local socket.
+     */
+    private void login(Transport transport, boolean local) {
+        boolean waiting = true; // Holds a place among the arrivals waiting for admission
+        try {
+            LineReader fromClient = new LineReader(transport.getInputStream(), MAX_INPUT_LENGTH + MultiplexedConnection.MAX_CHANNEL_PREFIX);
+            LineWriter handshake = new LineWriter(transport.getOutputStream(), true);
+            handshake.send(Opcode.NAME_REQUEST);
+            String line = fromClient.readLine();
+            while (line != null && line.startsWith(PING_PREFIX)) { // Answered until the client says who it is
+                handshake.send(Opcode.PONG, line.substring(PING_PREFIX.length()));
+                line = fromClient.readLine();
+            }
+            if (line == null) {
+                throw new EOFException("Disconnected");
+            } else if (line.length() > MAX_INPUT_LENGTH) {
+                throw new ProtocolException("Line longer than " + MAX_INPUT_LENGTH + " bytes");
+            }
+
+            if (local && line.startsWith(SHARED_MEMORY_PREFIX)) { // The login starts over, still waiting for admission
+                SharedMemoryTransport sharedMemory = SharedMemoryTransport.open(Path.of(line.substring(SHARED_MEMORY_PREFIX.length())), SHARED_MEMORY_WAIT);
+                sharedMemory.unlink(); // Both sides mapped it
+                login(sharedMemory.watch(transport, fromClient), false);
+            } else if (line.equals(Opcode.MULTIPLEX.name())) {
+                handshake.send(Opcode.MULTIPLEX);
+                admission.leaveWaiting(); // The channels wait for admission one by one
+                waiting = false;
+                new MultiplexedConnection(transport, fromClient, MAX_INPUT_LENGTH, MAX_CHANNELS, (channel, name) -> {
+                    long retryAfter = admission.tryWait();
+                    if (retryAfter != AdmissionController.ADMITTED) {
+                        refuse(channel, retryAfter);
                     } else {
-                        // Player plays a tile
-                        toCurrentPlayer.println("INDEX");
-                        String input = fromCurrentPlayer.nextLine();
-
-                        try {
-                            int tileIndex = Integer.parseInt(input);
-                            Tile chosenTile = currentPlayer.getTiles().get(tileIndex);
-
-                            validMove = gameEngine.playTile(chosenTile);
-                            if (validMove) {
-                                toCurrentPlayer.println("PLAYED " + chosenTile);
-                                toOpponent.println("OPP_PLAYED " + chosenTile);
-                            } else {
-                                toCurrentPlayer.println("INVALID_MOVE");
-                            }
-                        } catch (NumberFormatException | IndexOutOfBoundsException e) {
-                            toCurrentPlayer.println("INVALID_INPUT");
-                        }
+                        Thread.ofVirtual().name("login").start(() -> admit(new Seat(channel, name, null)));
                     }
+                });
+            } else {
+                admit(new Seat(new ClientConnection(transport, fromClient), line, null));
+            }
+        } catch (IOException e) {
+            System.out.println("A player left before logging in: " + e.getMessage());
+            if (waiting) {
+                admission.leaveWaiting();
+            }
+            try {
+                transport.close();
+            } catch (IOException closeFailure) {
+                // Nothing left to release
+            }
+        }
+    }
+
+    /**
+     * Admits a logged-in player once the admission controller lets them in: seats them back at the game they
+     * were playing when it was interrupted, or sends them to the matchmaker with their rating. A player kept
+     * waiting too long is told to retry later.
+     *
+     * @param seat The player.
+     */
+    private void admit(Seat seat) {
+        long retryAfter;
+        try {
+            retryAfter = admission.awaitSession(SESSION_WAIT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            seat.close();
+            return;
+        }
+        if (retryAfter != AdmissionController.ADMITTED) {
+            System.out.println(seat.name() + " was refused: " + admission.describe() + ".");
+            refuse(seat.connection(), retryAfter);
+            return;
+        }
+        seat.connection().whenClosed(admission::endSession);
+
+        LineWriter toPlayer = seat.writer(); // Buffered, flushed before every wait
+        toPlayer.send(Opcode.WAIT_CONNECT);
+        toPlayer.flush();
+        System.out.println(seat.name() + " connected.");
+
+        if (!rejoin(seat)) {
+            RatingService.Rating rating = ratings.getRating(seat.name());
+            matchmaker.enqueue(seat, rating == null ? RatingService.INITIAL_RATING : rating.rating());
+        }
+    }
+
+    /**
+     * Seats a player back at an interrupted game. The game resumes once both of its players are back; a game
+     * against a bot resumes at once, with a new bot.
+     *
+     * @param seat The player.
+     * @return true if the player has an interrupted game, false if the player must be matched.
+     */
+    private boolean rejoin(Seat seat) {
+        JournaledGame interrupted = null;
+        Seat opponent;
+        synchronized (recoveredGames) {
+            for (JournaledGame game : recoveredGames) {
+                if (game.getPlayer1Name().equals(seat.name()) || game.getPlayer2Name().equals(seat.name())) {
+                    interrupted = game;
+                    break;
                 }
+            }
+            if (interrupted == null) {
+                return false;
+            }
+            String opponentName = interrupted.getPlayer1Name().equals(seat.name()) ? interrupted.getPlayer2Name() : interrupted.getPlayer1Name();
+            opponent = botProvider != null && opponentName.equals(botProvider.getName()) ? newBotSeat() : rejoining.remove(opponentName);
+            if (opponent == null || opponent.isClosed()) {
+                rejoining.put(seat.name(), seat); // Waits for the opponent
+                return true;
+            }
+            recoveredGames.remove(interrupted);
+        }
+        startTable(seat, opponent, interrupted);
+        return true;
+    }
+
+    /**
+     * Starts a game between two players on a thread of its own.
+     *
+     * @param first One player.
+     * @param second The other player.
+     * @param recovered The interrupted game they resume, or null for a new game.
+     */
+    private void startTable(Seat first, Seat second, JournaledGame recovered) {
+        Thread.ofVirtual().name("table").start(() -> playGame(first, second, recovered));
+    }
+
+    /**
+     * Plays a game between two players, then closes their connections. If a player leaves before the end,
+     * the game is kept so that it resumes when both players are back. The flow of the game is run by a
+     * {@link GameSession}; this table reads the moves, logs them and flushes the messages.
+     *
+     * @param first One player.
+     * @param second The other player.
+     * @param recovered The interrupted game they resume, or null for a new game.
+     */
+    private void playGame(Seat first, Seat second, JournaledGame recovered) {
+        if (recovered != null && !recovered.getPlayer1Name().equals(first.name())) {
+            // Player 1 of the game is the second player to come back
+            Seat seat = first;
+            first = second;
+            second = seat;
+        }
+        Seat player1Seat = first;
+        Seat player2Seat = second;
+        LineWriter toPlayer1 = player1Seat.writer();
+        LineWriter toPlayer2 = player2Seat.writer();
+        String player1Name = first.name();
+        String player2Name = second.name();
+        GameEngine gameEngine = null;
+        JournaledGame game = recovered;
+        GameSession session = new GameSession(SessionOutput.of(toPlayer1), SessionOutput.of(toPlayer2));
+
+        try {
+            toPlayer1.send(Opcode.CONNECTED);
+            toPlayer2.send(Opcode.CONNECTED);
 
-                // Handle game over condition
-                if (gameEngine.isGameOver()) {
-                    gameOver = true;
-                    Player winner = gameEngine.getWinner();
-                    Player notWinner = gameEngine.getOpponent(winner);
+            // Initialize GameEngine with player names. The session tells the clients what happened on each move.
+            if (recovered != null) {
+                gameEngine = recovered.replay();
+                gameEngine.addListener(session);
+                System.out.println("Resuming game " + game.getGameId() + " after " + game.getMoveCount() + " moves.");
+            } else {
+                long seed = ThreadLocalRandom.current().nextLong(); // Logged, so the deal can be replayed
+                gameEngine = ENGINE_POOL.acquire(player1Name, player2Name, seed, session);
+                game = journal.startGame(seed, player1Name, player2Name);
+                System.out.println(player1Name + " and " + player2Name + " are playing game " + game.getGameId() + ".");
+            }
+            Player player1 = gameEngine.getPlayer1();
+            session.start(gameEngine);
+            long moveReadAt = 0; // When the last move was read, to measure the turn latency
 
-                    toCurrentPlayer.println("GAME_OVER " + winner.getName());
-                    toCurrentPlayer.println("SCORE " + currentPlayer.getScore());
+            // Main game loop: flush what the session sent, then read the move it waits for
+            while (true) {
+                if (session.isOver()) {
+                    Player winner = session.getWinner();
+                    archiving.lock(); // The ratings take the games in archive order, or they skip the earlier ones
+                    try { // A lock, not a monitor: a virtual thread waiting for the disk in a monitor pins its carrier
+                        // Ended in the journal first, with the id the archive is about to give it: after a crash in
+                        // between, the restart finds the id missing from the archive and archives the game once
+                        long archiveId = archive.getGameCount() + 1;
+                        journal.awaitDurable(journal.endGame(game, archiveId));
+                        archive.append(game, System.currentTimeMillis());
+                        ratings.recordGame(archiveId, winner.getName(), gameEngine.getOpponent(winner).getName());
+                    } finally {
+                        archiving.unlock();
+                    }
+                    journal.release(game);
+                    for (String name : new String[] {player1Name, player2Name}) { // Both known to the ratings now
+                        RatingService.Rating rating = ratings.getRating(name);
+                        System.out.printf("%s: rating %.0f, rank %d of %d%n", name, rating.rating(), rating.rank(), ratings.getPlayerCount());
+                    }
+                    for (Seat seat : new Seat[] {player1Seat, player2Seat}) {
+                        if (seat.bot() != null) {
+                            System.out.println(seat.bot().describeUsage());
+                        }
+                    }
+                    toPlayer1.flush();
+                    toPlayer2.flush();
+                    break;
+                }
+                toPlayer1.flush();
+                toPlayer2.flush(); // Everything must be sent before waiting for the answer
+                if (moveReadAt != 0) {
+                    admission.recordTurn(System.nanoTime() - moveReadAt);
+                }
 
-                    toOpponent.println("GAME_OVER " + winner.getName());
-                    toOpponent.println("SCORE " + notWinner.getScore());
+                Seat fromCurrentPlayer = (gameEngine.getCurrentPlayer() == player1) ? player1Seat : player2Seat;
+                String move = fromCurrentPlayer.readMove(gameEngine);
+                moveReadAt = System.nanoTime();
+                if (session.receive(move)) {
+                    // The players only hear about a move once it is on disk, so a restart never forgets a move they saw
+                    journal.awaitDurable(journal.appendMove(game, session.getLastMove()));
                 }
             }
 
-            // Close player connections after game ends
-            System.out.println("Game has ended. Closing connections.");
-            fromPlayer1.close();
-            fromPlayer2.close();
+            System.out.println("Game " + game.getGameId() + " has ended. Closing connections.");
         } catch (IOException e) {
-            e.printStackTrace();
+            System.out.println("Game between " + player1Name + " and " + player2Name + " was interrupted: " + e.getMessage());
+            if (game != null && !session.isOver()) {
+                synchronized (recoveredGames) {
+                    recoveredGames.add(game); // Resumes when both players are back
+                }
+            }
+        } finally {
+            if (gameEngine != null) {
+                ENGINE_POOL.release(gameEngine);
+            }
+            player1Seat.close();
+            player2Seat.close();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,639 @@
+package gr.uop;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * GameArchive keeps every finished game, for disputes and analytics. A game is stored as what it takes to
+ * replay it: its seed, the ids of its players and one byte per move, about 40 bytes for a whole game.
+ *
+ * <p>
+ * Finished games are first appended to a pending file. Once there are enough of them, they are sealed into a
+ * segment file ({@code games-<number>.seg}) that stores them by column: all the seeds, then all the end times,
+ * the players, the ends of the moves of each game and finally all the moves. The games of a segment have
+ * consecutive ids, so a game is found in its segment by arithmetic. A small index file ({@code archive.idx})
+ * holds the first game id and the time range of each segment; it is read into memory on open and leads to
+ * the segment of a game id or a time. Sealed segments are never changed and are read through memory-mapped
+ * files, so reading a game costs a binary search over the segments and a few reads from the page cache.
+ * Player names are stored once, in {@code players.dat}, and referred to by their position in it.
+ * </p>
+ *
+ * <p>
+ * A crash loses nothing that was appended: a segment is only added to the index once it is on disk, and the
+ * pending file is only emptied after that. The archive is thread-safe. Tools such as the {@link ArchiveScanner}
+ * open it read-only, which is safe while the server appends to it; they see the games archived until then.
+ * </p>
+ */
+final class GameArchive implements Closeable {
+
+    public static final int DEFAULT_GAMES_PER_SEGMENT = 1 << 16;
+
+    private static final int MAGIC = 0x44474152; // "DGAR"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int INDEX_ENTRY_BYTES = 32;
+    private static final int MAX_NAME_BYTES = 1024;
+    private static final String SEGMENT_PREFIX = "games-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    /**
+     * Segment is the index entry of a sealed segment.
+     *
+     * @param firstGameId The id of the first game of the segment.
+     * @param count The number of games in the segment.
+     * @param firstTimeMillis The end time of the first game.
+     * @param lastTimeMillis The end time of the last game.
+     */
+    private record Segment(long firstGameId, int count, long firstTimeMillis, long lastTimeMillis) {
+    }
+
+    /**
+     * GameVisitor receives the games of a segment in place, without copying them.
+     */
+    interface GameVisitor {
+
+        /**
+         * Visits a game.
+         *
+         * @param gameId The id of the game.
+         * @param seed The seed the engine was dealt with.
+         * @param moves The buffer holding the moves of the game, to be read with absolute gets only.
+         * @param movesStart The position of the first move in the buffer.
+         * @param movesEnd The position after the last move in the buffer.
+         */
+        void visit(long gameId, long seed, ByteBuffer moves, int movesStart, int movesEnd);
+    }
+
+    /**
+     * PendingGame is a finished game not sealed into a segment yet.
+     *
+     * @param gameId The id of the game.
+     * @param endTimeMillis The time the game ended.
+     * @param seed The seed the engine was dealt with.
+     * @param player1 The id of Player 1.
+     * @param player2 The id of Player 2.
+     * @param moves The moves, one hand index per byte.
+     */
+    private record PendingGame(long gameId, long endTimeMillis, long seed, int player1, int player2, byte[] moves) {
+    }
+
+    private final Path directory;
+    private final int gamesPerSegment;
+    private final boolean readOnly;
+    private final FileChannel players;
+    private final FileChannel index;
+    private final FileChannel pending;
+
+    // Guarded by this
+    private final List<String> playerNames = new ArrayList<>();
+    private final Map<String, Integer> playerIds = new HashMap<>();
+    private final List<Segment> segments = new ArrayList<>();
+    private final List<MappedByteBuffer> mapped = new ArrayList<>(); // Mapped on first read, null until then
+    private final List<PendingGame> pendingGames = new ArrayList<>();
+    private long nextGameId = 1;
+    private long lastTimeMillis = Long.MIN_VALUE;
+
+    /**
+     * Opens the files of an archive.
+     *
+     * @param directory The directory of the archive.
+     * @param gamesPerSegment The number of games sealed into each segment.
+     * @param readOnly Whether the files are only read, in which case they must exist.
+     * @throws IOException If the files cannot be opened.
+     */
+    private GameArchive(Path directory, int gamesPerSegment, boolean readOnly) throws IOException {
+        this.directory = directory;
+        this.gamesPerSegment = gamesPerSegment;
+        this.readOnly = readOnly;
+        this.players = openFile("players.dat");
+        this.index = openFile("archive.idx");
+        this.pending = openFile("pending.dat");
+    }
+
+    /**
+     * Opens the archive of a directory, creating it if needed. What a crash left half-written is dropped:
+     * the end of the files after their last complete entry and the segments that never made it to the index.
+     *
+     * @param directory The directory of the archive.
+     * @param gamesPerSegment The number of games sealed into each segment.
+     * @return The archive.
+     * @throws IOException If the files cannot be read.
+     */
+    static GameArchive open(Path directory, int gamesPerSegment) throws IOException {
+        Files.createDirectories(directory);
+        return open(directory, gamesPerSegment, false);
+    }
+
+    /**
+     * Opens the archive of a directory for reading only. Nothing is changed on disk, and what a crash or a
+     * concurrent write left half-written is ignored.
+     *
+     * @param directory The directory of the archive.
+     * @return The archive.
+     * @throws IOException If the files do not exist or cannot be read.
+     */
+    static GameArchive openReadOnly(Path directory) throws IOException {
+        return open(directory, DEFAULT_GAMES_PER_SEGMENT, true);
+    }
+
+    /**
+     * Opens the archive of an existing directory and reads its index, its players and its pending games.
+     *
+     * @param directory The directory of the archive.
+     * @param gamesPerSegment The number of games sealed into each segment.
+     * @param readOnly Whether the files are only read.
+     * @return The archive.
+     * @throws IOException If the files cannot be read.
+     */
+    private static GameArchive open(Path directory, int gamesPerSegment, boolean readOnly) throws IOException {
+        GameArchive archive = new GameArchive(directory, gamesPerSegment, readOnly);
+        try {
+            archive.readPlayers();
+            archive.readIndex();
+            archive.readPending();
+        } catch (IOException | RuntimeException e) {
+            archive.close();
+            throw e;
+        }
+        return archive;
+    }
+
+    /**
+     * Adds a finished game.
+     *
+     * @param game The game, with all its moves.
+     * @param endTimeMillis The time the game ended, in milliseconds since the epoch.
+     * @return The id of the game in the archive.
+     * @throws IOException If the game cannot be written or the archive is read-only.
+     */
+    synchronized long append(JournaledGame game, long endTimeMillis) throws IOException {
+        if (readOnly) {
+            throw new IOException("The archive is open read-only");
+        }
+        lastTimeMillis = Math.max(lastTimeMillis, endTimeMillis); // The times of the games never go back, so they can be searched
+        if (!pendingGames.isEmpty() && !fitsTimeColumn(lastTimeMillis)) {
+            seal();
+        }
+        PendingGame row = new PendingGame(nextGameId, lastTimeMillis, game.getSeed(),
+                playerId(game.getPlayer1Name()), playerId(game.getPlayer2Name()), game.getMoves());
+
+        ByteBuffer buffer = ByteBuffer.allocate(8 + 8 + 8 + 4 + 4 + 2 + row.moves().length);
+        buffer.putLong(row.gameId()).putLong(row.endTimeMillis()).putLong(row.seed());
+        buffer.putInt(row.player1()).putInt(row.player2());
+        buffer.putShort((short) row.moves().length).put(row.moves());
+        writeFully(pending, buffer.flip(), pending.size());
+        pending.force(false);
+
+        pendingGames.add(row);
+        nextGameId++;
+        if (pendingGames.size() >= gamesPerSegment) {
+            seal();
+        }
+        return row.gameId();
+    }
+
+    /**
+     * Reads a game.
+     *
+     * @param gameId The id of the game.
+     * @return The game, or null if there is no game with this id.
+     * @throws IOException If the segment of the game cannot be mapped.
+     */
+    synchronized ArchivedGame read(long gameId) throws IOException {
+        if (gameId < 1 || gameId >= nextGameId) {
+            return null;
+        }
+        if (!pendingGames.isEmpty() && gameId >= pendingGames.get(0).gameId()) {
+            PendingGame row = pendingGames.get((int) (gameId - pendingGames.get(0).gameId()));
+            return new ArchivedGame(gameId, row.endTimeMillis(), row.seed(),
+                    playerNames.get(row.player1()), playerNames.get(row.player2()), row.moves().clone());
+        }
+
+        // The last segment starting at or before the game
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (segments.get(middle).firstGameId() <= gameId) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        Segment segment = segments.get(low);
+        ByteBuffer columns = map(low);
+        int count = segment.count();
+        int row = (int) (gameId - segment.firstGameId());
+
+        int timesAt = HEADER_BYTES + 8 * count;
+        int player1At = timesAt + 4 * count;
+        int player2At = player1At + 4 * count;
+        int moveEndsAt = player2At + 4 * count;
+        int movesAt = moveEndsAt + 4 * count;
+        int movesStart = row == 0 ? 0 : columns.getInt(moveEndsAt + 4 * (row - 1));
+        byte[] moves = new byte[columns.getInt(moveEndsAt + 4 * row) - movesStart];
+        columns.get(movesAt + movesStart, moves);
+
+        return new ArchivedGame(gameId,
+                segment.firstTimeMillis() + Integer.toUnsignedLong(columns.getInt(timesAt + 4 * row)),
+                columns.getLong(HEADER_BYTES + 8 * row),
+                playerNames.get(columns.getInt(player1At + 4 * row)),
+                playerNames.get(columns.getInt(player2At + 4 * row)),
+                moves);
+    }
+
+    /**
+     * Finds the first game that ended at or after the given time.
+     *
+     * @param timeMillis The time, in milliseconds since the epoch.
+     * @return The id of the game, or the id the next game will get if no game ended since then.
+     * @throws IOException If a segment cannot be mapped.
+     */
+    synchronized long findFirstGameSince(long timeMillis) throws IOException {
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            if (segment.lastTimeMillis() < timeMillis) {
+                continue;
+            }
+            // Binary search of the times column of the segment
+            ByteBuffer columns = map(i);
+            int timesAt = HEADER_BYTES + 8 * segment.count();
+            long offset = Math.max(0, timeMillis - segment.firstTimeMillis());
+            int low = 0;
+            int high = segment.count() - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (Integer.toUnsignedLong(columns.getInt(timesAt + 4 * middle)) < offset) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return segment.firstGameId() + low;
+        }
+        for (PendingGame row : pendingGames) {
+            if (row.endTimeMillis() >= timeMillis) {
+                return row.gameId();
+            }
+        }
+        return nextGameId;
+    }
+
+    /**
+     * Returns the number of sealed segments.
+     *
+     * @return The segment count.
+     */
+    synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Returns the id of the first game of a sealed segment.
+     *
+     * @param position The position of the segment in the index, from 0.
+     * @return The game id.
+     */
+    synchronized long getFirstGameId(int position) {
+        return segments.get(position).firstGameId();
+    }
+
+    /**
+     * Returns the number of games in a sealed segment.
+     *
+     * @param position The position of the segment in the index, from 0.
+     * @return The game count of the segment.
+     */
+    synchronized int getGameCount(int position) {
+        return segments.get(position).count();
+    }
+
+    /**
+     * Visits the games of a sealed segment, in order. The games are read in place from the mapped segment,
+     * so the visit allocates nothing per game, and several segments can be visited in parallel.
+     *
+     * @param position The position of the segment in the index, from 0.
+     * @param visitor The visitor of the games.
+     * @throws IOException If the segment cannot be mapped.
+     */
+    void visitSegment(int position, GameVisitor visitor) throws IOException {
+        Segment segment;
+        ByteBuffer columns;
+        synchronized (this) {
+            segment = segments.get(position);
+            columns = map(position);
+        }
+        int count = segment.count();
+        int moveEndsAt = HEADER_BYTES + (8 + 4 + 4 + 4) * count;
+        int movesAt = moveEndsAt + 4 * count;
+        int movesStart = movesAt;
+        for (int row = 0; row < count; row++) {
+            int movesEnd = movesAt + columns.getInt(moveEndsAt + 4 * row);
+            visitor.visit(segment.firstGameId() + row, columns.getLong(HEADER_BYTES + 8 * row), columns, movesStart, movesEnd);
+            movesStart = movesEnd;
+        }
+    }
+
+    /**
+     * Visits the games not sealed into a segment yet, in order.
+     *
+     * @param visitor The visitor of the games.
+     */
+    synchronized void visitPending(GameVisitor visitor) {
+        for (PendingGame row : pendingGames) {
+            visitor.visit(row.gameId(), row.seed(), ByteBuffer.wrap(row.moves()), 0, row.moves().length);
+        }
+    }
+
+    /**
+     * Returns the number of games in the archive.
+     *
+     * @return The game count.
+     */
+    synchronized long getGameCount() {
+        return nextGameId - 1;
+    }
+
+    /**
+     * Closes the files of the archive. The games still pending stay in the pending file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try (players; index; pending) {
+            mapped.clear();
+        }
+    }
+
+    /**
+     * Returns the id of a player, adding the player to the players file if needed.
+     *
+     * @param name The name of the player.
+     * @return The id of the player.
+     * @throws IOException If a new player cannot be written.
+     */
+    private int playerId(String name) throws IOException {
+        Integer id = playerIds.get(name);
+        if (id != null) {
+            return id;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_NAME_BYTES) {
+            bytes = Arrays.copyOf(bytes, MAX_NAME_BYTES);
+            name = new String(bytes, StandardCharsets.UTF_8);
+        }
+        writeFully(players, ByteBuffer.allocate(2 + bytes.length).putShort((short) bytes.length).put(bytes).flip(), players.size());
+        players.force(false);
+        playerNames.add(name);
+        playerIds.put(name, playerNames.size() - 1);
+        return playerNames.size() - 1;
+    }
+
+    /**
+     * Checks whether a game can go into the pending segment: the times column stores each time as the
+     * milliseconds after the first game of the segment, in 32 bits.
+     *
+     * @param endTimeMillis The end time of the game.
+     * @return true if the time fits.
+     */
+    private boolean fitsTimeColumn(long endTimeMillis) {
+        return endTimeMillis - pendingGames.get(0).endTimeMillis() <= 0xFFFF_FFFFL;
+    }
+
+    /**
+     * Writes the pending games into a new segment, adds it to the index and empties the pending file.
+     *
+     * @throws IOException If the segment cannot be written.
+     */
+    private void seal() throws IOException {
+        int count = pendingGames.size();
+        int movesBytes = 0;
+        for (PendingGame row : pendingGames) {
+            movesBytes += row.moves().length;
+        }
+        PendingGame first = pendingGames.get(0);
+        PendingGame last = pendingGames.get(count - 1);
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + (8 + 4 + 4 + 4 + 4) * count + movesBytes);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(first.gameId()).putLong(first.endTimeMillis()).putInt(count).putInt(movesBytes);
+        for (PendingGame row : pendingGames) {
+            buffer.putLong(row.seed());
+        }
+        for (PendingGame row : pendingGames) {
+            buffer.putInt((int) (row.endTimeMillis() - first.endTimeMillis()));
+        }
+        for (PendingGame row : pendingGames) {
+            buffer.putInt(row.player1());
+        }
+        for (PendingGame row : pendingGames) {
+            buffer.putInt(row.player2());
+        }
+        int moveEnd = 0;
+        for (PendingGame row : pendingGames) {
+            moveEnd += row.moves().length;
+            buffer.putInt(moveEnd);
+        }
+        for (PendingGame row : pendingGames) {
+            buffer.put(row.moves());
+        }
+
+        int number = segments.size() + 1;
+        try (FileChannel file = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(file, buffer.flip(), 0);
+            file.force(true);
+        }
+
+        Segment segment = new Segment(first.gameId(), count, first.endTimeMillis(), last.endTimeMillis());
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+        entry.putLong(segment.firstGameId()).putInt(segment.count()).putInt(0)
+                .putLong(segment.firstTimeMillis()).putLong(segment.lastTimeMillis());
+        writeFully(index, entry.flip(), (long) segments.size() * INDEX_ENTRY_BYTES);
+        index.force(false);
+        segments.add(segment);
+        mapped.add(null);
+
+        pending.truncate(0);
+        pending.force(false);
+        pendingGames.clear();
+    }
+
+    /**
+     * Returns the mapping of a sealed segment, mapping it on first use.
+     *
+     * @param position The position of the segment in the index.
+     * @return The mapped segment.
+     * @throws IOException If the segment cannot be mapped.
+     */
+    private ByteBuffer map(int position) throws IOException {
+        MappedByteBuffer buffer = mapped.get(position);
+        if (buffer == null) {
+            try (FileChannel file = FileChannel.open(segmentPath(position + 1), StandardOpenOption.READ)) {
+                buffer = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+            }
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not an archive segment: " + segmentPath(position + 1));
+            }
+            mapped.set(position, buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Opens a file of the archive, created if needed unless the archive is read-only.
+     *
+     * @param name The name of the file in the directory of the archive.
+     * @return The open file.
+     * @throws IOException If the file cannot be opened.
+     */
+    private FileChannel openFile(String name) throws IOException {
+        Path file = directory.resolve(name);
+        if (readOnly) {
+            return FileChannel.open(file, StandardOpenOption.READ);
+        }
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Reads the player names. A name cut by a crash is dropped.
+     *
+     * @throws IOException If the file cannot be read.
+     */
+    private void readPlayers() throws IOException {
+        ByteBuffer buffer = readAll(players);
+        while (buffer.remaining() >= 2) {
+            int length = buffer.getShort(buffer.position());
+            if (length < 0 || 2 + length > buffer.remaining()) {
+                break;
+            }
+            buffer.getShort();
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            String name = new String(bytes, StandardCharsets.UTF_8);
+            playerIds.put(name, playerNames.size());
+            playerNames.add(name);
+        }
+        if (!readOnly) {
+            players.truncate(buffer.position());
+        }
+    }
+
+    /**
+     * Reads the index and deletes the segments it does not list, which a crash left before they were indexed;
+     * their games are still in the pending file.
+     *
+     * @throws IOException If the index cannot be read or a segment cannot be deleted.
+     */
+    private void readIndex() throws IOException {
+        ByteBuffer buffer = readAll(index);
+        while (buffer.remaining() >= INDEX_ENTRY_BYTES) {
+            long firstGameId = buffer.getLong();
+            int count = buffer.getInt();
+            buffer.getInt();
+            Segment segment = new Segment(firstGameId, count, buffer.getLong(), buffer.getLong());
+            segments.add(segment);
+            mapped.add(null);
+            nextGameId = firstGameId + count;
+            lastTimeMillis = segment.lastTimeMillis();
+        }
+        if (readOnly) {
+            return;
+        }
+        index.truncate(buffer.position());
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        long number = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                        if (number > segments.size()) {
+                            Files.delete(file);
+                        }
+                    } catch (NumberFormatException e) {
+                        // Not a segment
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the pending games. A game cut by a crash is dropped, and so are games already sealed by a
+     * crash between indexing a segment and emptying the pending file.
+     *
+     * @throws IOException If the file cannot be read.
+     */
+    private void readPending() throws IOException {
+        ByteBuffer buffer = readAll(pending);
+        boolean sealed = false;
+        while (buffer.remaining() >= 8 + 8 + 8 + 4 + 4 + 2) {
+            int movesLength = buffer.getShort(buffer.position() + 32);
+            if (movesLength < 0 || 34 + movesLength > buffer.remaining()) {
+                break;
+            }
+            PendingGame row = new PendingGame(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getInt(), buffer.getInt(), new byte[buffer.getShort()]);
+            buffer.get(row.moves());
+            if (row.gameId() < nextGameId) {
+                sealed = true; // A segment holds all the pending games of its time, so all of them are sealed
+                continue;
+            }
+            pendingGames.add(row);
+            nextGameId = row.gameId() + 1;
+            lastTimeMillis = Math.max(lastTimeMillis, row.endTimeMillis());
+        }
+        if (!readOnly) {
+            pending.truncate(sealed ? 0 : buffer.position());
+        }
+    }
+
+    /**
+     * Reads a whole file.
+     *
+     * @param file The file.
+     * @return The content of the file.
+     * @throws IOException If the file cannot be read.
+     */
+    private static ByteBuffer readAll(FileChannel file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) file.size());
+        while (buffer.hasRemaining() && file.read(buffer, buffer.position()) >= 0) {
+            // Read until full
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Writes a whole buffer at a position of a file.
+     *
+     * @param file The file.
+     * @param buffer The bytes to write.
+     * @param position The position in the file.
+     * @throws IOException If the file cannot be written.
+     */
+    private static void writeFully(FileChannel file, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += file.write(buffer, position);
+        }
+    }
+
+    /**
+     * Returns the path of a segment file.
+     *
+     * @param number The number of the segment, from 1.
+     * @return The path of the segment.
+     */
+    private Path segmentPath(int number) {
+        return directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+}
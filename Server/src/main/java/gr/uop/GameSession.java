@@ -0,0 +1,271 @@
+package gr.uop;
+
+import gr.uop.GameEngine.GameEngine;
+import gr.uop.GameEngine.GameEventListener;
+import gr.uop.GameEngine.Player;
+import gr.uop.GameEngine.Tile;
+
+import gr.uop.protocol.Opcode;
+
+/**
+ * GameSession is the flow of a game between two players, written as a state machine independent of how the
+ * players are reached. It consumes the moves of the players and emits the messages they must receive to
+ * its two {@link SessionOutput}s: whose turn it is, the automatic draws and the drawn tile played at once,
+ * the passes and the result. It never blocks and never flushes, so the caller decides when the messages
+ * leave, and the same session runs a game over sockets or between two bots in the same process.
+ *
+ * <p>
+ * The session listens to its engine, which must be dealt with the session as a listener before
+ * {@link #start(GameEngine)}. From then on the session is either waiting for the move of the current
+ * player or over.
+ * </p>
+ */
+public final class GameSession implements GameEventListener {
+
+    /**
+     * State is where a session stands.
+     */
+    public enum State {
+        /** Not started yet. */
+        NEW,
+        /** Waiting for the current player to choose a tile. */
+        AWAITING_MOVE,
+        /** The game is over and its result was sent. */
+        OVER
+    }
+
+    private final SessionOutput toPlayer1;
+    private final SessionOutput toPlayer2;
+    private GameEngine engine;
+    private Player player1;
+    private Player winner;
+    private State state = State.NEW;
+    private int lastMove = -1;
+
+    /**
+     * Constructs a session sending its messages to the two outputs.
+     *
+     * @param toPlayer1 The output of Player 1.
+     * @param toPlayer2 The output of Player 2.
+     */
+    public GameSession(SessionOutput toPlayer1, SessionOutput toPlayer2) {
+        this.toPlayer1 = toPlayer1;
+        this.toPlayer2 = toPlayer2;
+    }
+
+    /**
+     * Starts the game dealt on the engine, or resumes a replayed one: tells each player who the opponent is,
+     * then plays the automatic turns until a player must choose a tile or the game is over.
+     * A session may be started again once its game is over, with the engine dealt anew.
+     *
+     * @param engine The engine of the game, with this session as a listener.
+     */
+    public void start(GameEngine engine) {
+        this.engine = engine;
+        this.player1 = engine.getPlayer1();
+        this.winner = null;
+        this.lastMove = -1;
+        toPlayer1.send(Opcode.END_INIT, engine.getPlayer2().getName());
+        toPlayer2.send(Opcode.END_INIT, player1.getName());
+        Player settled = engine.getWinner();
+        if (settled != null) {
+            onGameOver(settled, engine.getOpponent(settled)); // A replayed game ended on its last move, before this session listened
+        }
+        advance();
+    }
+
+    /**
+     * Receives the line sent by the current player in answer to {@link Opcode#INDEX}.
+     *
+     * @param input The line, which should hold the index of a tile of the hand.
+     * @return true if a tile was played, false if the input was rejected and the player is asked again.
+     */
+    public boolean receive(String input) {
+        int tileIndex;
+        try {
+            tileIndex = Integer.parseInt(input);
+        } catch (NumberFormatException e) {
+            tileIndex = -1;
+        }
+        return receive(tileIndex);
+    }
+
+    /**
+     * Receives the tile chosen by the current player, plays it and moves on to the next turn
+     * that needs a choice, or to the end of the game.
+     *
+     * @param tileIndex The index of the tile in the hand of the current player.
+     * @return true if the tile was played, false if it was rejected and the player is asked again.
+     * @throws IllegalStateException If the session is not waiting for a move.
+     */
+    public boolean receive(int tileIndex) {
+        if (state != State.AWAITING_MOVE) {
+            throw new IllegalStateException("The session is not waiting for a move: " + state);
+        }
+        Player currentPlayer = engine.getCurrentPlayer();
+        SessionOutput toCurrentPlayer = to(currentPlayer);
+        if (tileIndex < 0 || tileIndex >= currentPlayer.getTiles().size()) {
+            toCurrentPlayer.send(Opcode.INVALID_INPUT);
+            toCurrentPlayer.send(Opcode.INDEX);
+            return false;
+        }
+        if (!engine.playTile(currentPlayer.getTiles().get(tileIndex))) {
+            toCurrentPlayer.send(Opcode.INVALID_MOVE);
+            toCurrentPlayer.send(Opcode.INDEX);
+            return false;
+        }
+        lastMove = tileIndex;
+        advance();
+        return true;
+    }
+
+    /**
+     * Returns the state of the session.
+     *
+     * @return The state.
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Checks whether the game is over.
+     *
+     * @return true if the game is over.
+     */
+    public boolean isOver() {
+        return state == State.OVER;
+    }
+
+    /**
+     * Returns the engine of the game.
+     *
+     * @return The engine, null before the session is started.
+     */
+    public GameEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Returns the index of the last tile played by a player's choice, the move to log.
+     *
+     * @return The index, or -1 if no tile was chosen yet.
+     */
+    public int getLastMove() {
+        return lastMove;
+    }
+
+    /**
+     * Returns the winner of the game.
+     *
+     * @return The winner, or null if the game is not over.
+     */
+    public Player getWinner() {
+        return winner;
+    }
+
+    /**
+     * Plays the turns that need no choice (draws and passes) until the current player must choose a tile,
+     * who is then asked for it, or until the game is over, whose result is then sent.
+     */
+    private void advance() {
+        while (!engine.isGameOver()) {
+            Player currentPlayer = engine.getCurrentPlayer();
+            Player opponent = engine.getOpponent();
+            SessionOutput toCurrentPlayer = to(currentPlayer);
+            SessionOutput toOpponent = to(opponent);
+
+            // Communicate game state to the players
+            toCurrentPlayer.send(Opcode.OPPONENT_TILE_SIZE, engine.getPlayerTileCount(opponent));
+            toCurrentPlayer.send(Opcode.TURN);
+            toCurrentPlayer.send(Opcode.STOCK_SIZE, engine.getStockSize());
+            toCurrentPlayer.sendTiles(Opcode.TILES, currentPlayer.getTiles());
+            toCurrentPlayer.sendTiles(Opcode.BOARD, engine.getLineOfPlay());
+
+            toOpponent.send(Opcode.OPPONENT_TILE_SIZE, engine.getPlayerTileCount(currentPlayer));
+            toOpponent.send(Opcode.STOCK_SIZE, engine.getStockSize());
+            toOpponent.sendTiles(Opcode.TILES, opponent.getTiles());
+            toOpponent.sendTiles(Opcode.BOARD, engine.getLineOfPlay());
+            toOpponent.send(Opcode.WAIT_OPPONENT_MOVE);
+
+            if (engine.canPlay()) {
+                toCurrentPlayer.send(Opcode.INDEX);
+                state = State.AWAITING_MOVE;
+                return;
+            }
+            // Automatically draw if no moves are possible; a drawn tile that fits is played, else the player passes
+            toCurrentPlayer.send(Opcode.NO_AVAILABLE_MOVES);
+            engine.drawUntilPlayable();
+        }
+        winner = engine.getWinner(); // The result was sent by onGameOver, when the last move ended the game
+        state = State.OVER;
+    }
+
+    @Override
+    public void onDealt(Player player1, Player player2, Player firstPlayer) {
+        this.player1 = player1;
+    }
+
+    @Override
+    public void onDrew(Player player, Tile tile) {
+        to(player).sendTile(Opcode.DRAW, tile);
+        toOpponentOf(player).send(Opcode.OPPONENT_DRAW);
+    }
+
+    @Override
+    public void onPlayedLeft(Player player, Tile tile) {
+        onPlayed(player, tile);
+    }
+
+    @Override
+    public void onPlayedRight(Player player, Tile tile) {
+        onPlayed(player, tile);
+    }
+
+    @Override
+    public void onPassed(Player player) {
+        to(player).send(Opcode.PASS);
+        toOpponentOf(player).send(Opcode.OPP_PASS);
+    }
+
+    @Override
+    public void onGameOver(Player winner, Player loser) {
+        to(winner).send(Opcode.GAME_OVER, winner.getName());
+        to(winner).send(Opcode.SCORE, winner.getScore());
+
+        to(loser).send(Opcode.GAME_OVER, winner.getName());
+        to(loser).send(Opcode.SCORE, loser.getScore());
+    }
+
+    /**
+     * Tells both players that a tile was played. The clients do not care about the side,
+     * they receive the whole line of play on the next turn.
+     *
+     * @param player The player who played the tile.
+     * @param tile The tile that was played.
+     */
+    private void onPlayed(Player player, Tile tile) {
+        to(player).sendTile(Opcode.PLAYED, tile);
+        toOpponentOf(player).sendTile(Opcode.OPP_PLAYED, tile);
+    }
+
+    /**
+     * Returns the output of a player.
+     *
+     * @param player The player.
+     * @return The output of the player.
+     */
+    private SessionOutput to(Player player) {
+        return player == player1 ? toPlayer1 : toPlayer2;
+    }
+
+    /**
+     * Returns the output of the opponent of a player.
+     *
+     * @param player The player.
+     * @return The output of the opponent.
+     */
+    private SessionOutput toOpponentOf(Player player) {
+        return player == player1 ? toPlayer2 : toPlayer1;
+    }
+}
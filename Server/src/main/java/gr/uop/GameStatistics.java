@@ -0,0 +1,248 @@
+package gr.uop;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * GameStatistics holds the aggregates the {@link ArchiveScanner} computes over archived games. They are
+ * plain counters, so the statistics of separate segments are combined by adding them up, and the statistics
+ * of a segment can be saved and reused as long as the segment does not change.
+ */
+final class GameStatistics {
+
+    static final int TILE_KINDS = 28; // The tiles of a double-six set
+    static final int MAX_TURNS = TILE_KINDS; // No game plays more tiles than the set has
+    static final int MAX_DRAWS = 14; // The stock left after dealing 7 tiles to each player
+
+    private long games;
+    private long skippedGames; // Games whose moves do not replay, counted but not aggregated
+    private long blockedGames;
+    private final long[] playsByTurn = new long[MAX_TURNS * TILE_KINDS]; // Turn-major: [turn * TILE_KINDS + tile]
+    private final long[] gamesByOpening = new long[TILE_KINDS];
+    private final long[] winsByOpening = new long[TILE_KINDS]; // Games won by the player who played the opening tile
+    private final long[] gamesByDraws = new long[MAX_DRAWS + 1];
+    private final long[] scoreByDraws = new long[MAX_DRAWS + 1];
+
+    /**
+     * Returns the kind of a tile, the same for both orientations of the tile.
+     *
+     * @param upperValue One value of the tile.
+     * @param bottomValue The other value of the tile.
+     * @return The kind of the tile, from 0 to 27.
+     */
+    static int tileKind(int upperValue, int bottomValue) {
+        int low = Math.min(upperValue, bottomValue);
+        int high = Math.max(upperValue, bottomValue);
+        return high * (high + 1) / 2 + low;
+    }
+
+    /**
+     * Records a tile played.
+     *
+     * @param turn The number of tiles played before it in the game.
+     * @param tileKind The kind of the tile.
+     */
+    void recordPlay(int turn, int tileKind) {
+        playsByTurn[Math.min(turn, MAX_TURNS - 1) * TILE_KINDS + tileKind]++;
+    }
+
+    /**
+     * Records a finished game.
+     *
+     * @param openingTile The kind of the first tile played.
+     * @param openerWon Whether the player who played the first tile won.
+     * @param blocked Whether the game ended with both players unable to play, rather than an empty hand.
+     * @param draws The number of tiles drawn from the stock during the game.
+     * @param score The score of the winner.
+     */
+    void recordGame(int openingTile, boolean openerWon, boolean blocked, int draws, int score) {
+        games++;
+        if (blocked) {
+            blockedGames++;
+        }
+        gamesByOpening[openingTile]++;
+        if (openerWon) {
+            winsByOpening[openingTile]++;
+        }
+        int drawBucket = Math.min(draws, MAX_DRAWS);
+        gamesByDraws[drawBucket]++;
+        scoreByDraws[drawBucket] += score;
+    }
+
+    /**
+     * Records a game that could not be replayed.
+     */
+    void recordSkipped() {
+        skippedGames++;
+    }
+
+    /**
+     * Adds the statistics of other games to these.
+     *
+     * @param other The statistics to add.
+     */
+    void merge(GameStatistics other) {
+        games += other.games;
+        skippedGames += other.skippedGames;
+        blockedGames += other.blockedGames;
+        add(playsByTurn, other.playsByTurn);
+        add(gamesByOpening, other.gamesByOpening);
+        add(winsByOpening, other.winsByOpening);
+        add(gamesByDraws, other.gamesByDraws);
+        add(scoreByDraws, other.scoreByDraws);
+    }
+
+    /**
+     * Returns the number of games aggregated.
+     *
+     * @return The game count.
+     */
+    long getGames() {
+        return games;
+    }
+
+    /**
+     * Saves the statistics.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If the stream cannot be written.
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(games);
+        out.writeLong(skippedGames);
+        out.writeLong(blockedGames);
+        write(out, playsByTurn);
+        write(out, gamesByOpening);
+        write(out, winsByOpening);
+        write(out, gamesByDraws);
+        write(out, scoreByDraws);
+    }
+
+    /**
+     * Loads statistics saved with {@link #writeTo}.
+     *
+     * @param in The stream to read from.
+     * @return The statistics.
+     * @throws IOException If the stream cannot be read.
+     */
+    static GameStatistics readFrom(DataInputStream in) throws IOException {
+        GameStatistics statistics = new GameStatistics();
+        statistics.games = in.readLong();
+        statistics.skippedGames = in.readLong();
+        statistics.blockedGames = in.readLong();
+        read(in, statistics.playsByTurn);
+        read(in, statistics.gamesByOpening);
+        read(in, statistics.winsByOpening);
+        read(in, statistics.gamesByDraws);
+        read(in, statistics.scoreByDraws);
+        return statistics;
+    }
+
+    /**
+     * Prints a report of the statistics.
+     *
+     * @param out The stream to print to.
+     */
+    void print(PrintStream out) {
+        out.printf("Games: %d (%d skipped)%n", games, skippedGames);
+        out.printf("Blocked: %d (%.1f%%)%n", blockedGames, percent(blockedGames, games));
+
+        out.println();
+        out.println("Win rate of the opener by opening tile:");
+        for (int tile = 0; tile < TILE_KINDS; tile++) {
+            if (gamesByOpening[tile] > 0) {
+                out.printf("  %-6s %5.1f%% of %d%n", tileName(tile), percent(winsByOpening[tile], gamesByOpening[tile]), gamesByOpening[tile]);
+            }
+        }
+
+        out.println();
+        out.println("Average winning score by tiles drawn from the stock:");
+        for (int draws = 0; draws <= MAX_DRAWS; draws++) {
+            if (gamesByDraws[draws] > 0) {
+                out.printf("  %2d  %6.1f over %d games%n", draws, (double) scoreByDraws[draws] / gamesByDraws[draws], gamesByDraws[draws]);
+            }
+        }
+
+        out.println();
+        out.println("Most played tiles by turn:");
+        for (int turn = 0; turn < MAX_TURNS; turn++) {
+            long plays = 0;
+            int top = 0;
+            for (int tile = 0; tile < TILE_KINDS; tile++) {
+                long count = playsByTurn[turn * TILE_KINDS + tile];
+                plays += count;
+                if (count > playsByTurn[turn * TILE_KINDS + top]) {
+                    top = tile;
+                }
+            }
+            if (plays > 0) {
+                out.printf("  %2d  %-6s %5.1f%% of %d plays%n", turn + 1, tileName(top), percent(playsByTurn[turn * TILE_KINDS + top], plays), plays);
+            }
+        }
+    }
+
+    /**
+     * Returns the name of a tile kind, such as {@code [2|5]}.
+     *
+     * @param tileKind The kind of the tile.
+     * @return The name of the tile.
+     */
+    private static String tileName(int tileKind) {
+        int high = 0;
+        while ((high + 1) * (high + 2) / 2 <= tileKind) {
+            high++;
+        }
+        return "[" + (tileKind - high * (high + 1) / 2) + "|" + high + "]";
+    }
+
+    /**
+     * Returns a part of a whole in percent.
+     *
+     * @param part The part.
+     * @param whole The whole.
+     * @return The percentage, 0 if the whole is 0.
+     */
+    private static double percent(long part, long whole) {
+        return whole == 0 ? 0 : 100.0 * part / whole;
+    }
+
+    /**
+     * Adds counters to others of the same length.
+     *
+     * @param counters The counters to add to.
+     * @param other The counters to add.
+     */
+    private static void add(long[] counters, long[] other) {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] += other[i];
+        }
+    }
+
+    /**
+     * Writes counters.
+     *
+     * @param out The stream to write to.
+     * @param counters The counters.
+     * @throws IOException If the stream cannot be written.
+     */
+    private static void write(DataOutputStream out, long[] counters) throws IOException {
+        for (long counter : counters) {
+            out.writeLong(counter);
+        }
+    }
+
+    /**
+     * Reads counters.
+     *
+     * @param in The stream to read from.
+     * @param counters The counters to fill.
+     * @throws IOException If the stream cannot be read.
+     */
+    private static void read(DataInputStream in, long[] counters) throws IOException {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = in.readLong();
+        }
+    }
+}
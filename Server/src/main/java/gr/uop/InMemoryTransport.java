@@ -0,0 +1,184 @@
+package gr.uop;
+
+import gr.uop.GameEngine.GameEngine;
+import gr.uop.GameEngine.Tile;
+import gr.uop.bot.BotContext;
+import gr.uop.bot.BotPlayer;
+import gr.uop.bot.BotView;
+
+import gr.uop.protocol.Opcode;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * InMemoryTransport plays a {@link GameSession} between two players in the same process, with no socket,
+ * no thread and no encoding: the messages of the session are plain calls on the players, carrying the tiles
+ * and the live hand and board of the engine, and the moves are handed back as tile indexes. Bot-vs-bot and
+ * test games thus run through the exact flow of the server, at the speed of the engine.
+ *
+ * <pre>{@code
+ * InMemoryTransport transport = new InMemoryTransport(new BotEndpoint(bot1), new BotEndpoint(bot2));
+ * GameEngine engine = new GameEngine("bot1", "bot2", RulesMode.STRAIGHT, seed, transport.getSession());
+ * transport.play(engine);
+ * }</pre>
+ */
+public final class InMemoryTransport {
+
+    /**
+     * Endpoint is a player in the same process. It receives the messages of the session and chooses a tile
+     * when it is asked with {@link Opcode#INDEX}.
+     */
+    public interface Endpoint extends SessionOutput {
+
+        /**
+         * Chooses the tile to play, after the session sent {@link Opcode#INDEX} to this player.
+         *
+         * @return The index of the tile in the last hand received.
+         */
+        int chooseMove();
+    }
+
+    private final Endpoint player1;
+    private final Endpoint player2;
+    private final GameSession session;
+
+    /**
+     * Constructs a transport between two players.
+     *
+     * @param player1 Player 1.
+     * @param player2 Player 2.
+     */
+    public InMemoryTransport(Endpoint player1, Endpoint player2) {
+        this.player1 = player1;
+        this.player2 = player2;
+        this.session = new GameSession(player1, player2);
+    }
+
+    /**
+     * Returns the session of the transport, the listener to deal the engines with.
+     *
+     * @return The session.
+     */
+    public GameSession getSession() {
+        return session;
+    }
+
+    /**
+     * Plays the game dealt on the engine to the end. The transport may play any number of games in a row,
+     * each dealt anew on the same engine with {@code reset}.
+     *
+     * @param engine The engine, dealt with the session of this transport as a listener.
+     * @return The number of moves chosen by the players, rejected ones included.
+     * @throws IllegalStateException If a player keeps choosing tiles that cannot be played.
+     */
+    public int play(GameEngine engine) {
+        session.start(engine);
+        int moves = 0;
+        int rejected = 0;
+        while (!session.isOver()) {
+            Endpoint current = engine.getCurrentPlayer() == engine.getPlayer1() ? player1 : player2;
+            moves++;
+            if (session.receive(current.chooseMove())) {
+                rejected = 0;
+            } else if (++rejected > engine.getPlayerTileCount(engine.getCurrentPlayer())) {
+                throw new IllegalStateException("A player keeps choosing tiles that cannot be played");
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * BotEndpoint is a bot of the bot SPI playing through the transport. It keeps the live hand and board it
+     * receives and builds the view of the bot from them when it must move. The bot has no deadline.
+     */
+    public static final class BotEndpoint implements Endpoint {
+
+        private static final BotContext UNLIMITED = new BotContext() {
+
+            @Override
+            public boolean isCancelled() {
+                return false;
+            }
+
+            @Override
+            public long getRemainingNanos() {
+                return Long.MAX_VALUE;
+            }
+        };
+
+        private final BotPlayer bot;
+        private Iterable<Tile> hand = List.of();
+        private Iterable<Tile> board = List.of();
+        private int opponentTileCount;
+        private int stockSize;
+        private int[] handPips = new int[2 * 28];
+
+        /**
+         * Constructs an endpoint for a bot.
+         *
+         * @param bot The bot.
+         */
+        public BotEndpoint(BotPlayer bot) {
+            this.bot = bot;
+        }
+
+        @Override
+        public int chooseMove() {
+            int tileCount = 0;
+            for (Tile tile : hand) {
+                if (2 * tileCount + 1 >= handPips.length) {
+                    handPips = Arrays.copyOf(handPips, 2 * handPips.length);
+                }
+                handPips[2 * tileCount] = tile.getUpperValue();
+                handPips[2 * tileCount + 1] = tile.getBottomValue();
+                tileCount++;
+            }
+            int boardCount = 0;
+            int leftEnd = -1;
+            int rightEnd = -1;
+            for (Tile tile : board) {
+                if (boardCount++ == 0) {
+                    leftEnd = tile.getUpperValue();
+                }
+                rightEnd = tile.getBottomValue();
+            }
+            BotView view = new BotView(Arrays.copyOf(handPips, 2 * tileCount), leftEnd, rightEnd, boardCount,
+                    opponentTileCount, stockSize);
+            return bot.chooseMove(view, UNLIMITED);
+        }
+
+        @Override
+        public void send(Opcode opcode) {
+            // Nothing to keep: the bot only looks at the game when it must move
+        }
+
+        @Override
+        public void send(Opcode opcode, int value) {
+            if (opcode == Opcode.OPPONENT_TILE_SIZE) {
+                opponentTileCount = value;
+            } else if (opcode == Opcode.STOCK_SIZE) {
+                stockSize = value;
+            }
+        }
+
+        @Override
+        public void send(Opcode opcode, String value) {
+            // Names and winner, not needed to move
+        }
+
+        @Override
+        public void sendTile(Opcode opcode, Tile tile) {
+            // The hand and board sent before the next move already hold the tile
+        }
+
+        @Override
+        public void sendTiles(Opcode opcode, Iterable<Tile> tiles) {
+            if (opcode == Opcode.TILES) {
+                hand = tiles;
+            } else if (opcode == Opcode.BOARD) {
+                board = tiles;
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package gr.uop;
+
+import gr.uop.GameEngine.GameEngine;
+import gr.uop.GameEngine.RulesMode;
+import gr.uop.GameEngine.Tile;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * JournaledGame is a game in progress read back from the {@link MoveJournal}: its seed, its players
+ * and the moves played so far, one byte per move. A game that has ended also holds its id in the archive.
+ */
+final class JournaledGame {
+
+    private final long gameId;
+    private final long startSegment;
+    private final long seed;
+    private final String player1Name;
+    private final String player2Name;
+    private byte[] moves = new byte[16];
+    private int moveCount;
+    private long archiveId; // 0 until the game has ended
+
+    /**
+     * Constructs a game with no moves yet.
+     *
+     * @param gameId The id of the game in the journal.
+     * @param startSegment The number of the segment holding the start of the game.
+     * @param seed The seed the engine was dealt with.
+     * @param player1Name The name of Player 1.
+     * @param player2Name The name of Player 2.
+     */
+    JournaledGame(long gameId, long startSegment, long seed, String player1Name, String player2Name) {
+        this.gameId = gameId;
+        this.startSegment = startSegment;
+        this.seed = seed;
+        this.player1Name = player1Name;
+        this.player2Name = player2Name;
+    }
+
+    /**
+     * Adds the next move of the game.
+     *
+     * @param tileIndex The position of the played tile in the current player's hand.
+     */
+    void addMove(byte tileIndex) {
+        if (moveCount == moves.length) {
+            moves = Arrays.copyOf(moves, 2 * moves.length);
+        }
+        moves[moveCount++] = tileIndex;
+    }
+
+    /**
+     * Rebuilds the game: deals an engine with the seed of the game and replays its moves, including the
+     * automatic draws and passes the server makes between them. The engine has no listeners, so the replay
+     * sends nothing; it stops where the server waits for the next move.
+     *
+     * @return The engine in the state the game was left in.
+     * @throws IllegalStateException If the moves do not match the deal, so the journal is not from this engine.
+     */
+    GameEngine replay() {
+        return replay(gameId, seed, player1Name, player2Name, moves, moveCount);
+    }
+
+    /**
+     * Deals an engine with the given seed and replays the given moves on it, including the automatic draws
+     * and passes the server makes between them.
+     *
+     * @param gameId The id of the game, for the error message.
+     * @param seed The seed the engine was dealt with.
+     * @param player1Name The name of Player 1.
+     * @param player2Name The name of Player 2.
+     * @param moves The moves, one hand index per byte.
+     * @param moveCount The number of moves to replay.
+     * @return The engine in the state after the last move.
+     * @throws IllegalStateException If the moves do not match the deal.
+     */
+    static GameEngine replay(long gameId, long seed, String player1Name, String player2Name, byte[] moves, int moveCount) {
+        GameEngine engine = new GameEngine(player1Name, player2Name, RulesMode.STRAIGHT, seed);
+        for (int i = 0; i < moveCount; i++) {
+            while (!engine.isGameOver() && !engine.canPlay()) {
+                engine.drawUntilPlayable();
+            }
+            List<Tile> hand = engine.getCurrentPlayer().getTiles();
+            int tileIndex = moves[i];
+            if (engine.isGameOver() || tileIndex >= hand.size() || !engine.playTile(hand.get(tileIndex))) {
+                throw new IllegalStateException("Move " + i + " of game " + gameId + " does not match its deal");
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * Checks whether this game is played by the given players, in either order.
+     *
+     * @param nameA The name of one player.
+     * @param nameB The name of the other player.
+     * @return true if the players of the game have these names.
+     */
+    boolean isPlayedBy(String nameA, String nameB) {
+        return (player1Name.equals(nameA) && player2Name.equals(nameB))
+                || (player1Name.equals(nameB) && player2Name.equals(nameA));
+    }
+
+    /**
+     * Returns the id of the game in the journal.
+     *
+     * @return The game id.
+     */
+    long getGameId() {
+        return gameId;
+    }
+
+    /**
+     * Returns the number of the segment holding the start of the game.
+     *
+     * @return The segment number.
+     */
+    long getStartSegment() {
+        return startSegment;
+    }
+
+    /**
+     * Returns the seed the engine was dealt with.
+     *
+     * @return The seed.
+     */
+    long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the moves played so far.
+     *
+     * @return A copy of the moves, one hand index per byte.
+     */
+    byte[] getMoves() {
+        return Arrays.copyOf(moves, moveCount);
+    }
+
+    /**
+     * Returns the name of Player 1.
+     *
+     * @return The name.
+     */
+    String getPlayer1Name() {
+        return player1Name;
+    }
+
+    /**
+     * Returns the name of Player 2.
+     *
+     * @return The name.
+     */
+    String getPlayer2Name() {
+        return player2Name;
+    }
+
+    /**
+     * Records the id the game was given in the archive when it ended.
+     *
+     * @param archiveId The id of the game in the archive.
+     */
+    void setArchiveId(long archiveId) {
+        this.archiveId = archiveId;
+    }
+
+    /**
+     * Returns the id the game was given in the archive when it ended.
+     *
+     * @return The archive id, or 0 if the game has not ended.
+     */
+    long getArchiveId() {
+        return archiveId;
+    }
+
+    /**
+     * Returns the number of moves played so far.
+     *
+     * @return The move count.
+     */
+    int getMoveCount() {
+        return moveCount;
+    }
+}
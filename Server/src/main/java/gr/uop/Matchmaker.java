@@ -0,0 +1,273 @@
+package gr.uop;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+
+/**
+ * Matchmaker pairs the waiting players by rating. Two players are paired when their ratings are close enough,
+ * and the gap accepted for a player widens the longer the player waits, so nobody waits forever for a perfect
+ * opponent.
+ *
+ * <p>
+ * Enqueueing is lock-free: a player is added to a concurrent queue of arrivals, so the threads accepting
+ * players never wait for the pairing thread. The pairing thread runs a tick at a fixed interval. A tick moves
+ * the arrivals into the list of waiting players, which is kept sorted by rating (the arrivals are sorted and
+ * merged in), drops the players who left, then sweeps the list once and pairs each player with the next one
+ * when their gap is accepted. The players who waited longer than the longest wait are given up on, so that
+ * the server can seat them with a bot. A tick is linear in the number of waiting players, a few milliseconds for
+ * 100,000 of them.
+ * </p>
+ *
+ * @param <T> The type of the waiting players.
+ */
+final class Matchmaker<T> implements Closeable {
+
+    public static final Duration DEFAULT_TICK_INTERVAL = Duration.ofMillis(50);
+    public static final double DEFAULT_INITIAL_GAP = 100; // Rating points accepted at once
+    public static final double DEFAULT_GAP_PER_SECOND = 25; // Rating points added per second of waiting
+
+    /**
+     * PairingListener receives the pairs made by the matchmaker.
+     *
+     * @param <T> The type of the players.
+     */
+    interface PairingListener<T> {
+
+        /**
+         * Called on the pairing thread for each pair made. Must return quickly, as the next pairs wait for it.
+         *
+         * @param first The player with the lower rating.
+         * @param second The player with the higher rating.
+         */
+        void onPaired(T first, T second);
+
+        /**
+         * Called on the pairing thread for each player removed from the queue because nobody was found within
+         * the longest wait. Must return quickly.
+         *
+         * @param player The player.
+         */
+        default void onWaitedTooLong(T player) {
+        }
+    }
+
+    /**
+     * Ticket is a waiting player.
+     *
+     * @param player The player.
+     * @param rating The rating of the player.
+     * @param enqueuedNanos The {@code System.nanoTime()} at which the player was enqueued.
+     * @param <T> The type of the player.
+     */
+    private record Ticket<T>(T player, double rating, long enqueuedNanos) {
+    }
+
+    private static final Comparator<Ticket<?>> BY_RATING = Comparator.comparingDouble(Ticket::rating);
+
+    private final Queue<Ticket<T>> arrivals = new ConcurrentLinkedQueue<>();
+    private final long tickNanos;
+    private final double initialGap;
+    private final double gapPerNano;
+    private final long maxWaitNanos;
+    private final Predicate<T> stillWaiting;
+    private final PairingListener<T> listener;
+    private final Thread pairingThread;
+    private volatile int waitingCount;
+    private volatile boolean closed;
+
+    // Owned by the pairing thread
+    private Ticket<T>[] waiting = newTickets(1024); // Sorted by rating
+    private Ticket<T>[] merged = newTickets(1024);
+    private final List<Ticket<T>> arrived = new ArrayList<>();
+    private final List<Ticket<T>> pairs = new ArrayList<>(); // Flattened: first, second, first, second...
+    private final List<Ticket<T>> expired = new ArrayList<>();
+
+    /**
+     * Constructs a matchmaker and starts its pairing thread.
+     *
+     * @param tickInterval The time between two pairing ticks.
+     * @param initialGap The rating gap accepted as soon as a player is enqueued.
+     * @param gapPerSecond The rating gap added per second of waiting.
+     * @param maxWait The longest wait for an opponent, or null to wait forever.
+     * @param stillWaiting Tells whether a player still waits; the players who left are dropped.
+     * @param listener Receives the pairs.
+     */
+    Matchmaker(Duration tickInterval, double initialGap, double gapPerSecond, Duration maxWait,
+            Predicate<T> stillWaiting, PairingListener<T> listener) {
+        this.tickNanos = tickInterval.toNanos();
+        this.initialGap = initialGap;
+        this.gapPerNano = gapPerSecond / 1e9;
+        this.maxWaitNanos = maxWait == null ? Long.MAX_VALUE : maxWait.toNanos();
+        this.stillWaiting = stillWaiting;
+        this.listener = listener;
+        this.pairingThread = Thread.ofPlatform().name("matchmaker").daemon().start(this::pairingLoop);
+    }
+
+    /**
+     * Adds a player to the queue. Never blocks.
+     *
+     * @param player The player.
+     * @param rating The rating of the player.
+     */
+    void enqueue(T player, double rating) {
+        arrivals.offer(new Ticket<>(player, rating, System.nanoTime()));
+    }
+
+    /**
+     * Returns the number of players waiting after the last tick, not counting the arrivals since.
+     *
+     * @return The waiting player count.
+     */
+    int getWaitingCount() {
+        return waitingCount;
+    }
+
+    /**
+     * Stops the pairing thread. The players still waiting are not paired.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        pairingThread.interrupt();
+    }
+
+    /**
+     * Runs the ticks until the matchmaker is closed.
+     */
+    private void pairingLoop() {
+        while (!closed) {
+            long start = System.nanoTime();
+            tick(start);
+            long sleepNanos = tickNanos - (System.nanoTime() - start);
+            if (sleepNanos > 0) {
+                try {
+                    Thread.sleep(Duration.ofNanos(sleepNanos));
+                } catch (InterruptedException e) {
+                    return; // Closed
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the arrivals to the waiting players and pairs them.
+     *
+     * @param now The time of the tick.
+     */
+    void tick(long now) {
+        Ticket<T> arrival;
+        while ((arrival = arrivals.poll()) != null) {
+            arrived.add(arrival);
+        }
+        int count = waitingCount;
+        if (!arrived.isEmpty()) {
+            arrived.sort(BY_RATING);
+            count = mergeArrivals(count);
+            arrived.clear();
+        }
+
+        // Drop the players who left, then pair each player with the next one if their gap is accepted
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (stillWaiting.test(waiting[i].player())) {
+                waiting[kept++] = waiting[i];
+            }
+        }
+        int remaining = 0;
+        int i = 0;
+        while (i < kept) {
+            if (i + 1 < kept && accepts(waiting[i], waiting[i + 1], now)) {
+                pairs.add(waiting[i]);
+                pairs.add(waiting[i + 1]);
+                i += 2;
+            } else if (now - waiting[i].enqueuedNanos() > maxWaitNanos) {
+                expired.add(waiting[i++]);
+            } else {
+                waiting[remaining++] = waiting[i++];
+            }
+        }
+        Arrays.fill(waiting, remaining, count, null);
+        waitingCount = remaining;
+
+        // A failing callback (such as a bot provider that throws) loses its players but never the pairing thread
+        try {
+            for (int p = 0; p < pairs.size(); p += 2) {
+                try {
+                    listener.onPaired(pairs.get(p).player(), pairs.get(p + 1).player());
+                } catch (RuntimeException e) {
+                    System.out.println("Pairing two players failed: " + e);
+                }
+            }
+            for (Ticket<T> ticket : expired) {
+                try {
+                    listener.onWaitedTooLong(ticket.player());
+                } catch (RuntimeException e) {
+                    System.out.println("Seating a player who waited too long failed: " + e);
+                }
+            }
+        } finally {
+            pairs.clear();
+            expired.clear();
+        }
+    }
+
+    /**
+     * Merges the sorted arrivals into the sorted waiting players.
+     *
+     * @param count The number of waiting players.
+     * @return The number of waiting players with the arrivals.
+     */
+    private int mergeArrivals(int count) {
+        int total = count + arrived.size();
+        if (merged.length < total) {
+            merged = newTickets(Math.max(total, 2 * merged.length));
+        }
+        int w = 0;
+        int a = 0;
+        for (int m = 0; m < total; m++) {
+            if (a == arrived.size() || (w < count && waiting[w].rating() <= arrived.get(a).rating())) {
+                merged[m] = waiting[w++];
+            } else {
+                merged[m] = arrived.get(a++);
+            }
+        }
+        Ticket<T>[] swap = waiting;
+        waiting = merged;
+        merged = swap.length >= waiting.length ? swap : newTickets(waiting.length);
+        Arrays.fill(merged, 0, count, null);
+        return total;
+    }
+
+    /**
+     * Checks whether two players can be paired: the gap between their ratings is accepted by the one who
+     * has waited the longest.
+     *
+     * @param lower The player with the lower rating.
+     * @param higher The player with the higher rating.
+     * @param now The time of the tick.
+     * @return true if the players can be paired.
+     */
+    private boolean accepts(Ticket<T> lower, Ticket<T> higher, long now) {
+        long waitedNanos = now - Math.min(lower.enqueuedNanos(), higher.enqueuedNanos());
+        return higher.rating() - lower.rating() <= initialGap + gapPerNano * waitedNanos;
+    }
+
+    /**
+     * Creates an array of tickets.
+     *
+     * @param length The length of the array.
+     * @return The array.
+     * @param <T> The type of the players.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Ticket<T>[] newTickets(int length) {
+        return (Ticket<T>[]) new Ticket<?>[length];
+    }
+}
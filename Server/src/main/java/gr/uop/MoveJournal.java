@@ -0,0 +1,608 @@
+package gr.uop;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * MoveJournal is an append-only log of the games played on the server, used to rebuild the games in
+ * progress after a crash. A game is logged as its seed (which determines the deal), the index of every
+ * tile played from a player's hand, and its end with the id the game is given in the archive. The automatic draws and passes are not logged: they follow
+ * from the seed and the moves, so replaying the moves on an engine dealt with the same seed rebuilds the game.
+ *
+ * <p>
+ * The journal is a sequence of segment files ({@code journal-<number>.log}); a new segment is started when
+ * the current one is full, and old segments are deleted once none of their games is still in progress.
+ * Each record is framed with its length and a CRC-32C checksum, so a record torn by a crash is detected and
+ * ignored on recovery.
+ * </p>
+ *
+ * <p>
+ * A game is ended in the journal before it is archived, so the last game to end may be missing from the
+ * archive after a crash. The journal keeps that game on open, as {@link #getLastEndedGame()}, until the
+ * server has checked the archive for it and called {@link #release}.
+ * </p>
+ *
+ * <p>
+ * Appending only copies the record into an in-memory batch. One commit thread writes the batch and forces it
+ * to disk, at most once per commit interval, for all the tables at once (group commit). A table that needs its
+ * moves on disk before telling the players waits with {@link #awaitDurable(long)}. The journal is thread-safe.
+ * </p>
+ */
+final class MoveJournal implements Closeable {
+
+    public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+    public static final Duration DEFAULT_COMMIT_INTERVAL = Duration.ofMillis(1);
+
+    private static final int BATCH_BYTES = 1 << 20; // Records waiting for the next commit
+    private static final int MAX_NAME_BYTES = 1024;
+    private static final byte START = 1;
+    private static final byte MOVE = 2;
+    private static final byte END = 3;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final long commitIntervalNanos;
+    private final Thread committer;
+
+    // Guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition progress = lock.newCondition(); // Signalled when records become durable or the batch is emptied
+    private final Map<Long, Long> activeGames = new HashMap<>(); // Game id to the number of the segment holding its start
+    private ByteBuffer batch = ByteBuffer.allocateDirect(BATCH_BYTES);
+    private ByteBuffer writing = ByteBuffer.allocateDirect(BATCH_BYTES); // Owned by the commit thread between swaps
+    private long appendedPosition; // Bytes appended since the journal was opened
+    private long durablePosition; // Bytes forced to disk since the journal was opened
+    private long lastGameId;
+    private long segmentNumber;
+    private JournaledGame lastEndedGame; // The last game ended in the existing segments, null if none
+    private IOException failure;
+    private boolean closed;
+    private final CRC32C crc = new CRC32C();
+
+    // Owned by the commit thread
+    private FileChannel segment;
+    private long segmentSize;
+
+    /**
+     * Opens a journal for appending, in a new segment after the existing ones.
+     *
+     * @param directory The directory of the segment files, created if needed.
+     * @param segmentBytes The size after which a new segment is started.
+     * @param commitInterval The shortest time between two forces to disk.
+     * @param lastGameId The highest game id found in the existing segments.
+     * @throws IOException If the directory or the first segment cannot be created.
+     */
+    private MoveJournal(Path directory, long segmentBytes, Duration commitInterval, long lastGameId) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.commitIntervalNanos = commitInterval.toNanos();
+        this.lastGameId = lastGameId;
+
+        Files.createDirectories(directory);
+        long lastSegment = 0;
+        for (long number : segmentNumbers(directory)) {
+            lastSegment = Math.max(lastSegment, number);
+        }
+        this.segmentNumber = lastSegment + 1;
+        this.segment = openSegment(segmentNumber);
+
+        this.committer = Thread.ofPlatform().name("journal-commit").daemon().start(this::commitLoop);
+    }
+
+    /**
+     * Opens the journal of a directory: reads the games still in progress, then opens it for appending.
+     *
+     * @param directory The directory of the segment files.
+     * @param segmentBytes The size after which a new segment is started.
+     * @param commitInterval The shortest time between two forces to disk; a longer interval batches more records per force.
+     * @param recovered Receives the games that were in progress, in the order they started.
+     * @return The journal.
+     * @throws IOException If the segments cannot be read or the new segment cannot be created.
+     */
+    static MoveJournal open(Path directory, long segmentBytes, Duration commitInterval, List<JournaledGame> recovered) throws IOException {
+        Map<Long, JournaledGame> inProgress = new LinkedHashMap<>();
+        List<JournaledGame> ended = new ArrayList<>(1);
+        long lastGameId = 0;
+        if (Files.isDirectory(directory)) {
+            for (long number : segmentNumbers(directory)) {
+                lastGameId = Math.max(lastGameId, readSegment(directory, number, inProgress, ended));
+            }
+        }
+
+        MoveJournal journal = new MoveJournal(directory, segmentBytes, commitInterval, lastGameId);
+        long oldestNeeded = journal.segmentNumber;
+        for (JournaledGame game : ended) { // Kept until the server knows it is archived
+            journal.lastEndedGame = game;
+            journal.activeGames.put(game.getGameId(), game.getStartSegment());
+            oldestNeeded = Math.min(oldestNeeded, game.getStartSegment());
+        }
+        for (JournaledGame game : inProgress.values()) {
+            journal.activeGames.put(game.getGameId(), game.getStartSegment());
+            oldestNeeded = Math.min(oldestNeeded, game.getStartSegment());
+            recovered.add(game);
+        }
+        deleteSegmentsBefore(directory, oldestNeeded); // Only the finished games were in them
+        return journal;
+    }
+
+    /**
+     * Logs the start of a new game.
+     *
+     * @param seed The seed the engine was dealt with.
+     * @param player1Name The name of Player 1.
+     * @param player2Name The name of Player 2.
+     * @return The game, to log its moves.
+     * @throws IOException If the journal has failed or is closed.
+     */
+    JournaledGame startGame(long seed, String player1Name, String player2Name) throws IOException {
+        byte[] name1 = encodeName(player1Name);
+        byte[] name2 = encodeName(player2Name);
+        lock.lock();
+        try {
+            long gameId = ++lastGameId;
+            ByteBuffer record = beginRecord(START, gameId, 8 + 2 + name1.length + 2 + name2.length);
+            record.putLong(seed);
+            record.putShort((short) name1.length).put(name1);
+            record.putShort((short) name2.length).put(name2);
+            endRecord();
+            activeGames.put(gameId, segmentNumber);
+            return new JournaledGame(gameId, segmentNumber, seed, player1Name, player2Name);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Logs a move: the position in the current player's hand of the tile they played.
+     *
+     * @param game The game, which also records the move.
+     * @param tileIndex The position of the tile in the hand, which fits in one byte.
+     * @return The journal position after the move, to wait for with {@link #awaitDurable(long)}.
+     * @throws IOException If the journal has failed or is closed.
+     */
+    long appendMove(JournaledGame game, int tileIndex) throws IOException {
+        game.addMove((byte) tileIndex);
+        lock.lock();
+        try {
+            beginRecord(MOVE, game.getGameId(), 1).put((byte) tileIndex);
+            return endRecord();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Logs the end of a game, which will not be recovered any more, with the id it is about to be archived under.
+     * Its segments are kept until {@link #release} is called, once the game is in the archive.
+     *
+     * @param game The game.
+     * @param archiveId The id the archive will give the game.
+     * @return The journal position after the end, to wait for with {@link #awaitDurable(long)}.
+     * @throws IOException If the journal has failed or is closed.
+     */
+    long endGame(JournaledGame game, long archiveId) throws IOException {
+        game.setArchiveId(archiveId);
+        lock.lock();
+        try {
+            beginRecord(END, game.getGameId(), 8).putLong(archiveId);
+            return endRecord();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lets the segments of an ended game be deleted, once the game is in the archive.
+     *
+     * @param game The game.
+     */
+    void release(JournaledGame game) {
+        lock.lock();
+        try {
+            activeGames.remove(game.getGameId());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the last game that had ended when the journal was opened. It was ended in the journal before it
+     * was archived, so a crash may have kept it out of the archive: the archive has it if it holds the game's
+     * archive id. The journal keeps the game's segments until it is released.
+     *
+     * @return The game, with its archive id, or null if no game had ended.
+     */
+    JournaledGame getLastEndedGame() {
+        return lastEndedGame;
+    }
+
+    /**
+     * Waits until everything appended up to the given position is on disk.
+     *
+     * @param position A position returned by {@link #appendMove}.
+     * @throws IOException If writing the journal failed or the wait was interrupted.
+     */
+    void awaitDurable(long position) throws IOException {
+        lock.lock();
+        try {
+            while (durablePosition < position) {
+                if (failure != null) {
+                    throw new IOException("The journal could not be written", failure);
+                }
+                progress.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the journal");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces the appended records to disk and closes the journal.
+     *
+     * @throws IOException If the last records could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        long position;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            position = appendedPosition;
+        } finally {
+            lock.unlock();
+        }
+        LockSupport.unpark(committer);
+        awaitDurable(position);
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        segment.close();
+    }
+
+    /**
+     * Starts a record in the batch, waiting for the commit thread if the batch is full. Called with the lock held.
+     *
+     * @param type The type of the record.
+     * @param gameId The game of the record.
+     * @param length The length of the type-specific part of the record.
+     * @return The batch, positioned to write the type-specific part.
+     * @throws IOException If the journal has failed or is closed, or the wait was interrupted.
+     */
+    private ByteBuffer beginRecord(byte type, long gameId, int length) throws IOException {
+        int bodyLength = 1 + 8 + length;
+        while (batch.remaining() < 4 + bodyLength + 4) {
+            checkOpen();
+            LockSupport.unpark(committer);
+            try {
+                progress.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the journal");
+            }
+        }
+        checkOpen();
+        batch.putInt(bodyLength);
+        batch.mark();
+        batch.put(type).putLong(gameId);
+        return batch;
+    }
+
+    /**
+     * Ends the record started by {@link #beginRecord} with the checksum of its body and wakes the commit thread
+     * if the batch was empty. Called with the lock held.
+     *
+     * @return The journal position after the record.
+     */
+    private long endRecord() {
+        int end = batch.position();
+        batch.reset();
+        int bodyStart = batch.position();
+        crc.reset();
+        crc.update(batch.duplicate().limit(end));
+        batch.position(end);
+        batch.putInt((int) crc.getValue());
+
+        boolean wasEmpty = appendedPosition == durablePosition; // The commit thread is idle
+        appendedPosition += end - bodyStart + 8;
+        if (wasEmpty) {
+            LockSupport.unpark(committer);
+        }
+        return appendedPosition;
+    }
+
+    /**
+     * Throws if no more records can be appended. Called with the lock held.
+     *
+     * @throws IOException If the journal has failed or is closed.
+     */
+    private void checkOpen() throws IOException {
+        if (failure != null) {
+            throw new IOException("The journal could not be written", failure);
+        }
+        if (closed) {
+            throw new IOException("The journal is closed");
+        }
+    }
+
+    /**
+     * Writes and forces the batches to disk until the journal is closed.
+     */
+    private void commitLoop() {
+        long lastCommitNanos = System.nanoTime() - commitIntervalNanos;
+        while (true) {
+            long target;
+            lock.lock();
+            try {
+                if (batch.position() == 0) {
+                    if (closed) {
+                        return;
+                    }
+                    lock.unlock();
+                    try {
+                        LockSupport.park(this); // Woken by the first record of the next batch, or by close
+                    } finally {
+                        lock.lock();
+                    }
+                    continue;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            // Commit at most once per interval, so the records of many tables share one force
+            long wait = lastCommitNanos + commitIntervalNanos - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+            }
+
+            lock.lock();
+            try {
+                ByteBuffer full = batch;
+                batch = writing;
+                writing = full;
+                target = appendedPosition;
+                progress.signalAll(); // The batch has room again
+            } finally {
+                lock.unlock();
+            }
+
+            lastCommitNanos = System.nanoTime();
+            try {
+                write(writing);
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    failure = e;
+                    progress.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+
+            lock.lock();
+            try {
+                writing.clear();
+                durablePosition = target;
+                progress.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes a batch to the current segment and forces it to disk, starting a new segment first if it is full.
+     *
+     * @param buffer The batch, holding whole records.
+     * @throws IOException If writing fails.
+     */
+    private void write(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        if (segmentSize > 0 && segmentSize + buffer.remaining() > segmentBytes) {
+            rollSegment();
+        }
+        while (buffer.hasRemaining()) {
+            segmentSize += segment.write(buffer);
+        }
+        segment.force(false);
+    }
+
+    /**
+     * Closes the current segment, starts the next one and deletes the segments no game in progress started in.
+     *
+     * @throws IOException If the new segment cannot be created.
+     */
+    private void rollSegment() throws IOException {
+        segment.close();
+        long oldestNeeded;
+        lock.lock();
+        try {
+            segmentNumber++;
+            oldestNeeded = segmentNumber;
+            for (long number : activeGames.values()) {
+                oldestNeeded = Math.min(oldestNeeded, number);
+            }
+        } finally {
+            lock.unlock();
+        }
+        segment = openSegment(segmentNumber);
+        segmentSize = 0;
+        deleteSegmentsBefore(directory, oldestNeeded);
+    }
+
+    /**
+     * Deletes the segments numbered below the given one.
+     *
+     * @param directory The directory of the segments.
+     * @param oldestNeeded The number of the oldest segment to keep.
+     * @throws IOException If the directory cannot be listed or a segment cannot be deleted.
+     */
+    private static void deleteSegmentsBefore(Path directory, long oldestNeeded) throws IOException {
+        for (long number : segmentNumbers(directory)) {
+            if (number < oldestNeeded) {
+                Files.deleteIfExists(segmentPath(directory, number));
+            }
+        }
+    }
+
+    /**
+     * Creates a segment file.
+     *
+     * @param number The number of the segment.
+     * @return The channel to append to.
+     * @throws IOException If the file cannot be created.
+     */
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(segmentPath(directory, number), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Encodes a player name for a start record.
+     *
+     * @param name The name.
+     * @return The UTF-8 bytes of the name, cut to the longest name the journal stores.
+     */
+    private static byte[] encodeName(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        return bytes.length <= MAX_NAME_BYTES ? bytes : Arrays.copyOf(bytes, MAX_NAME_BYTES);
+    }
+
+    /**
+     * Reads the records of a segment into the games in progress. Reading stops at the first record that is
+     * incomplete or fails its checksum, which is what a crash in the middle of a write leaves.
+     *
+     * @param directory The directory of the segments.
+     * @param number The number of the segment.
+     * @param inProgress The games in progress, updated with the records of the segment.
+     * @param ended Holds the last game that ended, replaced by the ends of the segment.
+     * @return The highest game id seen in the segment.
+     * @throws IOException If the segment cannot be read.
+     */
+    private static long readSegment(Path directory, long number, Map<Long, JournaledGame> inProgress, List<JournaledGame> ended) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segmentPath(directory, number)));
+        CRC32C checksum = new CRC32C();
+        long lastGameId = 0;
+
+        while (buffer.remaining() >= 4) {
+            int bodyLength = buffer.getInt();
+            if (bodyLength < 9 || bodyLength > buffer.remaining() - 4) {
+                break; // Torn record, or a garbage length; compared this way round so a huge one cannot overflow
+            }
+            checksum.reset();
+            checksum.update(buffer.duplicate().limit(buffer.position() + bodyLength));
+            if ((int) checksum.getValue() != buffer.getInt(buffer.position() + bodyLength)) {
+                break;
+            }
+
+            int next = buffer.position() + bodyLength + 4;
+            byte type = buffer.get();
+            long gameId = buffer.getLong();
+            lastGameId = Math.max(lastGameId, gameId);
+            switch (type) {
+                case START -> {
+                    long seed = buffer.getLong();
+                    String name1 = readName(buffer);
+                    String name2 = readName(buffer);
+                    inProgress.put(gameId, new JournaledGame(gameId, number, seed, name1, name2));
+                }
+                case MOVE -> {
+                    JournaledGame game = inProgress.get(gameId);
+                    if (game != null) {
+                        game.addMove(buffer.get());
+                    }
+                }
+                case END -> {
+                    JournaledGame game = inProgress.remove(gameId);
+                    if (game != null && bodyLength >= 1 + 8 + 8) { // Ends are logged in archive order, so only the last one can be missing
+                        game.setArchiveId(buffer.getLong());
+                        ended.clear();
+                        ended.add(game);
+                    }
+                }
+                default -> {
+                    // Unknown record, skipped
+                }
+            }
+            buffer.position(next);
+        }
+        return lastGameId;
+    }
+
+    /**
+     * Reads a player name of a start record.
+     *
+     * @param buffer The record, positioned on the name.
+     * @return The name.
+     */
+    private static String readName(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Lists the numbers of the segments of a directory, in order.
+     *
+     * @param directory The directory of the segments.
+     * @return The segment numbers.
+     * @throws IOException If the directory cannot be listed.
+     */
+    private static List<Long> segmentNumbers(Path directory) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        numbers.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                    } catch (NumberFormatException e) {
+                        // Not a segment
+                    }
+                }
+            });
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    /**
+     * Returns the path of a segment file.
+     *
+     * @param directory The directory of the segments.
+     * @param number The number of the segment.
+     * @return The path of the segment.
+     */
+    private static Path segmentPath(Path directory, long number) {
+        return directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+}
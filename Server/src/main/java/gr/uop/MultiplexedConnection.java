@@ -0,0 +1,403 @@
+package gr.uop;
+
+import gr.uop.protocol.LineReader;
+import gr.uop.protocol.LineWriter;
+import gr.uop.protocol.Opcode;
+import gr.uop.protocol.ProtocolException;
+import gr.uop.protocol.Transport;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * MultiplexedConnection is the server side of a client connection carrying many games, one per channel.
+ * Every line of a game is prefixed with the id of its channel (see {@link Opcode#MULTIPLEX}).
+ *
+ * <p>
+ * A virtual thread reads the lines of the client, answers the pings and hands every other line to the queue
+ * of its channel, so a channel whose table is slow to read never holds up the others; a channel whose queue
+ * overflows is closed. Opening a channel is the login of a player, reported to the {@link ChannelListener}.
+ * </p>
+ *
+ * <p>
+ * The tables write to the outboxes of their channels, which only queue the flushed lines. Another virtual
+ * thread writes the outboxes to the socket in turn, at most about {@link #QUANTUM_BYTES} from each outbox per
+ * turn and always whole lines, so a channel with a lot to send cannot starve the others. The socket is only
+ * flushed when every outbox is empty, so the lines of many channels leave in a few writes.
+ * </p>
+ */
+final class MultiplexedConnection {
+
+    public static final int MAX_CHANNEL_PREFIX = 11; // Longest channel id and its space
+    static final int QUANTUM_BYTES = 4096; // Bytes written from an outbox before the next outbox's turn
+    private static final int MAX_QUEUED_LINES = 16; // A client only has a line to say when asked for it
+    private static final String PING_PREFIX = Opcode.PING.name() + " ";
+    private static final String OPEN_PREFIX = Opcode.OPEN.name() + " ";
+    private static final String CLOSED = new String("<closed>"); // Queued when a channel closes, compared by identity
+
+    /**
+     * ChannelListener is told about the channels opened by the client.
+     */
+    interface ChannelListener {
+
+        /**
+         * Called on the reader thread when the client opens a channel. Must return quickly.
+         *
+         * @param channel The new channel.
+         * @param name The name of the player of the channel.
+         */
+        void onOpened(Channel channel, String name);
+    }
+
+    private final Transport transport;
+    private final LineReader fromClient;
+    private final OutputStream toClient;
+    private final int maxInputLength;
+    private final int maxChannels;
+    private final ChannelListener listener;
+    private final Map<Integer, Channel> channels = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition outboxReady = lock.newCondition();
+    private final ArrayDeque<Outbox> ready = new ArrayDeque<>(); // Outboxes with lines to write, in turn order, guarded by lock
+    private final LineWriter pongs;
+    private boolean closed; // Guarded by lock
+
+    /**
+     * Wraps a connection whose client asked for multiplexing, and starts reading from and writing to it.
+     *
+     * @param transport The connection of the client.
+     * @param fromClient The reader of the connection, which already read the {@link Opcode#MULTIPLEX} request.
+     * @param maxInputLength The longest line accepted on a channel, without the channel prefix.
+     * @param maxChannels The largest number of channels open at once.
+     * @param listener Told about the channels opened by the client.
+     * @throws IOException If the streams of the connection cannot be opened.
+     */
+    MultiplexedConnection(Transport transport, LineReader fromClient, int maxInputLength, int maxChannels,
+            ChannelListener listener) throws IOException {
+        this.transport = transport;
+        this.fromClient = fromClient;
+        this.toClient = new BufferedOutputStream(transport.getOutputStream(), 65536);
+        this.maxInputLength = maxInputLength;
+        this.maxChannels = maxChannels;
+        this.listener = listener;
+        this.pongs = new LineWriter(new Outbox(), true); // Lines of the connection, without a channel
+        Thread.ofVirtual().name("mux-reader").start(this::readLoop);
+        Thread.ofVirtual().name("mux-writer").start(this::writeLoop);
+    }
+
+    /**
+     * Closes the connection and every channel on it.
+     */
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            outboxReady.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            transport.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+
+    /**
+     * Reads the lines of the client until the connection closes: answers the pings, opens and closes the
+     * channels and queues the other lines for their channels.
+     */
+    private void readLoop() {
+        try {
+            String line;
+            while ((line = fromClient.readLine()) != null) {
+                if (line.startsWith(PING_PREFIX)) {
+                    pongs.send(Opcode.PONG, line.substring(PING_PREFIX.length()));
+                    continue;
+                }
+                int space = line.indexOf(' ');
+                int id = space > 0 ? parseChannel(line, space) : -1;
+                if (id < 0) {
+                    throw new ProtocolException("Line without a channel: " + line);
+                }
+                String rest = line.substring(space + 1);
+                if (rest.length() > maxInputLength) {
+                    throw new ProtocolException("Line longer than " + maxInputLength + " bytes");
+                }
+                Channel channel = channels.get(id);
+                if (rest.startsWith(OPEN_PREFIX)) {
+                    open(id, rest.substring(OPEN_PREFIX.length()), channel);
+                } else if (channel == null) {
+                    continue; // A late line of a channel closed by the server
+                } else if (rest.equals(Opcode.CLOSE.name())) {
+                    channel.end();
+                } else if (!channel.lines.offer(rest)) {
+                    channel.end(); // The client says more than it was asked for
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("A multiplexed connection failed: " + e.getMessage());
+        } finally {
+            close();
+            for (Channel channel : channels.values()) {
+                channel.markClosed();
+            }
+            channels.clear();
+        }
+    }
+
+    /**
+     * Opens a channel asked for by the client, unless the id is in use or too many channels are open,
+     * in which case the client is told the channel is closed.
+     *
+     * @param id The id of the channel.
+     * @param name The name of the player of the channel.
+     * @param current The channel already open with this id, or null.
+     */
+    private void open(int id, String name, Channel current) {
+        if (current != null) {
+            return; // Still open: the client must wait for its CLOSE
+        }
+        Channel channel = new Channel(id);
+        if (channels.size() >= maxChannels || name.isEmpty()) {
+            channel.end();
+            return;
+        }
+        channels.put(id, channel);
+        listener.onOpened(channel, name);
+    }
+
+    /**
+     * Parses the channel id at the start of a line.
+     *
+     * @param line The line.
+     * @param space The index of the space after the id.
+     * @return The id, or -1 if the line does not start with one.
+     */
+    private static int parseChannel(String line, int space) {
+        if (space > MAX_CHANNEL_PREFIX - 1) {
+            return -1;
+        }
+        long id = 0;
+        for (int i = 0; i < space; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            id = 10 * id + (c - '0');
+        }
+        return id > Integer.MAX_VALUE ? -1 : (int) id;
+    }
+
+    /**
+     * Writes the outboxes to the socket in turn until the connection closes.
+     */
+    private void writeLoop() {
+        boolean unflushed = false;
+        try {
+            while (true) {
+                Outbox outbox;
+                byte[] frame;
+                int from;
+                int to;
+                lock.lock();
+                try {
+                    while (ready.isEmpty() && !closed && !unflushed) {
+                        outboxReady.await();
+                    }
+                    if (closed) {
+                        return;
+                    }
+                    outbox = ready.poll();
+                    if (outbox == null) {
+                        frame = null;
+                        from = to = 0;
+                    } else {
+                        frame = outbox.frames.peek();
+                        from = outbox.offset;
+                        to = Math.min(frame.length, from + QUANTUM_BYTES);
+                        while (to < frame.length && frame[to - 1] != '\n') {
+                            to++; // Whole lines only, the lines of two channels must not mix
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+
+                if (outbox == null) {
+                    toClient.flush(); // Every outbox is empty
+                    unflushed = false;
+                    continue;
+                }
+                toClient.write(frame, from, to - from);
+                unflushed = true;
+
+                lock.lock();
+                try {
+                    if (to == frame.length) {
+                        outbox.frames.poll();
+                        outbox.offset = 0;
+                    } else {
+                        outbox.offset = to;
+                    }
+                    if (outbox.frames.isEmpty()) {
+                        outbox.queued = false;
+                    } else {
+                        ready.add(outbox); // Back to the end of the turn
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (IOException e) {
+            close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+        }
+    }
+
+    /**
+     * Outbox queues the lines flushed by one writer until it is their turn to be written to the socket.
+     * It is the stream of the writer; the writer only writes whole lines to it.
+     */
+    private class Outbox extends OutputStream {
+
+        private final ArrayDeque<byte[]> frames = new ArrayDeque<>(); // Guarded by lock
+        private int offset; // Bytes of the first frame already written, guarded by lock
+        private boolean queued; // Whether the outbox is in the ready queue, guarded by lock
+        private boolean sealed; // Set once the channel is closed: nothing more is queued, guarded by lock
+
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (len > 0) {
+                enqueue(Arrays.copyOfRange(b, off, off + len), false);
+            }
+        }
+
+        /**
+         * Queues a frame and gives the outbox a turn if it had none.
+         *
+         * @param frame The lines to write.
+         * @param last If true, nothing is queued after this frame.
+         */
+        void enqueue(byte[] frame, boolean last) {
+            lock.lock();
+            try {
+                if (sealed || closed) {
+                    return;
+                }
+                sealed = last;
+                frames.add(frame);
+                if (!queued) {
+                    queued = true;
+                    ready.add(this);
+                    outboxReady.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Channel is one game of the connection, as seen by its table.
+     */
+    final class Channel implements PlayerConnection {
+
+        private final int id;
+        private final Outbox outbox = new Outbox();
+        private final LineWriter writer;
+        private final BlockingQueue<String> lines = new ArrayBlockingQueue<>(MAX_QUEUED_LINES);
+        private final CompletableFuture<Void> ended = new CompletableFuture<>(); // Completed when the channel is marked closed
+        private volatile boolean channelClosed;
+
+        /**
+         * Constructs a channel.
+         *
+         * @param id The id of the channel.
+         */
+        private Channel(int id) {
+            this.id = id;
+            this.writer = new LineWriter(outbox, false, id); // Buffered, flushed before every wait
+        }
+
+        @Override
+        public LineWriter getWriter() {
+            return writer;
+        }
+
+        @Override
+        public String readLine() throws IOException {
+            String line;
+            try {
+                line = lines.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the client", e);
+            }
+            if (line == CLOSED) {
+                lines.offer(CLOSED); // Every later read fails the same way
+                throw new EOFException("Channel " + id + " closed");
+            }
+            return line;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return channelClosed;
+        }
+
+        @Override
+        public void whenClosed(Runnable action) {
+            ended.thenRun(action);
+        }
+
+        /**
+         * Closes the channel: the lines already flushed are written, then {@link Opcode#CLOSE} tells the client
+         * the id is free. The connection stays open for the other channels.
+         */
+        @Override
+        public void close() {
+            end();
+        }
+
+        /**
+         * Ends the channel, from the table or the reader thread: marks it closed, seals its outbox with
+         * {@link Opcode#CLOSE} and forgets its id. Only the first call has an effect.
+         */
+        private void end() {
+            markClosed();
+            outbox.enqueue((id + " " + Opcode.CLOSE.name() + "\n").getBytes(StandardCharsets.US_ASCII), true);
+            channels.remove(id, this);
+        }
+
+        /**
+         * Marks the channel closed and wakes its table if it waits for a line.
+         */
+        private void markClosed() {
+            channelClosed = true;
+            while (!lines.offer(CLOSED)) {
+                lines.poll(); // The channel is gone, its unread lines no longer matter
+            }
+            ended.complete(null);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package gr.uop;
+
+import gr.uop.protocol.LineWriter;
+
+import java.io.IOException;
+
+/**
+ * PlayerConnection is the way a table reaches one player: a connection of its own ({@link ClientConnection})
+ * or a channel of a multiplexed connection ({@link MultiplexedConnection.Channel}).
+ */
+interface PlayerConnection {
+
+    /**
+     * Returns the writer of the game messages for the player.
+     *
+     * @return The writer, to be used by the game thread only.
+     */
+    LineWriter getWriter();
+
+    /**
+     * Waits for the next line sent by the player, other than a ping.
+     *
+     * @return The line sent by the player.
+     * @throws IOException If the player left or sent a line longer than allowed.
+     */
+    String readLine() throws IOException;
+
+    /**
+     * Checks whether the player is gone.
+     *
+     * @return true if no more lines will come from the player.
+     */
+    boolean isClosed();
+
+    /**
+     * Ends the connection of the player.
+     */
+    void close();
+
+    /**
+     * Runs an action once the player is gone, whichever side ended the connection; at once if it already is.
+     *
+     * @param action The action, run on the thread that saw the end.
+     */
+    void whenClosed(Runnable action);
+}
@@ -0,0 +1,494 @@
+package gr.uop;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RatingService keeps an Elo rating for every player name, updated when a game ends, and answers leaderboard
+ * queries: the rank of a player and the top N players.
+ *
+ * <p>
+ * The names are appended to {@code names.dat} and a player is identified by the position of its name. The
+ * ratings are fixed-size records in {@code ratings.dat}, a memory-mapped file updated in place, whose header
+ * holds the id of the last archived game applied. Process crashes lose nothing, as the mapped pages are kept by
+ * the operating system, and {@link #catchUp} applies the games archived after that id, so the ratings also
+ * catch up with games they missed.
+ * </p>
+ *
+ * <p>
+ * In memory, the players are grouped by rating in buckets a quarter of a point wide, and a Fenwick tree counts
+ * the players of the buckets. The rank of a player counts the players in higher buckets with the tree, so the
+ * players of a bucket tie: they share the rank, as they share the rating shown to the nearest point. Comparing
+ * them one by one would cost as much as the bucket is large, and most players sit in the few buckets of the
+ * ratings after their first games. The members of a bucket are kept ordered by their exact rating, best first,
+ * so the top N players are read from the highest buckets down without sorting. An update moves two players to
+ * their new places, shifting the members between their old and new places. The service is thread-safe.
+ * </p>
+ */
+final class RatingService implements Closeable {
+
+    public static final double INITIAL_RATING = 1500;
+    public static final double K_FACTOR = 32; // The most points a game can move a rating
+
+    private static final int MAGIC = 0x44524154; // "DRAT"
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 16; // double rating, int games, int wins
+    private static final int BUCKETS_PER_POINT = 4;
+    private static final int BUCKETS = 4096 * BUCKETS_PER_POINT; // Ratings from 0 to 4096
+    private static final int MAX_NAME_BYTES = 1024;
+
+    /**
+     * Rating is a line of the leaderboard.
+     *
+     * @param name The name of the player.
+     * @param rating The rating of the player.
+     * @param games The number of rated games of the player.
+     * @param wins The number of those games the player won.
+     * @param rank The position of the player on the leaderboard, from 1, shared by the players of a bucket.
+     */
+    record Rating(String name, double rating, int games, int wins, int rank) {
+    }
+
+    private final FileChannel names;
+    private final FileChannel ratingsFile;
+    private MappedByteBuffer ratings;
+
+    // Guarded by this
+    private final List<String> playerNames = new ArrayList<>();
+    private final Map<String, Integer> playerIds = new HashMap<>();
+    private int[] bucketOfPlayer;
+    private int[] slotOfPlayer; // Position of the player in the members of its bucket
+    private final int[][] bucketMembers = new int[BUCKETS][]; // Best first
+    private final int[] bucketSizes = new int[BUCKETS];
+    private final long[] fenwick = new long[BUCKETS + 1]; // Players per bucket, 1-based
+
+    /**
+     * Opens the files of the service.
+     *
+     * @param directory The directory of the files.
+     * @throws IOException If the files cannot be opened.
+     */
+    private RatingService(Path directory) throws IOException {
+        this.names = FileChannel.open(directory.resolve("names.dat"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.ratingsFile = FileChannel.open(directory.resolve("ratings.dat"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Opens the ratings of a directory, creating them if needed, and indexes them in memory.
+     *
+     * @param directory The directory of the ratings.
+     * @return The service.
+     * @throws IOException If the files cannot be read.
+     */
+    static RatingService open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        RatingService service = new RatingService(directory);
+        try {
+            service.load();
+        } catch (IOException | RuntimeException e) {
+            service.close();
+            throw e;
+        }
+        return service;
+    }
+
+    /**
+     * Returns the id of the last archived game applied to the ratings.
+     *
+     * @return The game id, 0 if none.
+     */
+    synchronized long getLastGameId() {
+        return ratings.getLong(8);
+    }
+
+    /**
+     * Updates the ratings of the players of a finished game. A game already applied is ignored, so a game
+     * recorded both by the server and by {@link #catchUp} counts once.
+     *
+     * @param gameId The id of the game in the archive.
+     * @param winnerName The name of the winner.
+     * @param loserName The name of the loser.
+     * @throws IOException If a new player cannot be stored.
+     */
+    synchronized void recordGame(long gameId, String winnerName, String loserName) throws IOException {
+        if (gameId <= getLastGameId()) {
+            return;
+        }
+        int winner = playerId(winnerName);
+        int loser = playerId(loserName);
+        double winnerRating = ratingOf(winner);
+        double loserRating = ratingOf(loser);
+
+        // Elo: the winner takes K times the chance they had to lose
+        double expected = 1 / (1 + Math.pow(10, (loserRating - winnerRating) / 400));
+        double change = K_FACTOR * (1 - expected);
+        store(winner, winnerRating + change, true);
+        store(loser, loserRating - change, false);
+        ratings.putLong(8, gameId);
+    }
+
+    /**
+     * Applies the games archived after the last one applied, such as the games a crash kept from the ratings.
+     *
+     * @param archive The archive of the games.
+     * @return The number of games applied.
+     * @throws IOException If a game cannot be read.
+     */
+    synchronized int catchUp(GameArchive archive) throws IOException {
+        int applied = 0;
+        for (long gameId = getLastGameId() + 1; gameId <= archive.getGameCount(); gameId++) {
+            ArchivedGame game = archive.read(gameId);
+            String winner = game.findWinner();
+            recordGame(gameId, winner, winner.equals(game.player1Name()) ? game.player2Name() : game.player1Name());
+            applied++;
+        }
+        return applied;
+    }
+
+    /**
+     * Returns the leaderboard line of a player.
+     *
+     * @param name The name of the player.
+     * @return The rating and rank of the player, or null if the player has no rated game.
+     */
+    synchronized Rating getRating(String name) {
+        Integer id = playerIds.get(name);
+        return id == null ? null : line(id, rankOf(id));
+    }
+
+    /**
+     * Returns the best players.
+     *
+     * @param count The number of players.
+     * @return The first players of the leaderboard, best first.
+     */
+    synchronized List<Rating> top(int count) {
+        List<Rating> top = new ArrayList<>(Math.min(count, playerNames.size()));
+        for (int bucket = BUCKETS - 1; bucket >= 0 && top.size() < count; bucket--) {
+            int size = bucketSizes[bucket];
+            if (size == 0) {
+                continue;
+            }
+            int rank = top.size() + 1; // Shared by the players of the bucket, listed by their exact rating
+            for (int i = 0; i < size && top.size() < count; i++) {
+                top.add(line(bucketMembers[bucket][i], rank));
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Returns the number of rated players.
+     *
+     * @return The player count.
+     */
+    synchronized int getPlayerCount() {
+        return playerNames.size();
+    }
+
+    /**
+     * Writes the ratings to disk and closes the files.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try (names; ratingsFile) {
+            if (ratings != null) {
+                ratings.force();
+            }
+        }
+    }
+
+    /**
+     * Reads the names and the ratings and indexes the players by rating.
+     *
+     * @throws IOException If the files cannot be read.
+     */
+    private void load() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) names.size());
+        while (buffer.hasRemaining() && names.read(buffer, buffer.position()) >= 0) {
+            // Read until full
+        }
+        buffer.flip();
+        while (buffer.remaining() >= 2) {
+            int length = buffer.getShort(buffer.position());
+            if (length < 0 || 2 + length > buffer.remaining()) {
+                break; // Cut by a crash
+            }
+            buffer.getShort();
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            String name = new String(bytes, StandardCharsets.UTF_8);
+            playerIds.put(name, playerNames.size());
+            playerNames.add(name);
+        }
+        names.truncate(buffer.position());
+
+        bucketOfPlayer = new int[Math.max(playerNames.size(), 1024)];
+        slotOfPlayer = new int[bucketOfPlayer.length];
+        mapRatings(bucketOfPlayer.length);
+        if (ratings.getInt(0) != MAGIC) {
+            ratings.putInt(0, MAGIC);
+        }
+        for (int id = 0; id < playerNames.size(); id++) {
+            if (ratingOf(id) == 0) {
+                ratings.putDouble(recordAt(id), INITIAL_RATING); // Named just before a crash, never rated
+            }
+            append(id, bucketOf(ratingOf(id)));
+        }
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            if (bucketSizes[bucket] > 1) {
+                order(bucket);
+            }
+        }
+    }
+
+    /**
+     * Returns the id of a player, adding the player with the initial rating if needed.
+     *
+     * @param name The name of the player.
+     * @return The id of the player.
+     * @throws IOException If the name cannot be stored.
+     */
+    private int playerId(String name) throws IOException {
+        Integer known = playerIds.get(name);
+        if (known != null) {
+            return known;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_NAME_BYTES) {
+            bytes = Arrays.copyOf(bytes, MAX_NAME_BYTES);
+            name = new String(bytes, StandardCharsets.UTF_8);
+        }
+        ByteBuffer record = ByteBuffer.allocate(2 + bytes.length).putShort((short) bytes.length).put(bytes).flip();
+        long position = names.size();
+        while (record.hasRemaining()) {
+            position += names.write(record, position);
+        }
+
+        int id = playerNames.size();
+        playerNames.add(name);
+        playerIds.put(name, id);
+        if (recordAt(id) + RECORD_BYTES > ratings.capacity()) {
+            mapRatings(2 * playerNames.size());
+        }
+        ratings.putDouble(recordAt(id), INITIAL_RATING);
+        if (id == bucketOfPlayer.length) {
+            bucketOfPlayer = Arrays.copyOf(bucketOfPlayer, 2 * id);
+            slotOfPlayer = Arrays.copyOf(slotOfPlayer, 2 * id);
+        }
+        index(id, bucketOf(INITIAL_RATING));
+        return id;
+    }
+
+    /**
+     * Stores the new rating of a player after a game and moves the player to its place for the rating.
+     *
+     * @param id The id of the player.
+     * @param rating The new rating.
+     * @param won Whether the player won the game.
+     */
+    private void store(int id, double rating, boolean won) {
+        int record = recordAt(id);
+        ratings.putDouble(record, rating);
+        ratings.putInt(record + 8, ratings.getInt(record + 8) + 1);
+        if (won) {
+            ratings.putInt(record + 12, ratings.getInt(record + 12) + 1);
+        }
+
+        unindex(id);
+        index(id, bucketOf(rating));
+    }
+
+    /**
+     * Returns the rank of a player: one more than the number of players in higher buckets. The players of the
+     * same bucket, rated within a quarter of a point of each other, tie.
+     *
+     * @param id The id of the player.
+     * @return The rank, from 1.
+     */
+    private int rankOf(int id) {
+        long higher = playerNames.size() - prefixCount(bucketOfPlayer[id] + 1);
+        return (int) higher + 1;
+    }
+
+    /**
+     * Returns the leaderboard line of a player.
+     *
+     * @param id The id of the player.
+     * @param rank The rank of the player.
+     * @return The line.
+     */
+    private Rating line(int id, int rank) {
+        int record = recordAt(id);
+        return new Rating(playerNames.get(id), ratings.getDouble(record), ratings.getInt(record + 8), ratings.getInt(record + 12), rank);
+    }
+
+    /**
+     * Adds a player to a bucket at its place among the members, found by binary search.
+     *
+     * @param id The id of the player.
+     * @param bucket The bucket of the rating of the player.
+     */
+    private void index(int id, int bucket) {
+        int low = 0;
+        int high = bucketSizes[bucket];
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ranksBefore(bucketMembers[bucket][middle], id)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        append(id, bucket);
+        int[] members = bucketMembers[bucket];
+        for (int slot = bucketSizes[bucket] - 1; slot > low; slot--) { // Shift the members ranked after it
+            members[slot] = members[slot - 1];
+            slotOfPlayer[members[slot]] = slot;
+        }
+        members[low] = id;
+        slotOfPlayer[id] = low;
+    }
+
+    /**
+     * Adds a player after the last member of a bucket.
+     *
+     * @param id The id of the player.
+     * @param bucket The bucket of the rating of the player.
+     */
+    private void append(int id, int bucket) {
+        int[] members = bucketMembers[bucket];
+        if (members == null) {
+            members = bucketMembers[bucket] = new int[4];
+        } else if (bucketSizes[bucket] == members.length) {
+            members = bucketMembers[bucket] = Arrays.copyOf(members, 2 * members.length);
+        }
+        slotOfPlayer[id] = bucketSizes[bucket];
+        members[bucketSizes[bucket]++] = id;
+        bucketOfPlayer[id] = bucket;
+        addCount(bucket, 1);
+    }
+
+    /**
+     * Removes a player from its bucket, shifting the members ranked after it into its slot.
+     *
+     * @param id The id of the player.
+     */
+    private void unindex(int id) {
+        int bucket = bucketOfPlayer[id];
+        int[] members = bucketMembers[bucket];
+        int size = --bucketSizes[bucket];
+        for (int slot = slotOfPlayer[id]; slot < size; slot++) {
+            members[slot] = members[slot + 1];
+            slotOfPlayer[members[slot]] = slot;
+        }
+        addCount(bucket, -1);
+    }
+
+    /**
+     * Orders the members of a bucket, best first, once they are all appended.
+     *
+     * @param bucket The bucket.
+     */
+    private void order(int bucket) {
+        int[] members = bucketMembers[bucket];
+        int[] ordered = Arrays.stream(members, 0, bucketSizes[bucket]).boxed()
+                .sorted((first, second) -> ranksBefore(first, second) ? -1 : 1)
+                .mapToInt(Integer::intValue).toArray();
+        for (int slot = 0; slot < ordered.length; slot++) {
+            members[slot] = ordered[slot];
+            slotOfPlayer[ordered[slot]] = slot;
+        }
+    }
+
+    /**
+     * Tells whether a player comes before another in their bucket: by rating, then by id for equal ratings.
+     *
+     * @param id The id of the player.
+     * @param other The id of the other player, not the same.
+     * @return Whether the player comes first.
+     */
+    private boolean ranksBefore(int id, int other) {
+        int order = Double.compare(ratingOf(other), ratingOf(id));
+        return order != 0 ? order < 0 : id < other;
+    }
+
+    /**
+     * Adds to the player count of a bucket in the Fenwick tree.
+     *
+     * @param bucket The bucket.
+     * @param delta The number of players added, or removed if negative.
+     */
+    private void addCount(int bucket, int delta) {
+        for (int i = bucket + 1; i <= BUCKETS; i += i & -i) {
+            fenwick[i] += delta;
+        }
+    }
+
+    /**
+     * Counts the players of the buckets below a bucket with the Fenwick tree.
+     *
+     * @param bucket The bucket, excluded.
+     * @return The number of players in the buckets before it.
+     */
+    private long prefixCount(int bucket) {
+        long count = 0;
+        for (int i = bucket; i > 0; i -= i & -i) {
+            count += fenwick[i];
+        }
+        return count;
+    }
+
+    /**
+     * Returns the bucket of a rating.
+     *
+     * @param rating The rating.
+     * @return The bucket, the lowest or highest one for ratings out of range.
+     */
+    private static int bucketOf(double rating) {
+        return (int) Math.max(0, Math.min(BUCKETS - 1, rating * BUCKETS_PER_POINT));
+    }
+
+    /**
+     * Returns the rating of a player.
+     *
+     * @param id The id of the player.
+     * @return The rating.
+     */
+    private double ratingOf(int id) {
+        return ratings.getDouble(recordAt(id));
+    }
+
+    /**
+     * Returns the position of the record of a player in the ratings file.
+     *
+     * @param id The id of the player.
+     * @return The position of the record.
+     */
+    private static int recordAt(int id) {
+        return HEADER_BYTES + id * RECORD_BYTES;
+    }
+
+    /**
+     * Maps the ratings file with room for the given number of players, growing the file if needed.
+     *
+     * @param players The number of players to make room for.
+     * @throws IOException If the file cannot be mapped.
+     */
+    private void mapRatings(int players) throws IOException {
+        long size = Math.max(ratingsFile.size(), recordAt(players));
+        ratings = ratingsFile.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+}
@@ -1,5 +1,7 @@
 package gr.uop;
 
+import gr.uop.GameEngine.RulesMode;
+
 import java.util.Scanner;
 
 /**
@@ -20,6 +22,7 @@ public class Server {
         System.out.println("Choose the game version:");
         System.out.println("1. Command Line (Local)");
         System.out.println("2. Networked Server");
+        System.out.println("3. Command Line (Local, All Fives with spinner)");
         System.out.print("Enter your choice: ");
 
         // Get user choice
@@ -34,6 +37,9 @@ public class Server {
             case 2:
                 runNetworkedServer();  // Run the networked server game
                 break;
+            case 3:
+                runCommandLineGame(RulesMode.ALL_FIVES);  // Run the spinner variant locally
+                break;
             default:
                 System.out.println("Invalid choice. Exiting...");
                 break;
@@ -49,6 +55,15 @@ public class Server {
         CommandLineGame.main(new String[]{});
     }
 
+    /**
+     * Starts the local command line game with the given rules.
+     *
+     * @param rulesMode The rule set of the game.
+     */
+    private static void runCommandLineGame(RulesMode rulesMode) {
+        CommandLineGame.main(new String[]{rulesMode.name()});
+    }
+
     /**
      * Starts the networked server game.
      * It creates an instance of the DominoServer and starts it to allow networked play.
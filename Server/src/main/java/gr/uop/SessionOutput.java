@@ -0,0 +1,95 @@
+package gr.uop;
+
+import gr.uop.GameEngine.Tile;
+
+import gr.uop.protocol.LineWriter;
+import gr.uop.protocol.Opcode;
+
+/**
+ * SessionOutput receives the messages a {@link GameSession} sends to one player. Over the network the messages
+ * are encoded as protocol lines ({@link #of(LineWriter)}); an in-process player receives them as plain calls,
+ * with the tiles and the live hand and board of the engine instead of their text.
+ */
+public interface SessionOutput {
+
+    /**
+     * Sends a message without payload.
+     *
+     * @param opcode The opcode of the message.
+     */
+    void send(Opcode opcode);
+
+    /**
+     * Sends a message with a number as its payload.
+     *
+     * @param opcode The opcode of the message.
+     * @param value The payload.
+     */
+    void send(Opcode opcode, int value);
+
+    /**
+     * Sends a message with a text payload.
+     *
+     * @param opcode The opcode of the message.
+     * @param value The payload.
+     */
+    void send(Opcode opcode, String value);
+
+    /**
+     * Sends a message whose payload is a tile.
+     *
+     * @param opcode The opcode of the message.
+     * @param tile The tile.
+     */
+    void sendTile(Opcode opcode, Tile tile);
+
+    /**
+     * Sends a message whose payload is a list of tiles. The tiles may be a live view of the engine,
+     * only valid until the next move.
+     *
+     * @param opcode The opcode of the message.
+     * @param tiles The tiles.
+     */
+    void sendTiles(Opcode opcode, Iterable<Tile> tiles);
+
+    /**
+     * Returns an output encoding the messages as protocol lines, formatted as the clients expect them
+     * ({@code [[6:5], [3:3]]} for the lists of tiles). The lines are buffered by the writer until it is flushed.
+     *
+     * @param writer The writer of the connection.
+     * @return The output.
+     */
+    static SessionOutput of(LineWriter writer) {
+        return new SessionOutput() {
+
+            @Override
+            public void send(Opcode opcode) {
+                writer.send(opcode);
+            }
+
+            @Override
+            public void send(Opcode opcode, int value) {
+                writer.send(opcode, value);
+            }
+
+            @Override
+            public void send(Opcode opcode, String value) {
+                writer.send(opcode, value);
+            }
+
+            @Override
+            public void sendTile(Opcode opcode, Tile tile) {
+                writer.begin(opcode).tile(tile.getUpperValue(), tile.getBottomValue()).end();
+            }
+
+            @Override
+            public void sendTiles(Opcode opcode, Iterable<Tile> tiles) {
+                writer.begin(opcode).beginTiles();
+                for (Tile tile : tiles) {
+                    writer.tile(tile.getUpperValue(), tile.getBottomValue());
+                }
+                writer.endTiles().end();
+            }
+        };
+    }
+}
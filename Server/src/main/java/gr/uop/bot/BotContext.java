@@ -0,0 +1,21 @@
+package gr.uop.bot;
+
+/**
+ * BotContext tells a {@link BotPlayer} how long it may think about its move.
+ */
+public interface BotContext {
+
+    /**
+     * Checks whether the move is no longer wanted, because its deadline passed or the game was stopped.
+     *
+     * @return true if the bot should return at once.
+     */
+    boolean isCancelled();
+
+    /**
+     * Returns the time left until the deadline of the move.
+     *
+     * @return The remaining time in nanoseconds, 0 or less once the deadline passed.
+     */
+    long getRemainingNanos();
+}
@@ -0,0 +1,23 @@
+package gr.uop.bot;
+
+/**
+ * BotPlayer chooses the moves of a bot seated at a table by the server.
+ *
+ * <p>
+ * Moves are computed on the bot pool of the server, away from the tables of human players, and each move has
+ * a deadline. A bot that searches should check {@link BotContext#isCancelled()} regularly and return its best
+ * move so far once it is true: when the deadline passes, the server plays a fallback move instead and the
+ * result of the bot is ignored.
+ * </p>
+ */
+public interface BotPlayer {
+
+    /**
+     * Chooses the tile to play. Only called when the bot has a tile that fits the board.
+     *
+     * @param view The state of the game as the bot sees it.
+     * @param context The deadline and cancellation of the move.
+     * @return The index of the tile in the hand of the bot.
+     */
+    int chooseMove(BotView view, BotContext context);
+}
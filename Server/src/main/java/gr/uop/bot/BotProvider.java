@@ -0,0 +1,24 @@
+package gr.uop.bot;
+
+/**
+ * BotProvider is the service through which the server finds the bots it can seat at a table. Providers are
+ * loaded with {@link java.util.ServiceLoader}: a module declares
+ * {@code provides gr.uop.bot.BotProvider with ...}, and a jar on the class path lists the provider class in
+ * {@code META-INF/services/gr.uop.bot.BotProvider}.
+ */
+public interface BotProvider {
+
+    /**
+     * Returns the name of the bot, which is also its name at the table and on the leaderboard.
+     *
+     * @return The name of the bot.
+     */
+    String getName();
+
+    /**
+     * Creates a bot for one game. The bot is only used by that game, one move at a time.
+     *
+     * @return The bot.
+     */
+    BotPlayer create();
+}
@@ -0,0 +1,126 @@
+package gr.uop.bot;
+
+import java.util.Arrays;
+
+/**
+ * BotView is what a bot knows when it chooses a move: its own hand, the open ends of the line of play and
+ * the sizes of the opponent's hand and of the stock. It is a copy, so a bot may keep reading it after the
+ * game moved on.
+ */
+public final class BotView {
+
+    private final int[] handPips; // Upper and bottom value of each tile, in hand order
+    private final int leftEnd;
+    private final int rightEnd;
+    private final int boardCount;
+    private final int opponentTileCount;
+    private final int stockSize;
+
+    /**
+     * Constructs a view of a game.
+     *
+     * @param handPips The values of the tiles of the hand, two per tile (upper then bottom); copied.
+     * @param leftEnd The open value at the left end of the line of play, or -1 if the board is empty.
+     * @param rightEnd The open value at the right end of the line of play, or -1 if the board is empty.
+     * @param boardCount The number of tiles on the board.
+     * @param opponentTileCount The number of tiles in the opponent's hand.
+     * @param stockSize The number of tiles left in the stock.
+     */
+    public BotView(int[] handPips, int leftEnd, int rightEnd, int boardCount, int opponentTileCount, int stockSize) {
+        this.handPips = Arrays.copyOf(handPips, handPips.length);
+        this.leftEnd = leftEnd;
+        this.rightEnd = rightEnd;
+        this.boardCount = boardCount;
+        this.opponentTileCount = opponentTileCount;
+        this.stockSize = stockSize;
+    }
+
+    /**
+     * Returns the number of tiles in the hand.
+     *
+     * @return The tile count.
+     */
+    public int getTileCount() {
+        return handPips.length / 2;
+    }
+
+    /**
+     * Returns the upper value of a tile of the hand.
+     *
+     * @param index The index of the tile.
+     * @return The upper value.
+     */
+    public int getUpperValue(int index) {
+        return handPips[2 * index];
+    }
+
+    /**
+     * Returns the bottom value of a tile of the hand.
+     *
+     * @param index The index of the tile.
+     * @return The bottom value.
+     */
+    public int getBottomValue(int index) {
+        return handPips[2 * index + 1];
+    }
+
+    /**
+     * Checks whether a tile of the hand can be played.
+     *
+     * @param index The index of the tile.
+     * @return true if the board is empty or the tile matches one of its open ends.
+     */
+    public boolean fits(int index) {
+        if (boardCount == 0) {
+            return true;
+        }
+        int upper = getUpperValue(index);
+        int bottom = getBottomValue(index);
+        return upper == leftEnd || bottom == leftEnd || upper == rightEnd || bottom == rightEnd;
+    }
+
+    /**
+     * Returns the open value at the left end of the line of play.
+     *
+     * @return The value, or -1 if the board is empty.
+     */
+    public int getLeftEnd() {
+        return leftEnd;
+    }
+
+    /**
+     * Returns the open value at the right end of the line of play.
+     *
+     * @return The value, or -1 if the board is empty.
+     */
+    public int getRightEnd() {
+        return rightEnd;
+    }
+
+    /**
+     * Returns the number of tiles on the board.
+     *
+     * @return The board count.
+     */
+    public int getBoardCount() {
+        return boardCount;
+    }
+
+    /**
+     * Returns the number of tiles in the opponent's hand.
+     *
+     * @return The opponent's tile count.
+     */
+    public int getOpponentTileCount() {
+        return opponentTileCount;
+    }
+
+    /**
+     * Returns the number of tiles left in the stock.
+     *
+     * @return The stock size.
+     */
+    public int getStockSize() {
+        return stockSize;
+    }
+}
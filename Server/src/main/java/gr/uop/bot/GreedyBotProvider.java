@@ -0,0 +1,29 @@
+package gr.uop.bot;
+
+/**
+ * GreedyBotProvider provides the bot shipped with the server. It plays the fitting tile worth the most
+ * points, so that the tiles left in its hand are worth as little as possible if the game ends blocked.
+ */
+public final class GreedyBotProvider implements BotProvider {
+
+    @Override
+    public String getName() {
+        return "Greedy Bot";
+    }
+
+    @Override
+    public BotPlayer create() {
+        return (view, context) -> {
+            int best = -1;
+            int bestPoints = -1;
+            for (int i = 0; i < view.getTileCount() && !context.isCancelled(); i++) {
+                int points = view.getUpperValue(i) + view.getBottomValue(i);
+                if (view.fits(i) && points > bestPoints) {
+                    best = i;
+                    bestPoints = points;
+                }
+            }
+            return best;
+        };
+    }
+}
@@ -1,4 +1,10 @@
 module gr.uop {
     requires javafx.controls;
+    requires java.management;
+    requires transitive gr.uop.protocol;
+    requires transitive gr.uop.engine;
     exports gr.uop;
-}
\ No newline at end of file
+    exports gr.uop.bot;
+    uses gr.uop.bot.BotProvider;
+    provides gr.uop.bot.BotProvider with gr.uop.bot.GreedyBotProvider;
+}
@@ -0,0 +1,176 @@
+package gr.uop;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the archive across the boundaries of its segments and its pending games, as read back by a tool that
+ * opens it read-only.
+ */
+class GameArchiveTest {
+
+    private static final int GAMES_PER_SEGMENT = 4;
+    private static final int GAMES = 10; // Two sealed segments, 1 to 4 and 5 to 8, and two pending games
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Archives the games and closes the archive.
+     */
+    @BeforeEach
+    void archiveGames() throws IOException {
+        try (GameArchive archive = GameArchive.open(directory, GAMES_PER_SEGMENT)) {
+            for (long gameId = 1; gameId <= GAMES; gameId++) {
+                assertEquals(gameId, archive.append(game(gameId), endTimeOf(gameId)));
+            }
+        }
+    }
+
+    /**
+     * Every game reads back as it was appended, whether sealed or pending.
+     */
+    @Test
+    void readsEveryGame() throws IOException {
+        try (GameArchive archive = GameArchive.openReadOnly(directory)) {
+            assertEquals(GAMES, archive.getGameCount());
+            assertEquals(2, archive.getSegmentCount());
+            for (long gameId = 1; gameId <= GAMES; gameId++) {
+                ArchivedGame game = archive.read(gameId);
+                assertEquals(gameId, game.gameId());
+                assertEquals(seedOf(gameId), game.seed());
+                assertEquals(endTimeOf(gameId), game.endTimeMillis());
+                assertEquals("Player " + gameId % 3, game.player1Name());
+                assertEquals("Player " + (gameId + 1) % 3, game.player2Name());
+                assertArrayEquals(movesOf(gameId), game.moves());
+            }
+            assertNull(archive.read(0));
+            assertNull(archive.read(GAMES + 1));
+        }
+    }
+
+    /**
+     * The first game ended at or after a time is found in the segment holding it, in the pending games, or is the
+     * next game to come.
+     */
+    @Test
+    void findsTheFirstGameSinceATime() throws IOException {
+        try (GameArchive archive = GameArchive.openReadOnly(directory)) {
+            assertEquals(1, archive.findFirstGameSince(0));
+            for (long gameId = 1; gameId <= GAMES; gameId++) {
+                long expected = gameId == 5 ? 4 : gameId; // 4 and 5 end together, across the segment boundary
+                assertEquals(expected, archive.findFirstGameSince(endTimeOf(gameId)));
+                assertEquals(expected, archive.findFirstGameSince(endTimeOf(gameId) - 1));
+            }
+            assertEquals(4, archive.findFirstGameSince(endTimeOf(3) + 1));
+            assertEquals(6, archive.findFirstGameSince(endTimeOf(5) + 1));
+            assertEquals(9, archive.findFirstGameSince(endTimeOf(8) + 1));
+            assertEquals(GAMES + 1, archive.findFirstGameSince(endTimeOf(GAMES) + 1));
+        }
+    }
+
+    /**
+     * Visiting the segments, then the pending games, yields every game once and in order.
+     */
+    @Test
+    void visitsEveryGameInOrder() throws IOException {
+        try (GameArchive archive = GameArchive.openReadOnly(directory)) {
+            List<Long> gameIds = new ArrayList<>();
+            GameArchive.GameVisitor visitor = (gameId, seed, moves, movesStart, movesEnd) -> {
+                gameIds.add(gameId);
+                assertEquals(seedOf(gameId), seed);
+                byte[] bytes = new byte[movesEnd - movesStart];
+                moves.get(movesStart, bytes);
+                assertArrayEquals(movesOf(gameId), bytes);
+            };
+            for (int position = 0; position < archive.getSegmentCount(); position++) {
+                assertEquals(1 + position * GAMES_PER_SEGMENT, archive.getFirstGameId(position));
+                assertEquals(GAMES_PER_SEGMENT, archive.getGameCount(position));
+                archive.visitSegment(position, visitor);
+            }
+            archive.visitPending(visitor);
+            assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L), gameIds);
+        }
+    }
+
+    /**
+     * A read-only archive refuses new games, and the archive continues the ids when it is opened again.
+     */
+    @Test
+    void continuesAfterReopening() throws IOException {
+        try (GameArchive archive = GameArchive.openReadOnly(directory)) {
+            assertThrows(IOException.class, () -> archive.append(game(GAMES + 1), endTimeOf(GAMES + 1)));
+        }
+        try (GameArchive archive = GameArchive.open(directory, GAMES_PER_SEGMENT)) {
+            for (long gameId = GAMES + 1; gameId <= 2 * GAMES; gameId++) {
+                assertEquals(gameId, archive.append(game(gameId), endTimeOf(gameId)));
+            }
+        }
+        try (GameArchive archive = GameArchive.openReadOnly(directory)) {
+            assertEquals(2 * GAMES, archive.getGameCount());
+            assertEquals(2 * GAMES / GAMES_PER_SEGMENT, archive.getSegmentCount());
+            for (long gameId = 1; gameId <= 2 * GAMES; gameId++) {
+                assertArrayEquals(movesOf(gameId), archive.read(gameId).moves());
+            }
+        }
+    }
+
+    /**
+     * Returns a finished game to archive.
+     *
+     * @param gameId The id the archive gives the game.
+     * @return The game.
+     */
+    private static JournaledGame game(long gameId) {
+        JournaledGame game = new JournaledGame(gameId, 1, seedOf(gameId), "Player " + gameId % 3, "Player " + (gameId + 1) % 3);
+        for (byte move : movesOf(gameId)) {
+            game.addMove(move);
+        }
+        return game;
+    }
+
+    /**
+     * Returns the seed of a game.
+     *
+     * @param gameId The id of the game.
+     * @return The seed.
+     */
+    private static long seedOf(long gameId) {
+        return gameId * 0x9E37_79B9_7F4A_7C15L;
+    }
+
+    /**
+     * Returns the end time of a game: a second after the game before it, except for the last game of the first
+     * segment and the first of the second, which end together.
+     *
+     * @param gameId The id of the game.
+     * @return The end time, in milliseconds since the epoch.
+     */
+    private static long endTimeOf(long gameId) {
+        return 1_700_000_000_000L + 1_000 * (gameId >= 5 ? gameId - 1 : gameId);
+    }
+
+    /**
+     * Returns the moves of a game, of a different length for each game of a segment.
+     *
+     * @param gameId The id of the game.
+     * @return The moves.
+     */
+    private static byte[] movesOf(long gameId) {
+        byte[] moves = new byte[(int) (gameId % 7) + 1];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = (byte) (gameId + i);
+        }
+        return moves;
+    }
+}
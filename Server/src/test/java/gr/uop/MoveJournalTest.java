@@ -0,0 +1,210 @@
+package gr.uop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gr.uop.GameEngine.GameEngine;
+import gr.uop.GameEngine.RulesMode;
+import gr.uop.GameEngine.Tile;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that the games in progress are rebuilt from the journal after a crash, and that the last ended game is
+ * archived once.
+ */
+class MoveJournalTest {
+
+    private static final long SEED = 42;
+    private static final int MOVE_FRAME_BYTES = 4 + 1 + 8 + 1 + 4; // Length, type, game id, tile index, checksum
+
+    @TempDir
+    Path directory;
+
+    /**
+     * A move cut short by a crash is dropped, and the game replays to the state before it.
+     */
+    @Test
+    void replaysTheMovesBeforeATornFrame() throws IOException {
+        List<String> states = playAndClose(SEED, 6);
+        try (FileChannel segment = FileChannel.open(lastSegment(), StandardOpenOption.WRITE)) {
+            segment.truncate(segment.size() - 3); // The last frame loses its checksum
+        }
+
+        JournaledGame game = recoverOnlyGame();
+        assertEquals(5, game.getMoveCount());
+        assertEquals(states.get(5), game.replay().toString());
+    }
+
+    /**
+     * A move whose checksum fails is dropped, and the game replays to the state before it.
+     */
+    @Test
+    void replaysTheMovesBeforeACorruptFrame() throws IOException {
+        List<String> states = playAndClose(SEED, 6);
+        try (FileChannel segment = FileChannel.open(lastSegment(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long tileIndexAt = segment.size() - MOVE_FRAME_BYTES + 4 + 1 + 8;
+            ByteBuffer tileIndex = ByteBuffer.allocate(1);
+            segment.read(tileIndex, tileIndexAt);
+            segment.write(tileIndex.put(0, (byte) (tileIndex.get(0) ^ 1)).rewind(), tileIndexAt);
+        }
+
+        JournaledGame game = recoverOnlyGame();
+        assertEquals(5, game.getMoveCount());
+        assertEquals(states.get(5), game.replay().toString());
+    }
+
+    /**
+     * Every move of a game the journal closed on is replayed.
+     */
+    @Test
+    void replaysAllTheMovesOfAnIntactJournal() throws IOException {
+        List<String> states = playAndClose(SEED, 6);
+
+        JournaledGame game = recoverOnlyGame();
+        assertEquals(6, game.getMoveCount());
+        assertEquals(states.get(6), game.replay().toString());
+    }
+
+    /**
+     * A game ended in the journal but not archived is archived under the id of its end, and only once however
+     * often the server starts again.
+     */
+    @Test
+    void archivesTheLastEndedGameOnce(@TempDir Path archiveDirectory) throws IOException {
+        try (GameArchive archive = GameArchive.open(archiveDirectory, 4)) {
+            try (MoveJournal journal = MoveJournal.open(directory, MoveJournal.DEFAULT_SEGMENT_BYTES, Duration.ZERO, new ArrayList<>())) {
+                JournaledGame archived = playGame(journal, SEED, 4, new ArrayList<>());
+                journal.endGame(archived, archive.getGameCount() + 1);
+                archive.append(archived, 1_000);
+                JournaledGame lost = playGame(journal, SEED + 1, 4, new ArrayList<>());
+                journal.endGame(lost, archive.getGameCount() + 1); // The crash comes before the archive append
+            }
+
+            for (int start = 0; start < 3; start++) {
+                List<JournaledGame> recovered = new ArrayList<>();
+                try (MoveJournal journal = MoveJournal.open(directory, MoveJournal.DEFAULT_SEGMENT_BYTES, Duration.ZERO, recovered)) {
+                    assertTrue(recovered.isEmpty());
+                    JournaledGame ended = journal.getLastEndedGame();
+                    assertNotNull(ended);
+                    assertEquals(2, ended.getArchiveId());
+                    DominoServer.archiveLastEndedGame(journal, archive);
+                }
+                assertEquals(2, archive.getGameCount());
+            }
+            ArchivedGame game = archive.read(2);
+            assertEquals(SEED + 1, game.seed());
+            assertEquals(4, game.moves().length);
+        }
+    }
+
+    /**
+     * A game whose end was torn by a crash is still in progress.
+     */
+    @Test
+    void recoversAGameWhoseEndIsTorn() throws IOException {
+        List<String> states = new ArrayList<>();
+        try (MoveJournal journal = MoveJournal.open(directory, MoveJournal.DEFAULT_SEGMENT_BYTES, Duration.ZERO, new ArrayList<>())) {
+            journal.endGame(playGame(journal, SEED, 3, states), 1);
+        }
+        try (FileChannel segment = FileChannel.open(lastSegment(), StandardOpenOption.WRITE)) {
+            segment.truncate(segment.size() - 1);
+        }
+
+        List<JournaledGame> recovered = new ArrayList<>();
+        try (MoveJournal journal = MoveJournal.open(directory, MoveJournal.DEFAULT_SEGMENT_BYTES, Duration.ZERO, recovered)) {
+            assertNull(journal.getLastEndedGame());
+        }
+        assertEquals(1, recovered.size());
+        assertEquals(states.get(3), recovered.get(0).replay().toString());
+    }
+
+    /**
+     * Journals a game in progress, then closes the journal.
+     *
+     * @param seed The seed of the game.
+     * @param moves The number of moves to play.
+     * @return The state of the engine after each move, from the deal on.
+     * @throws IOException If the journal cannot be written.
+     */
+    private List<String> playAndClose(long seed, int moves) throws IOException {
+        List<String> states = new ArrayList<>();
+        try (MoveJournal journal = MoveJournal.open(directory, MoveJournal.DEFAULT_SEGMENT_BYTES, Duration.ZERO, new ArrayList<>())) {
+            journal.endGame(playGame(journal, seed + 1, 2, new ArrayList<>()), 1); // Ended before, never recovered
+            playGame(journal, seed, moves, states);
+        }
+        return states;
+    }
+
+    /**
+     * Plays the first tile that fits on every turn of a new game, as the server would, and journals the moves.
+     *
+     * @param journal The journal.
+     * @param seed The seed of the game.
+     * @param moves The number of moves to play.
+     * @param states Receives the state of the engine after the deal and after each move.
+     * @return The game.
+     * @throws IOException If the journal cannot be written.
+     */
+    private static JournaledGame playGame(MoveJournal journal, long seed, int moves, List<String> states) throws IOException {
+        JournaledGame game = journal.startGame(seed, "Alice", "Bob");
+        GameEngine engine = new GameEngine("Alice", "Bob", RulesMode.STRAIGHT, seed);
+        states.add(engine.toString());
+        for (int move = 0; move < moves; move++) {
+            while (!engine.isGameOver() && !engine.canPlay()) {
+                engine.drawUntilPlayable();
+            }
+            assertFalse(engine.isGameOver(), "The game ended before move " + move);
+            List<Tile> hand = new ArrayList<>(engine.getCurrentPlayer().getTiles());
+            int tileIndex = 0;
+            while (!engine.playTile(hand.get(tileIndex))) {
+                tileIndex++;
+            }
+            journal.appendMove(game, tileIndex);
+            states.add(engine.toString());
+        }
+        return game;
+    }
+
+    /**
+     * Reopens the journal and returns the one game it recovers.
+     *
+     * @return The recovered game.
+     * @throws IOException If the journal cannot be read.
+     */
+    private JournaledGame recoverOnlyGame() throws IOException {
+        List<JournaledGame> recovered = new ArrayList<>();
+        try (MoveJournal journal = MoveJournal.open(directory, MoveJournal.DEFAULT_SEGMENT_BYTES, Duration.ZERO, recovered)) {
+            JournaledGame ended = journal.getLastEndedGame();
+            assertNotNull(ended);
+            assertEquals(1, ended.getArchiveId());
+        }
+        assertEquals(1, recovered.size());
+        return recovered.get(0);
+    }
+
+    /**
+     * Returns the segment the journal wrote last.
+     *
+     * @return The path of the segment.
+     * @throws IOException If the directory cannot be listed.
+     */
+    private Path lastSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("journal-")).max(Path::compareTo).orElseThrow();
+        }
+    }
+}